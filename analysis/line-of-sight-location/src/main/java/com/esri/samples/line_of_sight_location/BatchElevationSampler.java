@@ -0,0 +1,335 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.line_of_sight_location;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.geometry.GeodeticCurveType;
+import com.esri.arcgisruntime.geometry.GeometryEngine;
+import com.esri.arcgisruntime.geometry.LinearUnit;
+import com.esri.arcgisruntime.geometry.LinearUnitId;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.Polyline;
+import com.esri.arcgisruntime.geometry.SpatialReference;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
+import com.esri.arcgisruntime.mapping.Surface;
+
+/**
+ * Gets the elevation of many points on a surface at once. Points are grouped into tiles of a geographic grid of
+ * elevation posts. For each tile the sampler counts the posts at the corners of the grid cells its points fall in. If
+ * there are fewer of those posts than points, it asks the surface for just those posts and interpolates the points
+ * between them, so a tile never costs more surface requests than it has posts however many points it has. Otherwise it
+ * asks the surface for each point. Tiles are interpolated in parallel, and the surface requests of all tiles are kept
+ * in flight together.
+ */
+public class BatchElevationSampler {
+
+  private static final int TILE_POSTS = 32;
+  private static final int POSTS_PER_TILE = (TILE_POSTS + 1) * (TILE_POSTS + 1);
+  private static final int MAX_REQUESTS_IN_FLIGHT = 512;
+  private static final double METERS_PER_DEGREE = 111_320;
+
+  private final Surface surface;
+  private final double postSpacing;
+  private final double tileSpan;
+  private final ExecutorService executor;
+  private final Semaphore requestsInFlight = new Semaphore(MAX_REQUESTS_IN_FLIGHT);
+  private final AtomicLong surfaceRequests = new AtomicLong();
+  private final AtomicLong gridTiles = new AtomicLong();
+  private final AtomicLong sampledTiles = new AtomicLong();
+
+  /**
+   * Creates a sampler.
+   *
+   * @param surface the surface to sample
+   * @param postSpacingMeters spacing of the posts interpolated between, which should be about the resolution of the
+   *                          surface's elevation data
+   */
+  public BatchElevationSampler(Surface surface, double postSpacingMeters) {
+    this.surface = surface;
+    postSpacing = postSpacingMeters / METERS_PER_DEGREE;
+    tileSpan = postSpacing * TILE_POSTS;
+    executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+      Thread thread = new Thread(runnable, "elevation-sampler");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Gets the elevation profile along a line, sampled at a fixed interval. Blocks until done, so call it from a
+   * background thread.
+   *
+   * @param polyline the line
+   * @param intervalMeters geodetic distance between samples
+   * @return the elevation of each sample in meters, NaN where the surface has no elevation
+   * @throws InterruptedException if the thread is interrupted
+   */
+  public double[] sampleProfile(Polyline polyline, double intervalMeters) throws InterruptedException {
+    Polyline densified = (Polyline) GeometryEngine.densifyGeodetic(polyline, intervalMeters,
+        new LinearUnit(LinearUnitId.METERS), GeodeticCurveType.GEODESIC);
+    List<Point> points = new ArrayList<>();
+    densified.getParts().forEach(part -> part.getPoints().forEach(points::add));
+    return sample(points);
+  }
+
+  /**
+   * Gets the elevation of points. Blocks until done, so call it from a background thread.
+   *
+   * @param points the points, in any spatial reference
+   * @return the elevation of each point in meters, NaN where the surface has no elevation
+   * @throws InterruptedException if the thread is interrupted
+   */
+  public double[] sample(List<Point> points) throws InterruptedException {
+    int count = points.size();
+    double[] longitudes = new double[count];
+    double[] latitudes = new double[count];
+    for (int i = 0; i < count; i++) {
+      Point point = points.get(i);
+      SpatialReference spatialReference = point.getSpatialReference();
+      if (spatialReference != null && spatialReference.getWkid() != 4326) {
+        point = (Point) GeometryEngine.project(point, SpatialReferences.getWgs84());
+      }
+      longitudes[i] = point.getX();
+      latitudes[i] = point.getY();
+    }
+    return sample(longitudes, latitudes);
+  }
+
+  /**
+   * Gets the elevation of WGS84 coordinates. Blocks until done, so call it from a background thread.
+   *
+   * @param longitudes longitude of each point
+   * @param latitudes latitude of each point
+   * @return the elevation of each point in meters, NaN where the surface has no elevation
+   * @throws InterruptedException if the thread is interrupted
+   */
+  public double[] sample(double[] longitudes, double[] latitudes) throws InterruptedException {
+    double[] elevations = new double[longitudes.length];
+    Arrays.fill(elevations, Double.NaN);
+
+    // group the points by the tile they fall in
+    Map<Long, Tile> tiles = new HashMap<>();
+    for (int i = 0; i < longitudes.length; i++) {
+      long column = (long) Math.floor(longitudes[i] / tileSpan);
+      long row = (long) Math.floor(latitudes[i] / tileSpan);
+      tiles.computeIfAbsent((column << 32) ^ (row & 0xFFFFFFFFL), key -> new Tile(column, row)).add(i);
+    }
+
+    List<CompletableFuture<Void>> done = new ArrayList<>(tiles.size());
+    for (Tile tile : tiles.values()) {
+      sampledTiles.incrementAndGet();
+      BitSet cornerPosts = cornerPosts(tile, longitudes, latitudes);
+      if (cornerPosts.cardinality() < tile.size) {
+        gridTiles.incrementAndGet();
+        done.add(sampleGrid(tile, cornerPosts, longitudes, latitudes, elevations));
+      } else {
+        for (int i = 0; i < tile.size; i++) {
+          int index = tile.indices[i];
+          done.add(request(longitudes[index], latitudes[index]).thenAccept(elevation -> elevations[index] =
+              elevation));
+        }
+      }
+    }
+    try {
+      CompletableFuture.allOf(done.toArray(new CompletableFuture[0])).get();
+    } catch (ExecutionException e) {
+      // failed requests leave NaN
+    }
+    return elevations;
+  }
+
+  /**
+   * Gets how many requests the sampler has made to the surface.
+   *
+   * @return number of surface requests
+   */
+  public long getSurfaceRequestCount() {
+    return surfaceRequests.get();
+  }
+
+  /**
+   * Gets how many tiles of points the sampler has sampled.
+   *
+   * @return number of tiles
+   */
+  public long getTileCount() {
+    return sampledTiles.get();
+  }
+
+  /**
+   * Gets how many tiles of points the sampler has interpolated between posts, rather than asking the surface for each
+   * point.
+   *
+   * @return number of interpolated tiles
+   */
+  public long getGridTileCount() {
+    return gridTiles.get();
+  }
+
+  /**
+   * Stops the sampler's threads.
+   */
+  public void dispose() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Finds the posts at the corners of the grid cells a tile's points fall in.
+   *
+   * @param tile the tile
+   * @param longitudes longitude of each point
+   * @param latitudes latitude of each point
+   * @return the corner posts, indexed by row * (TILE_POSTS + 1) + column
+   */
+  private BitSet cornerPosts(Tile tile, double[] longitudes, double[] latitudes) {
+    double west = tile.column * tileSpan;
+    double south = tile.row * tileSpan;
+    BitSet posts = new BitSet(POSTS_PER_TILE);
+    for (int i = 0; i < tile.size; i++) {
+      int index = tile.indices[i];
+      int post = cellRow(latitudes[index], south) * (TILE_POSTS + 1) + cellColumn(longitudes[index], west);
+      posts.set(post, post + 2);
+      posts.set(post + TILE_POSTS + 1, post + TILE_POSTS + 3);
+    }
+    return posts;
+  }
+
+  /**
+   * Requests the corner posts of a tile's points, then interpolates the points between them.
+   *
+   * @param tile the tile
+   * @param cornerPosts the posts at the corners of the cells the tile's points fall in
+   * @param longitudes longitude of each point
+   * @param latitudes latitude of each point
+   * @param elevations elevations to fill in
+   * @return completes when the tile's points have their elevation
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private CompletableFuture<Void> sampleGrid(Tile tile, BitSet cornerPosts, double[] longitudes, double[] latitudes,
+      double[] elevations) throws InterruptedException {
+
+    double west = tile.column * tileSpan;
+    double south = tile.row * tileSpan;
+    double[] posts = new double[POSTS_PER_TILE];
+    List<CompletableFuture<Void>> postsDone = new ArrayList<>(cornerPosts.cardinality());
+    for (int post = cornerPosts.nextSetBit(0); post >= 0; post = cornerPosts.nextSetBit(post + 1)) {
+      int index = post;
+      double longitude = west + (post % (TILE_POSTS + 1)) * postSpacing;
+      double latitude = south + (post / (TILE_POSTS + 1)) * postSpacing;
+      postsDone.add(request(longitude, latitude).thenAccept(elevation -> posts[index] = elevation));
+    }
+
+    return CompletableFuture.allOf(postsDone.toArray(new CompletableFuture[0])).thenRunAsync(() -> {
+      for (int i = 0; i < tile.size; i++) {
+        int index = tile.indices[i];
+        double x = Math.min(TILE_POSTS, Math.max(0, (longitudes[index] - west) / postSpacing));
+        double y = Math.min(TILE_POSTS, Math.max(0, (latitudes[index] - south) / postSpacing));
+        int column = cellColumn(longitudes[index], west);
+        int row = cellRow(latitudes[index], south);
+        double dx = x - column;
+        double dy = y - row;
+        int post = row * (TILE_POSTS + 1) + column;
+        double bottom = posts[post] + (posts[post + 1] - posts[post]) * dx;
+        double top = posts[post + TILE_POSTS + 1] + (posts[post + TILE_POSTS + 2] - posts[post + TILE_POSTS + 1]) * dx;
+        elevations[index] = bottom + (top - bottom) * dy;
+      }
+    }, executor);
+  }
+
+  /**
+   * Gets the column of the grid cell a longitude falls in, clamped to the tile.
+   *
+   * @param longitude the longitude
+   * @param west west edge of the tile
+   * @return the cell's column
+   */
+  private int cellColumn(double longitude, double west) {
+    return Math.min(TILE_POSTS - 1, Math.max(0, (int) Math.floor((longitude - west) / postSpacing)));
+  }
+
+  /**
+   * Gets the row of the grid cell a latitude falls in, clamped to the tile.
+   *
+   * @param latitude the latitude
+   * @param south south edge of the tile
+   * @return the cell's row
+   */
+  private int cellRow(double latitude, double south) {
+    return Math.min(TILE_POSTS - 1, Math.max(0, (int) Math.floor((latitude - south) / postSpacing)));
+  }
+
+  /**
+   * Asks the surface for the elevation of a WGS84 coordinate, waiting first if too many requests are in flight.
+   *
+   * @param longitude the longitude
+   * @param latitude the latitude
+   * @return completes with the elevation, or NaN if the request fails
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private CompletableFuture<Double> request(double longitude, double latitude) throws InterruptedException {
+    requestsInFlight.acquire();
+    surfaceRequests.incrementAndGet();
+    CompletableFuture<Double> result = new CompletableFuture<>();
+    ListenableFuture<Double> elevationFuture = surface.getElevationAsync(new Point(longitude, latitude,
+        SpatialReferences.getWgs84()));
+    elevationFuture.addDoneListener(() -> {
+      requestsInFlight.release();
+      try {
+        result.complete(elevationFuture.get());
+      } catch (InterruptedException | ExecutionException e) {
+        result.complete(Double.NaN);
+      }
+    });
+    return result;
+  }
+
+  /**
+   * The indices of the points in a tile of the post grid.
+   */
+  private static class Tile {
+
+    private final long column;
+    private final long row;
+    private int[] indices = new int[16];
+    private int size;
+
+    Tile(long column, long row) {
+      this.column = column;
+      this.row = row;
+    }
+
+    void add(int index) {
+      if (size == indices.length) {
+        indices = Arrays.copyOf(indices, size * 2);
+      }
+      indices[size++] = index;
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.line_of_sight_location;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import javafx.application.Platform;
+
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
+import com.esri.arcgisruntime.loadable.LoadStatus;
+import com.esri.arcgisruntime.mapping.RasterElevationSource;
+import com.esri.arcgisruntime.mapping.Surface;
+
+/**
+ * Command line harness showing how {@link IntervisibilityEngine} scales with the number of observers and targets, on a
+ * surface of the Monterey DTED raster so that it runs offline. Each matrix is computed twice with the same engine: the
+ * first time every profile is sampled from the surface, the second time they all come from the profile cache. The
+ * last matrix has the same points as observers and targets, so half its profiles are the other half seen from the
+ * other end. The larger matrices cache a few hundred megabytes of profiles, so give it a heap of 2 GB or more.
+ */
+public class IntervisibilityBenchmark {
+
+  private static final double WEST = -121.95;
+  private static final double SOUTH = 36.50;
+  private static final double EAST = -121.75;
+  private static final double NORTH = 36.65;
+  private static final double SAMPLE_SPACING_METERS = 30;
+  private static final long PROFILE_CACHE_SAMPLES = 64_000_000;
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optional matrix sizes as observers x targets (default 1x100 10x100 10x1000 100x1000)
+   * @throws Exception if the elevation source fails to load
+   */
+  public static void main(String[] args) throws Exception {
+
+    List<int[]> sizes = new ArrayList<>();
+    for (String size : args.length > 0 ? args : new String[] {"1x100", "10x100", "10x1000", "100x1000"}) {
+      String[] counts = size.split("x");
+      sizes.add(new int[] {Integer.parseInt(counts[0]), Integer.parseInt(counts[1])});
+    }
+
+    // the surface's listeners are called on the JavaFX application thread, so the toolkit has to be running
+    Platform.startup(() -> {
+    });
+
+    RasterElevationSource elevationSource = new RasterElevationSource(Collections.singletonList(new File(
+        System.getProperty("data.dir"), "./samples-data/monterey_elevation/MontereyElevation.dt2").getAbsolutePath()));
+    CountDownLatch loaded = new CountDownLatch(1);
+    elevationSource.addDoneLoadingListener(loaded::countDown);
+    elevationSource.loadAsync();
+    loaded.await();
+    if (elevationSource.getLoadStatus() != LoadStatus.LOADED) {
+      throw new IllegalStateException("Elevation source failed to load", elevationSource.getLoadError());
+    }
+    Surface surface = new Surface();
+    surface.getElevationSources().add(elevationSource);
+
+    System.out.printf(Locale.ROOT, "%-12s %10s %16s %18s %10s %10s %12s %9s%n", "matrix", "pairs",
+        "surface requests", "interpolated tiles", "cold ms", "warm ms", "pairs/s cold", "visible");
+    Random random = new Random(42);
+    for (int[] size : sizes) {
+      List<Point> observers = createPoints(size[0], random);
+      List<Point> targets = createPoints(size[1], random);
+      run(size[0] + "x" + size[1], surface, observers, targets);
+    }
+    List<Point> sites = createPoints(200, random);
+    run("200x200 same", surface, sites, sites);
+
+    Platform.exit();
+  }
+
+  /**
+   * Computes a matrix cold and then warm with a new engine, and prints a row of results.
+   *
+   * @param name name of the matrix
+   * @param surface the surface
+   * @param observers the observers
+   * @param targets the targets
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private static void run(String name, Surface surface, List<Point> observers, List<Point> targets)
+      throws InterruptedException {
+
+    BatchElevationSampler sampler = new BatchElevationSampler(surface, SAMPLE_SPACING_METERS);
+    IntervisibilityEngine engine = new IntervisibilityEngine(sampler, SAMPLE_SPACING_METERS, 2, 0,
+        PROFILE_CACHE_SAMPLES);
+    long start = System.nanoTime();
+    IntervisibilityEngine.Result result = engine.compute(observers, targets);
+    double coldMillis = (System.nanoTime() - start) / 1e6;
+    long requests = sampler.getSurfaceRequestCount();
+    String gridTiles = sampler.getGridTileCount() + " of " + sampler.getTileCount();
+    start = System.nanoTime();
+    engine.compute(observers, targets);
+    double warmMillis = (System.nanoTime() - start) / 1e6;
+    sampler.dispose();
+
+    int pairs = observers.size() * targets.size();
+    System.out.printf(Locale.ROOT, "%-12s %10d %16d %18s %10.0f %10.0f %12.0f %8.1f%%%n", name, pairs, requests,
+        gridTiles, coldMillis, warmMillis, pairs * 1000 / coldMillis, result.getVisibleCount() * 100.0 / pairs);
+  }
+
+  /**
+   * Creates random points over the raster, without z values so they're placed on the surface.
+   *
+   * @param count number of points
+   * @param random source of the points' positions
+   * @return the points
+   */
+  private static List<Point> createPoints(int count, Random random) {
+    List<Point> points = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      points.add(new Point(WEST + random.nextDouble() * (EAST - WEST), SOUTH + random.nextDouble() * (NORTH - SOUTH),
+          SpatialReferences.getWgs84()));
+    }
+    return points;
+  }
+}
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.line_of_sight_location;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import com.esri.arcgisruntime.geometry.GeometryEngine;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.SpatialReference;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
+
+/**
+ * Works out which of many targets each of many observers can see over a surface. The terrain profile between every
+ * observer and target is sampled at a fixed spacing, with the profiles of all pairs sampled together in one batch, and
+ * each pair is then checked in parallel for terrain rising above its sight line. Profiles are cached, and a profile is
+ * the same whichever end it's seen from, so pairs seen before or from the other end aren't sampled again.
+ * <p>
+ * Only the surface is considered; buildings and other scene content don't block the view. The earth's curvature and
+ * standard atmospheric refraction are allowed for, so long sight lines over flat ground are obstructed as they would
+ * be in the field.
+ */
+public class IntervisibilityEngine {
+
+  private static final double EARTH_RADIUS = 6_371_008.8;
+  private static final double REFRACTION_COEFFICIENT = 0.13;
+  private static final double EFFECTIVE_EARTH_RADIUS = EARTH_RADIUS / (1 - REFRACTION_COEFFICIENT);
+  private static final double TOLERANCE_METERS = 0.5;
+
+  private final BatchElevationSampler sampler;
+  private final double sampleSpacing;
+  private final double observerHeight;
+  private final double targetHeight;
+  private final long profileCacheSamples;
+  private final Map<ProfileKey, double[]> profiles = new LinkedHashMap<>(16, 0.75f, true);
+  private long cachedSamples;
+  private long profileCacheHits;
+  private long profilesSampled;
+
+  /**
+   * Creates an engine.
+   *
+   * @param sampler sampler of the surface's elevation
+   * @param sampleSpacingMeters distance between samples of a terrain profile
+   * @param observerHeightMeters height above the surface of observers without a z value
+   * @param targetHeightMeters height above the surface of targets without a z value
+   * @param profileCacheSamples most profile samples to keep, at 8 bytes each; the least recently used profiles are
+   *                            dropped first
+   */
+  public IntervisibilityEngine(BatchElevationSampler sampler, double sampleSpacingMeters, double observerHeightMeters,
+      double targetHeightMeters, long profileCacheSamples) {
+    this.sampler = sampler;
+    sampleSpacing = sampleSpacingMeters;
+    observerHeight = observerHeightMeters;
+    targetHeight = targetHeightMeters;
+    this.profileCacheSamples = profileCacheSamples;
+  }
+
+  /**
+   * Works out the visibility between every observer and target. A point's z value is its elevation; points without
+   * one are placed on the surface, raised by the observer or target height. Blocks until done, so call it from a
+   * background thread.
+   *
+   * @param observers the observers, in any spatial reference
+   * @param targets the targets, in any spatial reference
+   * @return the visibility matrix
+   * @throws InterruptedException if the thread is interrupted
+   */
+  public synchronized Result compute(List<Point> observers, List<Point> targets) throws InterruptedException {
+    int observerCount = observers.size();
+    int targetCount = targets.size();
+    double[][] observerCoordinates = toWgs84(observers, observerHeight);
+    double[][] targetCoordinates = toWgs84(targets, targetHeight);
+
+    // place the endpoints without a z value on the surface, in a batch of their own so they aren't interpolated
+    // between posts with the much denser profiles
+    List<double[]> onSurface = new ArrayList<>();
+    for (double[][] endpoints : new double[][][] {observerCoordinates, targetCoordinates}) {
+      for (double[] endpoint : endpoints) {
+        if (Double.isNaN(endpoint[2])) {
+          onSurface.add(endpoint);
+        }
+      }
+    }
+    double[] endpointElevations = sampler.sample(onSurface.stream().mapToDouble(endpoint -> endpoint[0]).toArray(),
+        onSurface.stream().mapToDouble(endpoint -> endpoint[1]).toArray());
+    for (int i = 0; i < endpointElevations.length; i++) {
+      onSurface.get(i)[2] = endpointElevations[i] + onSurface.get(i)[3];
+    }
+
+    // find the profiles not yet known, to sample them all in one batch
+    double[][] pairProfiles = new double[observerCount * targetCount][];
+    boolean[] reversed = new boolean[pairProfiles.length];
+    Map<ProfileKey, double[]> sampled = new LinkedHashMap<>();
+    for (int o = 0; o < observerCount; o++) {
+      for (int t = 0; t < targetCount; t++) {
+        int pair = o * targetCount + t;
+        double[] from = observerCoordinates[o];
+        double[] to = targetCoordinates[t];
+        reversed[pair] = from[0] > to[0] || (from[0] == to[0] && from[1] > to[1]);
+        ProfileKey key = reversed[pair] ? new ProfileKey(to, from) : new ProfileKey(from, to);
+        pairProfiles[pair] = profiles.get(key);
+        if (pairProfiles[pair] != null) {
+          profileCacheHits++;
+        } else {
+          pairProfiles[pair] = sampled.computeIfAbsent(key, k -> new double[segments(k) - 1]);
+        }
+      }
+    }
+    int sampleCount = 0;
+    for (double[] profile : sampled.values()) {
+      sampleCount += profile.length;
+    }
+
+    double[] longitudes = new double[sampleCount];
+    double[] latitudes = new double[sampleCount];
+    int next = 0;
+    for (ProfileKey key : sampled.keySet()) {
+      int segments = segments(key);
+      for (int i = 1; i < segments; i++) {
+        longitudes[next] = key.west + (key.east - key.west) * i / segments;
+        latitudes[next++] = key.westLatitude + (key.eastLatitude - key.westLatitude) * i / segments;
+      }
+    }
+    double[] elevations = sampler.sample(longitudes, latitudes);
+    next = 0;
+    for (Map.Entry<ProfileKey, double[]> entry : sampled.entrySet()) {
+      double[] profile = entry.getValue();
+      System.arraycopy(elevations, next, profile, 0, profile.length);
+      next += profile.length;
+      profiles.put(entry.getKey(), profile);
+      cachedSamples += profile.length;
+    }
+    profilesSampled += sampled.size();
+    Iterator<double[]> leastRecentlyUsed = profiles.values().iterator();
+    while (cachedSamples > profileCacheSamples && leastRecentlyUsed.hasNext()) {
+      cachedSamples -= leastRecentlyUsed.next().length;
+      leastRecentlyUsed.remove();
+    }
+
+    // check each pair's sight line against its profile
+    Point[] obstructions = new Point[pairProfiles.length];
+    IntStream.range(0, pairProfiles.length).parallel().forEach(pair -> obstructions[pair] = findObstruction(
+        observerCoordinates[pair / targetCount], targetCoordinates[pair % targetCount], pairProfiles[pair],
+        reversed[pair]));
+    BitSet visible = new BitSet(pairProfiles.length);
+    for (int pair = 0; pair < pairProfiles.length; pair++) {
+      visible.set(pair, obstructions[pair] == null);
+    }
+    return new Result(observerCount, targetCount, visible, obstructions);
+  }
+
+  /**
+   * Gets how many profiles have been found in the cache rather than sampled.
+   *
+   * @return number of cache hits
+   */
+  public synchronized long getProfileCacheHits() {
+    return profileCacheHits;
+  }
+
+  /**
+   * Gets how many profiles have been sampled from the surface.
+   *
+   * @return number of profiles sampled
+   */
+  public synchronized long getProfilesSampled() {
+    return profilesSampled;
+  }
+
+  /**
+   * Finds where the terrain first rises above the sight line from an observer to a target.
+   *
+   * @param observer the observer's longitude, latitude and elevation
+   * @param target the target's longitude, latitude and elevation
+   * @param profile terrain elevations between the two, from west to east
+   * @param reversed whether the profile runs from the target to the observer
+   * @return the obstruction on the surface, or null if the target is visible
+   */
+  private Point findObstruction(double[] observer, double[] target, double[] profile, boolean reversed) {
+    int segments = profile.length + 1;
+    double distance = distance(observer[0], observer[1], target[0], target[1]);
+    for (int i = 1; i < segments; i++) {
+      double terrain = profile[reversed ? segments - 1 - i : i - 1];
+      if (Double.isNaN(terrain)) {
+        continue;
+      }
+      double fraction = (double) i / segments;
+      double sightLine = observer[2] + (target[2] - observer[2]) * fraction;
+      // the surface bulges up between the two ends by the drop of the earth below their chord
+      double fromObserver = distance * fraction;
+      double bulge = fromObserver * (distance - fromObserver) / (2 * EFFECTIVE_EARTH_RADIUS);
+      if (terrain + bulge > sightLine + TOLERANCE_METERS) {
+        return new Point(observer[0] + (target[0] - observer[0]) * fraction, observer[1] + (target[1] - observer[1]) *
+            fraction, terrain, SpatialReferences.getWgs84());
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Gets how many segments a profile is sampled in.
+   *
+   * @param key ends of the profile
+   * @return number of segments, at least 1
+   */
+  private int segments(ProfileKey key) {
+    return Math.max(1, (int) Math.ceil(distance(key.west, key.westLatitude, key.east, key.eastLatitude) /
+        sampleSpacing));
+  }
+
+  /**
+   * Gets the approximate ground distance between two WGS84 coordinates, close enough for the short sight lines of site
+   * planning.
+   *
+   * @param longitude1 longitude of the first coordinate
+   * @param latitude1 latitude of the first coordinate
+   * @param longitude2 longitude of the second coordinate
+   * @param latitude2 latitude of the second coordinate
+   * @return distance in meters
+   */
+  private static double distance(double longitude1, double latitude1, double longitude2, double latitude2) {
+    double x = Math.toRadians(longitude2 - longitude1) * Math.cos(Math.toRadians((latitude1 + latitude2) / 2));
+    double y = Math.toRadians(latitude2 - latitude1);
+    return EARTH_RADIUS * Math.sqrt(x * x + y * y);
+  }
+
+  /**
+   * Converts points to WGS84 coordinates.
+   *
+   * @param points the points
+   * @param height height above the surface of points without a z value
+   * @return longitude, latitude, elevation (NaN if it's to be taken from the surface) and height of each point
+   */
+  private static double[][] toWgs84(List<Point> points, double height) {
+    double[][] coordinates = new double[points.size()][];
+    for (int i = 0; i < coordinates.length; i++) {
+      Point point = points.get(i);
+      SpatialReference spatialReference = point.getSpatialReference();
+      if (spatialReference != null && spatialReference.getWkid() != 4326) {
+        point = (Point) GeometryEngine.project(point, SpatialReferences.getWgs84());
+      }
+      coordinates[i] = new double[] {point.getX(), point.getY(), point.hasZ() ? point.getZ() : Double.NaN, height};
+    }
+    return coordinates;
+  }
+
+  /**
+   * The ends of a profile, west end first.
+   */
+  private static class ProfileKey {
+
+    private final double west;
+    private final double westLatitude;
+    private final double east;
+    private final double eastLatitude;
+
+    ProfileKey(double[] westEnd, double[] eastEnd) {
+      west = westEnd[0];
+      westLatitude = westEnd[1];
+      east = eastEnd[0];
+      eastLatitude = eastEnd[1];
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof ProfileKey)) {
+        return false;
+      }
+      ProfileKey key = (ProfileKey) other;
+      return west == key.west && westLatitude == key.westLatitude && east == key.east &&
+          eastLatitude == key.eastLatitude;
+    }
+
+    @Override
+    public int hashCode() {
+      long hash = Double.doubleToLongBits(west);
+      hash = hash * 31 + Double.doubleToLongBits(westLatitude);
+      hash = hash * 31 + Double.doubleToLongBits(east);
+      hash = hash * 31 + Double.doubleToLongBits(eastLatitude);
+      return (int) (hash ^ (hash >>> 32));
+    }
+  }
+
+  /**
+   * Which targets each observer can see, and what blocks the view of the others.
+   */
+  public static class Result {
+
+    private final int observerCount;
+    private final int targetCount;
+    private final BitSet visible;
+    private final Point[] obstructions;
+
+    Result(int observerCount, int targetCount, BitSet visible, Point[] obstructions) {
+      this.observerCount = observerCount;
+      this.targetCount = targetCount;
+      this.visible = visible;
+      this.obstructions = obstructions;
+    }
+
+    /**
+     * Gets the number of observers, the rows of the matrix.
+     *
+     * @return number of observers
+     */
+    public int getObserverCount() {
+      return observerCount;
+    }
+
+    /**
+     * Gets the number of targets, the columns of the matrix.
+     *
+     * @return number of targets
+     */
+    public int getTargetCount() {
+      return targetCount;
+    }
+
+    /**
+     * Gets whether an observer can see a target.
+     *
+     * @param observer index of the observer
+     * @param target index of the target
+     * @return true if the target is visible
+     */
+    public boolean isVisible(int observer, int target) {
+      return visible.get(observer * targetCount + target);
+    }
+
+    /**
+     * Gets where the view from an observer to a target is first blocked.
+     *
+     * @param observer index of the observer
+     * @param target index of the target
+     * @return the obstruction on the surface in WGS84, or null if the target is visible
+     */
+    public Point getObstruction(int observer, int target) {
+      return obstructions[observer * targetCount + target];
+    }
+
+    /**
+     * Gets the visibility of every pair as bits, set where the target is visible, a row of targets for each observer.
+     *
+     * @return a copy of the bits, indexed by observer * target count + target
+     */
+    public BitSet getVisibility() {
+      return (BitSet) visible.clone();
+    }
+
+    /**
+     * Gets how many observer and target pairs can see each other.
+     *
+     * @return number of visible pairs
+     */
+    public int getVisibleCount() {
+      return visible.cardinality();
+    }
+  }
+}
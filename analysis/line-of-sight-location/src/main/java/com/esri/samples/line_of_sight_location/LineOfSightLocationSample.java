@@ -16,20 +16,37 @@
 
 package com.esri.samples.line_of_sight_location;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.event.EventHandler;
+import javafx.geometry.Insets;
 import javafx.geometry.Point2D;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
 import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Paint;
 import javafx.stage.Stage;
 
 import com.esri.arcgisruntime.concurrent.ListenableFuture;
 import com.esri.arcgisruntime.geoanalysis.LocationLineOfSight;
 import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.PointCollection;
+import com.esri.arcgisruntime.geometry.Polyline;
 import com.esri.arcgisruntime.geometry.SpatialReferences;
 import com.esri.arcgisruntime.mapping.ArcGISScene;
 import com.esri.arcgisruntime.mapping.ArcGISTiledElevationSource;
@@ -37,11 +54,22 @@ import com.esri.arcgisruntime.mapping.Basemap;
 import com.esri.arcgisruntime.mapping.Surface;
 import com.esri.arcgisruntime.mapping.view.AnalysisOverlay;
 import com.esri.arcgisruntime.mapping.view.Camera;
+import com.esri.arcgisruntime.mapping.view.Graphic;
+import com.esri.arcgisruntime.mapping.view.GraphicsOverlay;
+import com.esri.arcgisruntime.mapping.view.LayerSceneProperties;
 import com.esri.arcgisruntime.mapping.view.SceneView;
+import com.esri.arcgisruntime.symbology.SimpleLineSymbol;
+import com.esri.arcgisruntime.symbology.SimpleMarkerSymbol;
 
 public class LineOfSightLocationSample extends Application {
 
   private SceneView sceneView;
+  private BatchElevationSampler sampler;
+  private ExecutorService matrixExecutor;
+  private final List<Point> observers = new ArrayList<>();
+  private final List<Point> targets = new ArrayList<>();
+
+  private static final double OBSERVER_HEIGHT = 2;
 
   @Override
   public void start(Stage stage) {
@@ -107,9 +135,59 @@ public class LineOfSightLocationSample extends Application {
         });
       };
 
-      // mouse click to start/stop moving target location
+      // create a graphics overlay for the site planning observers, targets and sight lines
+      GraphicsOverlay siteGraphicsOverlay = new GraphicsOverlay();
+      siteGraphicsOverlay.getSceneProperties().setSurfacePlacement(LayerSceneProperties.SurfacePlacement.RELATIVE);
+      sceneView.getGraphicsOverlays().add(siteGraphicsOverlay);
+
+      // work out the visibility matrix in the background, one matrix at a time
+      sampler = new BatchElevationSampler(surface, 30);
+      IntervisibilityEngine intervisibilityEngine = new IntervisibilityEngine(sampler, 30, OBSERVER_HEIGHT, 0,
+          4_000_000);
+      matrixExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "intervisibility");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+      // show the site planning status and a button to clear the sites
+      Label siteLabel = new Label("Shift + click to add an observer, Ctrl + click to add a target");
+      siteLabel.setStyle("-fx-text-fill: white;");
+      Button clearButton = new Button("Clear sites");
+      clearButton.setOnAction(e -> {
+        observers.clear();
+        targets.clear();
+        siteGraphicsOverlay.getGraphics().clear();
+        siteLabel.setText("Shift + click to add an observer, Ctrl + click to add a target");
+      });
+      VBox siteVBox = new VBox(6, siteLabel, clearButton);
+      siteVBox.setBackground(new Background(new BackgroundFill(Paint.valueOf("rgba(0,0,0,0.3)"), CornerRadii.EMPTY,
+          Insets.EMPTY)));
+      siteVBox.setPadding(new Insets(10.0));
+      siteVBox.setMaxSize(380, 100);
+      stackPane.getChildren().add(siteVBox);
+      StackPane.setAlignment(siteVBox, Pos.TOP_LEFT);
+      StackPane.setMargin(siteVBox, new Insets(10, 0, 0, 10));
+
+      // mouse click to start/stop moving target location, or with shift or ctrl to add a site
       sceneView.setOnMouseClicked(event -> {
-        if (event.isStillSincePress() && event.getButton() == MouseButton.PRIMARY) {
+        if (event.isStillSincePress() && event.getButton() == MouseButton.PRIMARY && (event.isShiftDown() ||
+            event.isControlDown())) {
+          boolean observer = event.isShiftDown();
+          ListenableFuture<Point> pointFuture = sceneView.screenToLocationAsync(new Point2D(event.getX(),
+              event.getY()));
+          pointFuture.addDoneListener(() -> {
+            try {
+              Point point = pointFuture.get();
+              // leave out the z value, so the engine places the site on the surface
+              Point site = new Point(point.getX(), point.getY(), point.getSpatialReference());
+              (observer ? observers : targets).add(site);
+              updateMatrix(intervisibilityEngine, siteGraphicsOverlay, siteLabel);
+            } catch (InterruptedException | ExecutionException e) {
+              e.printStackTrace();
+            }
+          });
+        } else if (event.isStillSincePress() && event.getButton() == MouseButton.PRIMARY) {
           if (sceneView.getOnMouseMoved() == null) {
             sceneView.setOnMouseMoved(mouseMoveEventHandler);
           } else {
@@ -124,12 +202,80 @@ public class LineOfSightLocationSample extends Application {
     }
   }
 
+  /**
+   * Works out the visibility between every observer and target in the background, then shows a sight line for each
+   * pair, green if the target is visible and red if not, with a marker where the view is first blocked.
+   *
+   * @param intervisibilityEngine engine to work out the matrix
+   * @param siteGraphicsOverlay overlay to show the sites and sight lines in
+   * @param siteLabel label to show the result in
+   */
+  private void updateMatrix(IntervisibilityEngine intervisibilityEngine, GraphicsOverlay siteGraphicsOverlay,
+      Label siteLabel) {
+
+    List<Point> matrixObservers = new ArrayList<>(observers);
+    List<Point> matrixTargets = new ArrayList<>(targets);
+    matrixExecutor.execute(() -> {
+      try {
+        long cacheHitsBefore = intervisibilityEngine.getProfileCacheHits();
+        long start = System.nanoTime();
+        IntervisibilityEngine.Result result = intervisibilityEngine.compute(matrixObservers, matrixTargets);
+        double millis = (System.nanoTime() - start) / 1e6;
+        long cacheHits = intervisibilityEngine.getProfileCacheHits() - cacheHitsBefore;
+
+        Platform.runLater(() -> {
+          // skip the matrix if the sites have changed while it was worked out, since another is on its way
+          if (!observers.equals(matrixObservers) || !targets.equals(matrixTargets)) {
+            return;
+          }
+          siteGraphicsOverlay.getGraphics().clear();
+          SimpleLineSymbol visibleSymbol = new SimpleLineSymbol(SimpleLineSymbol.Style.SOLID, 0xFF00FF00, 2);
+          SimpleLineSymbol obstructedSymbol = new SimpleLineSymbol(SimpleLineSymbol.Style.SOLID, 0xFFFF0000, 2);
+          SimpleMarkerSymbol obstructionSymbol = new SimpleMarkerSymbol(SimpleMarkerSymbol.Style.X, 0xFFFF0000, 10);
+          SimpleMarkerSymbol observerSymbol = new SimpleMarkerSymbol(SimpleMarkerSymbol.Style.CIRCLE, 0xFF0000FF, 10);
+          SimpleMarkerSymbol targetSymbol = new SimpleMarkerSymbol(SimpleMarkerSymbol.Style.SQUARE, 0xFFFFFF00, 10);
+          for (int o = 0; o < result.getObserverCount(); o++) {
+            for (int t = 0; t < result.getTargetCount(); t++) {
+              PointCollection points = new PointCollection(matrixObservers.get(o).getSpatialReference());
+              points.add(new Point(matrixObservers.get(o).getX(), matrixObservers.get(o).getY(), OBSERVER_HEIGHT));
+              points.add(new Point(matrixTargets.get(t).getX(), matrixTargets.get(t).getY(), 0));
+              boolean visible = result.isVisible(o, t);
+              siteGraphicsOverlay.getGraphics().add(new Graphic(new Polyline(points), visible ? visibleSymbol :
+                  obstructedSymbol));
+              if (!visible) {
+                Point obstruction = result.getObstruction(o, t);
+                siteGraphicsOverlay.getGraphics().add(new Graphic(new Point(obstruction.getX(), obstruction.getY(), 0,
+                    SpatialReferences.getWgs84()), obstructionSymbol));
+              }
+            }
+          }
+          matrixObservers.forEach(observer -> siteGraphicsOverlay.getGraphics().add(new Graphic(observer,
+              observerSymbol)));
+          matrixTargets.forEach(target -> siteGraphicsOverlay.getGraphics().add(new Graphic(target, targetSymbol)));
+          siteLabel.setText(String.format(Locale.ROOT, "%d observers x %d targets: %d of %d pairs visible%n"
+                  + "Worked out in %.0f ms, %d profiles from the cache", result.getObserverCount(),
+              result.getTargetCount(), result.getVisibleCount(), result.getObserverCount() * result.getTargetCount(),
+              millis, cacheHits));
+        });
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+  }
+
   /**
    * Stops and releases all resources used in application.
    */
   @Override
   public void stop() {
 
+    if (matrixExecutor != null) {
+      matrixExecutor.shutdownNow();
+    }
+    if (sampler != null) {
+      sampler.dispose();
+    }
+
     if (sceneView != null) {
       sceneView.dispose();
     }
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.viewshed_geoelement;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.esri.arcgisruntime.geometry.AngularUnit;
+import com.esri.arcgisruntime.geometry.AngularUnitId;
+import com.esri.arcgisruntime.geometry.GeodeticCurveType;
+import com.esri.arcgisruntime.geometry.GeodeticDistanceResult;
+import com.esri.arcgisruntime.geometry.GeometryEngine;
+import com.esri.arcgisruntime.geometry.LinearUnit;
+import com.esri.arcgisruntime.geometry.LinearUnitId;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.PointCollection;
+import com.esri.arcgisruntime.geometry.Polyline;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
+
+/**
+ * A path along the geodesics between waypoints, worked out once so that a position along it can be found with plain
+ * arithmetic. The geodesics are densified into short straight steps, and the distance along the path to each vertex
+ * and the heading of each step are kept in arrays.
+ */
+public class GeodesicPath {
+
+  private static final LinearUnit METERS = new LinearUnit(LinearUnitId.METERS);
+  private static final AngularUnit DEGREES = new AngularUnit(AngularUnitId.DEGREES);
+
+  private final double[] xs;
+  private final double[] ys;
+  private final double[] distances;
+  private final double[] headings;
+
+  private GeodesicPath(double[] xs, double[] ys, double[] distances, double[] headings) {
+    this.xs = xs;
+    this.ys = ys;
+    this.distances = distances;
+    this.headings = headings;
+  }
+
+  /**
+   * Works out the path through waypoints.
+   *
+   * @param waypoints two or more points to pass through, in WGS84
+   * @param maxStepMeters longest straight step along the geodesics
+   * @return the path
+   */
+  public static GeodesicPath create(List<Point> waypoints, double maxStepMeters) {
+    if (waypoints.size() < 2) {
+      throw new IllegalArgumentException("A path needs at least two waypoints");
+    }
+    PointCollection points = new PointCollection(SpatialReferences.getWgs84());
+    waypoints.forEach(waypoint -> points.add(waypoint.getX(), waypoint.getY()));
+    Polyline densified = (Polyline) GeometryEngine.densifyGeodetic(new Polyline(points), maxStepMeters, METERS,
+        GeodeticCurveType.GEODESIC);
+
+    int vertexCount = 0;
+    double[] xs = new double[Math.max(16, waypoints.size())];
+    double[] ys = new double[xs.length];
+    for (Point vertex : densified.getParts().get(0).getPoints()) {
+      // the parts share their end points, which would make steps of no length
+      if (vertexCount > 0 && vertex.getX() == xs[vertexCount - 1] && vertex.getY() == ys[vertexCount - 1]) {
+        continue;
+      }
+      if (vertexCount == xs.length) {
+        xs = Arrays.copyOf(xs, vertexCount * 2);
+        ys = Arrays.copyOf(ys, vertexCount * 2);
+      }
+      xs[vertexCount] = vertex.getX();
+      ys[vertexCount] = vertex.getY();
+      vertexCount++;
+    }
+    if (vertexCount < 2) {
+      throw new IllegalArgumentException("The waypoints are all in the same place");
+    }
+
+    double[] distances = new double[vertexCount];
+    double[] headings = new double[vertexCount - 1];
+    for (int i = 1; i < vertexCount; i++) {
+      GeodeticDistanceResult step = GeometryEngine.distanceGeodetic(new Point(xs[i - 1], ys[i - 1],
+          SpatialReferences.getWgs84()), new Point(xs[i], ys[i], SpatialReferences.getWgs84()), METERS, DEGREES,
+          GeodeticCurveType.GEODESIC);
+      distances[i] = distances[i - 1] + step.getDistance();
+      headings[i - 1] = step.getAzimuth1();
+    }
+    return new GeodesicPath(Arrays.copyOf(xs, vertexCount), Arrays.copyOf(ys, vertexCount), distances, headings);
+  }
+
+  /**
+   * Gets the length of the path.
+   *
+   * @return length in meters
+   */
+  public double getLength() {
+    return distances[distances.length - 1];
+  }
+
+  /**
+   * Finds the position and heading at a distance along the path, without creating any objects.
+   *
+   * @param distance meters from the start, clamped to the path
+   * @param location array to put the longitude, latitude and heading in degrees into
+   */
+  public void locate(double distance, double[] location) {
+    distance = Math.max(0, Math.min(distance, getLength()));
+    int step = Arrays.binarySearch(distances, distance);
+    // the step the distance falls in, starting at the vertex before it
+    step = step >= 0 ? Math.min(step, headings.length - 1) : -step - 2;
+    double stepLength = distances[step + 1] - distances[step];
+    double fraction = stepLength > 0 ? (distance - distances[step]) / stepLength : 0;
+    location[0] = xs[step] + (xs[step + 1] - xs[step]) * fraction;
+    location[1] = ys[step] + (ys[step + 1] - ys[step]) * fraction;
+    location[2] = headings[step];
+  }
+}
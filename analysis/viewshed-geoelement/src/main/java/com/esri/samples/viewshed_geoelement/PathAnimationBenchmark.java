@@ -0,0 +1,300 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.viewshed_geoelement;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import com.esri.arcgisruntime.geometry.AngularUnit;
+import com.esri.arcgisruntime.geometry.AngularUnitId;
+import com.esri.arcgisruntime.geometry.GeodeticCurveType;
+import com.esri.arcgisruntime.geometry.GeodeticDistanceResult;
+import com.esri.arcgisruntime.geometry.GeometryEngine;
+import com.esri.arcgisruntime.geometry.LinearUnit;
+import com.esri.arcgisruntime.geometry.LinearUnitId;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.mapping.view.Camera;
+import com.esri.arcgisruntime.mapping.view.GlobeCameraController;
+import com.esri.arcgisruntime.mapping.view.Graphic;
+import com.esri.arcgisruntime.mapping.view.GraphicsOverlay;
+import com.esri.arcgisruntime.mapping.view.LayerSceneProperties;
+import com.esri.arcgisruntime.mapping.view.SceneView;
+import com.esri.arcgisruntime.symbology.SimpleMarkerSceneSymbol;
+import com.esri.arcgisruntime.symbology.SimpleRenderer;
+
+/**
+ * Measures the frame time of animating many graphics in a scene view, moving them round square circuits either with a
+ * {@link PathAnimator} or by stepping each toward its next corner on every pulse with GeometryEngine.distanceGeodetic
+ * and moveGeodetic, as the sample used to. For each number of graphics and way of moving them, it records how long
+ * each pulse spends moving the graphics, the time between pulses and the memory allocated moving the graphics in
+ * each pulse. The results are written as a CSV file.
+ */
+public class PathAnimationBenchmark {
+
+  private static final LinearUnit METERS = new LinearUnit(LinearUnitId.METERS);
+  private static final AngularUnit DEGREES = new AngularUnit(AngularUnitId.DEGREES);
+  private static final int CIRCUITS = 8;
+  private static final double SPEED = 10;
+  private static final double RUN_SECONDS = 10;
+
+  private final SceneView sceneView;
+  private final Point center;
+
+  /**
+   * Creates a benchmark.
+   *
+   * @param sceneView the scene view to animate the graphics in
+   * @param center middle of the circuits, in WGS84
+   */
+  public PathAnimationBenchmark(SceneView sceneView, Point center) {
+    this.sceneView = sceneView;
+    this.center = center;
+  }
+
+  /**
+   * Animates every number of graphics each way and writes the results. Blocks until done, so call it from a background
+   * thread.
+   *
+   * @param counts numbers of graphics
+   * @param outputDirectory directory for the CSV file
+   * @param progressListener receives a message as each run starts
+   * @return the CSV file
+   * @throws IOException if the results can't be written
+   * @throws InterruptedException if the thread is interrupted
+   */
+  public Path run(List<Integer> counts, Path outputDirectory, Consumer<String> progressListener) throws IOException,
+      InterruptedException {
+
+    // square circuits of growing size round the middle, closed back at the first corner
+    List<List<Point>> circuits = new ArrayList<>();
+    List<GeodesicPath> paths = new ArrayList<>();
+    for (int i = 0; i < CIRCUITS; i++) {
+      List<Point> corners = new ArrayList<>();
+      for (int corner = 0; corner <= 4; corner++) {
+        corners.add(GeometryEngine.moveGeodetic(center, (100 + 40 * i) * Math.sqrt(2), METERS, 45 + 90 * corner,
+            DEGREES, GeodeticCurveType.GEODESIC));
+      }
+      circuits.add(corners);
+      paths.add(GeodesicPath.create(corners, 5));
+    }
+
+    // look down on the circuits from a fixed camera
+    onFxThread(() -> {
+      sceneView.setCameraController(new GlobeCameraController());
+      sceneView.setViewpointCamera(new Camera(GeometryEngine.moveGeodetic(center, 900, METERS, 180, DEGREES,
+          GeodeticCurveType.GEODESIC).getY(), center.getX(), 900, 0, 45, 0));
+    });
+
+    List<String> rows = new ArrayList<>();
+    for (int count : counts) {
+      for (boolean pathAnimator : new boolean[] {true, false}) {
+        String mode = pathAnimator ? "path_animator" : "per_pulse_geodetic";
+        progressListener.accept(String.format("Animating %,d graphics with %s", count, mode));
+
+        GraphicsOverlay graphicsOverlay = new GraphicsOverlay();
+        graphicsOverlay.getSceneProperties().setSurfacePlacement(LayerSceneProperties.SurfacePlacement.RELATIVE);
+        SimpleRenderer renderer = new SimpleRenderer(SimpleMarkerSceneSymbol.createCone(0xFFFFFF00, 3, 6));
+        renderer.getSceneProperties().setHeadingExpression("[HEADING]");
+        graphicsOverlay.setRenderer(renderer);
+
+        // spread the graphics evenly round the circuits
+        PathAnimator animator = new PathAnimator("HEADING", 0.5);
+        List<Stepper> steppers = new ArrayList<>();
+        double[] location = new double[3];
+        for (int i = 0; i < count; i++) {
+          GeodesicPath path = paths.get(i % CIRCUITS);
+          double startDistance = path.getLength() * (i / CIRCUITS) / Math.ceil(count / (double) CIRCUITS);
+          path.locate(startDistance, location);
+          Graphic graphic = new Graphic(new Point(location[0], location[1], center.getSpatialReference()));
+          graphic.getAttributes().put("HEADING", location[2]);
+          graphicsOverlay.getGraphics().add(graphic);
+          if (pathAnimator) {
+            animator.animate(graphic, path, SPEED, startDistance, true);
+          } else {
+            // head for the corner after the start
+            int next = 1 + (int) (4 * startDistance / path.getLength());
+            steppers.add(new Stepper(graphic, circuits.get(i % CIRCUITS), next));
+          }
+        }
+        onFxThread(() -> sceneView.getGraphicsOverlays().add(graphicsOverlay));
+
+        double[][] measurements = measure(now -> {
+          if (pathAnimator) {
+            animator.update(now);
+          } else {
+            steppers.forEach(stepper -> stepper.step(now));
+          }
+        });
+        onFxThread(() -> sceneView.getGraphicsOverlays().remove(graphicsOverlay));
+
+        double[] updateMillis = measurements[0];
+        double[] frameMillis = measurements[1];
+        double[] allocatedKilobytes = measurements[2];
+        rows.add(String.format(Locale.ROOT, "%d,%s,%d,%.3f,%.3f,%.2f,%.2f,%.1f", count, mode, frameMillis.length,
+            mean(updateMillis), percentile(updateMillis, 95), mean(frameMillis), percentile(frameMillis, 95),
+            mean(allocatedKilobytes)));
+      }
+    }
+
+    Files.createDirectories(outputDirectory);
+    Path csvFile = outputDirectory.resolve("path-animation-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(
+        new Date()) + ".csv");
+    try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8))) {
+      writer.println("graphics,mode,pulses,mean_update_ms,p95_update_ms,mean_frame_ms,p95_frame_ms,allocated_kb");
+      rows.forEach(writer::println);
+    }
+    return csvFile;
+  }
+
+  /**
+   * Moves the graphics on each JavaFX pulse for a while, timing each pulse.
+   *
+   * @param update moves the graphics to where they should be at a time in nanoseconds
+   * @return milliseconds spent moving the graphics in each pulse, milliseconds between pulses and kilobytes allocated
+   * moving the graphics in each pulse
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private double[][] measure(Consumer<Long> update) throws InterruptedException {
+    CompletableFuture<double[][]> measured = new CompletableFuture<>();
+    Platform.runLater(() -> new AnimationTimer() {
+
+      private final List<double[]> pulses = new ArrayList<>();
+      private long start = -1;
+      private long lastPulse;
+
+      @Override
+      public void handle(long now) {
+        long allocatedBefore = allocatedBytes();
+        long updateStart = System.nanoTime();
+        update.accept(now);
+        double updateMillis = (System.nanoTime() - updateStart) / 1e6;
+        double allocatedKilobytes = (allocatedBytes() - allocatedBefore) / 1024.0;
+        if (start < 0) {
+          start = now;
+        } else {
+          pulses.add(new double[] {updateMillis, (now - lastPulse) / 1e6, allocatedKilobytes});
+        }
+        lastPulse = now;
+
+        if (now - start > RUN_SECONDS * 1e9) {
+          stop();
+          double[][] measurements = new double[3][pulses.size()];
+          for (int i = 0; i < pulses.size(); i++) {
+            for (int j = 0; j < 3; j++) {
+              measurements[j][i] = pulses.get(i)[j];
+            }
+          }
+          measured.complete(measurements);
+        }
+      }
+    }.start());
+    try {
+      return measured.get();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Moves a graphic round a circuit by stepping toward the next corner on each pulse, as the sample used to.
+   */
+  private static class Stepper {
+
+    private final Graphic graphic;
+    private final List<Point> corners;
+    private int next;
+    private long lastStep = -1;
+
+    Stepper(Graphic graphic, List<Point> corners, int next) {
+      this.graphic = graphic;
+      this.corners = corners;
+      this.next = Math.min(next, corners.size() - 1);
+    }
+
+    void step(long now) {
+      double seconds = lastStep < 0 ? 0 : (now - lastStep) / 1e9;
+      lastStep = now;
+      Point location = (Point) graphic.getGeometry();
+      GeodeticDistanceResult distance = GeometryEngine.distanceGeodetic(location, corners.get(next), METERS, DEGREES,
+          GeodeticCurveType.GEODESIC);
+      graphic.setGeometry(GeometryEngine.moveGeodetic(location, SPEED * seconds, METERS, distance.getAzimuth1(),
+          DEGREES, GeodeticCurveType.GEODESIC));
+      double heading = (double) graphic.getAttributes().get("HEADING");
+      graphic.getAttributes().put("HEADING", heading + ((distance.getAzimuth1() - heading) / 10));
+      if (distance.getDistance() <= 5) {
+        // the last corner is the first, so go on to the second
+        next = next == corners.size() - 1 ? 1 : next + 1;
+      }
+    }
+  }
+
+  /**
+   * Gets the memory the current thread has allocated, where the JVM can tell.
+   *
+   * @return allocated bytes, or 0 if unknown
+   */
+  private static long allocatedBytes() {
+    if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(
+          Thread.currentThread().getId());
+    }
+    return 0;
+  }
+
+  /**
+   * Runs a task on the JavaFX application thread and waits for it.
+   *
+   * @param task the task
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private static void onFxThread(Runnable task) throws InterruptedException {
+    try {
+      CompletableFuture.runAsync(task, Platform::runLater).get();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static double mean(double[] values) {
+    return Arrays.stream(values).average().orElse(0);
+  }
+
+  private static double percentile(double[] values, double percentile) {
+    if (values.length == 0) {
+      return 0;
+    }
+    double[] sorted = values.clone();
+    Arrays.sort(sorted);
+    return sorted[Math.max(0, (int) Math.ceil(sorted.length * percentile / 100) - 1)];
+  }
+}
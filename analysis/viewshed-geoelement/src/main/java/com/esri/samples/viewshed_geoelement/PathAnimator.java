@@ -0,0 +1,199 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.viewshed_geoelement;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javafx.animation.AnimationTimer;
+
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
+import com.esri.arcgisruntime.mapping.view.Graphic;
+
+/**
+ * Moves graphics along {@link GeodesicPath}s at a steady speed, all from one JavaFX pulse. Each graphic's position is
+ * worked out from the time since it set off, so the speed doesn't depend on the frame rate, and its heading attribute
+ * turns smoothly toward the heading of the path. Anything attached to a graphic, such as a GeoElementViewshed or an
+ * OrbitGeoElementCameraController, follows it.
+ * <p>
+ * Only use the animator on the JavaFX application thread.
+ */
+public class PathAnimator {
+
+  private final String headingAttribute;
+  private final double turnSeconds;
+  private final Map<Graphic, Track> tracks = new IdentityHashMap<>();
+  private final List<Graphic> arrived = new ArrayList<>();
+  private final double[] location = new double[3];
+  private final AnimationTimer timer = new AnimationTimer() {
+    @Override
+    public void handle(long now) {
+      update(now);
+    }
+  };
+  private Consumer<Graphic> arrivalListener = graphic -> {
+  };
+  private long lastUpdate = -1;
+
+  /**
+   * Creates an animator.
+   *
+   * @param headingAttribute name of the attribute the graphics' renderer takes its heading from
+   * @param turnSeconds how long a graphic takes to turn most of the way to a new heading
+   */
+  public PathAnimator(String headingAttribute, double turnSeconds) {
+    this.headingAttribute = headingAttribute;
+    this.turnSeconds = turnSeconds;
+  }
+
+  /**
+   * Sets off a graphic along a path from the next pulse, replacing any path it's already on.
+   *
+   * @param graphic the graphic
+   * @param path the path
+   * @param metersPerSecond how fast the graphic moves
+   * @param startDistance meters along the path to start from
+   * @param loop whether to go round the path again at the end instead of stopping
+   */
+  public void animate(Graphic graphic, GeodesicPath path, double metersPerSecond, double startDistance, boolean loop) {
+    tracks.put(graphic, new Track(graphic, path, metersPerSecond, startDistance, loop));
+  }
+
+  /**
+   * Stops a graphic where it is.
+   *
+   * @param graphic the graphic
+   */
+  public void remove(Graphic graphic) {
+    tracks.remove(graphic);
+  }
+
+  /**
+   * Stops every graphic where it is.
+   */
+  public void clear() {
+    tracks.clear();
+  }
+
+  /**
+   * Gets the number of graphics moving.
+   *
+   * @return number of graphics
+   */
+  public int getTrackCount() {
+    return tracks.size();
+  }
+
+  /**
+   * Sets a listener called when a graphic reaches the end of a path it doesn't loop round.
+   *
+   * @param arrivalListener the listener
+   */
+  public void setArrivalListener(Consumer<Graphic> arrivalListener) {
+    this.arrivalListener = arrivalListener;
+  }
+
+  /**
+   * Starts moving the graphics on each JavaFX pulse.
+   */
+  public void start() {
+    timer.start();
+  }
+
+  /**
+   * Stops moving the graphics on each pulse. Their paths are timed from when they set off, so when started again they
+   * jump to where they would have been had they kept moving.
+   */
+  public void stop() {
+    timer.stop();
+    lastUpdate = -1;
+  }
+
+  /**
+   * Moves every graphic to where it should be at a time. Called on each pulse once started, but can be called directly
+   * to drive the graphics from another clock.
+   *
+   * @param now the time in nanoseconds, from {@link System#nanoTime()}
+   */
+  public void update(long now) {
+    double frameSeconds = lastUpdate < 0 ? 0 : (now - lastUpdate) / 1e9;
+    lastUpdate = now;
+    // the same share of the way to the new heading each second, whatever the frame rate
+    double turn = turnSeconds > 0 ? 1 - Math.exp(-frameSeconds / turnSeconds) : 1;
+
+    for (Track track : tracks.values()) {
+      if (track.startTime < 0) {
+        track.startTime = now;
+      }
+      double distance = track.startDistance + track.metersPerSecond * (now - track.startTime) / 1e9;
+      double length = track.path.getLength();
+      if (track.loop) {
+        distance %= length;
+      } else if (distance >= length) {
+        distance = length;
+        arrived.add(track.graphic);
+      }
+      track.path.locate(distance, location);
+      track.graphic.setGeometry(new Point(location[0], location[1], SpatialReferences.getWgs84()));
+
+      // turn the short way round, starting from the path's heading on the first pulse
+      if (Double.isNaN(track.heading)) {
+        track.heading = location[2];
+      } else {
+        track.heading += (((location[2] - track.heading) % 360 + 540) % 360 - 180) * turn;
+      }
+      track.graphic.getAttributes().put(headingAttribute, track.heading);
+    }
+
+    if (!arrived.isEmpty()) {
+      for (Graphic graphic : arrived) {
+        tracks.remove(graphic);
+        arrivalListener.accept(graphic);
+      }
+      arrived.clear();
+    }
+  }
+
+  /**
+   * A graphic moving along a path.
+   */
+  private class Track {
+
+    private final Graphic graphic;
+    private final GeodesicPath path;
+    private final double metersPerSecond;
+    private final double startDistance;
+    private final boolean loop;
+    private long startTime = -1;
+    private double heading;
+
+    Track(Graphic graphic, GeodesicPath path, double metersPerSecond, double startDistance, boolean loop) {
+      this.graphic = graphic;
+      this.path = path;
+      this.metersPerSecond = metersPerSecond;
+      this.startDistance = startDistance;
+      this.loop = loop;
+      // carry on turning from the graphic's heading, if it has one
+      Object heading = graphic.getAttributes().get(headingAttribute);
+      this.heading = heading instanceof Number ? ((Number) heading).doubleValue() : Double.NaN;
+    }
+  }
+}
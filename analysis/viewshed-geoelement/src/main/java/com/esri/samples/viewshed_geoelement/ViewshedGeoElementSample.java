@@ -17,25 +17,19 @@
 package com.esri.samples.viewshed_geoelement;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
 import javafx.application.Application;
 import javafx.geometry.Point2D;
 import javafx.scene.Scene;
 import javafx.scene.input.MouseButton;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
-import javafx.util.Duration;
 
 import com.esri.arcgisruntime.geoanalysis.GeoElementViewshed;
-import com.esri.arcgisruntime.geometry.AngularUnit;
-import com.esri.arcgisruntime.geometry.AngularUnitId;
-import com.esri.arcgisruntime.geometry.GeodeticCurveType;
-import com.esri.arcgisruntime.geometry.GeodeticDistanceResult;
 import com.esri.arcgisruntime.geometry.GeometryEngine;
-import com.esri.arcgisruntime.geometry.LinearUnit;
-import com.esri.arcgisruntime.geometry.LinearUnitId;
 import com.esri.arcgisruntime.geometry.Point;
 import com.esri.arcgisruntime.geometry.SpatialReferences;
 import com.esri.arcgisruntime.layers.ArcGISSceneLayer;
@@ -58,11 +52,7 @@ public class ViewshedGeoElementSample extends Application {
 
   private SceneView sceneView;
   private Graphic tank;
-  private Timeline animation;
-  private Point waypoint;
-
-  private static final LinearUnit METERS = new LinearUnit(LinearUnitId.METERS);
-  private static final AngularUnit DEGREES = new AngularUnit(AngularUnitId.DEGREES);
+  private PathAnimator animator;
 
   @Override
   public void start(Stage stage) {
@@ -131,14 +121,25 @@ public class ViewshedGeoElementSample extends Application {
       analysisOverlay.getAnalyses().add(geoElementViewshed);
       sceneView.getAnalysisOverlays().add(analysisOverlay);
 
-      // set the waypoint where the user clicks
+      // animate the tank along paths on each pulse, at the same speed whatever the frame rate
+      animator = new PathAnimator("HEADING", 0.5);
+      animator.start();
+
+      // drive the tank to where the user clicks
       sceneView.setOnMouseClicked(e -> {
         if (e.isStillSincePress() && e.getButton() == MouseButton.PRIMARY) {
           // create a point from where the user clicked
           Point2D point = new Point2D(e.getX(), e.getY());
-
-          // set the new waypoint
-          waypoint = sceneView.screenToBaseSurface(point);
+          Point waypoint = sceneView.screenToBaseSurface(point);
+
+          // set off along the geodesic from the tank to the new waypoint at 10 meters per second
+          if (waypoint != null) {
+            Point location = (Point) tank.getGeometry();
+            Point destination = (Point) GeometryEngine.project(waypoint, SpatialReferences.getWgs84());
+            if (location.getX() != destination.getX() || location.getY() != destination.getY()) {
+              animator.animate(tank, GeodesicPath.create(Arrays.asList(location, destination), 5), 10, 0, false);
+            }
+          }
         }
       });
 
@@ -147,11 +148,10 @@ public class ViewshedGeoElementSample extends Application {
       cameraController.setCameraPitchOffset(45.0);
       sceneView.setCameraController(cameraController);
 
-      // create a timeline to animate the tank
-      animation = new Timeline();
-      animation.setCycleCount(-1);
-      animation.getKeyFrames().add(new KeyFrame(Duration.millis(100), e -> animate()));
-      animation.play();
+      // run the animation benchmark unattended and exit, with --benchmark or -Dbenchmark=true
+      if (getParameters().getRaw().contains("--benchmark") || Boolean.getBoolean("benchmark")) {
+        runBenchmark();
+      }
 
     } catch (Exception e) {
       // on any error, display the stack trace.
@@ -160,29 +160,19 @@ public class ViewshedGeoElementSample extends Application {
   }
 
   /**
-   * Moves the tank toward the current waypoint a short distance.
+   * Runs the path animation benchmark in the background once the scene has first drawn, writes the results to the
+   * benchmark-results directory and exits. The numbers of graphics can be given with -Dbenchmark.counts=1,100,10000.
    */
-  private void animate() {
-    if (waypoint != null) {
-      // get current location and distance from waypoint
-      Point location = (Point) tank.getGeometry();
-      GeodeticDistanceResult distance = GeometryEngine.distanceGeodetic(location, waypoint, METERS, DEGREES,
-          GeodeticCurveType.GEODESIC);
-
-      // move toward waypoint a short distance
-      location = GeometryEngine.moveGeodetic(location, 1.0, METERS, distance.getAzimuth1(), DEGREES,
-          GeodeticCurveType.GEODESIC);
-      tank.setGeometry(location);
-
-      // rotate toward waypoint
-      double heading = (double) tank.getAttributes().get("HEADING");
-      tank.getAttributes().put("HEADING", heading + ((distance.getAzimuth1() - heading) / 10));
-
-      // reached waypoint, stop moving
-      if (distance.getDistance() <= 5) {
-        waypoint = null;
-      }
+  private void runBenchmark() {
+
+    List<Integer> counts = new ArrayList<>();
+    for (String count : System.getProperty("benchmark.counts", "1,100,10000").split(",")) {
+      counts.add(Integer.parseInt(count.trim()));
     }
+
+    PathAnimationBenchmark benchmark = new PathAnimationBenchmark(sceneView, (Point) tank.getGeometry());
+    BenchmarkRunner.runWhenDrawn(sceneView, outputDirectory -> benchmark.run(counts, outputDirectory,
+        System.out::println));
   }
 
   /**
@@ -192,7 +182,9 @@ public class ViewshedGeoElementSample extends Application {
   public void stop() {
 
     // stop the animation
-    animation.stop();
+    if (animator != null) {
+      animator.stop();
+    }
 
     if (sceneView != null) {
       sceneView.dispose();
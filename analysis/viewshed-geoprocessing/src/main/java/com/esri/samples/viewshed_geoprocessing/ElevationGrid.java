@@ -0,0 +1,206 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.viewshed_geoprocessing;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * A geographic grid of elevations held in memory, read from a local elevation raster so it can be worked on without
+ * a display or a network connection. Rows run from north to south and columns from west to east, and each value is
+ * the elevation of a cell's center in meters, or NaN where the raster has no data.
+ */
+public class ElevationGrid {
+
+  private static final int DTED_HEADER_BYTES = 80 + 648 + 2700;
+  private static final int DTED_VOID = -32767;
+
+  private final int columns;
+  private final int rows;
+  private final double west;
+  private final double north;
+  private final double cellWidth;
+  private final double cellHeight;
+  private final float[] elevations;
+
+  /**
+   * Creates a grid.
+   *
+   * @param columns number of columns
+   * @param rows number of rows
+   * @param west longitude of the west edge of the grid
+   * @param north latitude of the north edge of the grid
+   * @param cellWidth width of a cell in degrees of longitude
+   * @param cellHeight height of a cell in degrees of latitude
+   * @param elevations elevation of each cell, row by row from the north west corner
+   */
+  public ElevationGrid(int columns, int rows, double west, double north, double cellWidth, double cellHeight,
+      float[] elevations) {
+    if (elevations.length != columns * rows) {
+      throw new IllegalArgumentException("Expected " + columns * rows + " elevations but got " + elevations.length);
+    }
+    this.columns = columns;
+    this.rows = rows;
+    this.west = west;
+    this.north = north;
+    this.cellWidth = cellWidth;
+    this.cellHeight = cellHeight;
+    this.elevations = elevations;
+  }
+
+  /**
+   * Reads a DTED raster, such as the Monterey elevation used by the terrain surface samples. DTED keeps its posts in
+   * profiles running south to north, one for each line of longitude, with each post's elevation as a signed magnitude
+   * 16 bit integer.
+   *
+   * @param file the .dt0, .dt1 or .dt2 file
+   * @return the grid, with a cell centered on each post
+   * @throws IOException if the file can't be read or isn't DTED
+   */
+  public static ElevationGrid readDted(File file) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+    String userHeader = new String(buffer.array(), 0, 80, StandardCharsets.US_ASCII);
+    if (!userHeader.startsWith("UHL")) {
+      throw new IOException(file + " is not a DTED file");
+    }
+    double originLongitude = parseDtedAngle(userHeader.substring(4, 12));
+    double originLatitude = parseDtedAngle(userHeader.substring(12, 20));
+    double longitudeInterval = Integer.parseInt(userHeader.substring(20, 24).trim()) / 36000.0;
+    double latitudeInterval = Integer.parseInt(userHeader.substring(24, 28).trim()) / 36000.0;
+    int profiles = Integer.parseInt(userHeader.substring(47, 51).trim());
+    int posts = Integer.parseInt(userHeader.substring(51, 55).trim());
+
+    // each profile is a sentinel, block count, longitude and latitude counts, the posts and a checksum
+    int profileBytes = 8 + posts * 2 + 4;
+    float[] elevations = new float[profiles * posts];
+    for (int profile = 0; profile < profiles; profile++) {
+      int offset = DTED_HEADER_BYTES + profile * profileBytes + 8;
+      for (int post = 0; post < posts; post++) {
+        int value = buffer.getShort(offset + post * 2) & 0xFFFF;
+        int elevation = (value & 0x8000) != 0 ? -(value & 0x7FFF) : value;
+        // the origin post is in the south west, so the first post of a profile goes in the last row
+        elevations[(posts - 1 - post) * profiles + profile] = elevation == DTED_VOID ? Float.NaN : elevation;
+      }
+    }
+    return new ElevationGrid(profiles, posts, originLongitude - longitudeInterval / 2,
+        originLatitude + (posts - 0.5) * latitudeInterval, longitudeInterval, latitudeInterval, elevations);
+  }
+
+  /**
+   * Gets the number of columns.
+   *
+   * @return number of columns
+   */
+  public int getColumns() {
+    return columns;
+  }
+
+  /**
+   * Gets the number of rows.
+   *
+   * @return number of rows
+   */
+  public int getRows() {
+    return rows;
+  }
+
+  /**
+   * Gets the longitude of the west edge of the grid.
+   *
+   * @return longitude in degrees
+   */
+  public double getWest() {
+    return west;
+  }
+
+  /**
+   * Gets the latitude of the north edge of the grid.
+   *
+   * @return latitude in degrees
+   */
+  public double getNorth() {
+    return north;
+  }
+
+  /**
+   * Gets the width of a cell.
+   *
+   * @return width in degrees of longitude
+   */
+  public double getCellWidth() {
+    return cellWidth;
+  }
+
+  /**
+   * Gets the height of a cell.
+   *
+   * @return height in degrees of latitude
+   */
+  public double getCellHeight() {
+    return cellHeight;
+  }
+
+  /**
+   * Gets the elevation of a cell.
+   *
+   * @param column column of the cell
+   * @param row row of the cell
+   * @return elevation in meters, or NaN where the raster has no data
+   */
+  public float getElevation(int column, int row) {
+    return elevations[row * columns + column];
+  }
+
+  /**
+   * Gets the column a longitude falls in.
+   *
+   * @param longitude the longitude
+   * @return the column, which may be outside the grid
+   */
+  public int getColumn(double longitude) {
+    return (int) Math.floor((longitude - west) / cellWidth);
+  }
+
+  /**
+   * Gets the row a latitude falls in.
+   *
+   * @param latitude the latitude
+   * @return the row, which may be outside the grid
+   */
+  public int getRow(double latitude) {
+    return (int) Math.floor((north - latitude) / cellHeight);
+  }
+
+  /**
+   * Parses a DTED angle of degrees, minutes, seconds and hemisphere, such as 1215959W.
+   *
+   * @param text the angle
+   * @return the angle in degrees, negative in the west and south
+   */
+  private static double parseDtedAngle(String text) {
+    String digits = text.trim();
+    char hemisphere = digits.charAt(digits.length() - 1);
+    int seconds = Integer.parseInt(digits.substring(digits.length() - 3, digits.length() - 1));
+    int minutes = Integer.parseInt(digits.substring(digits.length() - 5, digits.length() - 3));
+    int degrees = Integer.parseInt(digits.substring(0, digits.length() - 5));
+    double angle = degrees + minutes / 60.0 + seconds / 3600.0;
+    return hemisphere == 'W' || hemisphere == 'S' ? -angle : angle;
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.viewshed_geoprocessing;
+
+import java.io.File;
+import java.util.Locale;
+import java.util.Random;
+
+import com.esri.arcgisruntime.geometry.Polygon;
+
+/**
+ * Command line harness timing {@link ViewshedEngine} on the Monterey DTED raster, with no display or network. For each
+ * radius it computes the viewshed of one observer and of many, on one thread and on every core, and times turning the
+ * single observer's raster into a polygon.
+ */
+public class ViewshedBenchmark {
+
+  private static final double OBSERVER_HEIGHT = 2;
+  private static final int MANY_OBSERVERS = 32;
+  private static final int RUNS = 3;
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optional radii in meters (default 1000 2500 5000 10000 20000)
+   * @throws Exception if the raster can't be read
+   */
+  public static void main(String[] args) throws Exception {
+
+    double[] radii = {1000, 2500, 5000, 10000, 20000};
+    if (args.length > 0) {
+      radii = new double[args.length];
+      for (int i = 0; i < args.length; i++) {
+        radii[i] = Double.parseDouble(args[i]);
+      }
+    }
+
+    ElevationGrid grid = ElevationGrid.readDted(new File(System.getProperty("data.dir"),
+        "./samples-data/monterey_elevation/MontereyElevation.dt2"));
+    System.out.printf(Locale.ROOT, "%d x %d cells%n%n", grid.getColumns(), grid.getRows());
+
+    // observers spread over the middle of the raster
+    Random random = new Random(42);
+    double[] longitudes = new double[MANY_OBSERVERS];
+    double[] latitudes = new double[MANY_OBSERVERS];
+    for (int i = 0; i < MANY_OBSERVERS; i++) {
+      longitudes[i] = grid.getWest() + (0.25 + random.nextDouble() / 2) * grid.getColumns() * grid.getCellWidth();
+      latitudes[i] = grid.getNorth() - (0.25 + random.nextDouble() / 2) * grid.getRows() * grid.getCellHeight();
+    }
+    double[] firstLongitude = {longitudes[0]};
+    double[] firstLatitude = {latitudes[0]};
+
+    int cores = Runtime.getRuntime().availableProcessors();
+    ViewshedEngine serialEngine = new ViewshedEngine(grid, 1);
+    ViewshedEngine parallelEngine = new ViewshedEngine(grid, cores);
+    System.out.printf(Locale.ROOT, "%10s %10s %12s %12s %10s %14s %11s%n", "radius m", "observers", "1 thread ms",
+        cores + " threads ms", "speedup", "visible cells", "polygon ms");
+    for (double radius : radii) {
+      for (int observers : new int[] {1, MANY_OBSERVERS}) {
+        double[] observerLongitudes = observers == 1 ? firstLongitude : longitudes;
+        double[] observerLatitudes = observers == 1 ? firstLatitude : latitudes;
+        double serialMillis = time(serialEngine, observerLongitudes, observerLatitudes, radius);
+        double parallelMillis = time(parallelEngine, observerLongitudes, observerLatitudes, radius);
+        ViewshedResult result = parallelEngine.compute(observerLongitudes, observerLatitudes, OBSERVER_HEIGHT, 0,
+            radius);
+
+        String polygonMillis = "";
+        if (observers == 1) {
+          long start = System.nanoTime();
+          Polygon polygon = result.toPolygon(1);
+          polygonMillis = String.format(Locale.ROOT, "%.0f (%d parts)", (System.nanoTime() - start) / 1e6,
+              polygon.getParts().size());
+        }
+        System.out.printf(Locale.ROOT, "%10.0f %10d %12.0f %12.0f %9.1fx %14d %11s%n", radius, observers,
+            serialMillis, parallelMillis, serialMillis / parallelMillis, result.getVisibleCellCount(1), polygonMillis);
+      }
+    }
+    serialEngine.dispose();
+    parallelEngine.dispose();
+  }
+
+  /**
+   * Times the fastest of a few runs of an engine.
+   *
+   * @param engine the engine
+   * @param longitudes longitude of each observer
+   * @param latitudes latitude of each observer
+   * @param radius how far the observers can see
+   * @return milliseconds of the fastest run
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private static double time(ViewshedEngine engine, double[] longitudes, double[] latitudes, double radius)
+      throws InterruptedException {
+    double fastest = Double.MAX_VALUE;
+    for (int run = 0; run < RUNS; run++) {
+      long start = System.nanoTime();
+      engine.compute(longitudes, latitudes, OBSERVER_HEIGHT, 0, radius);
+      fastest = Math.min(fastest, (System.nanoTime() - start) / 1e6);
+    }
+    return fastest;
+  }
+}
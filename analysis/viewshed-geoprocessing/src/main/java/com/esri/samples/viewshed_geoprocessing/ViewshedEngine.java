@@ -0,0 +1,260 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.viewshed_geoprocessing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Computes viewsheds over an {@link ElevationGrid} on the CPU, without a display, so they can be computed in bulk on a
+ * server. It uses the R2 radial sweep: a ray is cast from the observer to every cell on the edge of the square around
+ * it, and each cell a ray passes is visible if it's at or above the steepest line of sight the ray has passed so far.
+ * The edge cells are split into sectors, and the sectors of every observer are swept in parallel across the cores,
+ * each observer into a raster of its own so that observers never wait on each other. An observer's raster is made
+ * when its first sector starts, and added into how many observers see each cell as soon as its last sector finishes,
+ * so only the observers being swept hold a raster.
+ * <p>
+ * The earth's curvature and standard atmospheric refraction are allowed for, as in most viewshed tools.
+ */
+public class ViewshedEngine {
+
+  private static final double METERS_PER_DEGREE_LATITUDE = 110_574;
+  private static final double METERS_PER_DEGREE_LONGITUDE = 111_320;
+  private static final double EFFECTIVE_EARTH_DIAMETER = 2 * 6_371_008.8 / (1 - 0.13);
+  private static final int SECTORS_PER_OBSERVER = 64;
+
+  private final ElevationGrid grid;
+  private final ForkJoinPool pool;
+
+  /**
+   * Creates an engine.
+   *
+   * @param grid the elevations to compute viewsheds over
+   * @param parallelism number of threads to sweep with
+   */
+  public ViewshedEngine(ElevationGrid grid, int parallelism) {
+    this.grid = grid;
+    pool = new ForkJoinPool(parallelism);
+  }
+
+  /**
+   * Computes the combined viewshed of observers. Blocks until done, so call it from a background thread.
+   *
+   * @param observerLongitudes longitude of each observer
+   * @param observerLatitudes latitude of each observer
+   * @param observerHeight height of the observers above the surface in meters
+   * @param targetHeight height above the surface a cell has to be seen at, in meters
+   * @param radiusMeters how far the observers can see
+   * @return how many observers see each cell
+   * @throws InterruptedException if the thread is interrupted
+   */
+  public ViewshedResult compute(double[] observerLongitudes, double[] observerLatitudes, double observerHeight,
+      double targetHeight, double radiusMeters) throws InterruptedException {
+
+    // every observer's raster is filled by its sectors in parallel; the sectors only ever mark cells visible
+    int[] counts = new int[grid.getColumns() * grid.getRows()];
+    int observerCount = 0;
+    List<Future<?>> sectors = new ArrayList<>();
+    for (int i = 0; i < observerLongitudes.length; i++) {
+      Sweep sweep = new Sweep(observerLongitudes[i], observerLatitudes[i], observerHeight, targetHeight,
+          radiusMeters);
+      if (!sweep.inside) {
+        continue;
+      }
+      observerCount++;
+      int edgeCells = 8 * sweep.radius;
+      for (int sector = 0; sector < SECTORS_PER_OBSERVER; sector++) {
+        int from = edgeCells * sector / SECTORS_PER_OBSERVER;
+        int to = edgeCells * (sector + 1) / SECTORS_PER_OBSERVER;
+        sectors.add(pool.submit(() -> sweep.sweep(from, to, counts)));
+      }
+    }
+    try {
+      for (Future<?> sector : sectors) {
+        sector.get();
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+    return new ViewshedResult(grid, counts, observerCount);
+  }
+
+  /**
+   * Stops the engine's threads.
+   */
+  public void dispose() {
+    pool.shutdownNow();
+  }
+
+  /**
+   * The viewshed of one observer, in a square raster of cells around it.
+   */
+  private class Sweep {
+
+    private final int column;
+    private final int row;
+    private final int radius;
+    private final double targetHeight;
+    private final double radiusMeters;
+    private final double cellWidthMeters;
+    private final double cellHeightMeters;
+    private final double observerElevation;
+    private final boolean inside;
+    private final AtomicInteger sectorsLeft = new AtomicInteger(SECTORS_PER_OBSERVER);
+    private byte[] visible;
+
+    /**
+     * Sets up the sweep of an observer.
+     *
+     * @param longitude longitude of the observer
+     * @param latitude latitude of the observer
+     * @param observerHeight height of the observer above the surface
+     * @param targetHeight height above the surface a cell has to be seen at
+     * @param radiusMeters how far the observer can see
+     */
+    Sweep(double longitude, double latitude, double observerHeight, double targetHeight, double radiusMeters) {
+      column = grid.getColumn(longitude);
+      row = grid.getRow(latitude);
+      this.targetHeight = targetHeight;
+      this.radiusMeters = radiusMeters;
+      cellWidthMeters = grid.getCellWidth() * METERS_PER_DEGREE_LONGITUDE * Math.cos(Math.toRadians(latitude));
+      cellHeightMeters = grid.getCellHeight() * METERS_PER_DEGREE_LATITUDE;
+      // the square of cells within the radius, no larger than the grid
+      radius = (int) Math.min(Math.ceil(radiusMeters / Math.min(cellWidthMeters, cellHeightMeters)),
+          Math.max(grid.getColumns(), grid.getRows()));
+      // observers off the grid or over a hole in it see nothing
+      inside = column >= 0 && column < grid.getColumns() && row >= 0 && row < grid.getRows() &&
+          !Float.isNaN(grid.getElevation(column, row));
+      observerElevation = inside ? grid.getElevation(column, row) + observerHeight : Double.NaN;
+    }
+
+    /**
+     * Casts rays to a run of the edge cells, counted clockwise from the north west corner. The last sector of the
+     * observer to finish adds the observer's raster into the counts.
+     *
+     * @param from first edge cell
+     * @param to edge cell after the last
+     * @param counts how many observers see each cell of the grid
+     */
+    void sweep(int from, int to, int[] counts) {
+      byte[] visible = raster();
+      int side = 2 * radius;
+      for (int edge = from; edge < to; edge++) {
+        int dx;
+        int dy;
+        if (edge < side) {
+          dx = edge - radius;
+          dy = -radius;
+        } else if (edge < 2 * side) {
+          dx = radius;
+          dy = edge - side - radius;
+        } else if (edge < 3 * side) {
+          dx = radius - (edge - 2 * side);
+          dy = radius;
+        } else {
+          dx = -radius;
+          dy = radius - (edge - 3 * side);
+        }
+        castRay(dx, dy, visible);
+      }
+      // each sector's marks happen before its count down, so the last sector sees them all
+      if (sectorsLeft.decrementAndGet() == 0) {
+        addTo(counts, visible);
+        synchronized (this) {
+          this.visible = null;
+        }
+      }
+    }
+
+    /**
+     * Gets the observer's raster, making it for the first sector to start.
+     *
+     * @return the raster, with the observer's own cell visible
+     */
+    private synchronized byte[] raster() {
+      if (visible == null) {
+        int size = 2 * radius + 1;
+        visible = new byte[size * size];
+        visible[radius * size + radius] = 1;
+      }
+      return visible;
+    }
+
+    /**
+     * Adds one to the count of each cell in the observer's raster that it sees. Observers finish on different
+     * threads, so they take turns.
+     *
+     * @param counts how many observers see each cell of the grid
+     * @param visible the observer's raster
+     */
+    private void addTo(int[] counts, byte[] visible) {
+      int size = 2 * radius + 1;
+      int firstY = Math.max(0, radius - row);
+      int lastY = Math.min(size, grid.getRows() + radius - row);
+      int firstX = Math.max(0, radius - column);
+      int lastX = Math.min(size, grid.getColumns() + radius - column);
+      synchronized (counts) {
+        for (int y = firstY; y < lastY; y++) {
+          int offset = (row + y - radius) * grid.getColumns() + column - radius;
+          for (int x = firstX; x < lastX; x++) {
+            if (visible[y * size + x] != 0) {
+              counts[offset + x]++;
+            }
+          }
+        }
+      }
+    }
+
+    /**
+     * Walks from the observer to a cell, marking the cells on the way that rise to the line of sight.
+     *
+     * @param dx columns from the observer to the cell
+     * @param dy rows from the observer to the cell
+     * @param visible the observer's raster
+     */
+    private void castRay(int dx, int dy, byte[] visible) {
+      int steps = Math.max(Math.abs(dx), Math.abs(dy));
+      int size = 2 * radius + 1;
+      double maxSlope = Double.NEGATIVE_INFINITY;
+      for (int step = 1; step <= steps; step++) {
+        int x = Math.round((float) dx * step / steps);
+        int y = Math.round((float) dy * step / steps);
+        double distance = Math.hypot(x * cellWidthMeters, y * cellHeightMeters);
+        // the ray never comes back once it's beyond the radius or off the grid
+        if (distance > radiusMeters || column + x < 0 || column + x >= grid.getColumns() || row + y < 0 ||
+            row + y >= grid.getRows()) {
+          return;
+        }
+        float elevation = grid.getElevation(column + x, row + y);
+        if (Float.isNaN(elevation)) {
+          continue;
+        }
+        // the surface falls away below the observer's horizon with distance
+        double drop = distance * distance / EFFECTIVE_EARTH_DIAMETER;
+        double slope = (elevation - drop - observerElevation) / distance;
+        if ((elevation + targetHeight - drop - observerElevation) / distance >= maxSlope) {
+          visible[(y + radius) * size + x + radius] = 1;
+        }
+        maxSlope = Math.max(maxSlope, slope);
+      }
+    }
+  }
+}
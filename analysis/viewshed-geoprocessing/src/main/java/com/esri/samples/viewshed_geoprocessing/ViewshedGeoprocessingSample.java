@@ -16,21 +16,34 @@
 
 package com.esri.samples.viewshed_geoprocessing;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
 import javafx.geometry.Point2D;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.Label;
 import javafx.scene.control.ProgressIndicator;
 import javafx.scene.input.MouseButton;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
 import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
 import javafx.stage.Stage;
 
 import com.esri.arcgisruntime.concurrent.Job;
@@ -39,8 +52,13 @@ import com.esri.arcgisruntime.data.Feature;
 import com.esri.arcgisruntime.data.FeatureCollectionTable;
 import com.esri.arcgisruntime.data.FeatureSet;
 import com.esri.arcgisruntime.data.Field;
+import com.esri.arcgisruntime.geometry.Envelope;
+import com.esri.arcgisruntime.geometry.GeometryEngine;
 import com.esri.arcgisruntime.geometry.GeometryType;
 import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.Polygon;
+import com.esri.arcgisruntime.geometry.SpatialReference;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
 import com.esri.arcgisruntime.loadable.LoadStatus;
 import com.esri.arcgisruntime.mapping.ArcGISMap;
 import com.esri.arcgisruntime.mapping.Basemap;
@@ -60,7 +78,13 @@ import com.esri.arcgisruntime.tasks.geoprocessing.GeoprocessingTask;
 
 public class ViewshedGeoprocessingSample extends Application {
 
+  private static final double OBSERVER_HEIGHT = 2;
+  private static final double RADIUS_METERS = 15_000;
+
   private MapView mapView;
+  private ViewshedEngine viewshedEngine;
+  private ExecutorService viewshedExecutor;
+  private final List<Point> observers = new ArrayList<>();
   private GeoprocessingJob geoprocessingJob;
   // keep loadables in scope to avoid garbage collection
   private GeoprocessingTask geoprocessingTask;
@@ -105,6 +129,30 @@ public class ViewshedGeoprocessingSample extends Application {
       ProgressIndicator progress = new ProgressIndicator(ProgressIndicator.INDETERMINATE_PROGRESS);
       progress.setMaxWidth(30);
 
+      // and the mapView and progress indicator to the stack pane
+      stackPane.getChildren().addAll(mapView, progress);
+      StackPane.setAlignment(progress, Pos.CENTER);
+
+      // with a local elevation raster, compute the viewsheds on this machine instead of with the service
+      String localElevation = System.getProperty("viewshed.dem");
+      if (localElevation != null) {
+        // show how long each viewshed takes to compute
+        Label timingLabel = new Label("Click to compute a viewshed");
+        timingLabel.setStyle("-fx-text-fill: white;");
+        VBox timingVBox = new VBox(6, timingLabel);
+        timingVBox.setBackground(new Background(new BackgroundFill(Paint.valueOf("rgba(0,0,0,0.3)"),
+            CornerRadii.EMPTY, Insets.EMPTY)));
+        timingVBox.setPadding(new Insets(10.0));
+        timingVBox.setMaxSize(280, 40);
+        stackPane.getChildren().add(timingVBox);
+        StackPane.setAlignment(timingVBox, Pos.TOP_LEFT);
+        StackPane.setMargin(timingVBox, new Insets(10, 0, 0, 10));
+
+        startLocalViewshed(new File(localElevation), inputGraphicsOverlay, outputGraphicsOverlay, progress,
+            timingLabel);
+        return;
+      }
+
       // create the geoprocessing task with the service URL and load it
       geoprocessingTask = new GeoprocessingTask("https://sampleserver6.arcgisonline" +
           ".com/arcgis/rest/services/Elevation/ESRI_Elevation_World/GPServer/Viewshed");
@@ -126,6 +174,9 @@ public class ViewshedGeoprocessingSample extends Application {
               // show a graphic in the input graphics overlay at the clicked location
               Point2D point2D = new Point2D(e.getX(), e.getY());
               Point point = mapView.screenToLocation(point2D);
+              if (point == null) {
+                return;
+              }
               Graphic inputGraphic = new Graphic(point);
               inputGraphicsOverlay.getGraphics().add(inputGraphic);
 
@@ -198,22 +249,119 @@ public class ViewshedGeoprocessingSample extends Application {
           new Alert(AlertType.ERROR, "Failed to load geoprocessing task").show();
         }
       });
-
-      // and the mapView and progress indicator to the stack pane
-      stackPane.getChildren().addAll(mapView, progress);
-      StackPane.setAlignment(progress, Pos.CENTER);
     } catch (Exception e) {
       // on any error, display the stack trace.
       e.printStackTrace();
     }
   }
 
+  /**
+   * Reads an elevation raster in the background, then computes viewsheds over it with a {@link ViewshedEngine} where
+   * the user clicks. A click starts over from a new observer, and shift + click adds an observer, showing the area
+   * any of the observers can see.
+   *
+   * @param elevationFile a DTED elevation raster
+   * @param inputGraphicsOverlay overlay to show the observers in
+   * @param outputGraphicsOverlay overlay to show the viewshed in
+   * @param progress indicator to show while computing
+   * @param timingLabel label to show how long each viewshed took to compute
+   */
+  private void startLocalViewshed(File elevationFile, GraphicsOverlay inputGraphicsOverlay,
+      GraphicsOverlay outputGraphicsOverlay, ProgressIndicator progress, Label timingLabel) {
+
+    // one viewshed at a time, on every core
+    viewshedExecutor = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "viewshed");
+      thread.setDaemon(true);
+      return thread;
+    });
+    viewshedExecutor.execute(() -> {
+      try {
+        ElevationGrid grid = ElevationGrid.readDted(elevationFile);
+        ViewshedEngine engine = new ViewshedEngine(grid, Runtime.getRuntime().availableProcessors());
+        Platform.runLater(() -> {
+          viewshedEngine = engine;
+          progress.setVisible(false);
+          // zoom to the raster, since viewsheds can only be computed over it
+          mapView.setViewpointGeometryAsync(new Envelope(grid.getWest(), grid.getNorth() - grid.getRows() *
+              grid.getCellHeight(), grid.getWest() + grid.getColumns() * grid.getCellWidth(), grid.getNorth(),
+              SpatialReferences.getWgs84()));
+        });
+      } catch (Exception e) {
+        Platform.runLater(() -> {
+          progress.setVisible(false);
+          new Alert(AlertType.ERROR, "Failed to read " + elevationFile).show();
+        });
+      }
+    });
+
+    mapView.setOnMouseClicked(e -> {
+      if (e.isStillSincePress() && e.getButton() == MouseButton.PRIMARY && viewshedEngine != null) {
+        // the map view has no location to give until its map's spatial reference is known
+        Point point = mapView.screenToLocation(new Point2D(e.getX(), e.getY()));
+        if (point == null) {
+          return;
+        }
+        if (!e.isShiftDown()) {
+          observers.clear();
+          inputGraphicsOverlay.getGraphics().clear();
+        }
+        observers.add((Point) GeometryEngine.project(point, SpatialReferences.getWgs84()));
+        inputGraphicsOverlay.getGraphics().add(new Graphic(point));
+        progress.setVisible(true);
+
+        double[] longitudes = observers.stream().mapToDouble(Point::getX).toArray();
+        double[] latitudes = observers.stream().mapToDouble(Point::getY).toArray();
+        List<Point> viewshedObservers = new ArrayList<>(observers);
+        ViewshedEngine engine = viewshedEngine;
+        SpatialReference mapSpatialReference = mapView.getSpatialReference();
+        viewshedExecutor.execute(() -> {
+          try {
+            long start = System.nanoTime();
+            ViewshedResult result = engine.compute(longitudes, latitudes, OBSERVER_HEIGHT, 0, RADIUS_METERS);
+            Polygon viewshed = result.toPolygon(1);
+            double millis = (System.nanoTime() - start) / 1e6;
+            Polygon projectedViewshed = (Polygon) GeometryEngine.project(viewshed, mapSpatialReference);
+            Platform.runLater(() -> {
+              // skip the viewshed if the observers have changed while it was computed, since another is on its way
+              if (!observers.equals(viewshedObservers)) {
+                return;
+              }
+              outputGraphicsOverlay.getGraphics().clear();
+              outputGraphicsOverlay.getGraphics().add(new Graphic(projectedViewshed));
+              progress.setVisible(false);
+              timingLabel.setText(String.format(Locale.ROOT, "Viewshed of %d observers computed in %.0f ms",
+                  result.getObserverCount(), millis));
+            });
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+          } catch (RuntimeException ex) {
+            // the executor would drop the failure, leaving the progress showing
+            Platform.runLater(() -> {
+              if (observers.equals(viewshedObservers)) {
+                progress.setVisible(false);
+              }
+              new Alert(AlertType.ERROR, "Failed to compute the viewshed: " + ex.getMessage()).show();
+            });
+          }
+        });
+      }
+    });
+  }
+
   /**
    * Stops and releases all resources used in application.
    */
   @Override
   public void stop() {
 
+    if (viewshedExecutor != null) {
+      viewshedExecutor.shutdownNow();
+    }
+    if (viewshedEngine != null) {
+      viewshedEngine.dispose();
+    }
+
     if (mapView != null) {
       mapView.dispose();
     }
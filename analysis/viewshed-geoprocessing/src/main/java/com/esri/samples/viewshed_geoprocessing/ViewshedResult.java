@@ -0,0 +1,177 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.viewshed_geoprocessing;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.esri.arcgisruntime.geometry.GeometryEngine;
+import com.esri.arcgisruntime.geometry.Part;
+import com.esri.arcgisruntime.geometry.PartCollection;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.Polygon;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
+
+/**
+ * A visibility raster from {@link ViewshedEngine}, holding how many observers see each cell of the elevation grid. It
+ * can be written as an Esri ASCII grid, or turned into a polygon of the cells enough observers see.
+ */
+public class ViewshedResult {
+
+  private final ElevationGrid grid;
+  private final int[] counts;
+  private final int observerCount;
+
+  ViewshedResult(ElevationGrid grid, int[] counts, int observerCount) {
+    this.grid = grid;
+    this.counts = counts;
+    this.observerCount = observerCount;
+  }
+
+  /**
+   * Gets the number of observers that saw anything, leaving out those off the grid.
+   *
+   * @return number of observers
+   */
+  public int getObserverCount() {
+    return observerCount;
+  }
+
+  /**
+   * Gets how many observers see a cell.
+   *
+   * @param column column of the cell
+   * @param row row of the cell
+   * @return number of observers
+   */
+  public int getCount(int column, int row) {
+    return counts[row * grid.getColumns() + column];
+  }
+
+  /**
+   * Gets how many cells enough observers see.
+   *
+   * @param minObservers fewest observers that have to see a cell
+   * @return number of cells
+   */
+  public int getVisibleCellCount(int minObservers) {
+    int visibleCells = 0;
+    for (int count : counts) {
+      if (count >= minObservers) {
+        visibleCells++;
+      }
+    }
+    return visibleCells;
+  }
+
+  /**
+   * Writes the raster as an Esri ASCII grid of observer counts, with 0 for cells no observer sees.
+   *
+   * @param file the .asc file
+   * @throws IOException if the file can't be written
+   */
+  public void writeAsciiGrid(Path file) throws IOException {
+    try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.US_ASCII))) {
+      writer.printf(Locale.ROOT, "ncols %d%nnrows %d%n", grid.getColumns(), grid.getRows());
+      writer.printf(Locale.ROOT, "xllcorner %.9f%nyllcorner %.9f%n", grid.getWest(), grid.getNorth() -
+          grid.getRows() * grid.getCellHeight());
+      if (grid.getCellWidth() == grid.getCellHeight()) {
+        writer.printf(Locale.ROOT, "cellsize %.12f%n", grid.getCellWidth());
+      } else {
+        // not square, which only some readers accept
+        writer.printf(Locale.ROOT, "dx %.12f%ndy %.12f%n", grid.getCellWidth(), grid.getCellHeight());
+      }
+      StringBuilder line = new StringBuilder();
+      for (int row = 0; row < grid.getRows(); row++) {
+        line.setLength(0);
+        for (int column = 0; column < grid.getColumns(); column++) {
+          if (column > 0) {
+            line.append(' ');
+          }
+          line.append(counts[row * grid.getColumns() + column]);
+        }
+        writer.println(line);
+      }
+    }
+  }
+
+  /**
+   * Turns the cells enough observers see into a polygon. Runs of visible cells in a row are merged with the same runs
+   * in the rows below into rectangles, so the polygon has far fewer parts than there are cells, and the rectangles
+   * are then simplified into one area.
+   *
+   * @param minObservers fewest observers that have to see a cell
+   * @return the visible area in WGS84, empty if no cell is visible
+   */
+  public Polygon toPolygon(int minObservers) {
+    PartCollection parts = new PartCollection(SpatialReferences.getWgs84());
+    // rectangles still growing down the rows, by the first and last column of their run
+    Map<Long, Integer> open = new HashMap<>();
+    for (int row = 0; row <= grid.getRows(); row++) {
+      Map<Long, Integer> next = new HashMap<>();
+      int column = 0;
+      while (row < grid.getRows() && column < grid.getColumns()) {
+        if (counts[row * grid.getColumns() + column] < minObservers) {
+          column++;
+          continue;
+        }
+        int first = column;
+        while (column < grid.getColumns() && counts[row * grid.getColumns() + column] >= minObservers) {
+          column++;
+        }
+        long run = (long) first << 32 | (column - 1);
+        Integer firstRow = open.remove(run);
+        next.put(run, firstRow != null ? firstRow : row);
+      }
+      // the runs that didn't continue into this row end their rectangles
+      for (Map.Entry<Long, Integer> rectangle : open.entrySet()) {
+        long run = rectangle.getKey();
+        parts.add(createRectangle((int) (run >>> 32), (int) run, rectangle.getValue(), row - 1));
+      }
+      open = next;
+    }
+    return (Polygon) GeometryEngine.simplify(new Polygon(parts));
+  }
+
+  /**
+   * Creates a clockwise ring around a block of cells.
+   *
+   * @param firstColumn west column of the block
+   * @param lastColumn east column of the block
+   * @param firstRow north row of the block
+   * @param lastRow south row of the block
+   * @return the ring
+   */
+  private Part createRectangle(int firstColumn, int lastColumn, int firstRow, int lastRow) {
+    double west = grid.getWest() + firstColumn * grid.getCellWidth();
+    double east = grid.getWest() + (lastColumn + 1) * grid.getCellWidth();
+    double north = grid.getNorth() - firstRow * grid.getCellHeight();
+    double south = grid.getNorth() - (lastRow + 1) * grid.getCellHeight();
+    Part part = new Part(SpatialReferences.getWgs84());
+    part.addPoint(new Point(west, north));
+    part.addPoint(new Point(east, north));
+    part.addPoint(new Point(east, south));
+    part.addPoint(new Point(west, south));
+    return part;
+  }
+}
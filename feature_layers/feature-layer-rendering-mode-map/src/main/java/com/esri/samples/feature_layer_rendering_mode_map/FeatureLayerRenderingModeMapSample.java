@@ -16,19 +16,25 @@
 
 package com.esri.samples.feature_layer_rendering_mode_map;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import javafx.animation.Animation;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Orientation;
 import javafx.scene.Scene;
 import javafx.scene.control.SplitPane;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 
+import com.esri.arcgisruntime.data.FeatureTable;
 import com.esri.arcgisruntime.data.ServiceFeatureTable;
+import com.esri.arcgisruntime.data.ShapefileFeatureTable;
 import com.esri.arcgisruntime.geometry.Point;
 import com.esri.arcgisruntime.geometry.SpatialReferences;
 import com.esri.arcgisruntime.layers.FeatureLayer;
@@ -59,6 +65,21 @@ public class FeatureLayerRenderingModeMapSample extends Application {
       stage.setScene(fxScene);
       stage.show();
 
+      // viewpoint locations for map view to zoom in and out to, or those given with
+      // -Dbenchmark.viewpoints=<longitude>,<latitude>,<scale>,<rotation>;<longitude>,<latitude>,<scale>,<rotation>
+      String[] customViewpoints = System.getProperty("benchmark.viewpoints", "").split(";");
+      Viewpoint zoomOutPoint = customViewpoints.length == 2 ? parseViewpoint(customViewpoints[0]) :
+          new Viewpoint(new Point(-118.37, 34.46, SpatialReferences.getWgs84()), 650000, 0);
+      Viewpoint zoomInPoint = customViewpoints.length == 2 ? parseViewpoint(customViewpoints[1]) :
+          new Viewpoint(new Point(-118.45, 34.395, SpatialReferences.getWgs84()), 50000, 90);
+
+      // measure the rendering mode given by main unattended and exit
+      String benchmarkMode = System.getProperty("benchmark.mode");
+      if (benchmarkMode != null) {
+        runBenchmark(FeatureLayer.RenderingMode.valueOf(benchmarkMode), splitPane, zoomOutPoint, zoomInPoint, stage);
+        return;
+      }
+
       // create a map (top) and set it to render all features in static rendering mode
       ArcGISMap mapTop = new ArcGISMap();
       mapTop.getLoadSettings().setPreferredPointFeatureRenderingMode(FeatureLayer.RenderingMode.STATIC);
@@ -80,23 +101,13 @@ public class FeatureLayerRenderingModeMapSample extends Application {
       mapViewBottom.setMap(mapBottom);
       splitPane.getItems().add(mapViewBottom);
 
-      // create service feature table using a point, polyline, and polygon service
-      ServiceFeatureTable pointServiceFeatureTable = new ServiceFeatureTable("https://sampleserver6.arcgisonline.com/arcgis/rest/services/Energy/Geology/FeatureServer/0");
-      ServiceFeatureTable polylineServiceFeatureTable = new ServiceFeatureTable("https://sampleserver6.arcgisonline.com/arcgis/rest/services/Energy/Geology/FeatureServer/8");
-      ServiceFeatureTable polygonServiceFeatureTable = new ServiceFeatureTable("https://sampleserver6.arcgisonline.com/arcgis/rest/services/Energy/Geology/FeatureServer/9");
-
-      // create feature layer from service feature tables
-      FeatureLayer pointFeatureLayer = new FeatureLayer(pointServiceFeatureTable);
-      FeatureLayer polylineFeatureLayer = new FeatureLayer(polylineServiceFeatureTable);
-      FeatureLayer polygonFeatureLayer = new FeatureLayer(polygonServiceFeatureTable);
-
       // add each layer to top and bottom map
-      mapTop.getOperationalLayers().addAll(Arrays.asList(pointFeatureLayer, polylineFeatureLayer, polygonFeatureLayer));
-      mapBottom.getOperationalLayers().addAll(Arrays.asList(pointFeatureLayer.copy(), polylineFeatureLayer.copy(), polygonFeatureLayer.copy()));
+      List<FeatureLayer> topLayers = createLayers();
+      List<FeatureLayer> bottomLayers = new ArrayList<>();
+      topLayers.forEach(layer -> bottomLayers.add(layer.copy()));
+      mapTop.getOperationalLayers().addAll(topLayers);
+      mapBottom.getOperationalLayers().addAll(bottomLayers);
 
-      // viewpoint locations for map view to zoom in and out to
-      Viewpoint zoomOutPoint = new Viewpoint(new Point(-118.37, 34.46, SpatialReferences.getWgs84()), 650000, 0);
-      Viewpoint zoomInPoint = new Viewpoint(new Point(-118.45, 34.395, SpatialReferences.getWgs84()), 50000, 90);
       mapViewTop.setViewpoint(zoomOutPoint);
       mapViewBottom.setViewpoint(zoomOutPoint);
 
@@ -113,6 +124,74 @@ public class FeatureLayerRenderingModeMapSample extends Application {
     }
   }
 
+  /**
+   * Creates feature layers from a point, polyline, and polygon service, or from the datasets given with
+   * -Dbenchmark.layers=&lt;feature service layer URL or shapefile path&gt;,...
+   *
+   * @return the layers
+   */
+  private static List<FeatureLayer> createLayers() {
+    List<FeatureLayer> layers = new ArrayList<>();
+    String customLayers = System.getProperty("benchmark.layers");
+    List<String> sources = customLayers != null ? Arrays.asList(customLayers.split(",")) : Arrays.asList(
+        "https://sampleserver6.arcgisonline.com/arcgis/rest/services/Energy/Geology/FeatureServer/0",
+        "https://sampleserver6.arcgisonline.com/arcgis/rest/services/Energy/Geology/FeatureServer/8",
+        "https://sampleserver6.arcgisonline.com/arcgis/rest/services/Energy/Geology/FeatureServer/9");
+    for (String source : sources) {
+      String path = source.trim();
+      FeatureTable featureTable = path.endsWith(".shp") ? new ShapefileFeatureTable(new File(path).getAbsolutePath())
+          : new ServiceFeatureTable(path);
+      layers.add(new FeatureLayer(featureTable));
+    }
+    return layers;
+  }
+
+  /**
+   * Measures one rendering mode with the rendering mode harness, writes the results to the benchmark-results
+   * directory and exits. The map view is shown without layers until it first draws, so the harness can record the
+   * memory before the layers are added. The zoom animation is played five seconds each way like the sample's own
+   * animation, three times unless set with -Dbenchmark.repeats.
+   *
+   * @param renderingMode rendering mode to measure
+   * @param splitPane pane to show the map view in
+   * @param zoomOutPoint viewpoint to zoom out to
+   * @param zoomInPoint viewpoint to zoom in to
+   * @param stage stage to show the progress in
+   */
+  private void runBenchmark(FeatureLayer.RenderingMode renderingMode, SplitPane splitPane, Viewpoint zoomOutPoint,
+      Viewpoint zoomInPoint, Stage stage) {
+
+    ArcGISMap map = new ArcGISMap();
+    map.getLoadSettings().setPreferredPointFeatureRenderingMode(renderingMode);
+    map.getLoadSettings().setPreferredPolylineFeatureRenderingMode(renderingMode);
+    map.getLoadSettings().setPreferredPolygonFeatureRenderingMode(renderingMode);
+    mapViewTop = new MapView();
+    mapViewTop.setMap(map);
+    mapViewTop.setViewpoint(zoomOutPoint);
+    splitPane.getItems().add(mapViewTop);
+    List<FeatureLayer> layers = createLayers();
+
+    RenderingModeHarness harness = new RenderingModeHarness(Integer.getInteger("benchmark.repeats", 3), 120_000);
+    harness.addStep("zoom_in", view -> ((MapView) view).setViewpointAsync(zoomInPoint, 5));
+    harness.addStep("zoom_out", view -> ((MapView) view).setViewpointAsync(zoomOutPoint, 5));
+
+    BenchmarkRunner.runWhenDrawn(mapViewTop, outputDirectory -> harness.run(mapViewTop, renderingMode.name(),
+        layers, () -> map.getOperationalLayers().addAll(layers), outputDirectory, "feature-layer-rendering-mode-map",
+        message -> Platform.runLater(() -> stage.setTitle("Feature Layer Rendering Mode Map Sample - " + message))));
+  }
+
+  /**
+   * Parses a viewpoint given as longitude, latitude, scale and rotation.
+   *
+   * @param text the viewpoint, separated by commas
+   * @return the viewpoint
+   */
+  private static Viewpoint parseViewpoint(String text) {
+    String[] values = text.split(",");
+    return new Viewpoint(new Point(Double.parseDouble(values[0].trim()), Double.parseDouble(values[1].trim()),
+        SpatialReferences.getWgs84()), Double.parseDouble(values[2].trim()), Double.parseDouble(values[3].trim()));
+  }
+
   /**
    * Sets both MapViews to a Viewpoint over a number of seconds.
    *  @param viewpoint to which both MapViews should be set.
@@ -130,7 +209,9 @@ public class FeatureLayerRenderingModeMapSample extends Application {
   public void stop() {
 
     // stop the timer
-    timeline.stop();
+    if (timeline != null) {
+      timeline.stop();
+    }
 
     if (mapViewTop != null) {
       mapViewTop.dispose();
@@ -147,6 +228,16 @@ public class FeatureLayerRenderingModeMapSample extends Application {
    */
   public static void main(String[] args) {
 
+    // with --benchmark or -Dbenchmark=true, measure each rendering mode in a process of its own and exit
+    if ((Arrays.asList(args).contains("--benchmark") || Boolean.getBoolean("benchmark"))
+        && System.getProperty("benchmark.mode") == null) {
+      try {
+        RenderingModeHarness.runEachMode(FeatureLayerRenderingModeMapLauncher.class, args);
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+      return;
+    }
     Application.launch(args);
   }
 
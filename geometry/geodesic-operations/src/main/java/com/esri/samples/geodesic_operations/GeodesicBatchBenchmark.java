@@ -0,0 +1,102 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.geodesic_operations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.esri.arcgisruntime.geometry.AreaUnit;
+import com.esri.arcgisruntime.geometry.AreaUnitId;
+import com.esri.arcgisruntime.geometry.GeodeticCurveType;
+import com.esri.arcgisruntime.geometry.GeometryEngine;
+import com.esri.arcgisruntime.geometry.LinearUnit;
+import com.esri.arcgisruntime.geometry.LinearUnitId;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.PointCollection;
+import com.esri.arcgisruntime.geometry.Polyline;
+import com.esri.arcgisruntime.geometry.SpatialReference;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
+
+/**
+ * Command line timing harness comparing per-geometry geodesic measurement with {@link GeodesicBatchEngine}.
+ */
+public class GeodesicBatchBenchmark {
+
+  private static final int WARMUP_ROUNDS = 3;
+  private static final int MEASURED_ROUNDS = 5;
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optional number of flight paths to measure (default 100000)
+   */
+  public static void main(String[] args) {
+
+    int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+
+    SpatialReference srWgs84 = SpatialReferences.getWgs84();
+    LinearUnit kilometers = new LinearUnit(LinearUnitId.KILOMETERS);
+    GeodesicBatchEngine engine = new GeodesicBatchEngine(kilometers, new AreaUnit(AreaUnitId.SQUARE_KILOMETERS),
+        GeodeticCurveType.GEODESIC);
+
+    // random flight paths out of JFK airport
+    Point start = new Point(-73.7781, 40.6413, srWgs84);
+    Random random = new Random(42);
+    List<Polyline> paths = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Point destination = new Point(random.nextDouble() * 360 - 180, random.nextDouble() * 160 - 80, srWgs84);
+      PointCollection points = new PointCollection(srWgs84);
+      points.add(start);
+      points.add(destination);
+      paths.add(new Polyline(points));
+    }
+
+    for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+      long sequentialStart = System.nanoTime();
+      double[] sequential = new double[count];
+      for (int i = 0; i < count; i++) {
+        sequential[i] = GeometryEngine.lengthGeodetic(paths.get(i), kilometers, GeodeticCurveType.GEODESIC);
+      }
+      long sequentialTime = System.nanoTime() - sequentialStart;
+
+      long batchStart = System.nanoTime();
+      double[] batch = engine.lengths(paths);
+      long batchTime = System.nanoTime() - batchStart;
+
+      if (round >= WARMUP_ROUNDS) {
+        System.out.printf("round %d: per-geometry %.1f ns/geometry, batch %.1f ns/geometry (checksum %.3f / %.3f)%n",
+            round - WARMUP_ROUNDS, (double) sequentialTime / count, (double) batchTime / count, sum(sequential),
+            sum(batch));
+      }
+    }
+  }
+
+  /**
+   * Sums the values so the measured work can't be optimized away.
+   *
+   * @param values values to sum
+   * @return sum of the values
+   */
+  private static double sum(double[] values) {
+    double total = 0;
+    for (double value : values) {
+      total += value;
+    }
+    return total;
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.geodesic_operations;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.esri.arcgisruntime.geometry.AreaUnit;
+import com.esri.arcgisruntime.geometry.GeodeticCurveType;
+import com.esri.arcgisruntime.geometry.Geometry;
+import com.esri.arcgisruntime.geometry.GeometryEngine;
+import com.esri.arcgisruntime.geometry.LinearUnit;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.PointCollection;
+import com.esri.arcgisruntime.geometry.Polyline;
+import com.esri.arcgisruntime.geometry.SpatialReference;
+
+/**
+ * Runs geodesic measurements over batches of geometries in parallel, writing the results into primitive arrays
+ * instead of boxing them one by one.
+ */
+public class GeodesicBatchEngine {
+
+  private final LinearUnit linearUnit;
+  private final AreaUnit areaUnit;
+  private final GeodeticCurveType curveType;
+
+  /**
+   * Creates an engine which measures with the given units and curve type.
+   *
+   * @param linearUnit unit for lengths and densification distances
+   * @param areaUnit unit for areas
+   * @param curveType geodetic curve type used for every measurement
+   */
+  public GeodesicBatchEngine(LinearUnit linearUnit, AreaUnit areaUnit, GeodeticCurveType curveType) {
+    this.linearUnit = linearUnit;
+    this.areaUnit = areaUnit;
+    this.curveType = curveType;
+  }
+
+  /**
+   * Calculates the geodesic length of each geometry.
+   *
+   * @param geometries geometries to measure
+   * @return lengths in the same order as the geometries
+   */
+  public double[] lengths(List<? extends Geometry> geometries) {
+    double[] results = new double[geometries.size()];
+    IntStream.range(0, results.length).parallel().forEach(i ->
+        results[i] = GeometryEngine.lengthGeodetic(geometries.get(i), linearUnit, curveType));
+    return results;
+  }
+
+  /**
+   * Calculates the geodesic area of each geometry.
+   *
+   * @param geometries geometries to measure
+   * @return areas in the same order as the geometries
+   */
+  public double[] areas(List<? extends Geometry> geometries) {
+    double[] results = new double[geometries.size()];
+    IntStream.range(0, results.length).parallel().forEach(i ->
+        results[i] = GeometryEngine.areaGeodetic(geometries.get(i), areaUnit, curveType));
+    return results;
+  }
+
+  /**
+   * Calculates the geodesic distance from a common start point to each destination. The destinations must share the
+   * start point's spatial reference.
+   *
+   * @param start start point of every path
+   * @param destinations end points of the paths
+   * @return path lengths in the same order as the destinations
+   */
+  public double[] pathLengths(Point start, List<Point> destinations) {
+    SpatialReference spatialReference = start.getSpatialReference();
+    double[] results = new double[destinations.size()];
+    IntStream.range(0, results.length).parallel().forEach(i -> {
+      Polyline path = new Polyline(new PointCollection(Arrays.asList(start, destinations.get(i)), spatialReference));
+      results[i] = GeometryEngine.lengthGeodetic(path, linearUnit, curveType);
+    });
+    return results;
+  }
+
+  /**
+   * Densifies each geometry along the engine's curve type.
+   *
+   * @param geometries geometries to densify
+   * @param maxSegmentLength maximum distance between vertices in the engine's linear unit
+   * @return densified geometries in the same order as the input
+   */
+  public Geometry[] densify(List<? extends Geometry> geometries, double maxSegmentLength) {
+    Geometry[] results = new Geometry[geometries.size()];
+    IntStream.range(0, results.length).parallel().forEach(i ->
+        results[i] = GeometryEngine.densifyGeodetic(geometries.get(i), maxSegmentLength, linearUnit, curveType));
+    return results;
+  }
+}
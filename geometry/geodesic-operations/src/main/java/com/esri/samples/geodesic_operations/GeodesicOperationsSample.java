@@ -18,6 +18,8 @@ package com.esri.samples.geodesic_operations;
 
 import java.text.DecimalFormat;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import javafx.application.Application;
 import javafx.geometry.Insets;
@@ -30,6 +32,8 @@ import javafx.scene.layout.*;
 import javafx.scene.paint.Paint;
 import javafx.stage.Stage;
 
+import com.esri.arcgisruntime.geometry.AreaUnit;
+import com.esri.arcgisruntime.geometry.AreaUnitId;
 import com.esri.arcgisruntime.geometry.GeodeticCurveType;
 import com.esri.arcgisruntime.geometry.Geometry;
 import com.esri.arcgisruntime.geometry.GeometryEngine;
@@ -111,6 +115,10 @@ public class GeodesicOperationsSample extends Application {
       // create a linear unit for measuring the distance
       LinearUnit unitOfMeasurement = new LinearUnit(LinearUnitId.KILOMETERS);
 
+      // create an engine to densify and measure paths along geodesic curves
+      GeodesicBatchEngine geodesicEngine = new GeodesicBatchEngine(unitOfMeasurement,
+          new AreaUnit(AreaUnitId.SQUARE_KILOMETERS), GeodeticCurveType.GEODESIC);
+
       // and a mouse click listener to get the user's input for the destination
       mapView.setOnMouseClicked(e -> {
         if (e.isStillSincePress() && e.getButton() == MouseButton.PRIMARY) {
@@ -122,11 +130,10 @@ public class GeodesicOperationsSample extends Application {
           PointCollection points = new PointCollection(Arrays.asList(start, destination), srWgs84);
           Polyline polyline = new Polyline(points);
           // densify the path as a geodesic curve and show it with the path graphic
-          Geometry pathGeometry = GeometryEngine.densifyGeodetic(polyline, 1, unitOfMeasurement, GeodeticCurveType
-              .GEODESIC);
-          path.setGeometry(pathGeometry);
+          List<Geometry> densified = Arrays.asList(geodesicEngine.densify(Collections.singletonList(polyline), 1));
+          path.setGeometry(densified.get(0));
           // calculate the path distance
-          double distance = GeometryEngine.lengthGeodetic(pathGeometry, unitOfMeasurement, GeodeticCurveType.GEODESIC);
+          double distance = geodesicEngine.lengths(densified)[0];
           distanceLabel.setText(formatter.format(distance));
         }
       });
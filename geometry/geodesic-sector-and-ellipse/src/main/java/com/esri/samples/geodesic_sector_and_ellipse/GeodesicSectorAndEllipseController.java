@@ -23,10 +23,8 @@ import javafx.scene.control.Slider;
 import javafx.scene.control.Spinner;
 import javafx.scene.input.MouseButton;
 
-import com.esri.arcgisruntime.geometry.GeodesicEllipseParameters;
 import com.esri.arcgisruntime.geometry.GeodesicSectorParameters;
 import com.esri.arcgisruntime.geometry.Geometry;
-import com.esri.arcgisruntime.geometry.GeometryEngine;
 import com.esri.arcgisruntime.geometry.GeometryType;
 import com.esri.arcgisruntime.geometry.Point;
 import com.esri.arcgisruntime.geometry.SpatialReference;
@@ -61,6 +59,7 @@ public class GeodesicSectorAndEllipseController {
   private FillSymbol sectorFillSymbol;
   private LineSymbol sectorLineSymbol;
   private MarkerSymbol sectorMarkerSymbol;
+  private final GeodesicShapeCache shapeCache = new GeodesicShapeCache(500);
 
   public void initialize() {
     // initialize a map to a viewpoint and set it to the map view
@@ -129,20 +128,11 @@ public class GeodesicSectorAndEllipseController {
    */
   private void updateSector() {
 
-    // create geodesic sector parameters
-    GeodesicSectorParameters geodesicSectorParameters = new GeodesicSectorParameters();
-    geodesicSectorParameters.setCenter(center);
-    geodesicSectorParameters.setAxisDirection(axisDirectionSlider.getValue());
-    geodesicSectorParameters.setMaxPointCount(maxPointCountSpinner.getValue());
-    geodesicSectorParameters.setMaxSegmentLength(maxSegmentLengthSlider.getValue());
-    geodesicSectorParameters.setGeometryType(geometryTypeComboBox.getSelectionModel().getSelectedItem());
-    geodesicSectorParameters.setSectorAngle(sectorAngleSlider.getValue());
-    geodesicSectorParameters.setSemiAxis1Length(semiAxis1LengthSlider.getValue());
-    geodesicSectorParameters.setSemiAxis2Length(semiAxis2LengthSlider.getValue());
-    geodesicSectorParameters.setStartDirection(startDirectionSlider.getValue());
-
-    // create the geodesic sector parameter
-    Geometry sectorGeometry = GeometryEngine.sectorGeodesic(geodesicSectorParameters);
+    // get the sector from the cache, which only builds it if these parameters haven't been used before
+    Geometry sectorGeometry = shapeCache.sector(center, axisDirectionSlider.getValue(), maxPointCountSpinner.getValue(),
+        maxSegmentLengthSlider.getValue(), geometryTypeComboBox.getSelectionModel().getSelectedItem(),
+        sectorAngleSlider.getValue(), semiAxis1LengthSlider.getValue(), semiAxis2LengthSlider.getValue(),
+        startDirectionSlider.getValue());
     // set the sector graphic's geometry to the sector
     sectorGraphic.setGeometry(sectorGeometry);
     // update the graphic's symbol depending on the chosen output geometry type
@@ -158,13 +148,9 @@ public class GeodesicSectorAndEllipseController {
         break;
     }
 
-    // create geodesic ellipse parameters using the same values from the geodesic sector parameters
-    // use one of the constructors that sets some defaults for you
-    GeodesicEllipseParameters geodesicEllipseParameters = new GeodesicEllipseParameters(center, semiAxis1LengthSlider
-        .getValue(), semiAxis2LengthSlider.getValue());
-    geodesicEllipseParameters.setAxisDirection(axisDirectionSlider.getValue());
-    // show the geodesic ellipse that the sector is in
-    Geometry ellipseGeometry = GeometryEngine.ellipseGeodesic(geodesicEllipseParameters);
+    // show the geodesic ellipse that the sector is in, using the same values as the sector
+    Geometry ellipseGeometry = shapeCache.ellipse(center, semiAxis1LengthSlider.getValue(), semiAxis2LengthSlider
+        .getValue(), axisDirectionSlider.getValue());
     ellipseGraphic.setGeometry(ellipseGeometry);
   }
 
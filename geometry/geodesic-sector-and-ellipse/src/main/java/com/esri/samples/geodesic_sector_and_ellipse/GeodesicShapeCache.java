@@ -0,0 +1,189 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.geodesic_sector_and_ellipse;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import com.esri.arcgisruntime.geometry.GeodesicEllipseParameters;
+import com.esri.arcgisruntime.geometry.GeodesicSectorParameters;
+import com.esri.arcgisruntime.geometry.Geometry;
+import com.esri.arcgisruntime.geometry.GeometryEngine;
+import com.esri.arcgisruntime.geometry.GeometryType;
+import com.esri.arcgisruntime.geometry.Point;
+
+/**
+ * Caches geodesic sectors and ellipses by their quantized parameters, so sweeping a slider back and forth reuses
+ * geometry which was already built. Batches of sectors which miss the cache are built in parallel.
+ */
+public class GeodesicShapeCache {
+
+  // quantization steps for the parameters making up a cache key
+  private static final double ANGLE_STEP = 0.1;
+  private static final double LENGTH_STEP = 0.1;
+  private static final double COORDINATE_STEP = 0.01;
+
+  private final Map<List<Object>, Geometry> cache;
+
+  /**
+   * Creates a cache holding up to the given number of geometries, evicting the least recently used first.
+   *
+   * @param capacity maximum number of cached geometries
+   */
+  public GeodesicShapeCache(int capacity) {
+    cache = Collections.synchronizedMap(new LinkedHashMap<List<Object>, Geometry>(capacity, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<List<Object>, Geometry> eldest) {
+        return size() > capacity;
+      }
+    });
+  }
+
+  /**
+   * Gets the sector for the given parameters, building it if it isn't cached. The angles, lengths and center are
+   * snapped to the cache's quantization steps before the sector is built.
+   *
+   * @param center center of the sector
+   * @param axisDirection direction of the ellipse's major axis in degrees
+   * @param maxPointCount maximum number of vertices
+   * @param maxSegmentLength maximum length between vertices
+   * @param geometryType output geometry type
+   * @param sectorAngle sweep angle of the sector in degrees
+   * @param semiAxis1Length length of the first semi axis
+   * @param semiAxis2Length length of the second semi axis
+   * @param startDirection start direction of the sector in degrees
+   * @return the sector geometry
+   */
+  public Geometry sector(Point center, double axisDirection, int maxPointCount, double maxSegmentLength,
+      GeometryType geometryType, double sectorAngle, double semiAxis1Length, double semiAxis2Length,
+      double startDirection) {
+
+    double[] values = {
+        quantize(center.getX(), COORDINATE_STEP), quantize(center.getY(), COORDINATE_STEP),
+        quantize(axisDirection, ANGLE_STEP), quantize(maxSegmentLength, LENGTH_STEP),
+        quantize(sectorAngle, ANGLE_STEP), quantize(semiAxis1Length, LENGTH_STEP),
+        quantize(semiAxis2Length, LENGTH_STEP), quantize(startDirection, ANGLE_STEP)
+    };
+    List<Object> key = Arrays.asList("sector", center.getSpatialReference().getWKID(), geometryType, maxPointCount,
+        Arrays.toString(values));
+
+    return getOrBuild(key, () -> {
+      GeodesicSectorParameters parameters = new GeodesicSectorParameters();
+      parameters.setCenter(new Point(values[0], values[1], center.getSpatialReference()));
+      parameters.setAxisDirection(values[2]);
+      parameters.setMaxPointCount(maxPointCount);
+      parameters.setMaxSegmentLength(values[3]);
+      parameters.setGeometryType(geometryType);
+      parameters.setSectorAngle(values[4]);
+      parameters.setSemiAxis1Length(values[5]);
+      parameters.setSemiAxis2Length(values[6]);
+      parameters.setStartDirection(values[7]);
+      return GeometryEngine.sectorGeodesic(parameters);
+    });
+  }
+
+  /**
+   * Gets the ellipse for the given parameters, building it if it isn't cached.
+   *
+   * @param center center of the ellipse
+   * @param semiAxis1Length length of the first semi axis
+   * @param semiAxis2Length length of the second semi axis
+   * @param axisDirection direction of the major axis in degrees
+   * @return the ellipse geometry
+   */
+  public Geometry ellipse(Point center, double semiAxis1Length, double semiAxis2Length, double axisDirection) {
+
+    double[] values = {
+        quantize(center.getX(), COORDINATE_STEP), quantize(center.getY(), COORDINATE_STEP),
+        quantize(semiAxis1Length, LENGTH_STEP), quantize(semiAxis2Length, LENGTH_STEP),
+        quantize(axisDirection, ANGLE_STEP)
+    };
+    List<Object> key = Arrays.asList("ellipse", center.getSpatialReference().getWKID(), Arrays.toString(values));
+
+    return getOrBuild(key, () -> {
+      Point quantizedCenter = new Point(values[0], values[1], center.getSpatialReference());
+      GeodesicEllipseParameters parameters = new GeodesicEllipseParameters(quantizedCenter, values[2], values[3]);
+      parameters.setAxisDirection(values[4]);
+      return GeometryEngine.ellipseGeodesic(parameters);
+    });
+  }
+
+  /**
+   * Builds sectors around many centers in parallel, sharing all other parameters.
+   *
+   * @param centers centers of the sectors
+   * @param axisDirection direction of the ellipse's major axis in degrees
+   * @param maxPointCount maximum number of vertices
+   * @param maxSegmentLength maximum length between vertices
+   * @param geometryType output geometry type
+   * @param sectorAngle sweep angle of the sectors in degrees
+   * @param semiAxis1Length length of the first semi axis
+   * @param semiAxis2Length length of the second semi axis
+   * @param startDirection start direction of the sectors in degrees
+   * @return sector geometries in the same order as the centers
+   */
+  public Geometry[] sectors(List<Point> centers, double axisDirection, int maxPointCount, double maxSegmentLength,
+      GeometryType geometryType, double sectorAngle, double semiAxis1Length, double semiAxis2Length,
+      double startDirection) {
+
+    Geometry[] results = new Geometry[centers.size()];
+    IntStream.range(0, results.length).parallel().forEach(i ->
+        results[i] = sector(centers.get(i), axisDirection, maxPointCount, maxSegmentLength, geometryType, sectorAngle,
+            semiAxis1Length, semiAxis2Length, startDirection));
+    return results;
+  }
+
+  /**
+   * Removes all cached geometries.
+   */
+  public void clear() {
+    cache.clear();
+  }
+
+  /**
+   * Gets the cached geometry for the key, building and caching it on a miss. Geometry is built outside the cache's
+   * lock so parallel batches aren't serialized.
+   *
+   * @param key cache key
+   * @param builder builds the geometry on a miss
+   * @return the cached or newly built geometry
+   */
+  private Geometry getOrBuild(List<Object> key, Supplier<Geometry> builder) {
+    Geometry geometry = cache.get(key);
+    if (geometry == null) {
+      geometry = builder.get();
+      cache.put(key, geometry);
+    }
+    return geometry;
+  }
+
+  /**
+   * Snaps a value to the nearest multiple of the step.
+   *
+   * @param value value to snap
+   * @param step quantization step
+   * @return the snapped value
+   */
+  private static double quantize(double value, double step) {
+    return Math.round(value / step) * step;
+  }
+}
@@ -16,12 +16,20 @@
 
 package com.esri.samples.geometry_engine_simplify;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.Label;
 import javafx.scene.layout.Background;
 import javafx.scene.layout.BackgroundFill;
 import javafx.scene.layout.CornerRadii;
@@ -30,8 +38,12 @@ import javafx.scene.layout.VBox;
 import javafx.scene.paint.Paint;
 import javafx.stage.Stage;
 
+import com.esri.arcgisruntime.data.Feature;
+import com.esri.arcgisruntime.data.FeatureCollectionTable;
+import com.esri.arcgisruntime.data.Field;
 import com.esri.arcgisruntime.geometry.Geometry;
 import com.esri.arcgisruntime.geometry.GeometryEngine;
+import com.esri.arcgisruntime.geometry.GeometryType;
 import com.esri.arcgisruntime.geometry.Part;
 import com.esri.arcgisruntime.geometry.PartCollection;
 import com.esri.arcgisruntime.geometry.Point;
@@ -54,6 +66,8 @@ public class GeometryEngineSimplifySample extends Application {
   private Graphic polygon;
   private MapView mapView;
 
+  private static final int BATCH_SIZE = 5000;
+
   // simple black (0xFF000000) line symbol
   private final SimpleLineSymbol line = new SimpleLineSymbol(SimpleLineSymbol.Style.SOLID, 0xFF000000, 1);
 
@@ -78,7 +92,7 @@ public class GeometryEngineSimplifySample extends Application {
       controlsVBox.setBackground(new Background(new BackgroundFill(Paint.valueOf("rgba(0,0,0,0.3)"), CornerRadii.EMPTY,
           Insets.EMPTY)));
       controlsVBox.setPadding(new Insets(10.0));
-      controlsVBox.setMaxSize(110, 80);
+      controlsVBox.setMaxSize(220, 200);
       controlsVBox.getStyleClass().add("panel-region");
 
       // create simplify button
@@ -116,8 +130,38 @@ public class GeometryEngineSimplifySample extends Application {
         resetButton.setDisable(true);
       });
 
+      // create a button and label to validate a batch of copies of the polygon
+      Button validateBatchButton = new Button("Validate Batch");
+      validateBatchButton.setMaxWidth(Double.MAX_VALUE);
+      Label validationLabel = new Label();
+      validationLabel.setWrapText(true);
+
+      // validate and repair a table of polygons in pages on a background thread
+      validateBatchButton.setOnAction(e -> {
+        validateBatchButton.setDisable(true);
+        Thread validationThread = new Thread(() -> {
+          try {
+            FeatureCollectionTable table = createBatchTable(BATCH_SIZE);
+            GeometryValidationPipeline pipeline = new GeometryValidationPipeline(table, 500, true, false, "CopyId");
+            GeometryValidationPipeline.Report report = pipeline.run(progress -> {
+              String progressText = String.format("%.0f%% validated", progress.getProgress() * 100);
+              Platform.runLater(() -> validationLabel.setText(progressText));
+            });
+            String reportText = report.toString();
+            Platform.runLater(() -> validationLabel.setText(reportText));
+          } catch (Exception ex) {
+            Platform.runLater(() -> new Alert(Alert.AlertType.ERROR, "Batch validation failed: " + ex.getMessage())
+                .show());
+          } finally {
+            Platform.runLater(() -> validateBatchButton.setDisable(false));
+          }
+        });
+        validationThread.setDaemon(true);
+        validationThread.start();
+      });
+
       // add buttons to the control panel
-      controlsVBox.getChildren().addAll(simplifyButton, resetButton);
+      controlsVBox.getChildren().addAll(simplifyButton, resetButton, validateBatchButton, validationLabel);
 
       map = new ArcGISMap(Basemap.createLightGrayCanvas());
 
@@ -202,6 +246,31 @@ public class GeometryEngineSimplifySample extends Application {
 
   }
 
+  /**
+   * Creates a table filled with copies of the sample's non-simple polygon, to stand in for an imported dataset. Each
+   * copy is numbered in its own field, which the validation pages by.
+   *
+   * @param count number of features to add
+   * @return the populated table
+   * @throws Exception if the features can't be added
+   */
+  private FeatureCollectionTable createBatchTable(int count) throws Exception {
+
+    List<Field> fields = Arrays.asList(Field.createInteger("CopyId", "Copy ID"),
+        Field.createString("Name", "Name", 50));
+    FeatureCollectionTable table = new FeatureCollectionTable(fields, GeometryType.POLYGON,
+        SpatialReferences.getWebMercator());
+    List<Feature> features = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Map<String, Object> attributes = new HashMap<>();
+      attributes.put("CopyId", i);
+      attributes.put("Name", "Copy " + i);
+      features.add(table.createFeature(attributes, polygon.getGeometry()));
+    }
+    table.addFeaturesAsync(features).get();
+    return table;
+  }
+
   /**
    * Stops and releases all resources used in application.
    */
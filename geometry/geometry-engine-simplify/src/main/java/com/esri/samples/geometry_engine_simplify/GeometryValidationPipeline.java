@@ -0,0 +1,308 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.geometry_engine_simplify;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+import com.esri.arcgisruntime.data.Feature;
+import com.esri.arcgisruntime.data.FeatureQueryResult;
+import com.esri.arcgisruntime.data.FeatureTable;
+import com.esri.arcgisruntime.data.Field;
+import com.esri.arcgisruntime.data.QueryParameters;
+import com.esri.arcgisruntime.geometry.Geometry;
+import com.esri.arcgisruntime.geometry.GeometryEngine;
+import com.esri.arcgisruntime.geometry.ImmutablePart;
+import com.esri.arcgisruntime.geometry.Multipart;
+
+/**
+ * Validates and repairs every geometry in a feature table. Features are read one page at a time in object ID order, or
+ * in the order of another unique numeric key field, so memory stays bounded by the page size. Each page is checked
+ * with {@link GeometryEngine#isSimple} and repaired with {@link GeometryEngine#simplify} in parallel, and, if repairs
+ * are applied, the repaired features are written back in one bulk edit. Geometries that collapse to nothing when
+ * simplified are only reported, unless the caller opts in to writing back their empty geometry.
+ * <p>
+ * The run blocks until the table has been processed, so call it from a background thread.
+ */
+public class GeometryValidationPipeline {
+
+  /**
+   * The kinds of defects the pipeline reports, inferred by comparing a geometry to its simplified form.
+   */
+  public enum Defect {
+    /** The feature has no geometry. */
+    MISSING_GEOMETRY,
+    /** The geometry collapsed to nothing when simplified, e.g. a zero-area ring. */
+    DEGENERATE,
+    /** Rings or paths were merged or split, e.g. overlapping or self-intersecting parts. */
+    PARTS_CHANGED,
+    /** Vertices were removed, e.g. duplicate points or spikes. */
+    VERTICES_REMOVED,
+    /** The geometry wasn't simple, but its part and vertex counts were unchanged, e.g. wrong ring orientation. */
+    OTHER
+  }
+
+  private final FeatureTable featureTable;
+  private final int pageSize;
+  private final boolean applyRepairs;
+  private final boolean repairDegenerate;
+  private final String keyField;
+
+  /**
+   * Creates a pipeline for a loaded feature table, which leaves degenerate geometries as they are.
+   *
+   * @param featureTable table to validate
+   * @param pageSize number of features held in memory at a time
+   * @param applyRepairs whether repaired geometries are written back to the table
+   */
+  public GeometryValidationPipeline(FeatureTable featureTable, int pageSize, boolean applyRepairs) {
+    this(featureTable, pageSize, applyRepairs, false, null);
+  }
+
+  /**
+   * Creates a pipeline for a loaded feature table.
+   *
+   * @param featureTable table to validate
+   * @param pageSize number of features held in memory at a time
+   * @param applyRepairs whether repaired geometries are written back to the table
+   * @param repairDegenerate whether geometries that simplify to nothing are written back as empty geometries, when
+   * repairs are applied
+   * @param keyField name of a unique numeric field to page by, or null to page by the table's object ID field
+   */
+  public GeometryValidationPipeline(FeatureTable featureTable, int pageSize, boolean applyRepairs,
+      boolean repairDegenerate, String keyField) {
+    this.featureTable = featureTable;
+    this.pageSize = pageSize;
+    this.applyRepairs = applyRepairs && featureTable.canEditGeometry();
+    this.repairDegenerate = repairDegenerate;
+    this.keyField = keyField;
+  }
+
+  /**
+   * Validates the whole table.
+   *
+   * @param progressListener called after each page with the progress so far
+   * @return the counts of each kind of defect found
+   * @throws ExecutionException if a query or edit fails
+   * @throws InterruptedException if the thread is interrupted while waiting for a query or edit
+   * @throws IllegalStateException if no key field was given and the table has no object ID field to page by
+   */
+  public Report run(Consumer<Report> progressListener) throws ExecutionException, InterruptedException {
+
+    // without a unique key there's no stable order to page by, and reading the whole table at once isn't bounded
+    String pagingField = keyField != null ? keyField : findObjectIdField();
+    if (pagingField == null) {
+      throw new IllegalStateException("Table " + featureTable.getTableName() + " has no object ID field to page by");
+    }
+
+    QueryParameters countParameters = new QueryParameters();
+    countParameters.setWhereClause("1=1");
+    long total = featureTable.queryFeatureCountAsync(countParameters).get();
+
+    Report report = new Report(total);
+    long lastKey = Long.MIN_VALUE;
+    boolean morePages = true;
+
+    while (morePages) {
+      // page through the table by key so no feature is read twice
+      QueryParameters queryParameters = new QueryParameters();
+      queryParameters.setWhereClause(lastKey == Long.MIN_VALUE ? "1=1" : pagingField + " > " + lastKey);
+      queryParameters.getOrderByFields().add(new QueryParameters.OrderBy(pagingField,
+          QueryParameters.SortOrder.ASCENDING));
+      queryParameters.setMaxFeatures(pageSize);
+      FeatureQueryResult result = featureTable.queryFeaturesAsync(queryParameters).get();
+
+      List<Feature> page = new ArrayList<>(pageSize);
+      result.forEach(page::add);
+
+      // check and repair the page in parallel
+      List<Feature> repaired = Collections.synchronizedList(new ArrayList<>());
+      page.parallelStream().forEach(feature -> {
+        Geometry geometry = feature.getGeometry();
+        Defect defect = null;
+        Geometry simplified = null;
+        if (geometry == null || geometry.isEmpty()) {
+          defect = Defect.MISSING_GEOMETRY;
+        } else if (!GeometryEngine.isSimple(geometry)) {
+          simplified = GeometryEngine.simplify(geometry);
+          defect = classify(geometry, simplified);
+        }
+        if (defect != null) {
+          report.record(defect);
+        }
+        // only touch the feature when its repair will be written back
+        boolean repair = simplified != null && (defect != Defect.DEGENERATE || repairDegenerate);
+        if (applyRepairs && repair) {
+          feature.setGeometry(simplified);
+          repaired.add(feature);
+        }
+      });
+
+      // write the whole page's repairs in one edit
+      if (!repaired.isEmpty()) {
+        featureTable.updateFeaturesAsync(repaired).get();
+        report.repaired += repaired.size();
+      }
+
+      report.processed += page.size();
+      if (!page.isEmpty()) {
+        lastKey = ((Number) page.get(page.size() - 1).getAttributes().get(pagingField)).longValue();
+      }
+      morePages = page.size() == pageSize;
+      progressListener.accept(report);
+    }
+    return report;
+  }
+
+  /**
+   * Works out why a geometry wasn't simple by comparing it to its simplified form.
+   *
+   * @param original geometry before simplifying
+   * @param simplified geometry after simplifying
+   * @return the kind of defect
+   */
+  private static Defect classify(Geometry original, Geometry simplified) {
+    if (simplified == null || simplified.isEmpty()) {
+      return Defect.DEGENERATE;
+    }
+    if (original instanceof Multipart && simplified instanceof Multipart) {
+      Multipart originalMultipart = (Multipart) original;
+      Multipart simplifiedMultipart = (Multipart) simplified;
+      if (originalMultipart.getParts().size() != simplifiedMultipart.getParts().size()) {
+        return Defect.PARTS_CHANGED;
+      }
+      if (pointCount(originalMultipart) != pointCount(simplifiedMultipart)) {
+        return Defect.VERTICES_REMOVED;
+      }
+    }
+    return Defect.OTHER;
+  }
+
+  /**
+   * Counts the vertices in all parts of a multipart geometry.
+   *
+   * @param multipart geometry to count
+   * @return number of vertices
+   */
+  private static long pointCount(Multipart multipart) {
+    long count = 0;
+    for (ImmutablePart part : multipart.getParts()) {
+      count += part.getPointCount();
+    }
+    return count;
+  }
+
+  /**
+   * Finds the table's object ID field, used for paging.
+   *
+   * @return the field name, or null if the table has no object ID field
+   */
+  private String findObjectIdField() {
+    for (Field field : featureTable.getFields()) {
+      if (field.getFieldType() == Field.Type.OID) {
+        return field.getName();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Progress and defect counts for a validation run.
+   */
+  public static class Report {
+
+    private final long total;
+    private final long startTime = System.nanoTime();
+    private final Map<Defect, Long> defects = new EnumMap<>(Defect.class);
+    private volatile long processed;
+    private volatile long repaired;
+
+    private Report(long total) {
+      this.total = total;
+    }
+
+    private synchronized void record(Defect defect) {
+      defects.merge(defect, 1L, Long::sum);
+    }
+
+    /**
+     * Gets the number of features in the table when the run started.
+     *
+     * @return total feature count
+     */
+    public long getTotal() {
+      return total;
+    }
+
+    /**
+     * Gets the number of features validated so far.
+     *
+     * @return processed feature count
+     */
+    public long getProcessed() {
+      return processed;
+    }
+
+    /**
+     * Gets the number of repaired geometries written back to the table.
+     *
+     * @return repaired feature count
+     */
+    public long getRepaired() {
+      return repaired;
+    }
+
+    /**
+     * Gets the number of features found with each kind of defect.
+     *
+     * @return a copy of the defect counts
+     */
+    public synchronized Map<Defect, Long> getDefects() {
+      return new EnumMap<>(defects);
+    }
+
+    /**
+     * Gets the fraction of the table validated so far.
+     *
+     * @return progress between 0 and 1
+     */
+    public double getProgress() {
+      return total == 0 ? 1.0 : Math.min(1.0, (double) processed / total);
+    }
+
+    /**
+     * Gets the average throughput since the run started.
+     *
+     * @return features validated per second
+     */
+    public double getFeaturesPerSecond() {
+      double seconds = (System.nanoTime() - startTime) / 1e9;
+      return seconds > 0 ? processed / seconds : 0;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d of %d features validated (%.0f features/s), %d repaired, defects: %s", processed, total,
+          getFeaturesPerSecond(), repaired, getDefects());
+    }
+  }
+}
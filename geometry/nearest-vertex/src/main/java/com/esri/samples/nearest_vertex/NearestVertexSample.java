@@ -17,6 +17,7 @@
 package com.esri.samples.nearest_vertex;
 
 import java.util.Arrays;
+import java.util.List;
 
 import javafx.application.Application;
 import javafx.beans.binding.Bindings;
@@ -104,6 +105,13 @@ public class NearestVertexSample extends Application {
       nearestVertexGraphic.setSymbol(nearestVertexSymbol);
       graphicsOverlay.getGraphics().addAll(Arrays.asList(clickedLocationGraphic, nearestCoordinateGraphic, nearestVertexGraphic));
 
+      // create fainter graphics to preview the nearest coordinate and vertex under the mouse
+      Graphic previewCoordinateGraphic = new Graphic();
+      previewCoordinateGraphic.setSymbol(new SimpleMarkerSymbol(SimpleMarkerSymbol.Style.DIAMOND, 0x80FF0000, 10));
+      Graphic previewVertexGraphic = new Graphic();
+      previewVertexGraphic.setSymbol(new SimpleMarkerSymbol(SimpleMarkerSymbol.Style.CIRCLE, 0x800000FF, 15));
+      graphicsOverlay.getGraphics().addAll(Arrays.asList(previewCoordinateGraphic, previewVertexGraphic));
+
       // create a label to show the distances between the nearest vertex and nearest coordinate to the clicked location
       Label distancesLabel = new Label("");
       distancesLabel.getStyleClass().add("panel-label");
@@ -120,6 +128,10 @@ public class NearestVertexSample extends Application {
       controlsVBox.visibleProperty().bind(Bindings.createBooleanBinding(() -> !distancesLabel.getText().equals(""), distancesLabel.textProperty()));
       controlsVBox.managedProperty().bind(controlsVBox.visibleProperty());
 
+      // index the polygon's vertices and segments once, so snapping can keep up with mouse moves
+      VertexSnapIndex snapIndex = new VertexSnapIndex(100000);
+      snapIndex.put(0, polygon);
+
       // get the nearest vertex and coordinate where the user clicks
       mapView.setOnMouseClicked(e -> {
         if (e.isStillSincePress() && e.getButton() == MouseButton.PRIMARY) {
@@ -147,6 +159,21 @@ public class NearestVertexSample extends Application {
         }
       });
 
+      // preview the nearest vertex and coordinate while the mouse moves, answered from the snap index
+      mapView.setOnMouseMoved(e -> {
+        Point mapPoint = mapView.screenToLocation(new Point2D(e.getX(), e.getY()));
+        if (mapPoint == null) {
+          return;
+        }
+        Point normalizedMapPoint = (Point) GeometryEngine.normalizeCentralMeridian(mapPoint);
+        List<VertexSnapIndex.SnapResult> nearestVertices = snapIndex.nearestVertices(normalizedMapPoint, 1);
+        VertexSnapIndex.SnapResult nearestSegment = snapIndex.nearestSegment(normalizedMapPoint);
+        if (!nearestVertices.isEmpty() && nearestSegment != null) {
+          previewVertexGraphic.setGeometry(nearestVertices.get(0).getCoordinate());
+          previewCoordinateGraphic.setGeometry(nearestSegment.getCoordinate());
+        }
+      });
+
       // zoom to the polygon's extent
       mapView.setViewpointGeometryAsync(polygon.getExtent(), 100);
 
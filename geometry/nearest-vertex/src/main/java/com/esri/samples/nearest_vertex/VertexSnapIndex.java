@@ -0,0 +1,623 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.nearest_vertex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.esri.arcgisruntime.geometry.Geometry;
+import com.esri.arcgisruntime.geometry.ImmutablePart;
+import com.esri.arcgisruntime.geometry.Multipart;
+import com.esri.arcgisruntime.geometry.Multipoint;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.Polygon;
+import com.esri.arcgisruntime.geometry.SpatialReference;
+
+/**
+ * A uniform grid index over the vertices and segments of many geometries, for snapping at mouse-move rates. It is
+ * built once per layer and kept up to date by calling {@link #put} and {@link #remove} as features are edited.
+ * <p>
+ * Distances are planar in the units of the indexed geometries' spatial reference, the same as
+ * {@code GeometryEngine.nearestVertex} and {@code GeometryEngine.nearestCoordinate} for projected data.
+ */
+public class VertexSnapIndex {
+
+  private final double cellSize;
+  private final Map<Long, IntList> vertexCells = new HashMap<>();
+  private final Map<Long, IntList> segmentCells = new HashMap<>();
+  private final Map<Long, int[]> featureVertexRanges = new HashMap<>();
+  private final Set<Long> polygonFeatures = new HashSet<>();
+  private SpatialReference spatialReference;
+
+  // vertex storage: coordinates, owning feature, index of the vertex ending the segment starting here (or -1)
+  private double[] xs = new double[1024];
+  private double[] ys = new double[1024];
+  private long[] owners = new long[1024];
+  private int[] next = new int[1024];
+  private boolean[] removed = new boolean[1024];
+  private int vertexCount;
+  private int removedCount;
+
+  // extent of the occupied grid cells, which bounds the ring search
+  private int minCellX = Integer.MAX_VALUE;
+  private int minCellY = Integer.MAX_VALUE;
+  private int maxCellX = Integer.MIN_VALUE;
+  private int maxCellY = Integer.MIN_VALUE;
+
+  /**
+   * Creates an empty index. The cell size should be close to the typical snapping tolerance or segment length.
+   *
+   * @param cellSize width and height of a grid cell in map units
+   */
+  public VertexSnapIndex(double cellSize) {
+    if (cellSize <= 0) {
+      throw new IllegalArgumentException("Cell size must be positive");
+    }
+    this.cellSize = cellSize;
+  }
+
+  /**
+   * Adds a feature's geometry to the index, replacing any geometry previously indexed for the same feature.
+   *
+   * @param featureId identifier of the feature, such as its object ID
+   * @param geometry point, multipoint, polyline or polygon geometry
+   */
+  public synchronized void put(long featureId, Geometry geometry) {
+    remove(featureId);
+    if (geometry == null || geometry.isEmpty()) {
+      return;
+    }
+    if (spatialReference == null) {
+      spatialReference = geometry.getSpatialReference();
+    }
+
+    int first = vertexCount;
+    if (geometry instanceof Point) {
+      addVertex(featureId, (Point) geometry);
+    } else if (geometry instanceof Multipoint) {
+      ((Multipoint) geometry).getPoints().forEach(point -> addVertex(featureId, point));
+    } else if (geometry instanceof Multipart) {
+      boolean closed = geometry instanceof Polygon;
+      for (ImmutablePart part : ((Multipart) geometry).getParts()) {
+        int partStart = vertexCount;
+        for (Point point : part.getPoints()) {
+          int vertex = addVertex(featureId, point);
+          if (vertex > partStart) {
+            next[vertex - 1] = vertex;
+          }
+        }
+        // close polygon rings back to their first vertex
+        if (closed && vertexCount - partStart > 2) {
+          next[vertexCount - 1] = partStart;
+        }
+      }
+    }
+    if (vertexCount == first) {
+      return;
+    }
+    featureVertexRanges.put(featureId, new int[] {first, vertexCount});
+    if (geometry instanceof Polygon) {
+      polygonFeatures.add(featureId);
+    }
+
+    for (int i = first; i < vertexCount; i++) {
+      cellsOf(vertexCells, cellX(xs[i]), cellY(ys[i])).add(i);
+      if (next[i] >= 0) {
+        indexSegment(i);
+      }
+    }
+  }
+
+  /**
+   * Removes a feature's geometry from the index.
+   *
+   * @param featureId identifier of the feature
+   */
+  public synchronized void remove(long featureId) {
+    int[] range = featureVertexRanges.remove(featureId);
+    polygonFeatures.remove(featureId);
+    if (range == null) {
+      return;
+    }
+    for (int i = range[0]; i < range[1]; i++) {
+      removed[i] = true;
+    }
+    removedCount += range[1] - range[0];
+    // reclaim space once most of the storage is dead vertices
+    if (removedCount > vertexCount / 2) {
+      compact();
+    }
+  }
+
+  /**
+   * Finds the k vertices closest to a location.
+   *
+   * @param location location to search from
+   * @param k maximum number of vertices to return
+   * @return the nearest vertices ordered by distance, empty if the index is empty
+   * @throws IllegalArgumentException if k isn't positive
+   */
+  public synchronized List<SnapResult> nearestVertices(Point location, int k) {
+    if (k <= 0) {
+      throw new IllegalArgumentException("k must be positive");
+    }
+    double x = location.getX();
+    double y = location.getY();
+    int[] best = new int[k];
+    double[] bestDistances = new double[k];
+    Arrays.fill(bestDistances, Double.POSITIVE_INFINITY);
+    int found = 0;
+
+    int centerX = cellX(x);
+    int centerY = cellY(y);
+    int maxRing = maxRing(centerX, centerY);
+    for (int ring = firstRing(centerX, centerY); ring <= maxRing; ring++) {
+      // cells in this ring and beyond are at least (ring - 1) cells away
+      if (found == k && bestDistances[k - 1] <= (ring - 1) * cellSize) {
+        break;
+      }
+      for (IntList cell : ringCells(vertexCells, centerX, centerY, ring)) {
+        for (int c = 0; c < cell.size; c++) {
+          int vertex = cell.values[c];
+          if (removed[vertex]) {
+            continue;
+          }
+          double distance = Math.hypot(xs[vertex] - x, ys[vertex] - y);
+          if (found < k || distance < bestDistances[k - 1]) {
+            // insertion sort into the small best-k arrays
+            int position = Math.min(found, k - 1);
+            while (position > 0 && bestDistances[position - 1] > distance) {
+              best[position] = best[position - 1];
+              bestDistances[position] = bestDistances[position - 1];
+              position--;
+            }
+            best[position] = vertex;
+            bestDistances[position] = distance;
+            found = Math.min(found + 1, k);
+          }
+        }
+      }
+    }
+
+    List<SnapResult> results = new ArrayList<>(found);
+    for (int i = 0; i < found; i++) {
+      int vertex = best[i];
+      results.add(new SnapResult(owners[vertex], new Point(xs[vertex], ys[vertex], spatialReference),
+          bestDistances[i], vertex, 0.0, true));
+    }
+    return results;
+  }
+
+  /**
+   * Finds the closest location on any indexed geometry's boundary or, as {@code GeometryEngine.nearestCoordinate} does,
+   * the location itself if it is inside an indexed polygon.
+   *
+   * @param location location to search from
+   * @return the nearest coordinate, at distance 0 with a vertex index of -1 inside a polygon, or null if no segments
+   * are indexed
+   */
+  public synchronized SnapResult nearestSegment(Point location) {
+    double x = location.getX();
+    double y = location.getY();
+    Long containing = containingPolygon(x, y);
+    if (containing != null) {
+      return new SnapResult(containing, new Point(x, y, spatialReference), 0, -1, 0, false);
+    }
+    return nearestBoundary(x, y);
+  }
+
+  /**
+   * Finds the closest location on any indexed segment.
+   *
+   * @param x location's x coordinate
+   * @param y location's y coordinate
+   * @return the nearest coordinate on a segment, or null if no segments are indexed
+   */
+  private SnapResult nearestBoundary(double x, double y) {
+    int bestSegment = -1;
+    double bestDistance = Double.POSITIVE_INFINITY;
+    double bestFraction = 0;
+
+    int centerX = cellX(x);
+    int centerY = cellY(y);
+    int maxRing = maxRing(centerX, centerY);
+    for (int ring = firstRing(centerX, centerY); ring <= maxRing; ring++) {
+      if (bestDistance <= (ring - 1) * cellSize) {
+        break;
+      }
+      for (IntList cell : ringCells(segmentCells, centerX, centerY, ring)) {
+        for (int c = 0; c < cell.size; c++) {
+          int start = cell.values[c];
+          if (removed[start]) {
+            continue;
+          }
+          int end = next[start];
+          double dx = xs[end] - xs[start];
+          double dy = ys[end] - ys[start];
+          double lengthSquared = dx * dx + dy * dy;
+          double fraction = lengthSquared == 0 ? 0 : ((x - xs[start]) * dx + (y - ys[start]) * dy) / lengthSquared;
+          fraction = Math.max(0, Math.min(1, fraction));
+          double distance = Math.hypot(xs[start] + fraction * dx - x, ys[start] + fraction * dy - y);
+          if (distance < bestDistance) {
+            bestSegment = start;
+            bestDistance = distance;
+            bestFraction = fraction;
+          }
+        }
+      }
+    }
+
+    if (bestSegment < 0) {
+      return null;
+    }
+    int end = next[bestSegment];
+    double snappedX = xs[bestSegment] + bestFraction * (xs[end] - xs[bestSegment]);
+    double snappedY = ys[bestSegment] + bestFraction * (ys[end] - ys[bestSegment]);
+    return new SnapResult(owners[bestSegment], new Point(snappedX, snappedY, spatialReference), bestDistance,
+        bestSegment, bestFraction, false);
+  }
+
+  /**
+   * Snaps a location to the nearest vertex if one is within the tolerance, and otherwise to the nearest segment.
+   *
+   * @param location location to snap
+   * @param tolerance maximum snapping distance in map units
+   * @return the snapped location, or null if nothing is within the tolerance
+   */
+  public synchronized SnapResult snap(Point location, double tolerance) {
+    List<SnapResult> vertices = nearestVertices(location, 1);
+    if (!vertices.isEmpty() && vertices.get(0).getDistance() <= tolerance) {
+      return vertices.get(0);
+    }
+    // snap to the boundary even from inside a polygon
+    SnapResult segment = nearestBoundary(location.getX(), location.getY());
+    return segment != null && segment.getDistance() <= tolerance ? segment : null;
+  }
+
+  /**
+   * Gets the number of vertices currently indexed.
+   *
+   * @return live vertex count
+   */
+  public synchronized int size() {
+    return vertexCount - removedCount;
+  }
+
+  /**
+   * Finds an indexed polygon containing a location, by counting the crossings of each polygon's rings with a ray cast
+   * east from the location. Only the grid row the ray runs along needs to be read, and each segment is only counted in
+   * the cell where the ray crosses it, since a segment is indexed in every cell its envelope overlaps.
+   *
+   * @param x location's x coordinate
+   * @param y location's y coordinate
+   * @return the polygon's feature identifier, or null if no polygon contains the location
+   */
+  private Long containingPolygon(double x, double y) {
+    if (polygonFeatures.isEmpty()) {
+      return null;
+    }
+    Map<Long, Integer> crossings = new HashMap<>();
+    int row = cellY(y);
+    for (int cx = Math.max(cellX(x), minCellX); cx <= maxCellX; cx++) {
+      IntList cell = segmentCells.get(key(cx, row));
+      if (cell == null) {
+        continue;
+      }
+      for (int c = 0; c < cell.size; c++) {
+        int start = cell.values[c];
+        if (removed[start] || !polygonFeatures.contains(owners[start])) {
+          continue;
+        }
+        int end = next[start];
+        if ((ys[start] > y) == (ys[end] > y)) {
+          continue;
+        }
+        double crossX = xs[start] + (y - ys[start]) * (xs[end] - xs[start]) / (ys[end] - ys[start]);
+        if (crossX > x && cellX(crossX) == cx) {
+          crossings.merge(owners[start], 1, Integer::sum);
+        }
+      }
+    }
+    for (Map.Entry<Long, Integer> entry : crossings.entrySet()) {
+      if (entry.getValue() % 2 == 1) {
+        return entry.getKey();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Appends a vertex to the storage arrays, growing them as needed.
+   *
+   * @param featureId owning feature
+   * @param point vertex location
+   * @return index of the new vertex
+   */
+  private int addVertex(long featureId, Point point) {
+    if (vertexCount == xs.length) {
+      int capacity = xs.length * 2;
+      xs = Arrays.copyOf(xs, capacity);
+      ys = Arrays.copyOf(ys, capacity);
+      owners = Arrays.copyOf(owners, capacity);
+      next = Arrays.copyOf(next, capacity);
+      removed = Arrays.copyOf(removed, capacity);
+    }
+    xs[vertexCount] = point.getX();
+    ys[vertexCount] = point.getY();
+    owners[vertexCount] = featureId;
+    next[vertexCount] = -1;
+    removed[vertexCount] = false;
+    return vertexCount++;
+  }
+
+  /**
+   * Adds a segment to every cell overlapped by its envelope.
+   *
+   * @param start index of the segment's start vertex
+   */
+  private void indexSegment(int start) {
+    int end = next[start];
+    int fromX = cellX(Math.min(xs[start], xs[end]));
+    int toX = cellX(Math.max(xs[start], xs[end]));
+    int fromY = cellY(Math.min(ys[start], ys[end]));
+    int toY = cellY(Math.max(ys[start], ys[end]));
+    for (int cx = fromX; cx <= toX; cx++) {
+      for (int cy = fromY; cy <= toY; cy++) {
+        cellsOf(segmentCells, cx, cy).add(start);
+      }
+    }
+  }
+
+  /**
+   * Rebuilds the storage and grids without the removed vertices.
+   */
+  private void compact() {
+    int[] remap = new int[vertexCount];
+    int live = 0;
+    for (int i = 0; i < vertexCount; i++) {
+      remap[i] = removed[i] ? -1 : live++;
+    }
+    for (int i = 0; i < vertexCount; i++) {
+      int target = remap[i];
+      if (target >= 0) {
+        xs[target] = xs[i];
+        ys[target] = ys[i];
+        owners[target] = owners[i];
+        next[target] = next[i] >= 0 ? remap[next[i]] : -1;
+        removed[target] = false;
+      }
+    }
+    featureVertexRanges.replaceAll((featureId, range) -> new int[] {remap[range[0]], remap[range[1] - 1] + 1});
+    vertexCount = live;
+    removedCount = 0;
+
+    vertexCells.clear();
+    segmentCells.clear();
+    minCellX = minCellY = Integer.MAX_VALUE;
+    maxCellX = maxCellY = Integer.MIN_VALUE;
+    for (int i = 0; i < vertexCount; i++) {
+      cellsOf(vertexCells, cellX(xs[i]), cellY(ys[i])).add(i);
+      if (next[i] >= 0) {
+        indexSegment(i);
+      }
+    }
+  }
+
+  /**
+   * Collects the non-empty cells on the square ring at the given Chebyshev distance from a center cell. Only the part
+   * of the ring inside the occupied extent is read, so a location far from the indexed geometries costs no more map
+   * lookups than there are cells in that extent.
+   *
+   * @param grid grid to read cells from
+   * @param centerX center cell column
+   * @param centerY center cell row
+   * @param ring ring distance in cells
+   * @return cells on the ring
+   */
+  private List<IntList> ringCells(Map<Long, IntList> grid, int centerX, int centerY, int ring) {
+    List<IntList> cells = new ArrayList<>();
+    int fromY = Math.max(centerY - ring, minCellY);
+    int toY = Math.min(centerY + ring, maxCellY);
+    for (int cx = Math.max(centerX - ring, minCellX); cx <= Math.min(centerX + ring, maxCellX); cx++) {
+      if (cx == centerX - ring || cx == centerX + ring) {
+        // the ring's left and right columns are read over their whole height
+        for (int cy = fromY; cy <= toY; cy++) {
+          addCell(grid, cx, cy, cells);
+        }
+      } else {
+        // the columns in between only touch the ring in its top and bottom rows
+        if (centerY - ring >= minCellY) {
+          addCell(grid, cx, centerY - ring, cells);
+        }
+        if (centerY + ring <= maxCellY) {
+          addCell(grid, cx, centerY + ring, cells);
+        }
+      }
+    }
+    return cells;
+  }
+
+  /**
+   * Adds a grid cell to a list if it isn't empty.
+   *
+   * @param grid grid to read the cell from
+   * @param cx cell column
+   * @param cy cell row
+   * @param cells list to add the cell to
+   */
+  private void addCell(Map<Long, IntList> grid, int cx, int cy, List<IntList> cells) {
+    IntList cell = grid.get(key(cx, cy));
+    if (cell != null) {
+      cells.add(cell);
+    }
+  }
+
+  /**
+   * Gets the first ring from a center cell which reaches the occupied extent. Every ring inside it is empty.
+   *
+   * @param centerX center cell column
+   * @param centerY center cell row
+   * @return the first ring to search
+   */
+  private int firstRing(int centerX, int centerY) {
+    return Math.max(Math.max(0, Math.max(minCellX - centerX, centerX - maxCellX)),
+        Math.max(minCellY - centerY, centerY - maxCellY));
+  }
+
+  /**
+   * Gets the number of rings needed to cover every occupied cell from a center cell.
+   *
+   * @param centerX center cell column
+   * @param centerY center cell row
+   * @return the last ring to search, or -1 if the grid is empty
+   */
+  private int maxRing(int centerX, int centerY) {
+    if (minCellX > maxCellX) {
+      return -1;
+    }
+    return Math.max(Math.max(Math.abs(centerX - minCellX), Math.abs(maxCellX - centerX)),
+        Math.max(Math.abs(centerY - minCellY), Math.abs(maxCellY - centerY)));
+  }
+
+  /**
+   * Gets the list for a grid cell, creating it if needed.
+   *
+   * @param grid grid containing the cell
+   * @param cx cell column
+   * @param cy cell row
+   * @return the cell's list
+   */
+  private IntList cellsOf(Map<Long, IntList> grid, int cx, int cy) {
+    minCellX = Math.min(minCellX, cx);
+    minCellY = Math.min(minCellY, cy);
+    maxCellX = Math.max(maxCellX, cx);
+    maxCellY = Math.max(maxCellY, cy);
+    return grid.computeIfAbsent(key(cx, cy), k -> new IntList());
+  }
+
+  private int cellX(double x) {
+    return (int) Math.floor(x / cellSize);
+  }
+
+  private int cellY(double y) {
+    return (int) Math.floor(y / cellSize);
+  }
+
+  private static long key(int cx, int cy) {
+    return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+  }
+
+  /**
+   * A growable list of primitive ints, avoiding boxing in the grid cells.
+   */
+  private static class IntList {
+
+    private int[] values = new int[8];
+    private int size;
+
+    void add(int value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+  }
+
+  /**
+   * The result of a snapping query.
+   */
+  public static class SnapResult {
+
+    private final long featureId;
+    private final Point coordinate;
+    private final double distance;
+    private final int vertexIndex;
+    private final double fractionAlongSegment;
+    private final boolean vertex;
+
+    SnapResult(long featureId, Point coordinate, double distance, int vertexIndex, double fractionAlongSegment,
+        boolean vertex) {
+      this.featureId = featureId;
+      this.coordinate = coordinate;
+      this.distance = distance;
+      this.vertexIndex = vertexIndex;
+      this.fractionAlongSegment = fractionAlongSegment;
+      this.vertex = vertex;
+    }
+
+    /**
+     * Gets the identifier of the feature which was snapped to.
+     *
+     * @return feature identifier
+     */
+    public long getFeatureId() {
+      return featureId;
+    }
+
+    /**
+     * Gets the snapped location.
+     *
+     * @return snapped coordinate
+     */
+    public Point getCoordinate() {
+      return coordinate;
+    }
+
+    /**
+     * Gets the distance from the query location to the snapped location.
+     *
+     * @return distance in map units
+     */
+    public double getDistance() {
+      return distance;
+    }
+
+    /**
+     * Gets the index of the snapped vertex, or of the start vertex of the snapped segment. Removing features compacts
+     * the index's storage and renumbers its vertices, so the index is only valid until the next call to
+     * {@link VertexSnapIndex#put} or {@link VertexSnapIndex#remove}.
+     *
+     * @return vertex index within the index's storage, or -1 for a location inside a polygon
+     */
+    public int getVertexIndex() {
+      return vertexIndex;
+    }
+
+    /**
+     * Gets how far along the snapped segment the location is, from 0 at its start to 1 at its end.
+     *
+     * @return fraction along the segment, 0 for vertex results
+     */
+    public double getFractionAlongSegment() {
+      return fractionAlongSegment;
+    }
+
+    /**
+     * Whether the location snapped to a vertex rather than a segment.
+     *
+     * @return true for a vertex
+     */
+    public boolean isVertex() {
+      return vertex;
+    }
+  }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.create_and_save_kml_file;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.esri.arcgisruntime.data.Feature;
+import com.esri.arcgisruntime.data.FeatureQueryResult;
+import com.esri.arcgisruntime.data.FeatureTable;
+import com.esri.arcgisruntime.data.Field;
+import com.esri.arcgisruntime.data.QueryParameters;
+import com.esri.arcgisruntime.data.ServiceFeatureTable;
+import com.esri.arcgisruntime.geometry.Geometry;
+import com.esri.arcgisruntime.geometry.GeometryEngine;
+import com.esri.arcgisruntime.geometry.SpatialReference;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
+import com.esri.arcgisruntime.loadable.LoadStatus;
+
+/**
+ * Exports every feature of a feature table to a KMZ file without holding the table in memory. Features are queried
+ * a page at a time in object ID order, with the next page queried while the current one is encoded. Each page is
+ * projected to WGS84 and encoded as KML in parallel batches, and the batches are streamed into a
+ * {@link KmzStreamWriter} in order. Placemarks of each geometry type share one style. The KMZ is written to a
+ * temporary file beside it and only moved into place once complete, so a failed export leaves no partial file.
+ */
+public class BulkKmlExporter {
+
+  private static final int BATCH_SIZE = 250;
+
+  private final FeatureTable featureTable;
+  private final int pageSize;
+  private final Map<String, String> styles = new LinkedHashMap<>();
+
+  /**
+   * Receives the progress of an export.
+   */
+  public interface ProgressListener {
+
+    /**
+     * Called after each page is written.
+     *
+     * @param exported features written so far
+     * @param total features in the table
+     * @param featuresPerSecond average rate so far
+     */
+    void onProgress(long exported, long total, double featuresPerSecond);
+  }
+
+  /**
+   * Creates an exporter.
+   *
+   * @param featureTable table to export
+   * @param pageSize most features to query at once
+   * @param iconUrl URL of the icon for points, or null for the default icon
+   * @param lineColor ARGB color of lines
+   * @param fillColor ARGB fill color of polygons
+   */
+  public BulkKmlExporter(FeatureTable featureTable, int pageSize, String iconUrl, int lineColor, int fillColor) {
+    this.featureTable = featureTable;
+    this.pageSize = pageSize;
+    StringBuilder iconStyle = new StringBuilder("<IconStyle><scale>1</scale>");
+    if (iconUrl != null) {
+      iconStyle.append("<Icon><href>");
+      KmlPlacemarkEncoder.appendEscaped(iconStyle, iconUrl);
+      iconStyle.append("</href></Icon>");
+    }
+    styles.put("point", iconStyle.append("</IconStyle>").toString());
+    styles.put("line", "<LineStyle><color>" + toKmlColor(lineColor) + "</color><width>2</width></LineStyle>");
+    styles.put("polygon", "<LineStyle><color>" + toKmlColor(lineColor) + "</color></LineStyle><PolyStyle><color>"
+        + toKmlColor(fillColor) + "</color></PolyStyle>");
+  }
+
+  /**
+   * Exports the table. Blocks until done, so call it from a background thread.
+   *
+   * @param kmzFile file to write
+   * @param progressListener receives progress after each page
+   * @return number of features exported
+   * @throws IOException if the file can't be written
+   * @throws ExecutionException if the table can't be loaded or queried
+   * @throws InterruptedException if the thread is interrupted
+   */
+  public long export(File kmzFile, ProgressListener progressListener) throws IOException, ExecutionException,
+      InterruptedException {
+
+    load();
+    String objectIdField = getObjectIdField();
+    SpatialReference spatialReference = featureTable.getSpatialReference();
+    boolean wgs84 = spatialReference == null || spatialReference.getWkid() == 4326;
+    boolean webMercator = spatialReference != null && (spatialReference.getWkid() == 3857
+        || spatialReference.getWkid() == 102100);
+    KmlPlacemarkEncoder encoder = new KmlPlacemarkEncoder(webMercator);
+
+    QueryParameters countParameters = new QueryParameters();
+    countParameters.setWhereClause("1=1");
+    long total = featureTable.queryFeatureCountAsync(countParameters).get();
+
+    ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+      Thread thread = new Thread(runnable, "kml-export");
+      thread.setDaemon(true);
+      return thread;
+    });
+    long start = System.nanoTime();
+    long exported = 0;
+    Path partFile = kmzFile.toPath().resolveSibling(kmzFile.getName() + ".part");
+    boolean complete = false;
+    try {
+      try (KmzStreamWriter writer = new KmzStreamWriter(partFile.toFile(), featureTable.getTableName(), styles)) {
+        Future<FeatureQueryResult> nextPage = queryPage(objectIdField, Long.MIN_VALUE);
+        while (true) {
+          List<Feature> features = new ArrayList<>(pageSize);
+          nextPage.get().forEach(features::add);
+          if (features.isEmpty()) {
+            break;
+          }
+
+          // query the next page while this one is encoded, keeping at most two pages in memory
+          long lastObjectId = Long.MIN_VALUE;
+          for (Feature feature : features) {
+            lastObjectId = Math.max(lastObjectId, ((Number) feature.getAttributes().get(objectIdField)).longValue());
+          }
+          nextPage = queryPage(objectIdField, lastObjectId);
+
+          List<Future<StringBuilder>> batches = new ArrayList<>();
+          for (int from = 0; from < features.size(); from += BATCH_SIZE) {
+            List<Feature> batch = features.subList(from, Math.min(features.size(), from + BATCH_SIZE));
+            batches.add(executor.submit(() -> encode(batch, objectIdField, encoder, !wgs84 && !webMercator)));
+          }
+          for (Future<StringBuilder> batch : batches) {
+            writer.write(batch.get());
+          }
+
+          exported += features.size();
+          progressListener.onProgress(exported, total, exported / ((System.nanoTime() - start) / 1e9));
+        }
+      }
+      Files.move(partFile, kmzFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      complete = true;
+    } finally {
+      executor.shutdownNow();
+      // don't leave a failed export behind; closing the writer ended its document, so it would look complete
+      if (!complete) {
+        try {
+          Files.deleteIfExists(partFile);
+        } catch (IOException e) {
+          // report the export's own error rather than this one
+        }
+      }
+    }
+    return exported;
+  }
+
+  /**
+   * Encodes a batch of features as placemarks, projecting their geometries to WGS84 if needed.
+   *
+   * @param features the features
+   * @param objectIdField name of the object ID field
+   * @param encoder placemark encoder
+   * @param project whether the geometries have to be projected to WGS84
+   * @return the batch's KML
+   */
+  private StringBuilder encode(List<Feature> features, String objectIdField, KmlPlacemarkEncoder encoder,
+      boolean project) {
+    StringBuilder kml = new StringBuilder(features.size() * 256);
+    for (Feature feature : features) {
+      Geometry geometry = feature.getGeometry();
+      if (geometry == null || geometry.isEmpty()) {
+        continue;
+      }
+      if (project) {
+        geometry = GeometryEngine.project(geometry, SpatialReferences.getWgs84());
+      }
+      Map<String, Object> attributes = feature.getAttributes();
+      String styleId;
+      switch (geometry.getGeometryType()) {
+        case POLYLINE:
+          styleId = "line";
+          break;
+        case POLYGON:
+          styleId = "polygon";
+          break;
+        default:
+          styleId = "point";
+      }
+      encoder.appendPlacemark(kml, String.valueOf(attributes.get(objectIdField)), styleId, geometry, attributes);
+    }
+    return kml;
+  }
+
+  /**
+   * Queries the page of features after an object ID.
+   *
+   * @param objectIdField name of the object ID field
+   * @param afterObjectId object ID of the last feature of the previous page
+   * @return the query's result when it's done
+   */
+  private Future<FeatureQueryResult> queryPage(String objectIdField, long afterObjectId) {
+    QueryParameters queryParameters = new QueryParameters();
+    queryParameters.setWhereClause(afterObjectId == Long.MIN_VALUE ? "1=1" : objectIdField + " > " + afterObjectId);
+    queryParameters.setMaxFeatures(pageSize);
+    queryParameters.getOrderByFields().add(new QueryParameters.OrderBy(objectIdField,
+        QueryParameters.SortOrder.ASCENDING));
+    queryParameters.setReturnGeometry(true);
+    // service tables only return the fields needed for rendering unless asked for all of them
+    if (featureTable instanceof ServiceFeatureTable) {
+      return ((ServiceFeatureTable) featureTable).queryFeaturesAsync(queryParameters,
+          ServiceFeatureTable.QueryFeatureFields.LOAD_ALL);
+    }
+    return featureTable.queryFeaturesAsync(queryParameters);
+  }
+
+  /**
+   * Loads the table, waiting until it's done.
+   *
+   * @throws ExecutionException if the table fails to load
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private void load() throws ExecutionException, InterruptedException {
+    CountDownLatch loaded = new CountDownLatch(1);
+    featureTable.addDoneLoadingListener(loaded::countDown);
+    featureTable.loadAsync();
+    loaded.await();
+    if (featureTable.getLoadStatus() != LoadStatus.LOADED) {
+      throw new ExecutionException("Feature table failed to load", featureTable.getLoadError());
+    }
+  }
+
+  /**
+   * Finds the table's object ID field, which pages are ordered by.
+   *
+   * @return the field name
+   * @throws ExecutionException if the table has no object ID field
+   */
+  private String getObjectIdField() throws ExecutionException {
+    for (Field field : featureTable.getFields()) {
+      if (field.getFieldType() == Field.Type.OID) {
+        return field.getName();
+      }
+    }
+    throw new ExecutionException("Feature table has no object ID field", null);
+  }
+
+  /**
+   * Converts an ARGB color to KML's aabbggrr hex format.
+   *
+   * @param argb the color
+   * @return the KML color
+   */
+  private static String toKmlColor(int argb) {
+    int abgr = (argb & 0xFF00FF00) | ((argb >> 16) & 0xFF) | ((argb & 0xFF) << 16);
+    return String.format("%08x", abgr);
+  }
+}
@@ -16,6 +16,7 @@
 
 package com.esri.samples.create_and_save_kml_file;
 
+import com.esri.arcgisruntime.data.ServiceFeatureTable;
 import com.esri.arcgisruntime.geometry.Geometry;
 import com.esri.arcgisruntime.geometry.GeometryEngine;
 import com.esri.arcgisruntime.geometry.SpatialReferences;
@@ -27,10 +28,14 @@ import com.esri.arcgisruntime.mapping.view.SketchCreationMode;
 import com.esri.arcgisruntime.mapping.view.SketchEditor;
 import com.esri.arcgisruntime.ogc.kml.*;
 import com.esri.arcgisruntime.symbology.ColorUtil;
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
 import javafx.scene.control.ColorPicker;
 import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.StackPane;
@@ -48,6 +53,12 @@ public class CreateAndSaveKMLFileController {
   @FXML private ComboBox<String> pointSymbolComboBox;
   @FXML private ComboBox<SketchCreationMode> sketchCreationModeComboBox;
   @FXML private MapView mapView;
+  @FXML private Button exportButton;
+  @FXML private ProgressBar exportProgressBar;
+  @FXML private Label exportLabel;
+
+  private static final String EXPORT_LAYER_URL =
+      "https://services2.arcgis.com/ZQgQTuoyBrtmoGdP/arcgis/rest/services/US_Bridges/FeatureServer/0";
 
   private ArcGISMap map; // keep loadable in scope to avoid garbage collection
   private KmlDocument kmlDocument;
@@ -195,6 +206,56 @@ public class CreateAndSaveKMLFileController {
     }
   }
 
+  /**
+   * Exports every feature of a feature layer to a KMZ file, styled with the current style choices, streaming the
+   * placemarks to the file a page at a time.
+   */
+  @FXML
+  private void handleExportAction() {
+
+    // get a path from the file chooser
+    File kmzFile = fileChooser.showSaveDialog(mapView.getScene().getWindow());
+    if (kmzFile == null) {
+      return;
+    }
+
+    Color color = colorPicker.getValue() != null ? colorPicker.getValue() : Color.ORANGE;
+    BulkKmlExporter exporter = new BulkKmlExporter(new ServiceFeatureTable(EXPORT_LAYER_URL), 2000,
+        pointSymbolComboBox.getSelectionModel().getSelectedItem(), ColorUtil.colorToArgb(color),
+        ColorUtil.colorToArgb(color.deriveColor(0, 1, 1, 0.5)));
+
+    exportButton.setDisable(true);
+    exportProgressBar.setProgress(0);
+    exportProgressBar.setVisible(true);
+    exportLabel.setText("Exporting...");
+
+    // export in the background, reporting progress and throughput after each page
+    Thread exportThread = new Thread(() -> {
+      long start = System.nanoTime();
+      try {
+        long exported = exporter.export(kmzFile, (done, total, featuresPerSecond) -> Platform.runLater(() -> {
+          exportProgressBar.setProgress(total > 0 ? (double) done / total : -1);
+          exportLabel.setText(String.format("%,d of %,d features%n%,.0f features/s", done, total, featuresPerSecond));
+        }));
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Platform.runLater(() -> exportLabel.setText(String.format("Exported %,d features in %.1f s%n%.1f MB KMZ",
+            exported, seconds, kmzFile.length() / 1048576.0)));
+      } catch (Exception e) {
+        Platform.runLater(() -> {
+          exportLabel.setText("Export failed");
+          new Alert(Alert.AlertType.ERROR, "Error exporting features: " + e.getMessage()).show();
+        });
+      } finally {
+        Platform.runLater(() -> {
+          exportButton.setDisable(false);
+          exportProgressBar.setVisible(false);
+        });
+      }
+    });
+    exportThread.setDaemon(true);
+    exportThread.start();
+  }
+
   /**
    * Stops and releases all resources used in application.
    */
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.create_and_save_kml_file;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import com.esri.arcgisruntime.geometry.Geometry;
+import com.esri.arcgisruntime.geometry.ImmutablePart;
+import com.esri.arcgisruntime.geometry.Multipoint;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.Polygon;
+import com.esri.arcgisruntime.geometry.Polyline;
+
+/**
+ * Encodes features as KML placemark text. Geometries must be in WGS84, or in Web Mercator, in which case their
+ * coordinates are converted to WGS84 as they're written, without creating projected geometries.
+ */
+public class KmlPlacemarkEncoder {
+
+  private static final double EARTH_RADIUS = 6378137;
+  private static final long COORDINATE_SCALE = 10_000_000;
+
+  private final boolean webMercator;
+
+  /**
+   * Creates an encoder.
+   *
+   * @param webMercator whether geometries are in Web Mercator rather than WGS84
+   */
+  public KmlPlacemarkEncoder(boolean webMercator) {
+    this.webMercator = webMercator;
+  }
+
+  /**
+   * Appends a placemark.
+   *
+   * @param kml the KML to append to
+   * @param name name of the placemark
+   * @param styleId ID of the placemark's shared style
+   * @param geometry the placemark's geometry
+   * @param attributes attributes to write as extended data, skipping null values
+   */
+  public void appendPlacemark(StringBuilder kml, String name, String styleId, Geometry geometry,
+      Map<String, Object> attributes) {
+
+    kml.append("<Placemark><name>");
+    appendEscaped(kml, name);
+    kml.append("</name><styleUrl>#").append(styleId).append("</styleUrl>");
+    if (!attributes.isEmpty()) {
+      kml.append("<ExtendedData>");
+      attributes.forEach((key, value) -> {
+        if (value != null) {
+          kml.append("<Data name=\"");
+          appendEscaped(kml, key);
+          kml.append("\"><value>");
+          appendEscaped(kml, formatValue(value));
+          kml.append("</value></Data>");
+        }
+      });
+      kml.append("</ExtendedData>");
+    }
+    appendGeometry(kml, geometry);
+    kml.append("</Placemark>\n");
+  }
+
+  /**
+   * Appends a geometry, as a multi-geometry if it has more than one part.
+   *
+   * @param kml the KML to append to
+   * @param geometry a point, multipoint, polyline or polygon
+   */
+  private void appendGeometry(StringBuilder kml, Geometry geometry) {
+    switch (geometry.getGeometryType()) {
+      case POINT:
+        appendPoint(kml, (Point) geometry);
+        break;
+      case MULTIPOINT:
+        kml.append("<MultiGeometry>");
+        ((Multipoint) geometry).getPoints().forEach(point -> appendPoint(kml, point));
+        kml.append("</MultiGeometry>");
+        break;
+      case POLYLINE:
+        List<ImmutablePart> lines = new ArrayList<>();
+        ((Polyline) geometry).getParts().forEach(lines::add);
+        kml.append(lines.size() > 1 ? "<MultiGeometry>" : "");
+        lines.forEach(line -> {
+          kml.append("<LineString><tessellate>1</tessellate><coordinates>");
+          appendCoordinates(kml, line.getPoints(), false);
+          kml.append("</coordinates></LineString>");
+        });
+        kml.append(lines.size() > 1 ? "</MultiGeometry>" : "");
+        break;
+      case POLYGON:
+        appendPolygon(kml, (Polygon) geometry);
+        break;
+      default:
+        // envelopes aren't feature geometries
+        break;
+    }
+  }
+
+  /**
+   * Appends a polygon. Each clockwise ring is the outer boundary of a new KML polygon, and the counterclockwise rings
+   * which follow it are its holes.
+   *
+   * @param kml the KML to append to
+   * @param polygon the polygon
+   */
+  private void appendPolygon(StringBuilder kml, Polygon polygon) {
+    List<List<ImmutablePart>> polygons = new ArrayList<>();
+    polygon.getParts().forEach(ring -> {
+      if (polygons.isEmpty() || signedArea(ring) < 0) {
+        polygons.add(new ArrayList<>());
+      }
+      polygons.get(polygons.size() - 1).add(ring);
+    });
+
+    kml.append(polygons.size() > 1 ? "<MultiGeometry>" : "");
+    for (List<ImmutablePart> rings : polygons) {
+      kml.append("<Polygon>");
+      for (int i = 0; i < rings.size(); i++) {
+        kml.append(i == 0 ? "<outerBoundaryIs>" : "<innerBoundaryIs>").append("<LinearRing><coordinates>");
+        appendCoordinates(kml, rings.get(i).getPoints(), true);
+        kml.append("</coordinates></LinearRing>").append(i == 0 ? "</outerBoundaryIs>" : "</innerBoundaryIs>");
+      }
+      kml.append("</Polygon>");
+    }
+    kml.append(polygons.size() > 1 ? "</MultiGeometry>" : "");
+  }
+
+  private void appendPoint(StringBuilder kml, Point point) {
+    kml.append("<Point><coordinates>");
+    appendCoordinate(kml, point);
+    kml.append("</coordinates></Point>");
+  }
+
+  /**
+   * Appends the coordinates of a part, separated by spaces.
+   *
+   * @param kml the KML to append to
+   * @param points the part's points
+   * @param close whether to repeat the first point at the end, as KML rings must
+   */
+  private void appendCoordinates(StringBuilder kml, Iterable<Point> points, boolean close) {
+    Point first = null;
+    for (Point point : points) {
+      if (first == null) {
+        first = point;
+      } else {
+        kml.append(' ');
+      }
+      appendCoordinate(kml, point);
+    }
+    if (close && first != null) {
+      kml.append(' ');
+      appendCoordinate(kml, first);
+    }
+  }
+
+  /**
+   * Appends a longitude,latitude[,altitude] coordinate.
+   *
+   * @param kml the KML to append to
+   * @param point the point
+   */
+  private void appendCoordinate(StringBuilder kml, Point point) {
+    double x = point.getX();
+    double y = point.getY();
+    if (webMercator) {
+      x = Math.toDegrees(x / EARTH_RADIUS);
+      y = Math.toDegrees(2 * Math.atan(Math.exp(y / EARTH_RADIUS)) - Math.PI / 2);
+    }
+    appendNumber(kml, x);
+    kml.append(',');
+    appendNumber(kml, y);
+    if (point.hasZ()) {
+      kml.append(',');
+      appendNumber(kml, point.getZ());
+    }
+  }
+
+  /**
+   * Appends a number with up to seven decimal places (about a centimeter in degrees), without the cost of
+   * formatting it through {@code String.format}.
+   *
+   * @param kml the KML to append to
+   * @param value the number
+   */
+  static void appendNumber(StringBuilder kml, double value) {
+    long scaled = Math.round(Math.abs(value) * COORDINATE_SCALE);
+    if (value < 0 && scaled != 0) {
+      kml.append('-');
+    }
+    kml.append(scaled / COORDINATE_SCALE);
+    long fraction = scaled % COORDINATE_SCALE;
+    if (fraction != 0) {
+      kml.append('.');
+      for (long digit = COORDINATE_SCALE / 10; fraction != 0; digit /= 10) {
+        kml.append((char) ('0' + fraction / digit));
+        fraction %= digit;
+      }
+    }
+  }
+
+  /**
+   * Formats an attribute value, with dates as ISO-8601 UTC date-times.
+   *
+   * @param value the value
+   * @return the text of the value
+   */
+  private static String formatValue(Object value) {
+    if (value instanceof Calendar) {
+      return ((Calendar) value).toInstant().toString();
+    } else if (value instanceof Date) {
+      return ((Date) value).toInstant().toString();
+    }
+    return value.toString();
+  }
+
+  /**
+   * Appends text, escaping the characters XML reserves and leaving out those XML doesn't allow at all, such as most
+   * control characters and unpaired surrogates.
+   *
+   * @param kml the KML to append to
+   * @param text the text
+   */
+  static void appendEscaped(StringBuilder kml, String text) {
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+        kml.append(c).append(text.charAt(++i));
+        continue;
+      }
+      if ((c < 0x20 && c != '\t' && c != '\n' && c != '\r') || Character.isSurrogate(c) || c == 0xFFFE
+          || c == 0xFFFF) {
+        continue;
+      }
+      switch (c) {
+        case '&':
+          kml.append("&amp;");
+          break;
+        case '<':
+          kml.append("&lt;");
+          break;
+        case '>':
+          kml.append("&gt;");
+          break;
+        case '"':
+          kml.append("&quot;");
+          break;
+        default:
+          kml.append(c);
+      }
+    }
+  }
+
+  /**
+   * Works out the signed area of a ring with the shoelace formula.
+   *
+   * @param ring the ring
+   * @return the area, negative for a clockwise ring
+   */
+  private static double signedArea(ImmutablePart ring) {
+    double area = 0;
+    Point previous = null;
+    Point first = null;
+    for (Point point : ring.getPoints()) {
+      if (previous != null) {
+        area += previous.getX() * point.getY() - point.getX() * previous.getY();
+      } else {
+        first = point;
+      }
+      previous = point;
+    }
+    if (previous != null) {
+      area += previous.getX() * first.getY() - first.getX() * previous.getY();
+    }
+    return area / 2;
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.create_and_save_kml_file;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a KMZ file as a stream: the document's shared styles first, then placemarks as they're encoded, straight
+ * into the zip entry. Nothing is kept in memory once written, so a document of any size can be written.
+ */
+public class KmzStreamWriter implements AutoCloseable {
+
+  private final ZipOutputStream zipOutputStream;
+  private final Writer writer;
+
+  /**
+   * Creates a KMZ file and writes the start of its document.
+   *
+   * @param kmzFile file to write
+   * @param documentName name of the KML document
+   * @param styles the content of each shared style by its ID, which placemarks refer to with a style URL of #ID
+   * @throws IOException if the file can't be written
+   */
+  public KmzStreamWriter(File kmzFile, String documentName, Map<String, String> styles) throws IOException {
+    zipOutputStream = new ZipOutputStream(new FileOutputStream(kmzFile));
+    zipOutputStream.putNextEntry(new ZipEntry("doc.kml"));
+    writer = new BufferedWriter(new OutputStreamWriter(zipOutputStream, StandardCharsets.UTF_8), 1 << 16);
+
+    StringBuilder header = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+        .append("<kml xmlns=\"http://www.opengis.net/kml/2.2\">\n<Document>\n<name>");
+    KmlPlacemarkEncoder.appendEscaped(header, documentName);
+    header.append("</name>\n");
+    styles.forEach((id, style) -> header.append("<Style id=\"").append(id).append("\">").append(style)
+        .append("</Style>\n"));
+    write(header);
+  }
+
+  /**
+   * Writes encoded placemarks to the document.
+   *
+   * @param placemarks KML of one or more placemarks
+   * @throws IOException if the file can't be written
+   */
+  public void write(CharSequence placemarks) throws IOException {
+    writer.append(placemarks);
+  }
+
+  /**
+   * Writes the end of the document and closes the file.
+   *
+   * @throws IOException if the file can't be written
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      writer.write("</Document>\n</kml>\n");
+      writer.flush();
+      zipOutputStream.closeEntry();
+    } finally {
+      zipOutputStream.close();
+    }
+  }
+}
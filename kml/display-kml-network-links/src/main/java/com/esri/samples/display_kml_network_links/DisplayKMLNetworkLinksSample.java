@@ -17,9 +17,19 @@
 package com.esri.samples.display_kml_network_links;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Label;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
+import javafx.scene.layout.Region;
 import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Paint;
 import javafx.stage.Stage;
 
 import com.esri.arcgisruntime.geometry.Point;
@@ -35,6 +45,9 @@ import com.esri.arcgisruntime.ogc.kml.KmlDataset;
 public class DisplayKMLNetworkLinksSample extends Application {
 
   private SceneView sceneView;
+  private KmlLinkProxy kmlLinkProxy;
+  private NetworkLinkRefreshScheduler refreshScheduler;
+  private StandInKmlServer standInKmlServer;
 
   @Override
   public void start(Stage stage) {
@@ -60,8 +73,35 @@ public class DisplayKMLNetworkLinksSample extends Application {
       // start centered over Germany
       sceneView.setViewpoint(new Viewpoint(new Point(8.150526, 50.472421, SpatialReferences.getWgs84()), 2000000));
 
-      // create a KML dataset from KML hosted at a URL
-      KmlDataset kmlDataset = new KmlDataset("https://www.arcgis.com/sharing/rest/content/items/600748d4464442288f6db8a4ba27dc95/data");
+      // use KML hosted at a URL, or a local stand-in server with many links when run with -Dkml.standin=true
+      String kmlUrl = "https://www.arcgis.com/sharing/rest/content/items/600748d4464442288f6db8a4ba27dc95/data";
+      if (Boolean.getBoolean("kml.standin")) {
+        standInKmlServer = new StandInKmlServer(100, 5, 20);
+        standInKmlServer.start();
+        kmlUrl = standInKmlServer.getRootUrl();
+      }
+
+      // serve the KML and its network links through a local caching proxy. The dataset's refreshes are answered from
+      // the proxy's cache, while the scheduler refreshes the cache from the origin with staggered, conditional requests
+      kmlLinkProxy = new KmlLinkProxy();
+      kmlLinkProxy.start();
+      refreshScheduler = new NetworkLinkRefreshScheduler(kmlLinkProxy, 4);
+
+      // show the refresh statistics in a panel
+      Label statisticsLabel = new Label("Waiting for network link refreshes");
+      VBox controlsVBox = new VBox(statisticsLabel);
+      controlsVBox.setBackground(new Background(new BackgroundFill(Paint.valueOf("rgba(0,0,0,0.3)"), CornerRadii.EMPTY,
+          Insets.EMPTY)));
+      controlsVBox.setPadding(new Insets(10.0));
+      controlsVBox.setMaxSize(Region.USE_PREF_SIZE, Region.USE_PREF_SIZE);
+      controlsVBox.getStyleClass().add("panel-region");
+      refreshScheduler.setRefreshListener(result -> {
+        String statistics = refreshScheduler.getStatistics() + "\n" + kmlLinkProxy.getStatistics();
+        Platform.runLater(() -> statisticsLabel.setText(statistics));
+      });
+
+      // create a KML dataset from the proxied KML
+      KmlDataset kmlDataset = new KmlDataset(kmlLinkProxy.getProxyUrl(kmlUrl));
 
       // show an alert when any network link messages are received
       kmlDataset.addKmlNetworkLinkMessageReceivedListener(kmlNetworkLinkMessageReceivedEvent -> {
@@ -80,8 +120,10 @@ public class DisplayKMLNetworkLinksSample extends Application {
         }
       });
 
-      // add the map view and list view to the stack pane
-      stackPane.getChildren().add(sceneView);
+      // add the map view and statistics panel to the stack pane
+      stackPane.getChildren().addAll(sceneView, controlsVBox);
+      StackPane.setAlignment(controlsVBox, Pos.TOP_LEFT);
+      StackPane.setMargin(controlsVBox, new Insets(10));
     } catch (Exception e) {
       // on any error, display the stack trace.
       e.printStackTrace();
@@ -94,6 +136,15 @@ public class DisplayKMLNetworkLinksSample extends Application {
   @Override
   public void stop() {
 
+    if (refreshScheduler != null) {
+      refreshScheduler.shutdown();
+    }
+    if (kmlLinkProxy != null) {
+      kmlLinkProxy.stop();
+    }
+    if (standInKmlServer != null) {
+      standInKmlServer.stop();
+    }
     if (sceneView != null) {
       sceneView.dispose();
     }
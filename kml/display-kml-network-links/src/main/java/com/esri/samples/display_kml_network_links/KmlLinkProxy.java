@@ -0,0 +1,493 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.display_kml_network_links;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An embedded HTTP server which serves KML and KMZ documents from a cache, so a {@code KmlDataset} refreshing its
+ * network links reads them locally rather than from their origin servers. The href of every network link in a
+ * document is rewritten to point back at the proxy, and links which refresh on an interval are reported to a
+ * listener, which keeps the cache up to date with {@link #refresh(String)}. Other relative hrefs, such as icons,
+ * overlay images and shared styles, are made absolute, so they're still read from the origin.
+ * <p>
+ * The query a client adds to a link, such as the BBOX of a view-based link, is passed on to the origin, and the
+ * document is cached under the URL with its query. Only the latest query of each link is kept.
+ * <p>
+ * Refreshes are conditional: the origin is sent the ETag and Last-Modified of the cached document, and a payload
+ * which comes back identical anyway is recognized by its hash. Either way, the cached document keeps its version, so
+ * clients revalidating with the proxy's ETag are answered with 304 Not Modified.
+ */
+public class KmlLinkProxy {
+
+  private static final Pattern NETWORK_LINK = Pattern.compile("<NetworkLink\\b.*?</NetworkLink>", Pattern.DOTALL);
+  private static final Pattern LINK = Pattern.compile("<(Link|Url)\\b.*?</\\1>", Pattern.DOTALL);
+  private static final Pattern HREF = Pattern.compile("<href>\\s*(.*?)\\s*</href>", Pattern.DOTALL);
+  private static final Pattern RESOURCE_HREF = Pattern.compile("<(href|styleUrl)>\\s*(.*?)\\s*</\\1>", Pattern.DOTALL);
+  private static final Pattern ABSOLUTE_URL = Pattern.compile("[a-zA-Z][a-zA-Z0-9+.-]*:.*", Pattern.DOTALL);
+  private static final Pattern REFRESH_MODE = Pattern.compile("<refreshMode>\\s*(\\w+)\\s*</refreshMode>");
+  private static final Pattern REFRESH_INTERVAL =
+      Pattern.compile("<refreshInterval>\\s*([0-9.]+)\\s*</refreshInterval>");
+
+  /**
+   * What a refresh found at the origin.
+   */
+  public enum Outcome {
+    /** The document is new or has changed. */
+    CHANGED,
+    /** The origin sent the document again, but it hasn't changed. */
+    UNCHANGED,
+    /** The origin answered 304 Not Modified. */
+    NOT_MODIFIED,
+    /** The origin couldn't be reached or answered with an error; the cached document is kept. */
+    FAILED
+  }
+
+  /**
+   * The outcome of a refresh and what it cost.
+   */
+  public static class RefreshResult {
+
+    private final Outcome outcome;
+    private final long bytesReceived;
+    private final long bytesSaved;
+    private final long latencyNanos;
+
+    RefreshResult(Outcome outcome, long bytesReceived, long bytesSaved, long latencyNanos) {
+      this.outcome = outcome;
+      this.bytesReceived = bytesReceived;
+      this.bytesSaved = bytesSaved;
+      this.latencyNanos = latencyNanos;
+    }
+
+    public Outcome getOutcome() {
+      return outcome;
+    }
+
+    public long getBytesReceived() {
+      return bytesReceived;
+    }
+
+    /**
+     * Gets the size of the cached document the origin didn't have to send again.
+     *
+     * @return bytes saved by a 304 Not Modified answer, otherwise 0
+     */
+    public long getBytesSaved() {
+      return bytesSaved;
+    }
+
+    public long getLatencyNanos() {
+      return latencyNanos;
+    }
+  }
+
+  /**
+   * A cached document.
+   */
+  private static class Entry {
+
+    private byte[] body;
+    private byte[] originHash;
+    private long originLength;
+    private String originETag;
+    private String originLastModified;
+    private String version;
+  }
+
+  private final HttpServer server;
+  private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, String> idsByUrl = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, String> urlsById = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, String> latestRequestUrls = new ConcurrentHashMap<>();
+  private final AtomicInteger nextId = new AtomicInteger();
+  private final AtomicLong clientNotModified = new AtomicLong();
+  private final AtomicLong clientBytesSaved = new AtomicLong();
+  private volatile BiConsumer<String, Double> intervalLinkListener = (url, seconds) -> { };
+
+  /**
+   * Creates a proxy listening on an ephemeral port of the loopback interface. Call {@link #start()} to begin serving.
+   *
+   * @throws IOException if the server socket can't be opened
+   */
+  public KmlLinkProxy() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/kml/", this::handle);
+    server.setExecutor(Executors.newFixedThreadPool(4, runnable -> {
+      Thread thread = new Thread(runnable, "kml-link-proxy");
+      thread.setDaemon(true);
+      return thread;
+    }));
+  }
+
+  /**
+   * Starts serving documents.
+   */
+  public void start() {
+    server.start();
+  }
+
+  /**
+   * Stops serving documents.
+   */
+  public void stop() {
+    server.stop(0);
+  }
+
+  /**
+   * Sets the listener told about each network link which refreshes on an interval. It's told each time a document
+   * linking to it is fetched and has changed, so it can be told about the same link more than once.
+   *
+   * @param intervalLinkListener receives the link's origin URL and refresh interval in seconds
+   */
+  public void setIntervalLinkListener(BiConsumer<String, Double> intervalLinkListener) {
+    this.intervalLinkListener = intervalLinkListener;
+  }
+
+  /**
+   * Gets the URL at which the proxy serves a document.
+   *
+   * @param originUrl URL of the document at its origin
+   * @return URL of the document on this proxy
+   */
+  public String getProxyUrl(String originUrl) {
+    String id = idsByUrl.computeIfAbsent(originUrl, url -> {
+      String newId = String.valueOf(nextId.getAndIncrement());
+      urlsById.put(newId, url);
+      return newId;
+    });
+    return "http://127.0.0.1:" + server.getAddress().getPort() + "/kml/" + id;
+  }
+
+  /**
+   * Summarizes how many client requests the proxy answered with 304 Not Modified.
+   *
+   * @return human readable statistics
+   */
+  public String getStatistics() {
+    return String.format("%d documents cached, %d client revalidations, %.1f KB not resent", entries.size(),
+        clientNotModified.get(), clientBytesSaved.get() / 1024.0);
+  }
+
+  /**
+   * Fetches a document from its origin, sending the validators of the cached copy, and caches it if it's changed.
+   * If a client has requested the document with a query, the latest query is sent too.
+   *
+   * @param originUrl URL of the document at its origin
+   * @return the outcome of the refresh
+   */
+  public RefreshResult refresh(String originUrl) {
+    return fetch(latestRequestUrls.getOrDefault(originUrl, originUrl));
+  }
+
+  /**
+   * Fetches a document from its origin, sending the validators of the cached copy, and caches it if it's changed.
+   *
+   * @param requestUrl URL of the document at its origin, with any query a client added
+   * @return the outcome of the fetch
+   */
+  private RefreshResult fetch(String requestUrl) {
+    Entry entry = entries.computeIfAbsent(requestUrl, url -> new Entry());
+    // one refresh of a document at a time, so a client's first request and a scheduled refresh share the fetch
+    synchronized (entry) {
+      long start = System.nanoTime();
+      HttpURLConnection connection = null;
+      try {
+        connection = (HttpURLConnection) new URL(requestUrl).openConnection();
+        if (entry.originETag != null) {
+          connection.setRequestProperty("If-None-Match", entry.originETag);
+        }
+        if (entry.originLastModified != null) {
+          connection.setRequestProperty("If-Modified-Since", entry.originLastModified);
+        }
+        int status = connection.getResponseCode();
+        if (status == HttpURLConnection.HTTP_NOT_MODIFIED && entry.body != null) {
+          return new RefreshResult(Outcome.NOT_MODIFIED, 0, entry.originLength, System.nanoTime() - start);
+        }
+        if (status != HttpURLConnection.HTTP_OK) {
+          return new RefreshResult(Outcome.FAILED, 0, 0, System.nanoTime() - start);
+        }
+
+        byte[] payload;
+        try (InputStream inputStream = connection.getInputStream()) {
+          payload = inputStream.readAllBytes();
+        }
+        entry.originETag = connection.getHeaderField("ETag");
+        entry.originLastModified = connection.getHeaderField("Last-Modified");
+        byte[] hash = sha256(payload);
+        if (entry.body != null && Arrays.equals(hash, entry.originHash)) {
+          return new RefreshResult(Outcome.UNCHANGED, payload.length, 0, System.nanoTime() - start);
+        }
+
+        entry.body = rewrite(payload, new URL(requestUrl));
+        entry.originHash = hash;
+        entry.originLength = payload.length;
+        entry.version = "\"" + toHex(hash, 8) + "\"";
+        return new RefreshResult(Outcome.CHANGED, payload.length, 0, System.nanoTime() - start);
+      } catch (IOException e) {
+        return new RefreshResult(Outcome.FAILED, 0, 0, System.nanoTime() - start);
+      } finally {
+        if (connection != null) {
+          connection.disconnect();
+        }
+      }
+    }
+  }
+
+  /**
+   * Serves a document from the cache, fetching it first if it's never been fetched.
+   *
+   * @param exchange the HTTP exchange
+   * @throws IOException if the response can't be written
+   */
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      String path = exchange.getRequestURI().getPath();
+      String originUrl = urlsById.get(path.substring(path.lastIndexOf('/') + 1));
+      if (originUrl == null) {
+        exchange.sendResponseHeaders(404, -1);
+        return;
+      }
+
+      // pass on the client's query, such as a view-based link's BBOX, and cache the document under it
+      String query = exchange.getRequestURI().getRawQuery();
+      String requestUrl = originUrl;
+      if (query != null && !query.isEmpty()) {
+        requestUrl = originUrl + (originUrl.contains("?") ? "&" : "?") + query;
+        String previousUrl = latestRequestUrls.put(originUrl, requestUrl);
+        // a view-based link is only requested again for the latest view, so earlier views needn't be kept
+        if (previousUrl != null && !previousUrl.equals(requestUrl)) {
+          entries.remove(previousUrl);
+        }
+      }
+
+      Entry entry = entries.computeIfAbsent(requestUrl, url -> new Entry());
+      byte[] body;
+      String version;
+      synchronized (entry) {
+        if (entry.body == null) {
+          fetch(requestUrl);
+        }
+        body = entry.body;
+        version = entry.version;
+      }
+      if (body == null) {
+        exchange.sendResponseHeaders(502, -1);
+        return;
+      }
+      exchange.getResponseHeaders().set("ETag", version);
+      exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+      if (version.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+        clientNotModified.incrementAndGet();
+        clientBytesSaved.addAndGet(body.length);
+        exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+        return;
+      }
+      exchange.getResponseHeaders().set("Content-Type", isZip(body) ? "application/vnd.google-earth.kmz"
+          : "application/vnd.google-earth.kml+xml");
+      exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, body.length);
+      try (OutputStream responseBody = exchange.getResponseBody()) {
+        responseBody.write(body);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * Points the network links of a KML document, or of the main KML document in a KMZ, at the proxy, and makes its
+   * other relative hrefs absolute.
+   *
+   * @param payload the document as fetched
+   * @param baseUrl URL relative links are resolved against
+   * @return the rewritten document
+   * @throws IOException if a KMZ can't be read
+   */
+  private byte[] rewrite(byte[] payload, URL baseUrl) throws IOException {
+    if (!isZip(payload)) {
+      return rewriteKml(new String(payload, StandardCharsets.UTF_8), baseUrl, Collections.emptySet())
+          .getBytes(StandardCharsets.UTF_8);
+    }
+
+    // relative hrefs to files in the KMZ are read from the KMZ, so they stay relative
+    Set<String> entryNames = new HashSet<>();
+    try (ZipInputStream zipInput = new ZipInputStream(new ByteArrayInputStream(payload))) {
+      for (ZipEntry zipEntry; (zipEntry = zipInput.getNextEntry()) != null; ) {
+        entryNames.add(zipEntry.getName());
+      }
+    }
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream(payload.length);
+    boolean rewritten = false;
+    try (ZipInputStream zipInput = new ZipInputStream(new ByteArrayInputStream(payload));
+         ZipOutputStream zipOutput = new ZipOutputStream(output)) {
+      for (ZipEntry zipEntry; (zipEntry = zipInput.getNextEntry()) != null; ) {
+        byte[] content = zipInput.readAllBytes();
+        // the first KML file in a KMZ is its main document
+        if (!rewritten && zipEntry.getName().toLowerCase(Locale.ROOT).endsWith(".kml")) {
+          content = rewriteKml(new String(content, StandardCharsets.UTF_8), baseUrl, entryNames)
+              .getBytes(StandardCharsets.UTF_8);
+          rewritten = true;
+        }
+        zipOutput.putNextEntry(new ZipEntry(zipEntry.getName()));
+        zipOutput.write(content);
+        zipOutput.closeEntry();
+      }
+    }
+    return output.toByteArray();
+  }
+
+  /**
+   * Points the network links of a KML document at the proxy, reports those which refresh on an interval, and makes
+   * the document's other relative hrefs and style URLs absolute, as the document is no longer served from its origin.
+   *
+   * @param kml the KML document
+   * @param baseUrl URL relative links are resolved against
+   * @param entryNames names of the files in the KMZ the document came from, which relative hrefs can refer to
+   * @return the rewritten document
+   * @throws IOException if a link's URL is malformed
+   */
+  private String rewriteKml(String kml, URL baseUrl, Set<String> entryNames) throws IOException {
+    return resolveRelativeHrefs(rewriteNetworkLinks(kml, baseUrl), baseUrl, entryNames);
+  }
+
+  /**
+   * Points the network links of a KML document at the proxy, and reports those which refresh on an interval.
+   *
+   * @param kml the KML document
+   * @param baseUrl URL relative links are resolved against
+   * @return the rewritten document
+   * @throws IOException if a link's URL is malformed
+   */
+  private String rewriteNetworkLinks(String kml, URL baseUrl) throws IOException {
+    StringBuilder rewritten = new StringBuilder(kml.length());
+    Matcher networkLinkMatcher = NETWORK_LINK.matcher(kml);
+    int copied = 0;
+    while (networkLinkMatcher.find()) {
+      String networkLink = networkLinkMatcher.group();
+      Matcher linkMatcher = LINK.matcher(networkLink);
+      if (!linkMatcher.find()) {
+        continue;
+      }
+      String link = linkMatcher.group();
+      Matcher hrefMatcher = HREF.matcher(link);
+      if (!hrefMatcher.find()) {
+        continue;
+      }
+      String originUrl = new URL(baseUrl, hrefMatcher.group(1).replace("&amp;", "&")).toString();
+      String proxyUrl = getProxyUrl(originUrl);
+
+      Matcher refreshModeMatcher = REFRESH_MODE.matcher(link);
+      Matcher refreshIntervalMatcher = REFRESH_INTERVAL.matcher(link);
+      if (refreshModeMatcher.find() && refreshModeMatcher.group(1).equals("onInterval")) {
+        double seconds = refreshIntervalMatcher.find() ? Double.parseDouble(refreshIntervalMatcher.group(1)) : 4;
+        intervalLinkListener.accept(originUrl, seconds);
+      }
+
+      // replace just the href, keeping everything else in the document as it was
+      int hrefStart = networkLinkMatcher.start() + linkMatcher.start() + hrefMatcher.start(1);
+      int hrefEnd = networkLinkMatcher.start() + linkMatcher.start() + hrefMatcher.end(1);
+      rewritten.append(kml, copied, hrefStart).append(proxyUrl);
+      copied = hrefEnd;
+    }
+    return rewritten.append(kml, copied, kml.length()).toString();
+  }
+
+  /**
+   * Makes the relative hrefs and style URLs of a KML document absolute, leaving fragments which refer to the
+   * document itself and files in its KMZ as they are.
+   *
+   * @param kml the KML document
+   * @param baseUrl URL relative links are resolved against
+   * @param entryNames names of the files in the document's KMZ
+   * @return the rewritten document
+   */
+  private static String resolveRelativeHrefs(String kml, URL baseUrl, Set<String> entryNames) {
+    StringBuilder rewritten = new StringBuilder(kml.length());
+    Matcher matcher = RESOURCE_HREF.matcher(kml);
+    int copied = 0;
+    while (matcher.find()) {
+      String href = matcher.group(2).replace("&amp;", "&");
+      int fragment = href.indexOf('#');
+      String path = fragment >= 0 ? href.substring(0, fragment) : href;
+      if (path.isEmpty() || ABSOLUTE_URL.matcher(href).matches() || entryNames.contains(path)) {
+        continue;
+      }
+      String absoluteUrl;
+      try {
+        absoluteUrl = new URL(baseUrl, href).toString();
+      } catch (MalformedURLException e) {
+        // leave an href the runtime couldn't read anyway as it was
+        continue;
+      }
+      rewritten.append(kml, copied, matcher.start(2)).append(absoluteUrl.replace("&", "&amp;"));
+      copied = matcher.end(2);
+    }
+    return rewritten.append(kml, copied, kml.length()).toString();
+  }
+
+  private static boolean isZip(byte[] payload) {
+    return payload.length > 1 && payload[0] == 'P' && payload[1] == 'K';
+  }
+
+  private static byte[] sha256(byte[] payload) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(payload);
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform has SHA-256, so this can't happen
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toHex(byte[] bytes, int count) {
+    StringBuilder hex = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      hex.append(String.format("%02x", bytes[i]));
+    }
+    return hex.toString();
+  }
+}
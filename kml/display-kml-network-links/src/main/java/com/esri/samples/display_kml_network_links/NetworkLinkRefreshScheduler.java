@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.display_kml_network_links;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the documents of a {@link KmlLinkProxy} fresh by refreshing each network link from its origin on its own
+ * interval. The first refresh of each link is offset by a hash of its URL, and every later one by a little random
+ * jitter, so links loaded together spread their requests over the interval rather than all hitting the origin at
+ * once.
+ */
+public class NetworkLinkRefreshScheduler {
+
+  private static final long MIN_INTERVAL_MILLIS = 1000;
+  private static final double JITTER = 0.1;
+  private static final int LATENCY_SAMPLES = 1024;
+
+  private final KmlLinkProxy proxy;
+  private final ScheduledExecutorService executor;
+  private final Set<String> scheduledUrls = ConcurrentHashMap.newKeySet();
+  private final Map<KmlLinkProxy.Outcome, Long> outcomeCounts = new EnumMap<>(KmlLinkProxy.Outcome.class);
+  private final long[] latencies = new long[LATENCY_SAMPLES];
+  private long latencyCount;
+  private long bytesReceived;
+  private long bytesSaved;
+  private volatile Consumer<KmlLinkProxy.RefreshResult> refreshListener = result -> { };
+
+  /**
+   * Creates a scheduler and has the proxy report the network links it finds to it.
+   *
+   * @param proxy the proxy whose documents to refresh
+   * @param threads most refreshes in flight at once
+   */
+  public NetworkLinkRefreshScheduler(KmlLinkProxy proxy, int threads) {
+    this.proxy = proxy;
+    executor = Executors.newScheduledThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "kml-link-refresh");
+      thread.setDaemon(true);
+      return thread;
+    });
+    for (KmlLinkProxy.Outcome outcome : KmlLinkProxy.Outcome.values()) {
+      outcomeCounts.put(outcome, 0L);
+    }
+    proxy.setIntervalLinkListener(this::schedule);
+  }
+
+  /**
+   * Sets the listener called after every refresh, on a refresh thread.
+   *
+   * @param refreshListener receives the result of each refresh
+   */
+  public void setRefreshListener(Consumer<KmlLinkProxy.RefreshResult> refreshListener) {
+    this.refreshListener = refreshListener;
+  }
+
+  /**
+   * Starts refreshing a link, unless it's already scheduled.
+   *
+   * @param originUrl URL of the linked document at its origin
+   * @param intervalSeconds the link's refresh interval
+   */
+  public void schedule(String originUrl, double intervalSeconds) {
+    if (!scheduledUrls.add(originUrl) || executor.isShutdown()) {
+      return;
+    }
+    long intervalMillis = Math.max(MIN_INTERVAL_MILLIS, (long) (intervalSeconds * 1000));
+    long offsetMillis = Math.floorMod(originUrl.hashCode(), intervalMillis);
+    executor.schedule(() -> refresh(originUrl, intervalMillis), offsetMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Stops refreshing links.
+   */
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Gets the number of refreshes with an outcome.
+   *
+   * @param outcome the outcome
+   * @return refresh count
+   */
+  public synchronized long getCount(KmlLinkProxy.Outcome outcome) {
+    return outcomeCounts.get(outcome);
+  }
+
+  /**
+   * Gets a percentile of the latency of recent refreshes.
+   *
+   * @param percentile percentile from 0 to 100
+   * @return latency in milliseconds
+   */
+  public synchronized double getLatencyMillis(double percentile) {
+    long[] samples = Arrays.copyOf(latencies, (int) Math.min(latencyCount, LATENCY_SAMPLES));
+    if (samples.length == 0) {
+      return 0;
+    }
+    Arrays.sort(samples);
+    return samples[Math.max(0, (int) Math.ceil(samples.length * percentile / 100) - 1)] / 1e6;
+  }
+
+  /**
+   * Summarizes the refreshes so far.
+   *
+   * @return human readable statistics
+   */
+  public synchronized String getStatistics() {
+    long unchanged = outcomeCounts.get(KmlLinkProxy.Outcome.UNCHANGED)
+        + outcomeCounts.get(KmlLinkProxy.Outcome.NOT_MODIFIED);
+    return String.format("%d links, %d changed, %d unchanged skipped (%d not modified), %d failed%n"
+            + "latency p50 %.0f ms, p95 %.0f ms, %.1f KB received, %.1f KB saved", scheduledUrls.size(),
+        outcomeCounts.get(KmlLinkProxy.Outcome.CHANGED), unchanged,
+        outcomeCounts.get(KmlLinkProxy.Outcome.NOT_MODIFIED), outcomeCounts.get(KmlLinkProxy.Outcome.FAILED),
+        getLatencyMillis(50), getLatencyMillis(95), bytesReceived / 1024.0, bytesSaved / 1024.0);
+  }
+
+  /**
+   * Refreshes a link and schedules its next refresh.
+   *
+   * @param originUrl URL of the linked document at its origin
+   * @param intervalMillis the link's refresh interval
+   */
+  private void refresh(String originUrl, long intervalMillis) {
+    KmlLinkProxy.RefreshResult result = proxy.refresh(originUrl);
+    synchronized (this) {
+      outcomeCounts.merge(result.getOutcome(), 1L, Long::sum);
+      latencies[(int) (latencyCount++ % LATENCY_SAMPLES)] = result.getLatencyNanos();
+      bytesReceived += result.getBytesReceived();
+      bytesSaved += result.getBytesSaved();
+    }
+    refreshListener.accept(result);
+
+    // scheduled after each refresh rather than at a fixed rate, so a slow origin isn't sent a backlog of requests
+    long jitterMillis = (long) ((ThreadLocalRandom.current().nextDouble() * 2 - 1) * JITTER * intervalMillis);
+    if (!executor.isShutdown()) {
+      executor.schedule(() -> refresh(originUrl, intervalMillis), intervalMillis + jitterMillis,
+          TimeUnit.MILLISECONDS);
+    }
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.display_kml_network_links;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local KML server standing in for a real one, for trying the refresh scheduler without network access. It serves
+ * a root document at {@code /root.kml} with a number of network links refreshing on an interval, each to a placemark
+ * at {@code /link/{index}.kml} which moves to a new position only every so often.
+ * <p>
+ * Links with an even index are served with an ETag and Last-Modified and answer conditional requests with 304 Not
+ * Modified, like a well behaved server; links with an odd index always send the whole document.
+ */
+public class StandInKmlServer {
+
+  private final HttpServer server;
+  private final int linkCount;
+  private final int refreshIntervalSeconds;
+  private final long changeIntervalMillis;
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong bytesSent = new AtomicLong();
+
+  /**
+   * Creates a server listening on an ephemeral port of the loopback interface. Call {@link #start()} to begin
+   * serving.
+   *
+   * @param linkCount number of network links in the root document
+   * @param refreshIntervalSeconds refresh interval of the network links
+   * @param changeIntervalSeconds how often each placemark moves
+   * @throws IOException if the server socket can't be opened
+   */
+  public StandInKmlServer(int linkCount, int refreshIntervalSeconds, int changeIntervalSeconds) throws IOException {
+    this.linkCount = linkCount;
+    this.refreshIntervalSeconds = refreshIntervalSeconds;
+    this.changeIntervalMillis = changeIntervalSeconds * 1000L;
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/", this::handle);
+    server.setExecutor(Executors.newFixedThreadPool(4, runnable -> {
+      Thread thread = new Thread(runnable, "stand-in-kml-server");
+      thread.setDaemon(true);
+      return thread;
+    }));
+  }
+
+  /**
+   * Starts serving documents.
+   */
+  public void start() {
+    server.start();
+  }
+
+  /**
+   * Stops serving documents.
+   */
+  public void stop() {
+    server.stop(0);
+  }
+
+  /**
+   * Gets the URL of the root document.
+   *
+   * @return root document URL
+   */
+  public String getRootUrl() {
+    return getBaseUrl() + "/root.kml";
+  }
+
+  /**
+   * Summarizes what the server has sent.
+   *
+   * @return human readable statistics
+   */
+  public String getStatistics() {
+    return String.format("%d requests, %.1f KB sent", requests.get(), bytesSent.get() / 1024.0);
+  }
+
+  /**
+   * Serves the root document or a linked placemark.
+   *
+   * @param exchange the HTTP exchange
+   * @throws IOException if the response can't be written
+   */
+  private void handle(HttpExchange exchange) throws IOException {
+    requests.incrementAndGet();
+    try {
+      String path = exchange.getRequestURI().getPath();
+      if (path.equals("/root.kml")) {
+        send(exchange, createRootDocument());
+      } else if (path.startsWith("/link/") && path.endsWith(".kml")) {
+        int index = Integer.parseInt(path.substring("/link/".length(), path.length() - ".kml".length()));
+        // each link changes at its own moment within the change interval
+        long offset = index * changeIntervalMillis / Math.max(1, linkCount);
+        long version = (System.currentTimeMillis() + offset) / changeIntervalMillis;
+        if (index % 2 == 0) {
+          String eTag = "\"" + index + "-" + version + "\"";
+          String lastModified = DateTimeFormatter.RFC_1123_DATE_TIME.format(
+              Instant.ofEpochMilli(version * changeIntervalMillis - offset).atZone(ZoneOffset.UTC));
+          exchange.getResponseHeaders().set("ETag", eTag);
+          exchange.getResponseHeaders().set("Last-Modified", lastModified);
+          if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+            return;
+          }
+        }
+        send(exchange, createLinkDocument(index, version));
+      } else {
+        exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+      }
+    } catch (NumberFormatException e) {
+      exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * Sends a KML document.
+   *
+   * @param exchange the HTTP exchange
+   * @param kml the document
+   * @throws IOException if the response can't be written
+   */
+  private void send(HttpExchange exchange, String kml) throws IOException {
+    byte[] body = kml.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/vnd.google-earth.kml+xml");
+    exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, body.length);
+    try (OutputStream responseBody = exchange.getResponseBody()) {
+      responseBody.write(body);
+    }
+    bytesSent.addAndGet(body.length);
+  }
+
+  /**
+   * Creates the root document, with a network link to each placemark.
+   *
+   * @return the KML
+   */
+  private String createRootDocument() {
+    StringBuilder kml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<kml xmlns=\"http://www.opengis.net/kml/2.2\"><Document><name>Stand-in links</name>\n");
+    for (int i = 0; i < linkCount; i++) {
+      kml.append(String.format(Locale.ROOT, "<NetworkLink><name>Link %d</name><Link><href>%s/link/%d.kml</href>"
+              + "<refreshMode>onInterval</refreshMode><refreshInterval>%d</refreshInterval></Link></NetworkLink>\n",
+          i, getBaseUrl(), i, refreshIntervalSeconds));
+    }
+    return kml.append("</Document></kml>\n").toString();
+  }
+
+  /**
+   * Creates a linked document with a placemark whose position depends on its version.
+   *
+   * @param index index of the link
+   * @param version version of the placemark
+   * @return the KML
+   */
+  private String createLinkDocument(int index, long version) {
+    // place the links in a grid over Germany, each wandering around its cell as its version changes
+    double longitude = 6 + (index % 10) * 0.8 + (version % 7) * 0.1;
+    double latitude = 48 + (index / 10 % 10) * 0.5 + (version % 5) * 0.08;
+    return String.format(Locale.ROOT, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<kml xmlns=\"http://www.opengis.net/kml/2.2\"><Document><Placemark><name>Placemark %d v%d</name>"
+        + "<Point><coordinates>%.4f,%.4f</coordinates></Point></Placemark></Document></kml>\n", index, version,
+        longitude, latitude);
+  }
+
+  private String getBaseUrl() {
+    return "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+}
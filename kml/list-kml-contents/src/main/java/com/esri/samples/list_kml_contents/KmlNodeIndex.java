@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.list_kml_contents;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+
+import com.esri.arcgisruntime.ogc.kml.KmlNode;
+
+/**
+ * A flat index of every node in a KML dataset, in the order they appear in the tree, for searching node names without
+ * creating tree items. Each entry keeps the index of its parent, so the path from a root node to any match can be
+ * found to reveal it in the tree. Building the index walks the whole dataset, so do it off the JavaFX application
+ * thread.
+ */
+public class KmlNodeIndex {
+
+  private final List<KmlNode> nodes = new ArrayList<>();
+  private final List<String> names = new ArrayList<>();
+  private int[] parents = new int[1024];
+
+  /**
+   * Walks the dataset from its root nodes, indexing every node and making it visible, since KML files may include
+   * nodes that are turned off by default.
+   *
+   * @param rootNodes the dataset's root nodes
+   */
+  public KmlNodeIndex(List<KmlNode> rootNodes) {
+
+    // walk depth first with a stack rather than recursion, so deeply nested files can't overflow the call stack
+    Deque<Integer> parentStack = new ArrayDeque<>();
+    Deque<KmlNode> nodeStack = new ArrayDeque<>();
+    for (int i = rootNodes.size() - 1; i >= 0; i--) {
+      nodeStack.push(rootNodes.get(i));
+      parentStack.push(-1);
+    }
+    while (!nodeStack.isEmpty()) {
+      KmlNode node = nodeStack.pop();
+      int parent = parentStack.pop();
+      node.setVisible(true);
+
+      int index = nodes.size();
+      if (index == parents.length) {
+        parents = Arrays.copyOf(parents, parents.length * 2);
+      }
+      parents[index] = parent;
+      nodes.add(node);
+      String name = node.getName();
+      names.add(name != null ? name.toLowerCase(Locale.ROOT) : "");
+
+      List<KmlNode> children = KmlNodeTreeItem.getChildNodes(node);
+      for (int i = children.size() - 1; i >= 0; i--) {
+        nodeStack.push(children.get(i));
+        parentStack.push(index);
+      }
+    }
+  }
+
+  /**
+   * Gets the number of nodes in the index.
+   *
+   * @return node count
+   */
+  public int size() {
+    return nodes.size();
+  }
+
+  /**
+   * Finds the nodes whose names contain some text, ignoring case.
+   *
+   * @param text text to find
+   * @param limit most matches to return
+   * @return indexes of the matching nodes, in tree order
+   */
+  public List<Integer> search(String text, int limit) {
+    String query = text.toLowerCase(Locale.ROOT);
+    List<Integer> matches = new ArrayList<>();
+    for (int i = 0; i < names.size() && matches.size() < limit; i++) {
+      if (names.get(i).contains(query)) {
+        matches.add(i);
+      }
+    }
+    return matches;
+  }
+
+  /**
+   * Gets the nodes from a root node down to an indexed node.
+   *
+   * @param index index of the node
+   * @return the path, starting with a root node and ending with the node
+   */
+  public List<KmlNode> getPath(int index) {
+    LinkedList<KmlNode> path = new LinkedList<>();
+    for (int i = index; i >= 0; i = parents[i]) {
+      path.addFirst(nodes.get(i));
+    }
+    return path;
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.list_kml_contents;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+import javafx.event.Event;
+import javafx.scene.control.TreeItem;
+
+import com.esri.arcgisruntime.ogc.kml.KmlContainer;
+import com.esri.arcgisruntime.ogc.kml.KmlNetworkLink;
+import com.esri.arcgisruntime.ogc.kml.KmlNode;
+
+/**
+ * A tree item for a KML node which creates the tree items of its child nodes the first time they're asked for, which
+ * the tree view only does when the item is expanded. A dataset with hundreds of thousands of placemarks then only
+ * needs tree items for the nodes the user has opened. A network link's children are replaced each time it refreshes,
+ * so its item creates their tree items again.
+ */
+public class KmlNodeTreeItem extends TreeItem<KmlNode> {
+
+  private boolean childrenCreated;
+  private Boolean leaf;
+
+  /**
+   * Creates a tree item for a node, without creating any of its children.
+   *
+   * @param node the KML node
+   */
+  public KmlNodeTreeItem(KmlNode node) {
+    super(node);
+    if (node instanceof KmlNetworkLink) {
+      ((KmlNetworkLink) node).getChildNodes().addListChangedListener(listChangedEvent ->
+          Platform.runLater(this::refreshChildren));
+    }
+  }
+
+  @Override
+  public ObservableList<TreeItem<KmlNode>> getChildren() {
+    if (!childrenCreated) {
+      childrenCreated = true;
+      List<TreeItem<KmlNode>> children = new ArrayList<>();
+      getChildNodes(getValue()).forEach(childNode -> children.add(new KmlNodeTreeItem(childNode)));
+      super.getChildren().setAll(children);
+    }
+    return super.getChildren();
+  }
+
+  @Override
+  public boolean isLeaf() {
+    if (leaf == null) {
+      leaf = getChildNodes(getValue()).isEmpty();
+    }
+    return leaf;
+  }
+
+  /**
+   * Forgets the tree items of the node's children, creating them again straight away if they'd been created.
+   */
+  private void refreshChildren() {
+    leaf = null;
+    if (childrenCreated) {
+      childrenCreated = false;
+      getChildren();
+    } else {
+      // let the tree view know whether the item can now be expanded
+      Event.fireEvent(this, new TreeModificationEvent<>(valueChangedEvent(), this, getValue()));
+    }
+  }
+
+  /**
+   * Gets the child nodes of a container or network link.
+   *
+   * @param node a KML node
+   * @return the node's children, or an empty list if it can't have any
+   */
+  public static List<KmlNode> getChildNodes(KmlNode node) {
+    if (node instanceof KmlContainer) {
+      return ((KmlContainer) node).getChildNodes();
+    } else if (node instanceof KmlNetworkLink) {
+      return ((KmlNetworkLink) node).getChildNodes();
+    }
+    return Collections.emptyList();
+  }
+}
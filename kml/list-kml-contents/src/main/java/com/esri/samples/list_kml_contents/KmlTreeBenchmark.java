@@ -0,0 +1,243 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.list_kml_contents;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javafx.application.Platform;
+import javafx.scene.control.TreeItem;
+
+import com.esri.arcgisruntime.loadable.LoadStatus;
+import com.esri.arcgisruntime.ogc.kml.KmlDataset;
+import com.esri.arcgisruntime.ogc.kml.KmlNode;
+
+/**
+ * Command line harness comparing the time and memory it takes to make a large KML dataset browsable with an eagerly
+ * built tree and with {@link KmlNodeTreeItem}s, and to build the {@link KmlNodeIndex}. It writes a synthetic KMZ of
+ * folders of placemarks, which can also be opened in the sample with -Dkml.file. Each approach is measured in a
+ * process of its own, so neither is helped by the other having warmed up the JIT or hurt by its garbage.
+ */
+public class KmlTreeBenchmark {
+
+  private static final int FOLDERS_PER_GROUP = 20;
+  private static final int PLACEMARKS_PER_FOLDER = 100;
+  private static final List<String> APPROACHES = Arrays.asList("eager", "lazy");
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optional number of placemarks (default 200000), path of the KMZ to write, and the approach to measure
+   *     in this process; without an approach, the KMZ is written and each approach is measured in a new process
+   * @throws Exception if the KMZ can't be written or loaded, or a process fails
+   */
+  public static void main(String[] args) throws Exception {
+
+    int placemarkCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+    File kmzFile = args.length > 1 ? new File(args[1]) : Files.createTempFile("synthetic", ".kmz").toFile();
+    if (args.length > 2) {
+      measure(kmzFile, args[2]);
+      return;
+    }
+
+    long writeStart = System.nanoTime();
+    writeSyntheticKmz(kmzFile, placemarkCount);
+    System.out.printf(Locale.ROOT, "Wrote %d placemarks to %s in %.0f ms%n%n", placemarkCount, kmzFile,
+        (System.nanoTime() - writeStart) / 1e6);
+    System.out.printf(Locale.ROOT, "%-12s %10s %10s %14s %12s %18s%n", "approach", "load ms", "tree items",
+        "build ms", "heap MB", "interactive ms");
+
+    // run this class again for each approach, with the same JVM options and class path
+    for (String approach : APPROACHES) {
+      List<String> command = new ArrayList<>();
+      command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+      command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+      command.add("-cp");
+      command.add(System.getProperty("java.class.path"));
+      command.add(KmlTreeBenchmark.class.getName());
+      command.add(String.valueOf(placemarkCount));
+      command.add(kmzFile.getAbsolutePath());
+      command.add(approach);
+      int exitCode = new ProcessBuilder(command).inheritIO().start().waitFor();
+      if (exitCode != 0) {
+        throw new IllegalStateException("Measuring " + approach + " failed with exit code " + exitCode);
+      }
+    }
+  }
+
+  /**
+   * Loads the dataset, makes it browsable with one approach and prints a row of the results table. After the lazy
+   * tree, the index is built and searched, as the sample does in the background once the tree is ready.
+   *
+   * @param kmzFile the KMZ
+   * @param approach eager or lazy
+   * @throws Exception if the dataset can't be loaded
+   */
+  private static void measure(File kmzFile, String approach) throws Exception {
+
+    if (!APPROACHES.contains(approach)) {
+      throw new IllegalArgumentException("Unknown approach " + approach + ", expected one of " + APPROACHES);
+    }
+
+    // the dataset's listeners are called on the JavaFX application thread, so the toolkit has to be running
+    Platform.startup(() -> {
+    });
+
+    long loadStart = System.nanoTime();
+    KmlDataset kmlDataset = new KmlDataset(kmzFile.getAbsolutePath());
+    CountDownLatch loaded = new CountDownLatch(1);
+    kmlDataset.addDoneLoadingListener(loaded::countDown);
+    kmlDataset.loadAsync();
+    loaded.await();
+    if (kmlDataset.getLoadStatus() != LoadStatus.LOADED) {
+      throw new IllegalStateException("KML dataset failed to load", kmlDataset.getLoadError());
+    }
+    double loadMillis = (System.nanoTime() - loadStart) / 1e6;
+
+    long heapBefore = usedHeap();
+    long buildStart = System.nanoTime();
+    TreeItem<KmlNode> root = new TreeItem<>(null);
+    if (approach.equals("eager")) {
+      // every node gets a tree item up front, as the sample used to
+      kmlDataset.getRootNodes().forEach(node -> root.getChildren().add(buildTree(new TreeItem<>(node))));
+    } else {
+      // only the root nodes and their children get tree items, as in the expanded tree the sample shows at first
+      kmlDataset.getRootNodes().forEach(node -> {
+        TreeItem<KmlNode> treeItem = new KmlNodeTreeItem(node);
+        treeItem.setExpanded(true);
+        treeItem.getChildren();
+        root.getChildren().add(treeItem);
+      });
+    }
+    double buildMillis = (System.nanoTime() - buildStart) / 1e6;
+    long buildHeap = usedHeap() - heapBefore;
+    System.out.printf(Locale.ROOT, "%-12s %10.0f %10d %14.0f %12.1f %18.0f%n", approach, loadMillis,
+        countTreeItems(root), buildMillis, buildHeap / 1048576.0, loadMillis + buildMillis);
+
+    if (approach.equals("lazy")) {
+      // the index is built in the background after the tree is interactive, so it doesn't add to that time
+      heapBefore = usedHeap();
+      long indexStart = System.nanoTime();
+      KmlNodeIndex index = new KmlNodeIndex(kmlDataset.getRootNodes());
+      double indexMillis = (System.nanoTime() - indexStart) / 1e6;
+      long indexHeap = usedHeap() - heapBefore;
+      System.out.printf(Locale.ROOT, "%nIndexed %d nodes in %.0f ms using %.1f MB%n", index.size(), indexMillis,
+          indexHeap / 1048576.0);
+
+      long searchStart = System.nanoTime();
+      int matches = index.search("placemark 1999", Integer.MAX_VALUE).size();
+      System.out.printf(Locale.ROOT, "Searched names in %.1f ms, %d matches%n",
+          (System.nanoTime() - searchStart) / 1e6, matches);
+    }
+
+    Platform.exit();
+  }
+
+  /**
+   * Writes a KMZ with a document of groups of folders of point placemarks.
+   *
+   * @param kmzFile file to write
+   * @param placemarkCount number of placemarks
+   * @throws IOException if the file can't be written
+   */
+  private static void writeSyntheticKmz(File kmzFile, int placemarkCount) throws IOException {
+
+    try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(kmzFile.toPath()))) {
+      zip.putNextEntry(new ZipEntry("doc.kml"));
+      Writer writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+      writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<kml xmlns=\"http://www.opengis.net/kml/2.2\">\n"
+          + "<Document><name>Synthetic " + placemarkCount + "</name>\n");
+      int placemark = 0;
+      for (int group = 0; placemark < placemarkCount; group++) {
+        writer.write("<Folder><name>Group " + group + "</name>\n");
+        for (int folder = 0; folder < FOLDERS_PER_GROUP && placemark < placemarkCount; folder++) {
+          writer.write("<Folder><name>Folder " + group + "." + folder + "</name>\n");
+          for (int i = 0; i < PLACEMARKS_PER_FOLDER && placemark < placemarkCount; i++, placemark++) {
+            // spread the placemarks over a grid around the world
+            double longitude = -180 + (placemark % 3600) * 0.1;
+            double latitude = -60 + (placemark / 3600 % 1200) * 0.1;
+            writer.write(String.format(Locale.ROOT, "<Placemark><name>Placemark %d</name><Point><coordinates>"
+                + "%.4f,%.4f</coordinates></Point></Placemark>\n", placemark, longitude, latitude));
+          }
+          writer.write("</Folder>\n");
+        }
+        writer.write("</Folder>\n");
+      }
+      writer.write("</Document>\n</kml>\n");
+      writer.flush();
+      zip.closeEntry();
+    }
+  }
+
+  /**
+   * Recursively adds tree items for all of a tree item's descendants.
+   *
+   * @param parent a parent KML node tree item
+   * @return the parent, with its descendants attached
+   */
+  private static TreeItem<KmlNode> buildTree(TreeItem<KmlNode> parent) {
+    KmlNode node = parent.getValue();
+    node.setVisible(true);
+    KmlNodeTreeItem.getChildNodes(node).forEach(childNode -> parent.getChildren().add(buildTree(new TreeItem<>(
+        childNode))));
+    parent.setExpanded(true);
+    return parent;
+  }
+
+  /**
+   * Counts the tree items which have been created below a tree item, without creating any more.
+   *
+   * @param parent a tree item
+   * @return number of descendant tree items
+   */
+  private static int countTreeItems(TreeItem<KmlNode> parent) {
+    if (parent instanceof KmlNodeTreeItem && !parent.isExpanded()) {
+      return 0;
+    }
+    int count = 0;
+    for (TreeItem<KmlNode> child : parent.getChildren()) {
+      count += 1 + countTreeItems(child);
+    }
+    return count;
+  }
+
+  /**
+   * Gets the heap in use after a garbage collection.
+   *
+   * @return used heap in bytes
+   */
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -17,39 +17,59 @@
 package com.esri.samples.list_kml_contents;
 
 import java.io.File;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
+import javafx.scene.control.TreeCell;
 import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeView;
-import javafx.scene.control.cell.TextFieldTreeCell;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
 import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Paint;
 import javafx.stage.Stage;
-import javafx.util.StringConverter;
 
 import com.esri.arcgisruntime.geometry.Envelope;
 import com.esri.arcgisruntime.layers.KmlLayer;
+import com.esri.arcgisruntime.loadable.LoadStatus;
 import com.esri.arcgisruntime.mapping.ArcGISScene;
 import com.esri.arcgisruntime.mapping.Basemap;
 import com.esri.arcgisruntime.mapping.Viewpoint;
 import com.esri.arcgisruntime.mapping.view.SceneView;
-import com.esri.arcgisruntime.ogc.kml.KmlContainer;
 import com.esri.arcgisruntime.ogc.kml.KmlDataset;
 import com.esri.arcgisruntime.ogc.kml.KmlDocument;
 import com.esri.arcgisruntime.ogc.kml.KmlFolder;
 import com.esri.arcgisruntime.ogc.kml.KmlGroundOverlay;
-import com.esri.arcgisruntime.ogc.kml.KmlNetworkLink;
 import com.esri.arcgisruntime.ogc.kml.KmlNode;
 import com.esri.arcgisruntime.ogc.kml.KmlPlacemark;
 import com.esri.arcgisruntime.ogc.kml.KmlScreenOverlay;
 
 public class ListKMLContentsSample extends Application {
 
+  private static final int MAX_SEARCH_MATCHES = 1000;
+
   private SceneView sceneView;
+  private TreeView<KmlNode> kmlTree;
+  private Label statusLabel;
+  private KmlNodeIndex nodeIndex;
+  private List<Integer> searchMatches = Collections.emptyList();
+  private String searchText = "";
+  private int searchPosition;
+  private ExecutorService extentExecutor;
+  private final AtomicLong selectionCount = new AtomicLong();
 
   @Override
   public void start(Stage stage) {
@@ -71,65 +91,111 @@ public class ListKMLContentsSample extends Application {
       sceneView = new SceneView();
       sceneView.setArcGISScene(scene);
 
-      // load a KML dataset from a local KMZ file and show it as an operational layer
-      File kmzFile = new File(System.getProperty("data.dir"), "./samples-data/kml/esri_test_data.kmz");
+      // load a KML dataset from a local KMZ file (or one given with -Dkml.file) and show it as an operational layer
+      long loadStart = System.nanoTime();
+      File kmzFile = System.getProperty("kml.file") != null ? new File(System.getProperty("kml.file"))
+          : new File(System.getProperty("data.dir"), "./samples-data/kml/esri_test_data.kmz");
       KmlDataset kmlDataset = new KmlDataset(kmzFile.getAbsolutePath());
       KmlLayer kmlLayer = new KmlLayer(kmlDataset);
       scene.getOperationalLayers().add(kmlLayer);
 
       // create a tree view to list the contents of the KML dataset
-      TreeView<KmlNode> kmlTree = new TreeView<>();
+      kmlTree = new TreeView<>();
       kmlTree.setMaxSize(300, 400);
       TreeItem<KmlNode> root = new TreeItem<>(null);
       kmlTree.setRoot(root);
       kmlTree.setShowRoot(false);
 
-      // when the dataset is loaded, recursively build the tree view with KML nodes starting with the root node(s)
-      kmlDataset.addDoneLoadingListener(() -> kmlDataset.getRootNodes().forEach(kmlNode -> {
-        TreeItem<KmlNode> kmlNodeTreeItem = buildTree(new TreeItem<>(kmlNode));
-        root.getChildren().add(kmlNodeTreeItem);
-      }));
-
-      // show the KML node in the tree view with its name and type
-      kmlTree.setCellFactory(param -> new TextFieldTreeCell<>(new StringConverter<KmlNode>() {
+      // create a search field and a label for the tree's status
+      TextField searchField = new TextField();
+      searchField.setPromptText("Search node names");
+      searchField.setDisable(true);
+      searchField.setOnAction(e -> findNext(searchField.getText()));
+      statusLabel = new Label("Loading KML dataset...");
+      statusLabel.setStyle("-fx-text-fill: white;");
 
-        @Override
-        public String toString(KmlNode node) {
-          String type = null;
-          if (node instanceof KmlDocument) {
-            type = "KmlDocument";
-          } else if (node instanceof KmlFolder) {
-            type = "KmlFolder";
-          } else if (node instanceof KmlGroundOverlay) {
-            type = "KmlGroundOverlay";
-          } else if (node instanceof KmlScreenOverlay) {
-            type = "KmlScreenOverlay";
-          } else if (node instanceof KmlPlacemark) {
-              type = "KmlPlacemark";
-          }
-          return node.getName() + " - " + type;
+      // when the dataset is loaded, add the root nodes to the tree view. Their children only get tree items when
+      // they're expanded, so the tree is ready straight away however many nodes the dataset has
+      kmlDataset.addDoneLoadingListener(() -> {
+        if (kmlDataset.getLoadStatus() != LoadStatus.LOADED) {
+          statusLabel.setText("KML dataset failed to load");
+          new Alert(Alert.AlertType.ERROR, "Failed to load KML dataset").show();
+          return;
         }
+        kmlDataset.getRootNodes().forEach(kmlNode -> {
+          TreeItem<KmlNode> kmlNodeTreeItem = new KmlNodeTreeItem(kmlNode);
+          kmlNodeTreeItem.setExpanded(true);
+          root.getChildren().add(kmlNodeTreeItem);
+        });
+        statusLabel.setText(String.format("Tree ready in %.0f ms, indexing...", (System.nanoTime() - loadStart) / 1e6));
+
+        // index every node for searching in the background
+        List<KmlNode> rootNodes = kmlDataset.getRootNodes();
+        Thread indexThread = new Thread(() -> {
+          long indexStart = System.nanoTime();
+          KmlNodeIndex index = new KmlNodeIndex(rootNodes);
+          double indexMillis = (System.nanoTime() - indexStart) / 1e6;
+          Platform.runLater(() -> {
+            nodeIndex = index;
+            searchField.setDisable(false);
+            statusLabel.setText(String.format("%d nodes indexed in %.0f ms", index.size(), indexMillis));
+          });
+        });
+        indexThread.setDaemon(true);
+        indexThread.start();
+      });
+
+      // show the KML node in the tree view with its name and type. The tree view only creates cells for the visible
+      // rows and reuses them as it scrolls, so keep the cells light
+      kmlTree.setCellFactory(param -> new TreeCell<KmlNode>() {
 
         @Override
-        public KmlNode fromString(String string) {
-          return null; //not needed
+        protected void updateItem(KmlNode node, boolean empty) {
+          super.updateItem(node, empty);
+          setText(empty || node == null ? null : node.getName() + " - " + getTypeName(node));
         }
-      }));
+      });
 
-      // when a tree item is selected, zoom to its node's extent (if it has one)
-      kmlTree.getSelectionModel().selectedItemProperty().addListener(o -> {
-        TreeItem<KmlNode> selectedTreeItem = kmlTree.getSelectionModel().getSelectedItem();
-        KmlNode selectedNode = selectedTreeItem.getValue();
-        Envelope nodeExtent = selectedNode.getExtent();
-        if (nodeExtent != null && !nodeExtent.isEmpty()) {
-          sceneView.setViewpointAsync(new Viewpoint(nodeExtent));
+      // when a tree item is selected, zoom to its node's extent (if it has one). Working out the extent of a large
+      // container can take a while, so do it in the background and only zoom to the latest selection
+      extentExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "kml-node-extent");
+        thread.setDaemon(true);
+        return thread;
+      });
+      kmlTree.getSelectionModel().selectedItemProperty().addListener((o, previousTreeItem, selectedTreeItem) -> {
+        if (selectedTreeItem == null) {
+          return;
         }
+        KmlNode selectedNode = selectedTreeItem.getValue();
+        long selection = selectionCount.incrementAndGet();
+        extentExecutor.execute(() -> {
+          if (selection != selectionCount.get()) {
+            return;
+          }
+          Envelope nodeExtent = selectedNode.getExtent();
+          if (nodeExtent != null && !nodeExtent.isEmpty()) {
+            Platform.runLater(() -> {
+              if (selection == selectionCount.get()) {
+                sceneView.setViewpointAsync(new Viewpoint(nodeExtent));
+              }
+            });
+          }
+        });
       });
 
+      // add the search field, status and tree in a panel over the scene view
+      VBox controlsVBox = new VBox(6);
+      controlsVBox.setBackground(new Background(new BackgroundFill(Paint.valueOf("rgba(0,0,0,0.3)"), CornerRadii.EMPTY,
+          Insets.EMPTY)));
+      controlsVBox.setPadding(new Insets(10.0));
+      controlsVBox.setMaxSize(320, 480);
+      controlsVBox.getChildren().addAll(searchField, statusLabel, kmlTree);
+
       // add the map view to stack pane
-      stackPane.getChildren().addAll(sceneView, kmlTree);
-      StackPane.setAlignment(kmlTree, Pos.TOP_LEFT);
-      StackPane.setMargin(kmlTree, new Insets(10));
+      stackPane.getChildren().addAll(sceneView, controlsVBox);
+      StackPane.setAlignment(controlsVBox, Pos.TOP_LEFT);
+      StackPane.setMargin(controlsVBox, new Insets(10));
     } catch (Exception e) {
       // on any error, display the stack trace.
       e.printStackTrace();
@@ -137,26 +203,82 @@ public class ListKMLContentsSample extends Application {
   }
 
   /**
-   * Recursively adds child tree items to the given parent tree item based on its node's child nodes.
+   * Selects the next node whose name contains the text, expanding the tree down to it.
+   *
+   * @param text text to find
+   */
+  private void findNext(String text) {
+
+    if (nodeIndex == null || text.isEmpty()) {
+      return;
+    }
+    if (!text.equals(searchText)) {
+      searchText = text;
+      searchMatches = nodeIndex.search(text, MAX_SEARCH_MATCHES);
+      searchPosition = 0;
+    } else if (!searchMatches.isEmpty()) {
+      searchPosition = (searchPosition + 1) % searchMatches.size();
+    }
+    if (searchMatches.isEmpty()) {
+      statusLabel.setText("No matches");
+      return;
+    }
+
+    TreeItem<KmlNode> treeItem = reveal(nodeIndex.getPath(searchMatches.get(searchPosition)));
+    if (treeItem != null) {
+      kmlTree.getSelectionModel().select(treeItem);
+      kmlTree.scrollTo(kmlTree.getRow(treeItem));
+    }
+    statusLabel.setText(String.format("Match %d of %d%s", searchPosition + 1, searchMatches.size(),
+        searchMatches.size() == MAX_SEARCH_MATCHES ? "+" : ""));
+  }
+
+  /**
+   * Expands the tree items along a path of nodes, creating them as needed.
    *
-   * @param parent a parent KML node tree item
-   * @return the original parent, now with the child tree attached to it
+   * @param path nodes from a root node down to the node to reveal
+   * @return the node's tree item, or null if it isn't in the tree
    */
-  private TreeItem<KmlNode> buildTree(TreeItem<KmlNode> parent) {
-    KmlNode node = parent.getValue();
-    node.setVisible(true);
-    List<KmlNode> children = new ArrayList<>();
-    if (parent.getValue() instanceof KmlContainer) {
-      children.addAll(((KmlContainer) node).getChildNodes());
-    } else if (parent.getValue() instanceof KmlNetworkLink) {
-      children.addAll(((KmlNetworkLink) node).getChildNodes());
+  private TreeItem<KmlNode> reveal(List<KmlNode> path) {
+
+    TreeItem<KmlNode> treeItem = kmlTree.getRoot();
+    for (KmlNode node : path) {
+      treeItem.setExpanded(true);
+      TreeItem<KmlNode> childTreeItem = null;
+      for (TreeItem<KmlNode> child : treeItem.getChildren()) {
+        if (child.getValue().equals(node)) {
+          childTreeItem = child;
+          break;
+        }
+      }
+      if (childTreeItem == null) {
+        return null;
+      }
+      treeItem = childTreeItem;
+    }
+    return treeItem;
+  }
+
+  /**
+   * Gets the name of a KML node's type to show in the tree view.
+   *
+   * @param node a KML node
+   * @return the type name
+   */
+  private static String getTypeName(KmlNode node) {
+    String type = null;
+    if (node instanceof KmlDocument) {
+      type = "KmlDocument";
+    } else if (node instanceof KmlFolder) {
+      type = "KmlFolder";
+    } else if (node instanceof KmlGroundOverlay) {
+      type = "KmlGroundOverlay";
+    } else if (node instanceof KmlScreenOverlay) {
+      type = "KmlScreenOverlay";
+    } else if (node instanceof KmlPlacemark) {
+      type = "KmlPlacemark";
     }
-    children.forEach(childNode -> {
-      TreeItem<KmlNode> childTreeItem = buildTree(new TreeItem<>(childNode));
-      parent.getChildren().add(childTreeItem);
-    });
-    parent.setExpanded(true); // expand all nodes in the tree view
-    return parent;
+    return type;
   }
 
   /**
@@ -165,6 +287,9 @@ public class ListKMLContentsSample extends Application {
   @Override
   public void stop() {
 
+    if (extentExecutor != null) {
+      extentExecutor.shutdownNow();
+    }
     if (sceneView != null) {
       sceneView.dispose();
     }
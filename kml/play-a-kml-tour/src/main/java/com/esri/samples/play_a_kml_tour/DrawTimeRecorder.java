@@ -0,0 +1,138 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.play_a_kml_tour;
+
+import java.util.Arrays;
+
+/**
+ * Records how long a view takes to draw while an animation plays, for comparing how often and for how long it shows
+ * data which hasn't loaded yet. A draw lasts from the view's draw status changing to in progress until it's next
+ * completed, so a camera arriving before its imagery and elevation shows up as a long draw. Time while the animation
+ * is paused isn't counted.
+ */
+public class DrawTimeRecorder {
+
+  private static final double LONG_DRAW_MILLIS = 250;
+
+  private long[] drawNanos = new long[1024];
+  private int drawCount;
+  private long drawingNanos;
+  private long recordedNanos;
+  private long recordingStart;
+  private long drawStart;
+  private boolean drawing;
+  private boolean recording;
+
+  /**
+   * Starts or resumes recording.
+   */
+  public synchronized void resume() {
+    long now = System.nanoTime();
+    recording = true;
+    recordingStart = now;
+    drawStart = drawing ? now : 0;
+  }
+
+  /**
+   * Pauses recording. A draw in progress is recorded up to now.
+   */
+  public synchronized void pause() {
+    if (!recording) {
+      return;
+    }
+    long now = System.nanoTime();
+    recordedNanos += now - recordingStart;
+    if (drawStart != 0) {
+      record(now - drawStart);
+      drawStart = 0;
+    }
+    recording = false;
+  }
+
+  /**
+   * Discards the recorded draws.
+   */
+  public synchronized void reset() {
+    long now = System.nanoTime();
+    drawCount = 0;
+    drawingNanos = 0;
+    recordedNanos = 0;
+    recordingStart = now;
+    drawStart = recording && drawing ? now : 0;
+  }
+
+  /**
+   * Records a change of the view's draw status.
+   *
+   * @param inProgress whether the view is now drawing
+   */
+  public synchronized void drawStatusChanged(boolean inProgress) {
+    long now = System.nanoTime();
+    if (inProgress && !drawing) {
+      drawing = true;
+      drawStart = recording ? now : 0;
+    } else if (!inProgress && drawing) {
+      drawing = false;
+      if (drawStart != 0) {
+        record(now - drawStart);
+        drawStart = 0;
+      }
+    }
+  }
+
+  /**
+   * Gets a percentile of the recorded draw times.
+   *
+   * @param percentile percentile from 0 to 100
+   * @return draw time in milliseconds, or 0 if no draws were recorded
+   */
+  public synchronized double getPercentileMillis(double percentile) {
+    if (drawCount == 0) {
+      return 0;
+    }
+    long[] sorted = Arrays.copyOf(drawNanos, drawCount);
+    Arrays.sort(sorted);
+    return sorted[Math.max(0, (int) Math.ceil(drawCount * percentile / 100) - 1)] / 1e6;
+  }
+
+  /**
+   * Summarizes the recorded draws.
+   *
+   * @return human readable statistics
+   */
+  public synchronized String getStatistics() {
+    int longDraws = 0;
+    for (int i = 0; i < drawCount; i++) {
+      if (drawNanos[i] / 1e6 > LONG_DRAW_MILLIS) {
+        longDraws++;
+      }
+    }
+    long playedNanos = recordedNanos + (recording ? System.nanoTime() - recordingStart : 0);
+    return String.format("%d draws, p50 %.0f ms, p95 %.0f ms, p99 %.0f ms, max %.0f ms, %d over %.0f ms, "
+            + "drawing %.0f%% of playback", drawCount, getPercentileMillis(50), getPercentileMillis(95),
+        getPercentileMillis(99), getPercentileMillis(100), longDraws, LONG_DRAW_MILLIS,
+        playedNanos > 0 ? 100.0 * drawingNanos / playedNanos : 0);
+  }
+
+  private void record(long nanos) {
+    if (drawCount == drawNanos.length) {
+      drawNanos = Arrays.copyOf(drawNanos, drawCount * 2);
+    }
+    drawNanos[drawCount++] = nanos;
+    drawingNanos += nanos;
+  }
+}
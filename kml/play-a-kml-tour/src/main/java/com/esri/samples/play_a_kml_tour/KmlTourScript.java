@@ -0,0 +1,222 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.play_a_kml_tour;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * The camera moves of a KML tour, read from the tour's playlist ahead of playing it. The runtime's {@code KmlTour}
+ * doesn't expose its playlist, so the first tour in the KMZ's main document is parsed directly. Fly-tos and waits
+ * advance the tour's time; other primitives such as sound cues play alongside them and are skipped.
+ */
+public class KmlTourScript {
+
+  private static final String GX_NAMESPACE = "http://www.google.com/kml/ext/2.2";
+
+  private final List<CameraStep> steps;
+  private final double durationSeconds;
+
+  /**
+   * Where the camera is at the end of a fly-to or wait, and when.
+   */
+  public static class CameraStep {
+
+    private final double startSeconds;
+    private final double durationSeconds;
+    private final double longitude;
+    private final double latitude;
+    private final double altitude;
+    private final double heading;
+    private final double tilt;
+    private final double range;
+
+    CameraStep(double startSeconds, double durationSeconds, double longitude, double latitude, double altitude,
+        double heading, double tilt, double range) {
+      this.startSeconds = startSeconds;
+      this.durationSeconds = durationSeconds;
+      this.longitude = longitude;
+      this.latitude = latitude;
+      this.altitude = altitude;
+      this.heading = heading;
+      this.tilt = tilt;
+      this.range = range;
+    }
+
+    public double getStartSeconds() {
+      return startSeconds;
+    }
+
+    public double getDurationSeconds() {
+      return durationSeconds;
+    }
+
+    public double getLongitude() {
+      return longitude;
+    }
+
+    public double getLatitude() {
+      return latitude;
+    }
+
+    public double getAltitude() {
+      return altitude;
+    }
+
+    public double getHeading() {
+      return heading;
+    }
+
+    public double getTilt() {
+      return tilt;
+    }
+
+    /**
+     * Gets the distance from the camera to the point it looks at, for a step given as a LookAt.
+     *
+     * @return range in meters, or NaN for a step given as a Camera
+     */
+    public double getRange() {
+      return range;
+    }
+  }
+
+  private KmlTourScript(List<CameraStep> steps, double durationSeconds) {
+    this.steps = Collections.unmodifiableList(steps);
+    this.durationSeconds = durationSeconds;
+  }
+
+  /**
+   * Reads the first tour of a KMZ or KML file.
+   *
+   * @param file the KMZ or KML file
+   * @return the tour's camera steps, empty if the file has no tour
+   * @throws IOException if the file can't be read or parsed
+   */
+  public static KmlTourScript read(File file) throws IOException {
+    try {
+      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+      factory.setNamespaceAware(true);
+      factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+      Document document;
+      if (file.getName().toLowerCase(Locale.ROOT).endsWith(".kmz")) {
+        try (ZipFile zipFile = new ZipFile(file)) {
+          // the first KML file in a KMZ is its main document
+          ZipEntry mainEntry = zipFile.stream().filter(entry -> entry.getName().toLowerCase(Locale.ROOT)
+              .endsWith(".kml")).findFirst().orElseThrow(() -> new IOException("KMZ has no KML document"));
+          try (InputStream inputStream = zipFile.getInputStream(mainEntry)) {
+            document = factory.newDocumentBuilder().parse(inputStream);
+          }
+        }
+      } else {
+        document = factory.newDocumentBuilder().parse(file);
+      }
+      return parse(document);
+    } catch (ParserConfigurationException | SAXException e) {
+      throw new IOException("Couldn't parse the tour", e);
+    }
+  }
+
+  public List<CameraStep> getSteps() {
+    return steps;
+  }
+
+  public double getDurationSeconds() {
+    return durationSeconds;
+  }
+
+  /**
+   * Reads the fly-tos and waits of the first tour playlist in a document.
+   *
+   * @param document the KML document
+   * @return the tour's camera steps
+   */
+  private static KmlTourScript parse(Document document) {
+    List<CameraStep> steps = new ArrayList<>();
+    NodeList playlists = document.getElementsByTagNameNS(GX_NAMESPACE, "Playlist");
+    double time = 0;
+    if (playlists.getLength() > 0) {
+      CameraStep previous = null;
+      for (Node node = playlists.item(0).getFirstChild(); node != null; node = node.getNextSibling()) {
+        if (!(node instanceof Element)) {
+          continue;
+        }
+        Element primitive = (Element) node;
+        double duration = parseDouble(childText(primitive, "duration"), 0);
+        if ("FlyTo".equals(primitive.getLocalName())) {
+          Element view = firstChild(primitive, "Camera");
+          boolean lookAt = view == null;
+          view = lookAt ? firstChild(primitive, "LookAt") : view;
+          if (view != null) {
+            previous = new CameraStep(time, duration, parseDouble(childText(view, "longitude"), 0),
+                parseDouble(childText(view, "latitude"), 0), parseDouble(childText(view, "altitude"), 0),
+                parseDouble(childText(view, "heading"), 0), parseDouble(childText(view, "tilt"), 0),
+                lookAt ? parseDouble(childText(view, "range"), 1000) : Double.NaN);
+            steps.add(previous);
+          }
+          time += duration;
+        } else if ("Wait".equals(primitive.getLocalName())) {
+          // the camera holds still, which is a chance to warm what comes next
+          if (previous != null) {
+            steps.add(new CameraStep(time, duration, previous.longitude, previous.latitude, previous.altitude,
+                previous.heading, previous.tilt, previous.range));
+          }
+          time += duration;
+        }
+      }
+    }
+    return new KmlTourScript(steps, time);
+  }
+
+  private static Element firstChild(Element parent, String localName) {
+    for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+      if (node instanceof Element && localName.equals(node.getLocalName())) {
+        return (Element) node;
+      }
+    }
+    return null;
+  }
+
+  private static String childText(Element parent, String localName) {
+    Element child = firstChild(parent, localName);
+    return child != null ? child.getTextContent().trim() : null;
+  }
+
+  private static double parseDouble(String text, double defaultValue) {
+    try {
+      return text != null ? Double.parseDouble(text) : defaultValue;
+    } catch (NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+}
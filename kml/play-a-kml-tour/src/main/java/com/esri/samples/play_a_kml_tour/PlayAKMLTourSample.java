@@ -21,15 +21,22 @@ import java.io.IOException;
 import java.util.List;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.Label;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
+import javafx.scene.layout.Region;
 import javafx.scene.layout.StackPane;
 import javafx.scene.layout.VBox;
+import javafx.scene.paint.Paint;
 import javafx.stage.Stage;
 
 import com.esri.arcgisruntime.layers.KmlLayer;
@@ -38,6 +45,7 @@ import com.esri.arcgisruntime.mapping.ArcGISScene;
 import com.esri.arcgisruntime.mapping.ArcGISTiledElevationSource;
 import com.esri.arcgisruntime.mapping.Basemap;
 import com.esri.arcgisruntime.mapping.Surface;
+import com.esri.arcgisruntime.mapping.view.DrawStatus;
 import com.esri.arcgisruntime.mapping.view.SceneView;
 import com.esri.arcgisruntime.ogc.kml.KmlContainer;
 import com.esri.arcgisruntime.ogc.kml.KmlDataset;
@@ -50,6 +58,9 @@ public class PlayAKMLTourSample extends Application {
 
   private KmlTourController kmlTourController;
   private SceneView sceneView;
+  private volatile TourPrefetcher tourPrefetcher;
+  private final DrawTimeRecorder drawTimeRecorder = new DrawTimeRecorder();
+  private boolean tourWarmed;
 
   @Override
   public void start(Stage stage) throws IOException {
@@ -75,6 +86,15 @@ public class PlayAKMLTourSample extends Application {
       surface.getElevationSources().add(new ArcGISTiledElevationSource("https://elevation3d.arcgis.com/arcgis/rest/services/WorldElevation3D/Terrain3D/ImageServer"));
       scene.setBaseSurface(surface);
 
+      // show the draw times of the tour and what has been prefetched for it
+      boolean prefetch = !"false".equals(System.getProperty("tour.prefetch"));
+      Label statisticsLabel = new Label(prefetch ? "The tour is prefetched when it's played" : "Prefetching off");
+      statisticsLabel.setStyle("-fx-text-fill: white;");
+      statisticsLabel.setPadding(new Insets(10));
+      statisticsLabel.setBackground(new Background(new BackgroundFill(Paint.valueOf("rgba(0,0,0,0.3)"),
+          CornerRadii.EMPTY, Insets.EMPTY)));
+      statisticsLabel.setMaxSize(Region.USE_PREF_SIZE, Region.USE_PREF_SIZE);
+
       // create play/pause button
       final ImageView playIcon = new ImageView(new Image(PlayAKMLTourSample.class.getResourceAsStream(
           "/play.png")));
@@ -85,9 +105,13 @@ public class PlayAKMLTourSample extends Application {
       playPauseButton.setGraphic(playIcon);
       playPauseButton.setDisable(true);
 
+      Button replayButton = new Button();
+
       playPauseButton.setOnAction(e -> {
         if (kmlTourController.getTour().getTourStatus() == KmlTourStatus.PLAYING) {
           kmlTourController.pause();
+        } else if (tourPrefetcher != null && !tourWarmed) {
+          warmAndPlay(playPauseButton, replayButton, statisticsLabel);
         } else {
           kmlTourController.play();
         }
@@ -97,12 +121,14 @@ public class PlayAKMLTourSample extends Application {
       final ImageView replayIcon = new ImageView(new Image(PlayAKMLTourSample.class.getResourceAsStream(
           "/replay.png")));
 
-      Button replayButton = new Button();
       replayButton.setGraphic(replayIcon);
       replayButton.setDisable(true);
 
       replayButton.setOnAction(e -> {
         kmlTourController.reset();
+        // warm the tour again when it's next played, in case the runtime has evicted some of its data
+        tourWarmed = false;
+        drawTimeRecorder.reset();
         playPauseButton.setGraphic(playIcon);
         playPauseButton.setDisable(false);
       });
@@ -111,8 +137,13 @@ public class PlayAKMLTourSample extends Application {
       controlsVBox.setMaxSize(50, 100);
       controlsVBox.getChildren().addAll(playPauseButton, replayButton);
 
+      // time each draw while the tour plays, so data arriving after the camera shows up as a long draw
+      sceneView.addDrawStatusChangedListener(drawStatusChangedEvent ->
+          drawTimeRecorder.drawStatusChanged(drawStatusChangedEvent.getDrawStatus() == DrawStatus.IN_PROGRESS));
+
       // add a KML layer from a KML dataset with a KML tour
-      KmlDataset kmlDataset = new KmlDataset(new File(System.getProperty("data.dir"), "./samples-data/kml/Esri_tour.kmz").getAbsolutePath());
+      File kmzFile = new File(System.getProperty("data.dir"), "./samples-data/kml/Esri_tour.kmz");
+      KmlDataset kmlDataset = new KmlDataset(kmzFile.getAbsolutePath());
       KmlLayer kmlLayer = new KmlLayer(kmlDataset);
       scene.getOperationalLayers().add(kmlLayer);
 
@@ -138,16 +169,33 @@ public class PlayAKMLTourSample extends Application {
                   break;
                 case PAUSED:
                   playPauseButton.setGraphic(playIcon);
+                  pausePlayback(statisticsLabel, prefetch);
                   break;
                 case PLAYING:
                   playPauseButton.setGraphic(pauseIcon);
+                  drawTimeRecorder.resume();
                   break;
                 case COMPLETED:
                   playPauseButton.setDisable(true);
+                  pausePlayback(statisticsLabel, prefetch);
                   break;
               }
             });
 
+            // read the tour's camera moves, so the view can be flown through them to warm their data before playing
+            if (prefetch) {
+              Thread prefetchThread = new Thread(() -> {
+                try {
+                  KmlTourScript script = KmlTourScript.read(kmzFile);
+                  tourPrefetcher = new TourPrefetcher(script, sceneView);
+                } catch (IOException e) {
+                  Platform.runLater(() -> statisticsLabel.setText("Couldn't read the tour to prefetch it"));
+                }
+              });
+              prefetchThread.setDaemon(true);
+              prefetchThread.start();
+            }
+
             // set the tour to the tour controller
             kmlTourController = new KmlTourController();
             kmlTourController.setTour(kmlTour);
@@ -159,15 +207,60 @@ public class PlayAKMLTourSample extends Application {
         }
       });
 
-      stackPane.getChildren().addAll(sceneView, controlsVBox);
+      stackPane.getChildren().addAll(sceneView, controlsVBox, statisticsLabel);
       StackPane.setMargin(controlsVBox, new Insets(10));
       StackPane.setAlignment(controlsVBox, Pos.TOP_LEFT);
+      StackPane.setMargin(statisticsLabel, new Insets(10, 10, 30, 10));
+      StackPane.setAlignment(statisticsLabel, Pos.BOTTOM_LEFT);
     } catch (Exception ex) {
       // on any exception, print the stack trace
       ex.printStackTrace();
     }
   }
 
+  /**
+   * Flies the view through the tour's cameras until each is drawn, so the runtime has loaded the tour's data, then
+   * plays the tour.
+   *
+   * @param playPauseButton the play/pause button, disabled while warming
+   * @param replayButton the replay button, disabled while warming
+   * @param statisticsLabel label to show the progress in
+   */
+  private void warmAndPlay(Button playPauseButton, Button replayButton, Label statisticsLabel) {
+    playPauseButton.setDisable(true);
+    replayButton.setDisable(true);
+    TourPrefetcher prefetcher = tourPrefetcher;
+    Thread warmThread = new Thread(() -> {
+      try {
+        prefetcher.warm((warmed, total) -> Platform.runLater(() -> statisticsLabel.setText(String.format(
+            "Prefetching the tour: %d of %d cameras drawn", warmed, total))));
+      } catch (InterruptedException e) {
+        return;
+      }
+      Platform.runLater(() -> {
+        tourWarmed = true;
+        statisticsLabel.setText("Prefetched the tour: " + prefetcher.getStatistics());
+        playPauseButton.setDisable(false);
+        replayButton.setDisable(false);
+        kmlTourController.play();
+      });
+    });
+    warmThread.setDaemon(true);
+    warmThread.start();
+  }
+
+  /**
+   * Stops the draw timing, and shows the draw times so far.
+   *
+   * @param statisticsLabel label to show the statistics in
+   * @param prefetch whether the tour is being prefetched
+   */
+  private void pausePlayback(Label statisticsLabel, boolean prefetch) {
+    drawTimeRecorder.pause();
+    statisticsLabel.setText(String.format("Draw times: %s%nPrefetching %s", drawTimeRecorder.getStatistics(),
+        prefetch && tourPrefetcher != null ? tourPrefetcher.getStatistics() : "off"));
+  }
+
   /**
    * Recursively searches for the first KML tour in a list of KML nodes.
    *
@@ -190,6 +283,9 @@ public class PlayAKMLTourSample extends Application {
   @Override
   public void stop() {
 
+    if (tourPrefetcher != null) {
+      tourPrefetcher.stop();
+    }
     if (sceneView != null) {
       sceneView.dispose();
     }
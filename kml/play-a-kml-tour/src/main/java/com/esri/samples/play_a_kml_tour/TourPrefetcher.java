@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.play_a_kml_tour;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+import javafx.application.Platform;
+
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
+import com.esri.arcgisruntime.mapping.view.Camera;
+import com.esri.arcgisruntime.mapping.view.DrawStatus;
+import com.esri.arcgisruntime.mapping.view.DrawStatusChangedListener;
+import com.esri.arcgisruntime.mapping.view.SceneView;
+
+/**
+ * Warms the data a KML tour shows by flying the scene view through the tour's camera steps before it plays. Each
+ * camera is set on the view and held until the view has finished drawing it, so the runtime itself loads and caches
+ * the imagery and elevation the tour will draw, at the detail it will draw them. Fly-tos are also warmed at their
+ * midpoint, which the camera passes through on the way. The pre-pass ends at the tour's first camera.
+ * <p>
+ * Warm again before each playback, such as after a replay: cameras whose data is still cached draw straight away,
+ * and anything the runtime has evicted since is loaded again.
+ */
+public class TourPrefetcher {
+
+  private static final long START_TIMEOUT_MILLIS = 1000;
+  private static final long DRAW_TIMEOUT_MILLIS = 15000;
+
+  private final SceneView sceneView;
+  private final List<Camera> cameras = new ArrayList<>();
+  private volatile int warmedCameras;
+  private volatile int timedOutCameras;
+  private volatile long warmNanos;
+  private volatile int passCount;
+
+  /**
+   * Creates a prefetcher. Call {@link #warm(BiConsumer)} to warm the tour.
+   *
+   * @param script the tour's camera steps
+   * @param sceneView the view the tour plays in
+   */
+  public TourPrefetcher(KmlTourScript script, SceneView sceneView) {
+    this.sceneView = sceneView;
+    KmlTourScript.CameraStep previous = null;
+    for (KmlTourScript.CameraStep step : script.getSteps()) {
+      if (previous != null && (previous.getLongitude() != step.getLongitude()
+          || previous.getLatitude() != step.getLatitude())) {
+        cameras.add(camera((previous.getLongitude() + step.getLongitude()) / 2,
+            (previous.getLatitude() + step.getLatitude()) / 2, (previous.getAltitude() + step.getAltitude()) / 2,
+            step.getHeading(), (previous.getTilt() + step.getTilt()) / 2,
+            (previous.getRange() + step.getRange()) / 2));
+      }
+      cameras.add(camera(step.getLongitude(), step.getLatitude(), step.getAltitude(), step.getHeading(),
+          step.getTilt(), step.getRange()));
+      previous = step;
+    }
+  }
+
+  /**
+   * Flies the view through the tour's cameras, holding each until the view has drawn it, and returns to the first.
+   * Blocks until done, so call it from a background thread, and don't change the view meanwhile.
+   *
+   * @param progressListener receives the number of cameras warmed so far and the number in the tour
+   * @throws InterruptedException if the thread is interrupted while waiting for a draw
+   */
+  public void warm(BiConsumer<Integer, Integer> progressListener) throws InterruptedException {
+    long start = System.nanoTime();
+    warmedCameras = 0;
+    timedOutCameras = 0;
+    try {
+      for (Camera camera : cameras) {
+        if (!drawAt(camera)) {
+          timedOutCameras++;
+        }
+        warmedCameras++;
+        progressListener.accept(warmedCameras, cameras.size());
+      }
+    } finally {
+      if (!cameras.isEmpty()) {
+        Camera first = cameras.get(0);
+        Platform.runLater(() -> sceneView.setViewpointCamera(first));
+      }
+      warmNanos = System.nanoTime() - start;
+      passCount++;
+    }
+  }
+
+  /**
+   * Summarizes the last pre-pass.
+   *
+   * @return human readable statistics
+   */
+  public String getStatistics() {
+    return String.format("pass %d warmed %d of %d cameras in %.1f s, %d not drawn in time", passCount, warmedCameras,
+        cameras.size(), warmNanos / 1e9, timedOutCameras);
+  }
+
+  /**
+   * Sets a camera on the view and waits until it's drawn.
+   *
+   * @param camera the camera
+   * @return false if the draw didn't complete in time
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  private boolean drawAt(Camera camera) throws InterruptedException {
+    CompletableFuture<Void> started = new CompletableFuture<>();
+    CompletableFuture<Void> completed = new CompletableFuture<>();
+    DrawStatusChangedListener listener = drawStatusChangedEvent -> {
+      if (drawStatusChangedEvent.getDrawStatus() == DrawStatus.IN_PROGRESS) {
+        started.complete(null);
+      } else if (started.isDone()) {
+        completed.complete(null);
+      }
+    };
+    Platform.runLater(() -> {
+      sceneView.addDrawStatusChangedListener(listener);
+      sceneView.setViewpointCamera(camera);
+    });
+    try {
+      started.get(START_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+      completed.get(DRAW_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+      return true;
+    } catch (TimeoutException e) {
+      // a camera which caused no draw was already drawn
+      return !started.isDone();
+    } catch (ExecutionException e) {
+      return false;
+    } finally {
+      Platform.runLater(() -> sceneView.removeDrawStatusChangedListener(listener));
+    }
+  }
+
+  /**
+   * Creates the camera of a tour step.
+   *
+   * @param longitude camera (or LookAt target) longitude
+   * @param latitude camera (or LookAt target) latitude
+   * @param altitude camera (or LookAt target) altitude in meters
+   * @param heading camera heading in degrees
+   * @param tilt camera tilt in degrees from looking straight down
+   * @param range distance from the camera to a LookAt target in meters, or NaN for a camera
+   * @return the camera
+   */
+  private static Camera camera(double longitude, double latitude, double altitude, double heading, double tilt,
+      double range) {
+    if (Double.isNaN(range)) {
+      return new Camera(latitude, longitude, altitude, heading, tilt, 0);
+    }
+    return new Camera(new Point(longitude, latitude, altitude, SpatialReferences.getWgs84()), range, heading, tilt, 0);
+  }
+}
@@ -17,13 +17,21 @@
 package com.esri.samples.blend_renderer;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+import javafx.application.Platform;
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
 import javafx.fxml.FXML;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Slider;
 
 import com.esri.arcgisruntime.layers.RasterLayer;
+import com.esri.arcgisruntime.loadable.LoadStatus;
 import com.esri.arcgisruntime.mapping.ArcGISMap;
 import com.esri.arcgisruntime.mapping.Basemap;
 import com.esri.arcgisruntime.mapping.view.MapView;
@@ -43,6 +51,9 @@ public class BlendRendererController {
   private String imageryRasterPath;
   private String elevationRasterPath;
 
+  private static final double[] BENCHMARK_AZIMUTHS = {0, 315};
+  private static final double[] BENCHMARK_ALTITUDES = {15, 45};
+
   public void initialize() {
 
     // create rasters
@@ -102,6 +113,68 @@ public class BlendRendererController {
     rasterLayer.setRasterRenderer(blendRenderer);
   }
 
+  /**
+   * Measures the draw time of renderer configurations through a fixed zoom and pan sequence, and writes the results
+   * to the benchmark-results directory, then exits. Each slope type, color ramp, azimuth and altitude is measured in
+   * turn, with the other parameters left at no slope type, no color ramp and the first azimuth and altitude. Every
+   * combination of them is measured instead with -Dbenchmark.sweep=full, which takes hours.
+   */
+  void runBenchmark() {
+
+    // the basemap layer is replaced with every renderer, so take the extent from a layer of its own
+    RasterLayer extentLayer = new RasterLayer(new Raster(imageryRasterPath));
+    extentLayer.addDoneLoadingListener(() -> Platform.runLater(() -> {
+      if (extentLayer.getLoadStatus() != LoadStatus.LOADED) {
+        extentLayer.getLoadError().printStackTrace();
+        Platform.exit();
+        return;
+      }
+
+      // apply each configuration through the controls, so the benchmark measures the sample's own renderer updates
+      boolean fullSweep = "full".equals(System.getProperty("benchmark.sweep"));
+      List<RendererBenchmark.Configuration> configurations = new ArrayList<>();
+      for (SlopeType slopeType : SlopeType.values()) {
+        for (ColorRamp.PresetType colorRampType : ColorRamp.PresetType.values()) {
+          for (double azimuth : BENCHMARK_AZIMUTHS) {
+            for (double altitude : BENCHMARK_ALTITUDES) {
+              int changed = (slopeType != SlopeType.NONE ? 1 : 0)
+                  + (colorRampType != ColorRamp.PresetType.NONE ? 1 : 0)
+                  + (azimuth != BENCHMARK_AZIMUTHS[0] ? 1 : 0) + (altitude != BENCHMARK_ALTITUDES[0] ? 1 : 0);
+              if (!fullSweep && changed > 1) {
+                continue;
+              }
+              Map<String, String> parameters = new LinkedHashMap<>();
+              parameters.put("slope_type", slopeType.name());
+              parameters.put("color_ramp", colorRampType.name());
+              parameters.put("azimuth", String.valueOf(azimuth));
+              parameters.put("altitude", String.valueOf(altitude));
+              String name = String.format("%s-%s-az%.0f-alt%.0f", slopeType, colorRampType, azimuth, altitude);
+              configurations.add(new RendererBenchmark.Configuration(name, parameters, () -> {
+                // set the controls without their handlers, so the renderer is only applied once
+                EventHandler<ActionEvent> slopeTypeHandler = slopeTypeComboBox.getOnAction();
+                EventHandler<ActionEvent> colorRampHandler = colorRampComboBox.getOnAction();
+                slopeTypeComboBox.setOnAction(null);
+                colorRampComboBox.setOnAction(null);
+                azimuthSlider.setValue(azimuth);
+                altitudeSlider.setValue(altitude);
+                slopeTypeComboBox.getSelectionModel().select(slopeType);
+                colorRampComboBox.getSelectionModel().select(colorRampType);
+                slopeTypeComboBox.setOnAction(slopeTypeHandler);
+                colorRampComboBox.setOnAction(colorRampHandler);
+                updateRenderer();
+              }));
+            }
+          }
+        }
+      }
+
+      RendererBenchmark benchmark = new RendererBenchmark(mapView, extentLayer.getFullExtent(), 3, 3, 60000);
+      BenchmarkRunner.run(outputDirectory -> benchmark.run(configurations, outputDirectory, "blend-renderer",
+          System.out::println));
+    }));
+    extentLayer.loadAsync();
+  }
+
   /**
    * Stops and releases all resources used in application.
    */
@@ -42,6 +42,11 @@ public class BlendRendererSample extends Application {
     stage.setHeight(700);
     stage.setScene(scene);
     stage.show();
+
+    // run the renderer benchmark unattended and exit, with --benchmark or -Dbenchmark=true
+    if (getParameters().getRaw().contains("--benchmark") || Boolean.getBoolean("benchmark")) {
+      controller.runBenchmark();
+    }
   }
 
   /**
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.hillshade_renderer;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import javafx.application.Platform;
+
+import com.esri.arcgisruntime.mapping.view.DrawStatus;
+import com.esri.arcgisruntime.mapping.view.DrawStatusChangedEvent;
+import com.esri.arcgisruntime.mapping.view.DrawStatusChangedListener;
+import com.esri.arcgisruntime.mapping.view.GeoView;
+
+/**
+ * Runs a sample's benchmark unattended: the benchmark runs on a background thread and writes its results to the
+ * benchmark-results directory, then the runner prints where they were written and exits the application, whether or
+ * not the benchmark succeeded.
+ */
+public class BenchmarkRunner {
+
+  private static final Path OUTPUT_DIRECTORY = Paths.get("benchmark-results");
+
+  private BenchmarkRunner() {
+  }
+
+  /**
+   * A benchmark which writes its results to a directory.
+   */
+  public interface Benchmark {
+
+    /**
+     * Runs the benchmark. Called on a background thread.
+     *
+     * @param outputDirectory directory to write the results to
+     * @return the results file
+     * @throws Exception if the benchmark fails
+     */
+    Path run(Path outputDirectory) throws Exception;
+  }
+
+  /**
+   * Runs a benchmark once a view has first finished drawing, so that it doesn't measure the view starting up. Call
+   * it on the JavaFX application thread.
+   *
+   * @param view the view
+   * @param benchmark the benchmark
+   */
+  public static void runWhenDrawn(GeoView view, Benchmark benchmark) {
+    view.addDrawStatusChangedListener(new DrawStatusChangedListener() {
+      @Override
+      public void drawStatusChanged(DrawStatusChangedEvent drawStatusChangedEvent) {
+        if (drawStatusChangedEvent.getDrawStatus() == DrawStatus.COMPLETED) {
+          view.removeDrawStatusChangedListener(this);
+          run(benchmark);
+        }
+      }
+    });
+  }
+
+  /**
+   * Runs a benchmark straight away.
+   *
+   * @param benchmark the benchmark
+   */
+  public static void run(Benchmark benchmark) {
+    Thread benchmarkThread = new Thread(() -> {
+      try {
+        Path results = benchmark.run(OUTPUT_DIRECTORY);
+        System.out.println("Wrote benchmark results to " + results.toAbsolutePath());
+      } catch (Exception e) {
+        e.printStackTrace();
+      } finally {
+        Platform.runLater(Platform::exit);
+      }
+    });
+    benchmarkThread.setDaemon(true);
+    benchmarkThread.start();
+  }
+}
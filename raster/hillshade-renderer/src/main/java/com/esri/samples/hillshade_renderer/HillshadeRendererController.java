@@ -17,12 +17,20 @@
 package com.esri.samples.hillshade_renderer;
 
 import java.io.File;
-
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javafx.application.Platform;
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
 import javafx.fxml.FXML;
 import javafx.scene.control.ComboBox;
 import javafx.scene.control.Slider;
 
 import com.esri.arcgisruntime.layers.RasterLayer;
+import com.esri.arcgisruntime.loadable.LoadStatus;
 import com.esri.arcgisruntime.mapping.ArcGISMap;
 import com.esri.arcgisruntime.mapping.Basemap;
 import com.esri.arcgisruntime.mapping.view.MapView;
@@ -39,6 +47,9 @@ public class HillshadeRendererController {
 
   private RasterLayer rasterLayer;
 
+  private static final double[] BENCHMARK_AZIMUTHS = {0, 90, 180, 315};
+  private static final double[] BENCHMARK_ALTITUDES = {15, 30, 45};
+
   public void initialize() {
 
     // create raster
@@ -85,6 +96,49 @@ public class HillshadeRendererController {
     rasterLayer.setRasterRenderer(hillshadeRenderer);
   }
 
+  /**
+   * Measures the draw time of every combination of slope type, azimuth and altitude through a fixed zoom and pan
+   * sequence, and writes the results to the benchmark-results directory, then exits.
+   */
+  void runBenchmark() {
+
+    rasterLayer.addDoneLoadingListener(() -> Platform.runLater(() -> {
+      if (rasterLayer.getLoadStatus() != LoadStatus.LOADED) {
+        rasterLayer.getLoadError().printStackTrace();
+        Platform.exit();
+        return;
+      }
+
+      // apply each configuration through the controls, so the benchmark measures the sample's own renderer updates
+      List<RendererBenchmark.Configuration> configurations = new ArrayList<>();
+      for (SlopeType slopeType : SlopeType.values()) {
+        for (double azimuth : BENCHMARK_AZIMUTHS) {
+          for (double altitude : BENCHMARK_ALTITUDES) {
+            Map<String, String> parameters = new LinkedHashMap<>();
+            parameters.put("slope_type", slopeType.name());
+            parameters.put("azimuth", String.valueOf(azimuth));
+            parameters.put("altitude", String.valueOf(altitude));
+            String name = String.format("%s-az%.0f-alt%.0f", slopeType, azimuth, altitude);
+            configurations.add(new RendererBenchmark.Configuration(name, parameters, () -> {
+              // set the controls without their handlers, so the renderer is only applied once
+              EventHandler<ActionEvent> slopeTypeHandler = slopeTypeComboBox.getOnAction();
+              slopeTypeComboBox.setOnAction(null);
+              azimuthSlider.setValue(azimuth);
+              altitudeSlider.setValue(altitude);
+              slopeTypeComboBox.getSelectionModel().select(slopeType);
+              slopeTypeComboBox.setOnAction(slopeTypeHandler);
+              updateRenderer();
+            }));
+          }
+        }
+      }
+
+      RendererBenchmark benchmark = new RendererBenchmark(mapView, rasterLayer.getFullExtent(), 3, 3, 60000);
+      BenchmarkRunner.run(outputDirectory -> benchmark.run(configurations, outputDirectory, "hillshade-renderer",
+          System.out::println));
+    }));
+  }
+
   /**
    * Stops and releases all resources used in application.
    */
@@ -0,0 +1,391 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.hillshade_renderer;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+
+import com.esri.arcgisruntime.geometry.Envelope;
+import com.esri.arcgisruntime.mapping.Viewpoint;
+import com.esri.arcgisruntime.mapping.view.DrawStatus;
+import com.esri.arcgisruntime.mapping.view.DrawStatusChangedListener;
+import com.esri.arcgisruntime.mapping.view.MapView;
+
+/**
+ * Measures how long a map view takes to draw with each of a set of renderer configurations. Each configuration is
+ * applied, then the view is driven through a fixed sequence of zooms and pans, and the time from each change until
+ * the view's draw status is next {@link DrawStatus#COMPLETED} is recorded. The results are written as CSV and JSON
+ * files named after the sample and the ArcGIS Runtime version, so runs can be compared across versions.
+ * <p>
+ * The benchmark needs no interaction, so it can run unattended, for example on a virtual display.
+ */
+public class RendererBenchmark {
+
+  private static final long START_TIMEOUT_MILLIS = 1000;
+  // recorded for a change which caused no draw, or whose draw didn't complete in time; left out of the medians
+  private static final double NO_DRAW = 0;
+  private static final double TIMED_OUT = -1;
+
+  private final MapView mapView;
+  private final List<String> stepNames = new ArrayList<>();
+  private final List<Viewpoint> viewpoints = new ArrayList<>();
+  private final int repeats;
+  private final long drawTimeoutMillis;
+
+  /**
+   * A renderer configuration to measure.
+   */
+  public static class Configuration {
+
+    private final String name;
+    private final Map<String, String> parameters;
+    private final Runnable apply;
+
+    /**
+     * Creates a configuration.
+     *
+     * @param name unique name of the configuration
+     * @param parameters parameter values, in the same order for every configuration
+     * @param apply applies the configuration to the view's layers, called on the JavaFX application thread
+     */
+    public Configuration(String name, Map<String, String> parameters, Runnable apply) {
+      this.name = name;
+      this.parameters = parameters;
+      this.apply = apply;
+    }
+  }
+
+  /**
+   * Creates a benchmark driving a view around an extent: the whole extent, then zoomed in by a factor of 2 at each
+   * step around its center, then panned a screen's width in each direction at the closest zoom.
+   *
+   * @param mapView the map view to draw
+   * @param extent extent of the data being rendered
+   * @param zoomSteps number of zoom steps
+   * @param repeats number of times the sequence is measured for each configuration, at least 1
+   * @param drawTimeoutMillis longest time to wait for a draw to complete
+   * @throws IllegalArgumentException if repeats is less than 1
+   */
+  public RendererBenchmark(MapView mapView, Envelope extent, int zoomSteps, int repeats, long drawTimeoutMillis) {
+    if (repeats < 1) {
+      throw new IllegalArgumentException("The sequence must be measured at least once");
+    }
+    this.mapView = mapView;
+    this.repeats = repeats;
+    this.drawTimeoutMillis = drawTimeoutMillis;
+
+    double centerX = extent.getCenter().getX();
+    double centerY = extent.getCenter().getY();
+    double width = extent.getWidth();
+    double height = extent.getHeight();
+    for (int zoom = 0; zoom <= zoomSteps; zoom++) {
+      double factor = Math.pow(2, zoom);
+      addStep(zoom == 0 ? "extent" : "zoom " + zoom, centerX, centerY, width / factor, height / factor, extent);
+    }
+    double closestWidth = width / Math.pow(2, zoomSteps);
+    double closestHeight = height / Math.pow(2, zoomSteps);
+    addStep("pan east", centerX + closestWidth, centerY, closestWidth, closestHeight, extent);
+    addStep("pan north", centerX + closestWidth, centerY + closestHeight, closestWidth, closestHeight, extent);
+    addStep("pan west", centerX, centerY + closestHeight, closestWidth, closestHeight, extent);
+    addStep("pan south", centerX, centerY, closestWidth, closestHeight, extent);
+  }
+
+  /**
+   * Measures every configuration and writes the results. Blocks until done, so call it from a background thread.
+   *
+   * @param configurations configurations to measure
+   * @param outputDirectory directory for the CSV and JSON files
+   * @param sampleName name of the sample, used in the file names
+   * @param progressListener receives a message as each configuration is measured
+   * @return the CSV file; the JSON file has the same name with a .json extension
+   * @throws IOException if the results can't be written
+   * @throws InterruptedException if the thread is interrupted while waiting for a draw
+   */
+  public Path run(List<Configuration> configurations, Path outputDirectory, String sampleName,
+      Consumer<String> progressListener) throws IOException, InterruptedException {
+
+    // draw the whole sequence once first, so the measurements don't include loading the data
+    progressListener.accept("Warming up");
+    measure(configurations.get(0).apply);
+    for (Viewpoint viewpoint : viewpoints) {
+      measure(() -> mapView.setViewpoint(viewpoint));
+    }
+
+    Map<Configuration, List<double[]>> results = new LinkedHashMap<>();
+    for (int i = 0; i < configurations.size(); i++) {
+      Configuration configuration = configurations.get(i);
+      progressListener.accept(String.format("Measuring %s (%d of %d)", configuration.name, i + 1,
+          configurations.size()));
+
+      // the first step is the draw caused by applying the configuration at the whole extent
+      measure(() -> mapView.setViewpoint(viewpoints.get(0)));
+      List<double[]> stepTimes = new ArrayList<>();
+      stepTimes.add(new double[] {measure(configuration.apply)});
+
+      for (int step = 0; step < viewpoints.size(); step++) {
+        stepTimes.add(new double[repeats]);
+      }
+      for (int repeat = 0; repeat < repeats; repeat++) {
+        for (int step = 0; step < viewpoints.size(); step++) {
+          Viewpoint viewpoint = viewpoints.get(step);
+          stepTimes.get(step + 1)[repeat] = measure(() -> mapView.setViewpoint(viewpoint));
+        }
+      }
+      results.put(configuration, stepTimes);
+    }
+
+    // the view's size can only be read on the JavaFX application thread
+    double[] viewSize;
+    try {
+      viewSize = CompletableFuture.supplyAsync(() -> new double[] {mapView.getWidth(), mapView.getHeight()},
+          Platform::runLater).get(START_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    } catch (ExecutionException | TimeoutException e) {
+      viewSize = new double[] {0, 0};
+    }
+
+    Files.createDirectories(outputDirectory);
+    String version = MapView.class.getPackage().getImplementationVersion();
+    String baseName = String.format("%s-%s-%s", sampleName, version != null ? version : "unknown",
+        new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()));
+    Path csvFile = outputDirectory.resolve(baseName + ".csv");
+    writeCsv(csvFile, configurations, results);
+    writeJson(outputDirectory.resolve(baseName + ".json"), sampleName, version, viewSize, results);
+    return csvFile;
+  }
+
+  /**
+   * Adds a step to the zoom and pan sequence.
+   *
+   * @param name step name
+   * @param centerX x coordinate of the view's center
+   * @param centerY y coordinate of the view's center
+   * @param width width of the view
+   * @param height height of the view
+   * @param extent extent of the data, for its spatial reference
+   */
+  private void addStep(String name, double centerX, double centerY, double width, double height, Envelope extent) {
+    stepNames.add(name);
+    viewpoints.add(new Viewpoint(new Envelope(centerX - width / 2, centerY - height / 2, centerX + width / 2,
+        centerY + height / 2, extent.getSpatialReference())));
+  }
+
+  /**
+   * Makes a change to the view and measures the time until it's drawn. A draw already in progress is let finish
+   * first, so its completion isn't taken for the change's draw.
+   *
+   * @param change change to make on the JavaFX application thread
+   * @return milliseconds until the draw completed, {@link #NO_DRAW} if the change caused no draw, or
+   *     {@link #TIMED_OUT} if the draw didn't complete in time
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  private double measure(Runnable change) throws InterruptedException {
+    waitForDraw();
+
+    CompletableFuture<Void> started = new CompletableFuture<>();
+    CompletableFuture<Long> completed = new CompletableFuture<>();
+    AtomicLong startTime = new AtomicLong();
+    DrawStatusChangedListener listener = drawStatusChangedEvent -> {
+      if (drawStatusChangedEvent.getDrawStatus() == DrawStatus.IN_PROGRESS) {
+        started.complete(null);
+      } else if (started.isDone()) {
+        completed.complete(System.nanoTime());
+      }
+    };
+
+    Platform.runLater(() -> {
+      mapView.addDrawStatusChangedListener(listener);
+      startTime.set(System.nanoTime());
+      change.run();
+    });
+    try {
+      started.get(START_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+      return (completed.get(drawTimeoutMillis, TimeUnit.MILLISECONDS) - startTime.get()) / 1e6;
+    } catch (TimeoutException e) {
+      return started.isDone() ? TIMED_OUT : NO_DRAW;
+    } catch (ExecutionException e) {
+      return TIMED_OUT;
+    } finally {
+      Platform.runLater(() -> mapView.removeDrawStatusChangedListener(listener));
+    }
+  }
+
+  /**
+   * Waits until the view has no draw in progress, or for the draw timeout.
+   *
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  private void waitForDraw() throws InterruptedException {
+    CompletableFuture<Void> drawn = new CompletableFuture<>();
+    DrawStatusChangedListener listener = drawStatusChangedEvent -> {
+      if (drawStatusChangedEvent.getDrawStatus() == DrawStatus.COMPLETED) {
+        drawn.complete(null);
+      }
+    };
+    Platform.runLater(() -> {
+      mapView.addDrawStatusChangedListener(listener);
+      if (mapView.getDrawStatus() != DrawStatus.IN_PROGRESS) {
+        drawn.complete(null);
+      }
+    });
+    try {
+      drawn.get(drawTimeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (ExecutionException | TimeoutException e) {
+      // measure the change anyway; a draw still in progress shows up as a timeout
+    } finally {
+      Platform.runLater(() -> mapView.removeDrawStatusChangedListener(listener));
+    }
+  }
+
+  /**
+   * Writes a row for each configuration, step and repeat.
+   *
+   * @param file CSV file
+   * @param configurations the configurations, for the parameter columns
+   * @param results draw times of each step and repeat by configuration, with the apply step measured once
+   * @throws IOException if the file can't be written
+   */
+  private void writeCsv(Path file, List<Configuration> configurations, Map<Configuration, List<double[]>> results)
+      throws IOException {
+    try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+      writer.println("configuration," + String.join(",", configurations.get(0).parameters.keySet())
+          + ",step,repeat,status,draw_ms");
+      results.forEach((configuration, stepTimes) -> {
+        String prefix = configuration.name + "," + String.join(",", configuration.parameters.values());
+        for (int step = 0; step < stepTimes.size(); step++) {
+          String stepName = step == 0 ? "apply" : stepNames.get(step - 1);
+          for (int repeat = 0; repeat < stepTimes.get(step).length; repeat++) {
+            double time = stepTimes.get(step)[repeat];
+            if (time == NO_DRAW || time == TIMED_OUT) {
+              writer.printf(Locale.ROOT, "%s,%s,%d,%s,%n", prefix, stepName, repeat,
+                  time == NO_DRAW ? "no_draw" : "timed_out");
+            } else {
+              writer.printf(Locale.ROOT, "%s,%s,%d,drawn,%.1f%n", prefix, stepName, repeat, time);
+            }
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Writes the environment and the median draw time of each step of each configuration, over the draws which
+   * completed, with how many changes caused no draw or timed out. A step with no completed draw has a null median.
+   *
+   * @param file JSON file
+   * @param sampleName name of the sample
+   * @param version ArcGIS Runtime version, or null if unknown
+   * @param viewSize width and height of the view
+   * @param results draw times of each step and repeat by configuration
+   * @throws IOException if the file can't be written
+   */
+  private void writeJson(Path file, String sampleName, String version, double[] viewSize,
+      Map<Configuration, List<double[]>> results) throws IOException {
+    try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+      writer.println("{");
+      writer.printf(Locale.ROOT, "  \"sample\": %s,%n", json(sampleName));
+      writer.printf(Locale.ROOT, "  \"arcgisVersion\": %s,%n", json(version != null ? version : "unknown"));
+      writer.printf(Locale.ROOT, "  \"javaVersion\": %s,%n", json(System.getProperty("java.version")));
+      writer.printf(Locale.ROOT, "  \"os\": %s,%n", json(System.getProperty("os.name") + " "
+          + System.getProperty("os.arch")));
+      writer.printf(Locale.ROOT, "  \"viewSize\": [%.0f, %.0f],%n", viewSize[0], viewSize[1]);
+      writer.printf(Locale.ROOT, "  \"repeats\": %d,%n", repeats);
+      writer.println("  \"configurations\": [");
+      int index = 0;
+      for (Map.Entry<Configuration, List<double[]>> entry : results.entrySet()) {
+        Configuration configuration = entry.getKey();
+        List<double[]> stepTimes = entry.getValue();
+        writer.println("    {");
+        writer.printf(Locale.ROOT, "      \"name\": %s,%n", json(configuration.name));
+        List<String> parameters = new ArrayList<>();
+        configuration.parameters.forEach((name, value) -> parameters.add(json(name) + ": " + json(value)));
+        writer.printf(Locale.ROOT, "      \"parameters\": {%s},%n", String.join(", ", parameters));
+        List<String> steps = new ArrayList<>();
+        double total = 0;
+        int noDrawCount = 0;
+        int timedOutCount = 0;
+        for (int step = 0; step < stepTimes.size(); step++) {
+          double[] drawTimes = Arrays.stream(stepTimes.get(step)).filter(time -> time > 0).toArray();
+          for (double time : stepTimes.get(step)) {
+            noDrawCount += time == NO_DRAW ? 1 : 0;
+            timedOutCount += time == TIMED_OUT ? 1 : 0;
+          }
+          String stepName = step == 0 ? "apply" : stepNames.get(step - 1);
+          if (drawTimes.length > 0) {
+            double median = median(drawTimes);
+            total += median;
+            steps.add(String.format(Locale.ROOT, "%s: %.1f", json(stepName), median));
+          } else {
+            steps.add(json(stepName) + ": null");
+          }
+        }
+        writer.printf(Locale.ROOT, "      \"medianDrawMillis\": {%s},%n", String.join(", ", steps));
+        writer.printf(Locale.ROOT, "      \"totalMedianDrawMillis\": %.1f,%n", total);
+        writer.printf(Locale.ROOT, "      \"noDrawCount\": %d,%n", noDrawCount);
+        writer.printf(Locale.ROOT, "      \"timedOutCount\": %d%n", timedOutCount);
+        writer.println(++index < results.size() ? "    }," : "    }");
+      }
+      writer.println("  ]");
+      writer.println("}");
+    }
+  }
+
+  /**
+   * Quotes a string for JSON, escaping the characters JSON doesn't allow in a string.
+   *
+   * @param value the string
+   * @return the quoted string
+   */
+  private static String json(String value) {
+    StringBuilder quoted = new StringBuilder("\"");
+    for (char c : value.toCharArray()) {
+      if (c == '"' || c == '\\') {
+        quoted.append('\\').append(c);
+      } else if (c < 0x20) {
+        quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+      } else {
+        quoted.append(c);
+      }
+    }
+    return quoted.append('"').toString();
+  }
+
+  private static double median(double[] values) {
+    double[] sorted = values.clone();
+    Arrays.sort(sorted);
+    return sorted.length % 2 == 1 ? sorted[sorted.length / 2]
+        : (sorted[sorted.length / 2 - 1] + sorted[sorted.length / 2]) / 2;
+  }
+}
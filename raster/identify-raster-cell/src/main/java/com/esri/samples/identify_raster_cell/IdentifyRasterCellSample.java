@@ -17,18 +17,33 @@
 package com.esri.samples.identify_raster_cell;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
 import javafx.geometry.Point2D;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Label;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
 import javafx.scene.layout.StackPane;
+import javafx.scene.paint.Paint;
 import javafx.stage.Stage;
 import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.geometry.Envelope;
+import com.esri.arcgisruntime.geometry.GeometryEngine;
 import com.esri.arcgisruntime.geometry.Point;
 import com.esri.arcgisruntime.layers.RasterLayer;
 import com.esri.arcgisruntime.loadable.LoadStatus;
@@ -43,10 +58,22 @@ import com.esri.arcgisruntime.raster.RasterCell;
 
 public class IdentifyRasterCellSample extends Application {
 
+    // identify results name band values like "Band_1", numbered from 1
+    private static final Pattern BAND_ATTRIBUTE = Pattern.compile("band[_ ]?(\\d+)", Pattern.CASE_INSENSITIVE);
+
     private boolean calloutLocked = false;
     private Callout callout;
     private MapView mapView;
     private RasterLayer rasterLayer;
+    private RasterCellProbe cellProbe;
+    private Label probeLabel;
+    private Map<Integer, String> bandNames = new HashMap<>();
+    private boolean identifyInProgress = false;
+    private Point2D queuedIdentifyPoint;
+    private long queuedIdentifyHover;
+    // counts hovers, so an identify finishing after a newer hover was shown doesn't replace its callout
+    private long hoverCount;
+    private long probeHitNanos;
 
     @Override
     public void start(Stage stage) {
@@ -73,7 +100,9 @@ public class IdentifyRasterCellSample extends Application {
             mapView.setMap(map);
 
             // create a raster from a local raster file
-            Raster raster = new Raster(new File(System.getProperty("data.dir"), "./samples-data/SA_EVI_8Day_03May20/SA_EVI_8Day_03May20.tif").getAbsolutePath());
+            File rasterFile = new File(System.getProperty("data.dir"),
+                    "./samples-data/SA_EVI_8Day_03May20/SA_EVI_8Day_03May20.tif");
+            Raster raster = new Raster(rasterFile.getAbsolutePath());
 
             // create a raster layer
             rasterLayer = new RasterLayer(raster);
@@ -85,6 +114,7 @@ public class IdentifyRasterCellSample extends Application {
             rasterLayer.addDoneLoadingListener(() -> {
                 if (map.getLoadStatus() == LoadStatus.LOADED) {
                     mapView.setViewpointGeometryAsync(rasterLayer.getFullExtent(), 50);
+                    createCellProbe(rasterFile, rasterLayer.getFullExtent());
                 } else {
                     Alert alert = new Alert(Alert.AlertType.ERROR, "Raster Layer Failed to Load!");
                     alert.show();
@@ -131,8 +161,16 @@ public class IdentifyRasterCellSample extends Application {
                 }
             });
 
-            // add the map view to stack pane
-            stackPane.getChildren().addAll(mapView);
+            // show how many hovers were answered from the decoded raster blocks
+            probeLabel = new Label("Probe hits: 0 of 0");
+            probeLabel.setBackground(new Background(new BackgroundFill(Paint.valueOf("rgba(255,255,255,0.8)"),
+                    CornerRadii.EMPTY, Insets.EMPTY)));
+            probeLabel.setPadding(new Insets(5));
+
+            // add the map view and label to stack pane
+            stackPane.getChildren().addAll(mapView, probeLabel);
+            StackPane.setAlignment(probeLabel, Pos.TOP_LEFT);
+            StackPane.setMargin(probeLabel, new Insets(10, 0, 0, 10));
 
         } catch (Exception e) {
             // on any error, display the stack trace
@@ -141,15 +179,94 @@ public class IdentifyRasterCellSample extends Application {
     }
 
     /**
-     * Identifies the raster cell at the mouse event's location and displays a callout at that location.
+     * Creates a probe answering cell values from blocks of the raster file, on a background thread.
+     *
+     * @param rasterFile the raster file
+     * @param extent the raster's full extent
+     */
+    private void createCellProbe(File rasterFile, Envelope extent) {
+        Thread probeThread = new Thread(() -> {
+            try {
+                RasterCellProbe probe = new RasterCellProbe(rasterFile.toPath(), extent.getXMin(), extent.getYMin(),
+                        extent.getXMax(), extent.getYMax());
+                Platform.runLater(() -> cellProbe = probe);
+            } catch (Exception e) {
+                // keep identifying every cell through the layer
+                e.printStackTrace();
+            }
+        });
+        probeThread.setDaemon(true);
+        probeThread.start();
+    }
+
+    /**
+     * Shows the raster cell at the mouse event's location in a callout. The cell is answered from the decoded raster
+     * blocks when possible, otherwise it's identified through the raster layer.
      *
      * @param mouseEvent the mouse event used to identify the raster cell and show the callout
      */
     private void identifyRasterCell(MouseEvent mouseEvent) {
 
+        long start = System.nanoTime();
+        long hover = ++hoverCount;
+
         // get the map point where the user clicked
         Point2D point = new Point2D(mouseEvent.getX(), mouseEvent.getY());
         Point mapPoint = mapView.screenToLocation(point);
+        if (mapPoint == null) {
+            callout.dismiss();
+            return;
+        }
+
+        if (cellProbe != null) {
+            Point rasterPoint = (Point) GeometryEngine.project(mapPoint, rasterLayer.getSpatialReference());
+            if (!cellProbe.contains(rasterPoint.getX(), rasterPoint.getY())) {
+                // the mouse is off the raster, so there's no cell to show
+                callout.dismiss();
+                queuedIdentifyPoint = null;
+                return;
+            }
+            RasterCellProbe.Cell cell = cellProbe.probe(rasterPoint.getX(), rasterPoint.getY());
+            if (cell != null) {
+                StringBuilder stringBuilder = new StringBuilder();
+                double[] values = cell.getValues();
+                for (int band = 0; band < values.length; band++) {
+                    String name = bandNames.getOrDefault(band, "Band_" + (band + 1));
+                    stringBuilder.append(name).append(": ").append(formatValue(values[band])).append("\n");
+                }
+                stringBuilder.append("X: ").append(Math.round(cell.getXMin())).append(" Y: ")
+                        .append(Math.round(cell.getYMin()));
+                callout.setDetail(stringBuilder.toString());
+                callout.showCalloutAt(mapPoint);
+                // a queued identify is for an older position, so it mustn't replace this callout
+                queuedIdentifyPoint = null;
+
+                probeHitNanos += System.nanoTime() - start;
+                updateProbeLabel();
+                return;
+            }
+            updateProbeLabel();
+        }
+
+        identifyCoalesced(point, mapPoint, hover);
+    }
+
+    /**
+     * Identifies the raster cell at a screen point and displays a callout at that location. While an identify is in
+     * progress, only the latest point is kept and identified when it finishes.
+     *
+     * @param point the screen point
+     * @param mapPoint the map location of the screen point
+     * @param hover number of the hover the identify is for
+     */
+    private void identifyCoalesced(Point2D point, Point mapPoint, long hover) {
+
+        if (identifyInProgress) {
+            queuedIdentifyPoint = point;
+            queuedIdentifyHover = hover;
+            return;
+        }
+        identifyInProgress = true;
 
         // identify the layers at the clicked location
         ListenableFuture<IdentifyLayerResult> identifyLayerResultFuture
@@ -163,6 +280,14 @@ public class IdentifyRasterCellSample extends Application {
                 // get the read only list of geo-elements (they contain RasterCells)
                 List<GeoElement> geoElements = identifyLayerResult.getElements();
 
+                // a newer hover has already been shown, so this result is out of date
+                if (hover != hoverCount) {
+                    geoElements = Collections.emptyList();
+                } else if (geoElements.stream().noneMatch(RasterCell.class::isInstance)) {
+                    // the mouse is off the raster, so there's no cell to show
+                    callout.dismiss();
+                }
+
                 // create a StringBuilder to display information to the user
                 StringBuilder stringBuilder = new StringBuilder();
 
@@ -173,10 +298,18 @@ public class IdentifyRasterCellSample extends Application {
                         RasterCell rasterCell = (RasterCell) geoElement;
 
                         // loop through the attributes (key/value pairs)
-                        rasterCell.getAttributes().forEach((key, value) ->
-                                // add the key-value pair to the string builder
-                                stringBuilder.append(key).append(": ").append(value).append("\n")
-                        );
+                        Map<Integer, String> names = new HashMap<>();
+                        rasterCell.getAttributes().forEach((key, value) -> {
+                            // add the key-value pair to the string builder
+                            stringBuilder.append(key).append(": ").append(value).append("\n");
+                            // remember which band each band value attribute is for
+                            Matcher matcher = BAND_ATTRIBUTE.matcher(key);
+                            if (matcher.matches()) {
+                                names.put(Integer.parseInt(matcher.group(1)) - 1, key);
+                            }
+                        });
+                        // reuse the band names for cells answered from the decoded raster blocks
+                        bandNames = names;
 
                         // get and format the X and Y values for the cell
                         double x = rasterCell.getGeometry().getExtent().getXMin();
@@ -194,16 +327,48 @@ public class IdentifyRasterCellSample extends Application {
             } catch (InterruptedException | ExecutionException e) {
                 new Alert(Alert.AlertType.ERROR, "Error identifying layer").show();
             }
+
+            // identify the latest point the mouse moved to while this identify was in progress
+            identifyInProgress = false;
+            if (queuedIdentifyPoint != null && !calloutLocked) {
+                Point2D queuedPoint = queuedIdentifyPoint;
+                queuedIdentifyPoint = null;
+                identifyCoalesced(queuedPoint, mapView.screenToLocation(queuedPoint), queuedIdentifyHover);
+            }
         });
 
     }
 
+    /**
+     * Formats a cell value the way identify results show it: whole numbers without decimals, and others at the
+     * precision of a float.
+     *
+     * @param value the cell value
+     * @return the formatted value
+     */
+    private static String formatValue(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf((float) value);
+    }
+
+    /**
+     * Shows the probe's hit ratio and the average time to show a callout for a hit.
+     */
+    private void updateProbeLabel() {
+        long hits = cellProbe.getHits();
+        probeLabel.setText(String.format("Probe hits: %d of %d (%.1f%%), %.3f ms per hit", hits,
+                hits + cellProbe.getMisses(), cellProbe.getHitRatio() * 100,
+                hits == 0 ? 0 : probeHitNanos / 1e6 / hits));
+    }
+
     /**
      * Stops and releases all resources used in application.
      */
     @Override
     public void stop() {
 
+        if (cellProbe != null) {
+            cellProbe.close();
+        }
         if (mapView != null) {
             mapView.dispose();
         }
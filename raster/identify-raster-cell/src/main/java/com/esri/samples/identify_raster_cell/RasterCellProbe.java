@@ -0,0 +1,269 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.identify_raster_cell;
+
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Answers raster cell values from blocks of a local raster file decoded into memory. A probe in a block that hasn't
+ * been decoded yet is a miss: the block and its neighbours are decoded in the background so the following probes
+ * around the cursor are answered from memory, and the caller falls back to identifying the layer in the meantime.
+ * <p>
+ * The raster is georeferenced from its full extent, so probes must be in the raster's spatial reference.
+ */
+public class RasterCellProbe {
+
+    private static final int BLOCK_SIZE = 256;
+    private static final int MAX_BLOCKS = 64;
+
+    private final Path file;
+    private final double xMin;
+    private final double yMax;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final int width;
+    private final int height;
+
+    private final Map<Long, Raster> blocks = new LinkedHashMap<>(MAX_BLOCKS, 0.75f, true);
+    private final Set<Long> pendingBlocks = ConcurrentHashMap.newKeySet();
+    private final ExecutorService decodeExecutor;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * The values of a raster cell.
+     */
+    public static class Cell {
+
+        private final double xMin;
+        private final double yMin;
+        private final double[] values;
+
+        Cell(double xMin, double yMin, double[] values) {
+            this.xMin = xMin;
+            this.yMin = yMin;
+            this.values = values;
+        }
+
+        public double getXMin() {
+            return xMin;
+        }
+
+        public double getYMin() {
+            return yMin;
+        }
+
+        /**
+         * Gets the cell's value in each band.
+         *
+         * @return band values
+         */
+        public double[] getValues() {
+            return values;
+        }
+    }
+
+    /**
+     * Creates a probe for a raster file. This reads the raster's header, so call it off the UI thread.
+     *
+     * @param file raster file readable by ImageIO, such as a TIFF
+     * @param xMin west edge of the raster's full extent
+     * @param yMin south edge of the raster's full extent
+     * @param xMax east edge of the raster's full extent
+     * @param yMax north edge of the raster's full extent
+     * @throws IOException if the raster can't be read
+     */
+    public RasterCellProbe(Path file, double xMin, double yMin, double xMax, double yMax) throws IOException {
+        this.file = file;
+        try (ImageInputStream inputStream = ImageIO.createImageInputStream(file.toFile())) {
+            ImageReader reader = readerFor(inputStream);
+            width = reader.getWidth(0);
+            height = reader.getHeight(0);
+            reader.dispose();
+        }
+        this.xMin = xMin;
+        this.yMax = yMax;
+        cellWidth = (xMax - xMin) / width;
+        cellHeight = (yMax - yMin) / height;
+
+        decodeExecutor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "raster-block-decode");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Checks whether a location is on the raster.
+     *
+     * @param x x coordinate in the raster's spatial reference
+     * @param y y coordinate in the raster's spatial reference
+     * @return true if there is a cell at the location
+     */
+    public boolean contains(double x, double y) {
+        double col = (x - xMin) / cellWidth;
+        double row = (yMax - y) / cellHeight;
+        return col >= 0 && row >= 0 && col < width && row < height;
+    }
+
+    /**
+     * Gets the cell at a location from the decoded blocks. On a miss, the blocks around the location are decoded in
+     * the background.
+     *
+     * @param x x coordinate in the raster's spatial reference
+     * @param y y coordinate in the raster's spatial reference
+     * @return the cell, or null if it's off the raster or its block isn't decoded yet
+     */
+    public Cell probe(double x, double y) {
+        if (!contains(x, y)) {
+            return null;
+        }
+        int col = (int) ((x - xMin) / cellWidth);
+        int row = (int) ((yMax - y) / cellHeight);
+        int blockCol = col / BLOCK_SIZE;
+        int blockRow = row / BLOCK_SIZE;
+
+        Raster block;
+        synchronized (blocks) {
+            block = blocks.get(blockKey(blockCol, blockRow));
+        }
+        if (block == null) {
+            misses.incrementAndGet();
+            // decode the block under the cursor first, then the blocks around it
+            decode(blockCol, blockRow);
+            for (int dRow = -1; dRow <= 1; dRow++) {
+                for (int dCol = -1; dCol <= 1; dCol++) {
+                    decode(blockCol + dCol, blockRow + dRow);
+                }
+            }
+            return null;
+        }
+        hits.incrementAndGet();
+
+        double[] values = new double[block.getNumBands()];
+        block.getPixel(col, row, values);
+        return new Cell(xMin + col * cellWidth, yMax - (row + 1) * cellHeight, values);
+    }
+
+    /**
+     * Gets the fraction of probes answered from the decoded blocks.
+     *
+     * @return hit ratio between 0 and 1
+     */
+    public double getHitRatio() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Stops decoding blocks.
+     */
+    public void close() {
+        decodeExecutor.shutdownNow();
+    }
+
+    /**
+     * Decodes a block in the background, unless it's off the raster, already decoded, or already being decoded.
+     *
+     * @param blockCol block column
+     * @param blockRow block row
+     */
+    private void decode(int blockCol, int blockRow) {
+        if (blockCol < 0 || blockRow < 0 || blockCol * BLOCK_SIZE >= width || blockRow * BLOCK_SIZE >= height) {
+            return;
+        }
+        long key = blockKey(blockCol, blockRow);
+        synchronized (blocks) {
+            if (blocks.containsKey(key)) {
+                return;
+            }
+        }
+        if (!pendingBlocks.add(key)) {
+            return;
+        }
+        decodeExecutor.execute(() -> {
+            try (ImageInputStream inputStream = ImageIO.createImageInputStream(file.toFile())) {
+                ImageReader reader = readerFor(inputStream);
+                ImageReadParam readParam = reader.getDefaultReadParam();
+                Rectangle region = new Rectangle(blockCol * BLOCK_SIZE, blockRow * BLOCK_SIZE,
+                        Math.min(BLOCK_SIZE, width - blockCol * BLOCK_SIZE),
+                        Math.min(BLOCK_SIZE, height - blockRow * BLOCK_SIZE));
+                readParam.setSourceRegion(region);
+                // offset the block so it's addressed by the raster's own columns and rows
+                Raster block = reader.read(0, readParam).getRaster().createTranslatedChild(region.x, region.y);
+                reader.dispose();
+                synchronized (blocks) {
+                    blocks.put(key, block);
+                    Iterator<Long> eldest = blocks.keySet().iterator();
+                    while (blocks.size() > MAX_BLOCKS) {
+                        eldest.next();
+                        eldest.remove();
+                    }
+                }
+            } catch (IOException e) {
+                // the block stays undecoded, so probes in it keep falling back to identify
+            } finally {
+                pendingBlocks.remove(key);
+            }
+        });
+    }
+
+    private static long blockKey(int blockCol, int blockRow) {
+        return ((long) blockCol << 32) | (blockRow & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Gets an image reader for a stream.
+     *
+     * @param inputStream stream of a raster file
+     * @return a reader with its input set
+     * @throws IOException if no reader can decode the stream
+     */
+    private static ImageReader readerFor(ImageInputStream inputStream) throws IOException {
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(inputStream);
+        if (!readers.hasNext()) {
+            throw new IOException("No image reader can decode the raster");
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(inputStream, true, true);
+        return reader;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.raster_function;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A function in a {@link RasterPipeline}: it computes a tile from the same tile of each of its input nodes and its
+ * own arguments. Nodes and their inputs form a directed acyclic graph, and a node's output is identified by a
+ * fingerprint of its function, its arguments and its inputs' fingerprints, so changing an argument only changes the
+ * fingerprints of the node and the nodes downstream of it.
+ */
+public abstract class PipelineNode {
+
+  private final String function;
+  private final List<PipelineNode> inputs;
+  private final Map<String, String> arguments = new TreeMap<>();
+
+  /**
+   * Creates a node.
+   *
+   * @param function name of the node's function
+   * @param inputs nodes whose tiles the function takes
+   */
+  protected PipelineNode(String function, PipelineNode... inputs) {
+    this.function = function;
+    this.inputs = Collections.unmodifiableList(Arrays.asList(inputs));
+  }
+
+  public String getFunction() {
+    return function;
+  }
+
+  public List<PipelineNode> getInputs() {
+    return inputs;
+  }
+
+  /**
+   * Sets an argument of the function. Tiles computed with the old value stay cached under the old fingerprint.
+   *
+   * @param name argument name
+   * @param value argument value
+   * @return this node
+   */
+  public synchronized PipelineNode setArgument(String name, Object value) {
+    arguments.put(name, String.valueOf(value));
+    return this;
+  }
+
+  /**
+   * Takes a copy of the arguments, so a pipeline run isn't affected by changes made while it's running.
+   *
+   * @return the current arguments
+   */
+  synchronized Map<String, String> snapshotArguments() {
+    return new TreeMap<>(arguments);
+  }
+
+  /**
+   * Computes a tile.
+   *
+   * @param tileKey key of the tile from {@link RasterPipeline#tileKey}
+   * @param arguments the function's arguments
+   * @param inputTiles the tile from each input node, in the order of the inputs
+   * @return the computed tile
+   * @throws Exception if the tile can't be computed
+   */
+  protected abstract PipelineTile compute(long tileKey, Map<String, String> arguments, List<PipelineTile> inputTiles)
+      throws Exception;
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.raster_function;
+
+import java.util.Arrays;
+
+/**
+ * The pixels of one square tile output by a node of a {@link RasterPipeline}. Each band holds float values, with NaN
+ * for no data. A tile can carry a halo of extra pixels around its edges, so neighbourhood functions such as hillshade
+ * can be computed tile by tile without seams.
+ */
+public class PipelineTile {
+
+  private final int size;
+  private final int halo;
+  private final float[][] bands;
+
+  /**
+   * Creates a tile of no data.
+   *
+   * @param size width and height of the tile in pixels, not counting the halo
+   * @param halo width of the halo around the tile in pixels
+   * @param bandCount number of bands
+   */
+  public PipelineTile(int size, int halo, int bandCount) {
+    this.size = size;
+    this.halo = halo;
+    int stride = size + 2 * halo;
+    bands = new float[bandCount][stride * stride];
+    for (float[] band : bands) {
+      Arrays.fill(band, Float.NaN);
+    }
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public int getHalo() {
+    return halo;
+  }
+
+  public int getBandCount() {
+    return bands.length;
+  }
+
+  /**
+   * Gets a pixel value. Coordinates are relative to the tile's top left pixel, so the halo is at negative coordinates
+   * and coordinates of size or more.
+   *
+   * @param band band index
+   * @param x column from -halo to size + halo - 1
+   * @param y row from -halo to size + halo - 1
+   * @return the value, or NaN for no data
+   */
+  public float get(int band, int x, int y) {
+    return bands[band][(y + halo) * (size + 2 * halo) + x + halo];
+  }
+
+  /**
+   * Sets a pixel value.
+   *
+   * @param band band index
+   * @param x column from -halo to size + halo - 1
+   * @param y row from -halo to size + halo - 1
+   * @param value the value, or NaN for no data
+   */
+  public void set(int band, int x, int y, float value) {
+    bands[band][(y + halo) * (size + 2 * halo) + x + halo] = value;
+  }
+
+  /**
+   * Gets the memory the tile's pixels use.
+   *
+   * @return size in bytes
+   */
+  public long getSizeBytes() {
+    return (long) bands.length * bands[0].length * Float.BYTES;
+  }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.raster_function;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+/**
+ * The raster functions of the sample's pipeline: an image service source, clip, hillshade, colormap and blend.
+ */
+public final class RasterFunctionNodes {
+
+  private static final Map<String, int[]> COLOR_RAMPS = new LinkedHashMap<>();
+
+  static {
+    COLOR_RAMPS.put("Elevation", new int[] {0x2b6a2e, 0x9bbf5a, 0xe8d98c, 0xa5784b, 0xffffff});
+    COLOR_RAMPS.put("Heat", new int[] {0x000004, 0x781c6d, 0xed6925, 0xfcffa4});
+    COLOR_RAMPS.put("Grayscale", new int[] {0x000000, 0xffffff});
+  }
+
+  private RasterFunctionNodes() {
+  }
+
+  /**
+   * Gets the names of the color ramps the colormap function accepts.
+   *
+   * @return color ramp names
+   */
+  public static List<String> getColorRampNames() {
+    return new ArrayList<>(COLOR_RAMPS.keySet());
+  }
+
+  /**
+   * Reads a band of an image service through its export image operation, one tile at a time. Tiles have a one pixel
+   * halo for the neighbourhood functions downstream.
+   */
+  public static class Source extends PipelineNode {
+
+    /**
+     * Creates a source node.
+     *
+     * @param serviceUrl URL of the image service
+     */
+    public Source(String serviceUrl) {
+      super("source");
+      setArgument("url", serviceUrl);
+    }
+
+    @Override
+    protected PipelineTile compute(long tileKey, Map<String, String> arguments, List<PipelineTile> inputTiles)
+        throws IOException {
+      int halo = 1;
+      int size = RasterPipeline.TILE_SIZE;
+      double[] extent = RasterPipeline.tileExtent(tileKey);
+      double pixelSize = (extent[2] - extent[0]) / size;
+      String url = String.format(Locale.ROOT, "%s/exportImage?bbox=%f,%f,%f,%f&bboxSR=3857&imageSR=3857"
+              + "&size=%d,%d&format=tiff&pixelType=F32&noDataInterpretation=esriNoDataMatchAny&f=image",
+          arguments.get("url"), extent[0] - pixelSize * halo, extent[1] - pixelSize * halo,
+          extent[2] + pixelSize * halo, extent[3] + pixelSize * halo, size + 2 * halo, size + 2 * halo);
+
+      HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+      try {
+        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+          throw new IOException("Export image request failed with status " + connection.getResponseCode());
+        }
+        try (InputStream inputStream = connection.getInputStream()) {
+          BufferedImage response = ImageIO.read(inputStream);
+          // the service answers errors with JSON rather than an image
+          if (response == null) {
+            throw new IOException("Export image request didn't return an image");
+          }
+          Raster image = response.getRaster();
+          PipelineTile tile = new PipelineTile(size, halo, 1);
+          for (int y = -halo; y < size + halo; y++) {
+            for (int x = -halo; x < size + halo; x++) {
+              tile.set(0, x, y, image.getSampleFloat(x + halo, y + halo, 0));
+            }
+          }
+          return tile;
+        }
+      } finally {
+        connection.disconnect();
+      }
+    }
+  }
+
+  /**
+   * Sets pixels outside an extent to no data. Arguments: xMin, yMin, xMax and yMax in Web Mercator meters.
+   */
+  public static class Clip extends PipelineNode {
+
+    /**
+     * Creates a clip node.
+     *
+     * @param input node to clip
+     */
+    public Clip(PipelineNode input) {
+      super("clip", input);
+    }
+
+    @Override
+    protected PipelineTile compute(long tileKey, Map<String, String> arguments, List<PipelineTile> inputTiles) {
+      PipelineTile input = inputTiles.get(0);
+      double[] extent = RasterPipeline.tileExtent(tileKey);
+      double pixelSize = (extent[2] - extent[0]) / input.getSize();
+      double xMin = Double.parseDouble(arguments.get("xMin"));
+      double yMin = Double.parseDouble(arguments.get("yMin"));
+      double xMax = Double.parseDouble(arguments.get("xMax"));
+      double yMax = Double.parseDouble(arguments.get("yMax"));
+
+      int halo = input.getHalo();
+      PipelineTile output = new PipelineTile(input.getSize(), halo, input.getBandCount());
+      for (int y = -halo; y < input.getSize() + halo; y++) {
+        double pixelY = extent[3] - (y + 0.5) * pixelSize;
+        for (int x = -halo; x < input.getSize() + halo; x++) {
+          double pixelX = extent[0] + (x + 0.5) * pixelSize;
+          if (pixelX >= xMin && pixelX <= xMax && pixelY >= yMin && pixelY <= yMax) {
+            for (int band = 0; band < input.getBandCount(); band++) {
+              output.set(band, x, y, input.get(band, x, y));
+            }
+          }
+        }
+      }
+      return output;
+    }
+  }
+
+  /**
+   * Shades the first band as a surface lit from a direction, using Horn's method. Arguments: azimuth and altitude of
+   * the light in degrees, and the z factor. Output values are from 0 to 255.
+   */
+  public static class Hillshade extends PipelineNode {
+
+    /**
+     * Creates a hillshade node.
+     *
+     * @param input node with a one pixel halo to shade
+     */
+    public Hillshade(PipelineNode input) {
+      super("hillshade", input);
+    }
+
+    @Override
+    protected PipelineTile compute(long tileKey, Map<String, String> arguments, List<PipelineTile> inputTiles) {
+      PipelineTile input = inputTiles.get(0);
+      double[] extent = RasterPipeline.tileExtent(tileKey);
+      double cellSize = (extent[2] - extent[0]) / input.getSize();
+      double zenith = Math.toRadians(90 - Double.parseDouble(arguments.get("altitude")));
+      double azimuth = Math.toRadians((450 - Double.parseDouble(arguments.get("azimuth"))) % 360);
+      double zFactor = Double.parseDouble(arguments.get("zFactor"));
+
+      int size = input.getSize();
+      PipelineTile output = new PipelineTile(size, 0, 1);
+      for (int y = 0; y < size; y++) {
+        for (int x = 0; x < size; x++) {
+          float a = input.get(0, x - 1, y - 1);
+          float b = input.get(0, x, y - 1);
+          float c = input.get(0, x + 1, y - 1);
+          float d = input.get(0, x - 1, y);
+          float f = input.get(0, x + 1, y);
+          float g = input.get(0, x - 1, y + 1);
+          float h = input.get(0, x, y + 1);
+          float i = input.get(0, x + 1, y + 1);
+          double dzdx = ((c + 2 * f + i) - (a + 2 * d + g)) / (8 * cellSize);
+          double dzdy = ((g + 2 * h + i) - (a + 2 * b + c)) / (8 * cellSize);
+          // no data anywhere in the neighbourhood leaves the pixel as no data
+          if (Double.isNaN(dzdx) || Double.isNaN(dzdy)) {
+            continue;
+          }
+          double slope = Math.atan(zFactor * Math.sqrt(dzdx * dzdx + dzdy * dzdy));
+          double aspect = Math.atan2(dzdy, -dzdx);
+          double shade = Math.cos(zenith) * Math.cos(slope)
+              + Math.sin(zenith) * Math.sin(slope) * Math.cos(azimuth - aspect);
+          output.set(0, x, y, (float) (255 * Math.max(0, shade)));
+        }
+      }
+      return output;
+    }
+  }
+
+  /**
+   * Colors the first band with a color ramp. Arguments: the ramp name, and the min and max values stretched over the
+   * ramp. Outputs red, green and blue bands from 0 to 255.
+   */
+  public static class Colormap extends PipelineNode {
+
+    /**
+     * Creates a colormap node.
+     *
+     * @param input node to color
+     */
+    public Colormap(PipelineNode input) {
+      super("colormap", input);
+    }
+
+    @Override
+    protected PipelineTile compute(long tileKey, Map<String, String> arguments, List<PipelineTile> inputTiles) {
+      PipelineTile input = inputTiles.get(0);
+      int[] ramp = COLOR_RAMPS.get(arguments.get("ramp"));
+      double min = Double.parseDouble(arguments.get("min"));
+      double max = Double.parseDouble(arguments.get("max"));
+
+      int size = input.getSize();
+      PipelineTile output = new PipelineTile(size, 0, 3);
+      for (int y = 0; y < size; y++) {
+        for (int x = 0; x < size; x++) {
+          float value = input.get(0, x, y);
+          if (Float.isNaN(value)) {
+            continue;
+          }
+          // interpolate between the two ramp colors either side of the value
+          double position = Math.max(0, Math.min(1, (value - min) / (max - min))) * (ramp.length - 1);
+          int stop = Math.min(ramp.length - 2, (int) position);
+          double weight = position - stop;
+          for (int band = 0; band < 3; band++) {
+            int shift = 16 - band * 8;
+            int from = (ramp[stop] >> shift) & 0xFF;
+            int to = (ramp[stop + 1] >> shift) & 0xFF;
+            output.set(band, x, y, (float) (from + (to - from) * weight));
+          }
+        }
+      }
+      return output;
+    }
+  }
+
+  /**
+   * Darkens a colored tile by a hillshade tile. Argument: weight, from 0 for the colors alone to 1 for the colors
+   * fully multiplied by the hillshade.
+   */
+  public static class Blend extends PipelineNode {
+
+    /**
+     * Creates a blend node.
+     *
+     * @param hillshade node with hillshade values from 0 to 255
+     * @param colors node with red, green and blue bands
+     */
+    public Blend(PipelineNode hillshade, PipelineNode colors) {
+      super("blend", hillshade, colors);
+    }
+
+    @Override
+    protected PipelineTile compute(long tileKey, Map<String, String> arguments, List<PipelineTile> inputTiles) {
+      PipelineTile hillshade = inputTiles.get(0);
+      PipelineTile colors = inputTiles.get(1);
+      double weight = Double.parseDouble(arguments.get("weight"));
+
+      int size = colors.getSize();
+      PipelineTile output = new PipelineTile(size, 0, 3);
+      for (int y = 0; y < size; y++) {
+        for (int x = 0; x < size; x++) {
+          float shade = hillshade.get(0, x, y);
+          if (Float.isNaN(shade)) {
+            continue;
+          }
+          double factor = 1 - weight + weight * shade / 255;
+          for (int band = 0; band < 3; band++) {
+            output.set(band, x, y, (float) (colors.get(band, x, y) * factor));
+          }
+        }
+      }
+      return output;
+    }
+  }
+}
@@ -16,16 +16,44 @@
 
 package com.esri.samples.raster_function;
 
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.function.DoubleConsumer;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
 import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Paint;
 import javafx.stage.Stage;
 
+import com.esri.arcgisruntime.geometry.Envelope;
+import com.esri.arcgisruntime.geometry.GeometryEngine;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
 import com.esri.arcgisruntime.layers.RasterLayer;
 import com.esri.arcgisruntime.loadable.LoadStatus;
 import com.esri.arcgisruntime.mapping.ArcGISMap;
@@ -40,6 +68,26 @@ public class RasterFunctionSample extends Application {
 
   private ImageServiceRaster imageServiceRaster; // keep loadables in scope to avoid garbage collection
   private MapView mapView;
+  private ArcGISMap map;
+
+  // the interactive chain: source -> clip -> hillshade and colormap in parallel -> blend
+  private RasterPipeline pipeline;
+  private RasterFunctionNodes.Clip clipNode;
+  private RasterFunctionNodes.Hillshade hillshadeNode;
+  private RasterFunctionNodes.Colormap colormapNode;
+  private RasterFunctionNodes.Blend blendNode;
+  private RasterLayer chainLayer;
+  private Label timingLabel;
+  private Path outputDirectory;
+  private Path chainOutput;
+  private final List<Path> supersededOutputs = new ArrayList<>();
+  private int renderCount;
+  private boolean renderInProgress;
+  private boolean renderQueued;
+
+  private static final String SERVICE_URL = "https://sampleserver6.arcgisonline.com/arcgis/rest/services/"
+      + "NLCDLandCover2001/ImageServer";
+  private static final int MAX_TILES = 36;
 
   @Override
   public void start(Stage stage) {
@@ -57,15 +105,14 @@ public class RasterFunctionSample extends Application {
       stage.show();
 
       // create a map with dark canvas vector basemap
-      ArcGISMap map = new ArcGISMap(Basemap.createDarkGrayCanvasVector());
+      map = new ArcGISMap(Basemap.createDarkGrayCanvasVector());
 
       // add the map to a map view
       mapView = new MapView();
       mapView.setMap(map);
 
       // create an image service raster from an online raster service
-      imageServiceRaster = new ImageServiceRaster("https://sampleserver6.arcgisonline" +
-          ".com/arcgis/rest/services/NLCDLandCover2001/ImageServer");
+      imageServiceRaster = new ImageServiceRaster(SERVICE_URL);
       imageServiceRaster.loadAsync();
       imageServiceRaster.addDoneLoadingListener(() -> {
 
@@ -87,8 +134,11 @@ public class RasterFunctionSample extends Application {
               map.getOperationalLayers().add(hillshadeLayer);
               hillshadeLayer.addDoneLoadingListener(() -> {
                 if (hillshadeLayer.getLoadStatus() == LoadStatus.LOADED) {
-                  // set viewpoint on the raster
-                  mapView.setViewpointGeometryAsync(hillshadeLayer.getFullExtent(), 150);
+                  // set viewpoint on the raster, then run the chain over the view
+                  mapView.setViewpointGeometryAsync(hillshadeLayer.getFullExtent(), 150)
+                      .addDoneListener(this::renderChain);
+                  // clip the chain to the raster to begin with
+                  setClipExtent(hillshadeLayer.getFullExtent());
                 } else {
                   Alert alert = new Alert(Alert.AlertType.ERROR, "Failed to load the hillshade raster layer");
                   alert.show();
@@ -105,23 +155,300 @@ public class RasterFunctionSample extends Application {
 
       });
 
-      // add the map view to stack pane
-      stackPane.getChildren().addAll(mapView);
+      // build the chain, and controls to change its arguments
+      VBox controlsVBox = createChain();
+
+      // add the map view and controls to stack pane
+      stackPane.getChildren().addAll(mapView, controlsVBox);
+      StackPane.setAlignment(controlsVBox, Pos.TOP_LEFT);
+      StackPane.setMargin(controlsVBox, new Insets(10, 0, 0, 10));
     } catch (Exception e) {
       // on any error, display the stack trace.
       e.printStackTrace();
     }
   }
 
+  /**
+   * Builds the chain of raster functions and creates controls for their arguments. Each change runs the chain again,
+   * and only the functions downstream of the change are computed.
+   *
+   * @return the controls
+   * @throws IOException if the directory for the chain's output can't be created
+   */
+  private VBox createChain() throws IOException {
+    pipeline = new RasterPipeline(Runtime.getRuntime().availableProcessors(), 512L * 1024 * 1024);
+    outputDirectory = Files.createTempDirectory("raster-chain");
+
+    RasterFunctionNodes.Source sourceNode = new RasterFunctionNodes.Source(SERVICE_URL);
+    clipNode = new RasterFunctionNodes.Clip(sourceNode);
+    hillshadeNode = new RasterFunctionNodes.Hillshade(clipNode);
+    hillshadeNode.setArgument("azimuth", 315).setArgument("altitude", 45).setArgument("zFactor", 1);
+    colormapNode = new RasterFunctionNodes.Colormap(clipNode);
+    colormapNode.setArgument("ramp", "Elevation").setArgument("min", 0).setArgument("max", 100);
+    blendNode = new RasterFunctionNodes.Blend(hillshadeNode, colormapNode);
+    blendNode.setArgument("weight", 0.7);
+
+    Slider azimuthSlider = createSlider(0, 360, 315, value -> hillshadeNode.setArgument("azimuth", Math.round(value)));
+    Slider altitudeSlider = createSlider(0, 90, 45, value -> hillshadeNode.setArgument("altitude", Math.round(value)));
+    ComboBox<String> rampComboBox = new ComboBox<>();
+    rampComboBox.getItems().addAll(RasterFunctionNodes.getColorRampNames());
+    rampComboBox.getSelectionModel().select("Elevation");
+    rampComboBox.getSelectionModel().selectedItemProperty().addListener(e -> {
+      colormapNode.setArgument("ramp", rampComboBox.getSelectionModel().getSelectedItem());
+      renderChain();
+    });
+    Slider weightSlider = createSlider(0, 1, 0.7, value -> blendNode.setArgument("weight",
+        Math.round(value * 100) / 100.0));
+    Button clipButton = new Button("Clip to View");
+    clipButton.setOnAction(e -> {
+      setClipExtent(mapView.getVisibleArea().getExtent());
+      renderChain();
+    });
+    Button renderButton = new Button("Render View");
+    renderButton.setOnAction(e -> renderChain());
+
+    timingLabel = new Label();
+    timingLabel.setWrapText(true);
+
+    VBox controlsVBox = new VBox(6, new Label("Hillshade azimuth"), azimuthSlider, new Label("Hillshade altitude"),
+        altitudeSlider, new Label("Colormap"), rampComboBox, new Label("Blend weight"), weightSlider, clipButton,
+        renderButton, timingLabel);
+    controlsVBox.setBackground(new Background(new BackgroundFill(Paint.valueOf("rgba(255,255,255,0.8)"),
+        CornerRadii.EMPTY, Insets.EMPTY)));
+    controlsVBox.setPadding(new Insets(10.0));
+    controlsVBox.setMaxSize(220, 400);
+    return controlsVBox;
+  }
+
+  /**
+   * Creates a slider for an argument. The chain runs once the slider's value is set, rather than for every value
+   * while it's being dragged.
+   *
+   * @param min minimum value
+   * @param max maximum value
+   * @param value initial value
+   * @param argumentSetter sets the argument to a new value
+   * @return the slider
+   */
+  private Slider createSlider(double min, double max, double value, DoubleConsumer argumentSetter) {
+    Slider slider = new Slider(min, max, value);
+    slider.setShowTickLabels(true);
+    slider.setMajorTickUnit((max - min) / 4);
+    slider.valueProperty().addListener(e -> {
+      argumentSetter.accept(slider.getValue());
+      if (!slider.isValueChanging()) {
+        renderChain();
+      }
+    });
+    slider.valueChangingProperty().addListener((observable, wasChanging, isChanging) -> {
+      if (!isChanging) {
+        renderChain();
+      }
+    });
+    return slider;
+  }
+
+  /**
+   * Clips the chain to an extent.
+   *
+   * @param extent the extent in any spatial reference
+   */
+  private void setClipExtent(Envelope extent) {
+    Envelope webMercatorExtent = (Envelope) GeometryEngine.project(extent, SpatialReferences.getWebMercator());
+    clipNode.setArgument("xMin", webMercatorExtent.getXMin()).setArgument("yMin", webMercatorExtent.getYMin())
+        .setArgument("xMax", webMercatorExtent.getXMax()).setArgument("yMax", webMercatorExtent.getYMax());
+  }
+
+  /**
+   * Runs the chain over the tiles covering the view on a background thread and shows the output as a raster layer.
+   * If the chain is already running, it runs once more when it's done.
+   */
+  private void renderChain() {
+    if (mapView.getVisibleArea() == null) {
+      return;
+    }
+    if (renderInProgress) {
+      renderQueued = true;
+      return;
+    }
+    renderInProgress = true;
+    renderQueued = false;
+    List<Long> tileKeys = visibleTiles();
+
+    Thread renderThread = new Thread(() -> {
+      try {
+        RasterPipeline.Result result = pipeline.run(blendNode, tileKeys);
+        Path output = writeTiles(result.getTiles());
+        String timing = String.format("%d tiles in %.0f ms: %d function tiles computed, %d from cache, %d shared",
+            tileKeys.size(), result.getElapsedMillis(), result.getComputedCount(), result.getCachedCount(),
+            result.getJoinedCount());
+
+        Platform.runLater(() -> {
+          // replace the previous output of the chain
+          RasterLayer outputLayer = new RasterLayer(new Raster(output.toString()));
+          if (chainLayer != null) {
+            map.getOperationalLayers().remove(chainLayer);
+          }
+          map.getOperationalLayers().add(outputLayer);
+          chainLayer = outputLayer;
+          if (chainOutput != null) {
+            supersededOutputs.add(chainOutput);
+          }
+          chainOutput = output;
+          deleteSupersededOutputs();
+          timingLabel.setText(timing);
+          finishRender();
+        });
+      } catch (Exception e) {
+        e.printStackTrace();
+        Platform.runLater(() -> {
+          timingLabel.setText("Failed to run the chain: " + e.getMessage());
+          finishRender();
+        });
+      }
+    });
+    renderThread.setDaemon(true);
+    renderThread.start();
+  }
+
+  /**
+   * Runs the chain again if anything changed while it was running.
+   */
+  private void finishRender() {
+    renderInProgress = false;
+    if (renderQueued) {
+      renderChain();
+    }
+  }
+
+  /**
+   * Deletes the outputs of earlier runs whose layers have been removed. An output the runtime still has open is kept
+   * and tried again after the next run.
+   */
+  private void deleteSupersededOutputs() {
+    supersededOutputs.removeIf(output -> {
+      String name = output.getFileName().toString().replaceFirst("\\.tif$", "");
+      boolean deleted = true;
+      for (String extension : new String[] {".tif", ".tfw", ".prj"}) {
+        File file = output.resolveSibling(name + extension).toFile();
+        deleted &= !file.exists() || file.delete();
+      }
+      return deleted;
+    });
+  }
+
+  /**
+   * Finds the Web Mercator tiles covering the view, at the level closest to the view's resolution with no more than
+   * {@link #MAX_TILES} tiles.
+   *
+   * @return the tile keys
+   */
+  private List<Long> visibleTiles() {
+    Envelope extent = (Envelope) GeometryEngine.project(mapView.getVisibleArea().getExtent(),
+        SpatialReferences.getWebMercator());
+    double resolution = extent.getWidth() / mapView.getWidth();
+    double worldWidth = 2 * RasterPipeline.ORIGIN_SHIFT;
+    int level = (int) Math.max(0, Math.min(20, Math.ceil(Math.log(worldWidth / (RasterPipeline.TILE_SIZE
+        * resolution)) / Math.log(2))));
+
+    List<Long> tileKeys = new ArrayList<>();
+    while (true) {
+      int tiles = 1 << level;
+      double tileWidth = worldWidth / tiles;
+      int minCol = Math.max(0, (int) ((extent.getXMin() + RasterPipeline.ORIGIN_SHIFT) / tileWidth));
+      int maxCol = Math.min(tiles - 1, (int) ((extent.getXMax() + RasterPipeline.ORIGIN_SHIFT) / tileWidth));
+      int minRow = Math.max(0, (int) ((RasterPipeline.ORIGIN_SHIFT - extent.getYMax()) / tileWidth));
+      int maxRow = Math.min(tiles - 1, (int) ((RasterPipeline.ORIGIN_SHIFT - extent.getYMin()) / tileWidth));
+      if (level == 0 || (maxCol - minCol + 1) * (maxRow - minRow + 1) <= MAX_TILES) {
+        for (int row = minRow; row <= maxRow; row++) {
+          for (int col = minCol; col <= maxCol; col++) {
+            tileKeys.add(RasterPipeline.tileKey(level, col, row));
+          }
+        }
+        return tileKeys;
+      }
+      level--;
+    }
+  }
+
+  /**
+   * Mosaics the chain's output tiles into a georeferenced image, with a world file and a projection file.
+   *
+   * @param tiles the output tiles by tile key
+   * @return the image file
+   * @throws IOException if the image can't be written
+   */
+  private Path writeTiles(Map<Long, PipelineTile> tiles) throws IOException {
+    // find the bounds of the tiles
+    double xMin = Double.MAX_VALUE;
+    double yMin = Double.MAX_VALUE;
+    double xMax = -Double.MAX_VALUE;
+    double yMax = -Double.MAX_VALUE;
+    for (long tileKey : tiles.keySet()) {
+      double[] extent = RasterPipeline.tileExtent(tileKey);
+      xMin = Math.min(xMin, extent[0]);
+      yMin = Math.min(yMin, extent[1]);
+      xMax = Math.max(xMax, extent[2]);
+      yMax = Math.max(yMax, extent[3]);
+    }
+    double[] firstExtent = RasterPipeline.tileExtent(tiles.keySet().iterator().next());
+    double pixelSize = (firstExtent[2] - firstExtent[0]) / RasterPipeline.TILE_SIZE;
+
+    BufferedImage image = new BufferedImage((int) Math.round((xMax - xMin) / pixelSize),
+        (int) Math.round((yMax - yMin) / pixelSize), BufferedImage.TYPE_INT_ARGB);
+    for (Map.Entry<Long, PipelineTile> entry : tiles.entrySet()) {
+      double[] extent = RasterPipeline.tileExtent(entry.getKey());
+      int left = (int) Math.round((extent[0] - xMin) / pixelSize);
+      int top = (int) Math.round((yMax - extent[3]) / pixelSize);
+      PipelineTile tile = entry.getValue();
+      for (int y = 0; y < tile.getSize(); y++) {
+        for (int x = 0; x < tile.getSize(); x++) {
+          float red = tile.get(0, x, y);
+          // no data stays transparent
+          if (!Float.isNaN(red)) {
+            image.setRGB(left + x, top + y, 0xFF000000 | (clamp(red) << 16) | (clamp(tile.get(1, x, y)) << 8)
+                | clamp(tile.get(2, x, y)));
+          }
+        }
+      }
+    }
+
+    // each output has its own name, as the runtime keeps the previous one open until its layer is removed
+    Path output = outputDirectory.resolve("chain-" + (++renderCount) + ".tif");
+    ImageIO.write(image, "tiff", output.toFile());
+    String worldFile = String.join(System.lineSeparator(), String.valueOf(pixelSize), "0", "0",
+        String.valueOf(-pixelSize), String.valueOf(xMin + pixelSize / 2), String.valueOf(yMax - pixelSize / 2));
+    Files.write(outputDirectory.resolve("chain-" + renderCount + ".tfw"),
+        worldFile.getBytes(StandardCharsets.US_ASCII));
+    Files.write(outputDirectory.resolve("chain-" + renderCount + ".prj"),
+        SpatialReferences.getWebMercator().getWKText().getBytes(StandardCharsets.US_ASCII));
+    return output;
+  }
+
+  private static int clamp(float value) {
+    return Math.max(0, Math.min(255, Math.round(value)));
+  }
+
   /**
    * Stops and releases all resources used in application.
    */
   @Override
   public void stop() {
 
+    if (pipeline != null) {
+      pipeline.shutdown();
+    }
     if (mapView != null) {
       mapView.dispose();
     }
+    // delete the chain's outputs, which the runtime no longer has open now the map view is disposed
+    if (outputDirectory != null) {
+      try (Stream<Path> files = Files.walk(outputDirectory)) {
+        files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+      } catch (IOException e) {
+        // leave them for the system to clear from the temporary directory
+      }
+    }
   }
 
   /**
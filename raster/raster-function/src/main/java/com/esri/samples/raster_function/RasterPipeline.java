@@ -0,0 +1,328 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.raster_function;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs a graph of {@link PipelineNode}s tile by tile in the Web Mercator tiling scheme, caching every node's output
+ * for each tile under the node's fingerprint. When an argument changes, only the nodes downstream of it get a new
+ * fingerprint, so only they are computed again; everything upstream comes from the cache. The inputs of a node are
+ * computed concurrently, so independent branches of the graph run in parallel.
+ */
+public class RasterPipeline {
+
+  /**
+   * Width and height of the tiles in pixels.
+   */
+  public static final int TILE_SIZE = 256;
+
+  /**
+   * Half the width of the Web Mercator world in meters.
+   */
+  public static final double ORIGIN_SHIFT = 20037508.342789244;
+
+  private final ExecutorService executor;
+  private final long cacheBudgetBytes;
+  private final LinkedHashMap<String, PipelineTile> cache = new LinkedHashMap<>(256, 0.75f, true);
+  private final ConcurrentHashMap<String, CompletableFuture<PipelineTile>> pending = new ConcurrentHashMap<>();
+  private long cacheSizeBytes;
+
+  /**
+   * The output of a pipeline run and what it took to produce.
+   */
+  public static class Result {
+
+    private final Map<Long, PipelineTile> tiles;
+    private final int computedCount;
+    private final int cachedCount;
+    private final int joinedCount;
+    private final long elapsedNanos;
+
+    Result(Map<Long, PipelineTile> tiles, int computedCount, int cachedCount, int joinedCount, long elapsedNanos) {
+      this.tiles = tiles;
+      this.computedCount = computedCount;
+      this.cachedCount = cachedCount;
+      this.joinedCount = joinedCount;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Gets the output node's tiles.
+     *
+     * @return tiles by tile key
+     */
+    public Map<Long, PipelineTile> getTiles() {
+      return tiles;
+    }
+
+    /**
+     * Gets the number of node tiles which were computed.
+     *
+     * @return computed node tile count
+     */
+    public int getComputedCount() {
+      return computedCount;
+    }
+
+    /**
+     * Gets the number of node tiles which came from the cache.
+     *
+     * @return cached node tile count
+     */
+    public int getCachedCount() {
+      return cachedCount;
+    }
+
+    /**
+     * Gets the number of node tiles which another run, or another branch of this run, was already computing.
+     *
+     * @return joined node tile count
+     */
+    public int getJoinedCount() {
+      return joinedCount;
+    }
+
+    public double getElapsedMillis() {
+      return elapsedNanos / 1e6;
+    }
+  }
+
+  /**
+   * Creates a pipeline.
+   *
+   * @param threads number of threads computing tiles
+   * @param cacheBudgetBytes bytes of node output kept in the cache before the least recently used is evicted
+   */
+  public RasterPipeline(int threads, long cacheBudgetBytes) {
+    this.cacheBudgetBytes = cacheBudgetBytes;
+    executor = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "raster-pipeline");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Computes an output node's tiles, computing only the node tiles which aren't already cached. Blocks until every
+   * tile is done, so call it from a background thread.
+   *
+   * @param output the node whose tiles are wanted
+   * @param tileKeys keys of the tiles from {@link #tileKey}
+   * @return the tiles and statistics of the run
+   * @throws ExecutionException if any node fails to compute a tile
+   * @throws InterruptedException if the thread is interrupted while waiting
+   */
+  public Result run(PipelineNode output, List<Long> tileKeys) throws ExecutionException, InterruptedException {
+    long start = System.nanoTime();
+
+    // fix every node's arguments and fingerprint for this run
+    Map<PipelineNode, Map<String, String>> arguments = new HashMap<>();
+    Map<PipelineNode, String> fingerprints = new HashMap<>();
+    fingerprint(output, arguments, fingerprints);
+
+    AtomicInteger computed = new AtomicInteger();
+    AtomicInteger cached = new AtomicInteger();
+    AtomicInteger joined = new AtomicInteger();
+    Map<Long, CompletableFuture<PipelineTile>> futures = new LinkedHashMap<>();
+    for (long tileKey : tileKeys) {
+      futures.put(tileKey, evaluate(output, tileKey, arguments, fingerprints, computed, cached, joined));
+    }
+
+    Map<Long, PipelineTile> tiles = new LinkedHashMap<>();
+    for (Map.Entry<Long, CompletableFuture<PipelineTile>> entry : futures.entrySet()) {
+      tiles.put(entry.getKey(), entry.getValue().get());
+    }
+    return new Result(tiles, computed.get(), cached.get(), joined.get(), System.nanoTime() - start);
+  }
+
+  /**
+   * Stops computing tiles.
+   */
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Packs a tile position into a key.
+   *
+   * @param level zoom level (0 - 30)
+   * @param col tile column
+   * @param row tile row
+   * @return the tile key
+   */
+  public static long tileKey(int level, int col, int row) {
+    return ((long) level << 58) | ((long) col << 29) | row;
+  }
+
+  /**
+   * Gets the extent of a tile in Web Mercator meters.
+   *
+   * @param tileKey key of the tile
+   * @return the x min, y min, x max and y max
+   */
+  public static double[] tileExtent(long tileKey) {
+    int level = (int) (tileKey >>> 58);
+    int col = (int) ((tileKey >>> 29) & 0x1FFFFFFF);
+    int row = (int) (tileKey & 0x1FFFFFFF);
+    double tileWidth = 2 * ORIGIN_SHIFT / (1 << level);
+    double xMin = -ORIGIN_SHIFT + col * tileWidth;
+    double yMax = ORIGIN_SHIFT - row * tileWidth;
+    return new double[] {xMin, yMax - tileWidth, xMin + tileWidth, yMax};
+  }
+
+  /**
+   * Gets a node's tile from the cache, from a computation already in progress, or by computing it once its inputs'
+   * tiles are ready.
+   *
+   * @param node the node
+   * @param tileKey key of the tile
+   * @param arguments arguments of every node for this run
+   * @param fingerprints fingerprint of every node for this run
+   * @param computed counts node tiles computed
+   * @param cached counts node tiles taken from the cache
+   * @param joined counts node tiles taken from a computation already in progress
+   * @return the tile when it's ready
+   */
+  private CompletableFuture<PipelineTile> evaluate(PipelineNode node, long tileKey,
+      Map<PipelineNode, Map<String, String>> arguments, Map<PipelineNode, String> fingerprints,
+      AtomicInteger computed, AtomicInteger cached, AtomicInteger joined) {
+
+    String cacheKey = fingerprints.get(node) + "/" + tileKey;
+
+    // check the cache and register the computation in one step, so a tile finishing in between isn't computed twice
+    PipelineTile[] cachedTile = new PipelineTile[1];
+    CompletableFuture<PipelineTile> future = new CompletableFuture<>();
+    CompletableFuture<PipelineTile> registered = pending.computeIfAbsent(cacheKey, key -> {
+      synchronized (cache) {
+        cachedTile[0] = cache.get(key);
+      }
+      return cachedTile[0] == null ? future : null;
+    });
+    if (cachedTile[0] != null) {
+      cached.incrementAndGet();
+      return CompletableFuture.completedFuture(cachedTile[0]);
+    }
+    // share the computation with any run already computing this node tile
+    if (registered != future) {
+      joined.incrementAndGet();
+      return registered;
+    }
+
+    // start every input at once, so independent branches are computed in parallel
+    List<CompletableFuture<PipelineTile>> inputFutures = new ArrayList<>();
+    for (PipelineNode input : node.getInputs()) {
+      inputFutures.add(evaluate(input, tileKey, arguments, fingerprints, computed, cached, joined));
+    }
+    CompletableFuture.allOf(inputFutures.toArray(new CompletableFuture[0])).thenApplyAsync(done -> {
+      List<PipelineTile> inputTiles = new ArrayList<>();
+      inputFutures.forEach(inputFuture -> inputTiles.add(inputFuture.join()));
+      try {
+        return node.compute(tileKey, arguments.get(node), inputTiles);
+      } catch (Exception e) {
+        throw new CompletionException(e);
+      }
+    }, executor).whenComplete((tile, error) -> {
+      if (error == null) {
+        computed.incrementAndGet();
+        // cache the tile and stop sharing the computation in one step, so no run misses both
+        pending.computeIfPresent(cacheKey, (key, value) -> {
+          putInCache(key, tile);
+          return null;
+        });
+      } else {
+        pending.remove(cacheKey);
+      }
+      if (error != null) {
+        future.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+      } else {
+        future.complete(tile);
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Adds a node tile to the cache, evicting the least recently used tiles over the budget.
+   *
+   * @param cacheKey node fingerprint and tile key
+   * @param tile the tile
+   */
+  private void putInCache(String cacheKey, PipelineTile tile) {
+    synchronized (cache) {
+      PipelineTile previous = cache.put(cacheKey, tile);
+      cacheSizeBytes += tile.getSizeBytes() - (previous != null ? previous.getSizeBytes() : 0);
+      Iterator<PipelineTile> eldest = cache.values().iterator();
+      while (cacheSizeBytes > cacheBudgetBytes && eldest.hasNext()) {
+        cacheSizeBytes -= eldest.next().getSizeBytes();
+        eldest.remove();
+      }
+    }
+  }
+
+  /**
+   * Works out the fingerprint of a node and everything upstream of it: a hash of the node's function, its arguments
+   * and its inputs' fingerprints.
+   *
+   * @param node the node
+   * @param arguments receives each node's arguments
+   * @param fingerprints receives each node's fingerprint
+   * @return the node's fingerprint
+   */
+  private static String fingerprint(PipelineNode node, Map<PipelineNode, Map<String, String>> arguments,
+      Map<PipelineNode, String> fingerprints) {
+    String fingerprint = fingerprints.get(node);
+    if (fingerprint != null) {
+      return fingerprint;
+    }
+    Map<String, String> nodeArguments = node.snapshotArguments();
+    StringBuilder description = new StringBuilder(node.getFunction()).append(nodeArguments);
+    for (PipelineNode input : node.getInputs()) {
+      description.append('|').append(fingerprint(input, arguments, fingerprints));
+    }
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(description.toString()
+          .getBytes(StandardCharsets.UTF_8));
+      StringBuilder hex = new StringBuilder();
+      for (int i = 0; i < 12; i++) {
+        hex.append(String.format("%02x", digest[i]));
+      }
+      fingerprint = hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform has SHA-256, so this can't happen
+      throw new IllegalStateException(e);
+    }
+    arguments.put(node, nodeArguments);
+    fingerprints.put(node, fingerprint);
+    return fingerprint;
+  }
+}
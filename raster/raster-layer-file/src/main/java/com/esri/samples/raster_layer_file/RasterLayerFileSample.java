@@ -17,23 +17,47 @@
 package com.esri.samples.raster_layer_file;
 
 import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
 import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Paint;
 import javafx.stage.Stage;
 
+import com.esri.arcgisruntime.geometry.Envelope;
 import com.esri.arcgisruntime.layers.RasterLayer;
 import com.esri.arcgisruntime.loadable.LoadStatus;
 import com.esri.arcgisruntime.mapping.ArcGISMap;
 import com.esri.arcgisruntime.mapping.Basemap;
+import com.esri.arcgisruntime.mapping.view.DrawStatus;
 import com.esri.arcgisruntime.mapping.view.MapView;
 import com.esri.arcgisruntime.raster.Raster;
 
 public class RasterLayerFileSample extends Application {
 
   private MapView mapView;
+  private ArcGISMap map;
+  private RasterLayer rasterLayer;
+  private Label statusLabel;
+  private ProgressBar progressBar;
+  private long drawStartTime;
+  private String pyramidTiming;
+
+  private static final double METERS_PER_INCH = 0.0254;
+  private static final double DPI = 96;
+  private static final double METERS_PER_DEGREE = 111319.49;
 
   @Override
   public void start(Stage stage) {
@@ -51,13 +75,14 @@ public class RasterLayerFileSample extends Application {
       stage.show();
 
       // create a raster from a local raster file
-      Raster raster = new Raster(new File(System.getProperty("data.dir"), "./samples-data/raster/Shasta.tif").getAbsolutePath());
+      File rasterFile = new File(System.getProperty("data.dir"), "./samples-data/raster/Shasta.tif");
+      Raster raster = new Raster(rasterFile.getAbsolutePath());
 
       // create a raster layer
-      RasterLayer rasterLayer = new RasterLayer(raster);
+      rasterLayer = new RasterLayer(raster);
 
       // create a Map with imagery basemap
-      ArcGISMap map = new ArcGISMap(Basemap.createImagery());
+      map = new ArcGISMap(Basemap.createImagery());
 
       // add the map to a map view
       mapView = new MapView();
@@ -66,24 +91,128 @@ public class RasterLayerFileSample extends Application {
       // add the raster as an operational layer
       map.getOperationalLayers().add(rasterLayer);
 
-      // set viewpoint on the raster
+      // report how long the map takes to draw completely after the viewpoint is set
+      mapView.addDrawStatusChangedListener(drawStatusChangedEvent -> {
+        if (drawStartTime > 0 && drawStatusChangedEvent.getDrawStatus() == DrawStatus.COMPLETED) {
+          String timing = String.format("Zoomed out draw: %d ms (%s)", (System.nanoTime() - drawStartTime) / 1000000,
+              map.getOperationalLayers().size() > 1 ? "with pyramid" : "full resolution only");
+          drawStartTime = 0;
+          statusLabel.setText(pyramidTiming != null ? pyramidTiming + "\n" + timing : timing);
+        }
+      });
+
+      // show the progress of building the pyramid
+      statusLabel = new Label("Loading raster");
+      progressBar = new ProgressBar(0);
+      progressBar.setVisible(false);
+      VBox controlsVBox = new VBox(6, statusLabel, progressBar);
+      controlsVBox.setBackground(new Background(new BackgroundFill(Paint.valueOf("rgba(0,0,0,0.3)"),
+          CornerRadii.EMPTY, Insets.EMPTY)));
+      controlsVBox.setPadding(new Insets(10.0));
+      controlsVBox.setMaxSize(260, 80);
+
+      // build the pyramid once the raster's extent is known, then draw the whole raster
       rasterLayer.addDoneLoadingListener(() -> {
         if (rasterLayer.getLoadStatus() == LoadStatus.LOADED) {
-          mapView.setViewpointGeometryAsync(rasterLayer.getFullExtent(), 150);
+          if (Boolean.parseBoolean(System.getProperty("raster.pyramid", "true"))) {
+            buildPyramid(rasterFile.toPath());
+          } else {
+            drawFullExtent();
+          }
         } else {
           Alert alert = new Alert(Alert.AlertType.ERROR, "Raster Layer Failed to Load!");
           alert.show();
         }
       });
 
-      // add the map view to stack pane
-      stackPane.getChildren().addAll(mapView);
+      // add the map view and controls to stack pane
+      stackPane.getChildren().addAll(mapView, controlsVBox);
+      StackPane.setAlignment(controlsVBox, Pos.TOP_LEFT);
+      StackPane.setMargin(controlsVBox, new Insets(10, 0, 0, 10));
     } catch (Exception e) {
       // on any error, display the stack trace.
       e.printStackTrace();
     }
   }
 
+  /**
+   * Builds the raster's overview levels on a background thread, or reuses them if they're up to date, and adds them
+   * to the map.
+   *
+   * @param rasterPath path to the raster file
+   */
+  private void buildPyramid(Path rasterPath) {
+    Envelope extent = rasterLayer.getFullExtent();
+    String wkt = rasterLayer.getSpatialReference().getWKText();
+    RasterPyramidBuilder pyramidBuilder = new RasterPyramidBuilder(rasterPath);
+    statusLabel.setText("Building pyramid");
+    progressBar.setVisible(true);
+
+    Thread buildThread = new Thread(() -> {
+      try {
+        long start = System.nanoTime();
+        List<Path> levels = pyramidBuilder.getExistingLevels();
+        if (levels.isEmpty()) {
+          levels = pyramidBuilder.build(extent.getXMin(), extent.getYMin(), extent.getXMax(), extent.getYMax(), wkt,
+              progress -> Platform.runLater(() -> progressBar.setProgress(progress)));
+          pyramidTiming = String.format("Built %d pyramid levels in %d ms", levels.size(),
+              (System.nanoTime() - start) / 1000000);
+        }
+        List<Path> builtLevels = levels;
+        int rasterWidth = pyramidBuilder.getSourceWidth();
+        Platform.runLater(() -> {
+          progressBar.setVisible(false);
+          addPyramidLayers(builtLevels, extent, rasterWidth);
+          drawFullExtent();
+        });
+      } catch (Exception e) {
+        // fall back to drawing the full resolution raster
+        e.printStackTrace();
+        Platform.runLater(() -> {
+          progressBar.setVisible(false);
+          drawFullExtent();
+        });
+      }
+    });
+    buildThread.setDaemon(true);
+    buildThread.start();
+  }
+
+  /**
+   * Adds a raster layer for each overview level, with scale ranges so only the level whose pixels best match the
+   * screen's pixels is drawn at any scale.
+   *
+   * @param levels overview level files, from the most to the least detailed
+   * @param extent full extent of the raster
+   * @param rasterWidth width of the full resolution raster in pixels
+   */
+  private void addPyramidLayers(List<Path> levels, Envelope extent, int rasterWidth) {
+    // the scale at which a full resolution pixel covers one screen pixel
+    double pixelSize = extent.getWidth() / rasterWidth;
+    if (extent.getSpatialReference().isGeographic()) {
+      pixelSize *= METERS_PER_DEGREE;
+    }
+    double nativeScale = pixelSize * DPI / METERS_PER_INCH;
+
+    // each level takes over once its pixels are no bigger than the screen's pixels
+    rasterLayer.setMinScale(nativeScale * 2);
+    for (int i = 0; i < levels.size(); i++) {
+      RasterLayer levelLayer = new RasterLayer(new Raster(levels.get(i).toAbsolutePath().toString()));
+      levelLayer.setMaxScale(nativeScale * Math.pow(2, i + 1));
+      levelLayer.setMinScale(i == levels.size() - 1 ? 0 : nativeScale * Math.pow(2, i + 2));
+      map.getOperationalLayers().add(levelLayer);
+    }
+  }
+
+  /**
+   * Zooms out to the whole raster and starts timing the draw.
+   */
+  private void drawFullExtent() {
+    statusLabel.setText("Drawing");
+    drawStartTime = System.nanoTime();
+    mapView.setViewpointGeometryAsync(rasterLayer.getFullExtent(), 150);
+  }
+
   /**
    * Stops and releases all resources used in application.
    */
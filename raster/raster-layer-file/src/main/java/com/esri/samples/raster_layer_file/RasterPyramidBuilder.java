@@ -0,0 +1,396 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.raster_layer_file;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleConsumer;
+import java.util.stream.IntStream;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOInvalidTreeException;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.plugins.tiff.BaselineTIFFTagSet;
+import javax.imageio.plugins.tiff.TIFFDirectory;
+import javax.imageio.plugins.tiff.TIFFField;
+import javax.imageio.plugins.tiff.TIFFImageReadParam;
+import javax.imageio.plugins.tiff.TIFFTag;
+import javax.imageio.plugins.tiff.TIFFTagSet;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Builds overview levels for a local TIFF raster. Each level halves the resolution of the one before it by averaging
+ * blocks of 2 by 2 pixels, until the whole raster fits in a single tile. Levels are written next to the raster as
+ * georeferenced TIFFs with world and projection files, so each can be opened as its own {@code Raster}.
+ * <p>
+ * Levels are built in parallel strips, reading the previous level a strip at a time and streaming the averaged strips
+ * into the new file, so memory use doesn't depend on the size of the raster. Pixels matching the raster's NoData value,
+ * read from its GDAL_NODATA tag, are left out of the averages, and each level is written to a temporary file which is
+ * only moved into place once it's complete.
+ */
+public class RasterPyramidBuilder {
+
+  private static final int STRIP_HEIGHT = 256;
+  private static final int MIN_LEVEL_SIZE = 512;
+  // the TIFF tag GDAL and ArcGIS use to store a raster's NoData value as text
+  private static final TIFFTag NO_DATA_TAG = new TIFFTag("GDALNoData", 42113, 1 << TIFFTag.TIFF_ASCII);
+
+  private final Path source;
+  private final Path directory;
+
+  /**
+   * Creates a builder for a raster.
+   *
+   * @param source path to a TIFF raster
+   */
+  public RasterPyramidBuilder(Path source) {
+    this.source = source;
+    String name = source.getFileName().toString();
+    this.directory = source.resolveSibling(name.substring(0, name.lastIndexOf('.')) + "_pyramid");
+  }
+
+  /**
+   * Gets the overview levels built by an earlier run, if every level the raster needs was built and is newer than the
+   * raster.
+   *
+   * @return the level files from the most to the least detailed, or an empty list if they need building
+   * @throws IOException if the files can't be checked
+   */
+  public List<Path> getExistingLevels() throws IOException {
+    List<Path> levels = new ArrayList<>();
+    if (!Files.isDirectory(directory)) {
+      return levels;
+    }
+    int expectedLevels = levelSizes(readSize(source)).size();
+    for (int level = 1; level <= expectedLevels; level++) {
+      // a level file only exists once it and its world and projection files were completely written
+      Path file = levelFile(level);
+      if (!Files.exists(file) || Files.getLastModifiedTime(file).compareTo(Files.getLastModifiedTime(source)) < 0) {
+        return new ArrayList<>();
+      }
+      levels.add(file);
+    }
+    return levels;
+  }
+
+  /**
+   * Gets the width of the full resolution raster.
+   *
+   * @return width in pixels
+   * @throws IOException if the raster can't be read
+   */
+  public int getSourceWidth() throws IOException {
+    return readSize(source)[0];
+  }
+
+  /**
+   * Builds every overview level. Call this from a background thread.
+   *
+   * @param xMin west edge of the raster's extent
+   * @param yMin south edge of the raster's extent
+   * @param xMax east edge of the raster's extent
+   * @param yMax north edge of the raster's extent
+   * @param wkt well known text of the raster's spatial reference
+   * @param progressListener called with the overall progress between 0 and 1
+   * @return the level files from the most to the least detailed
+   * @throws IOException if the raster can't be read or a level can't be written
+   */
+  public List<Path> build(double xMin, double yMin, double xMax, double yMax, String wkt,
+      DoubleConsumer progressListener) throws IOException {
+
+    Files.createDirectories(directory);
+    List<Path> levels = new ArrayList<>();
+
+    // work out the level sizes first, so progress can be reported over all of them
+    List<int[]> levelSizes = levelSizes(readSize(source));
+    Double noData = readNoData(source);
+    long totalStrips = levelSizes.stream().mapToLong(s -> (s[1] + STRIP_HEIGHT - 1) / STRIP_HEIGHT).sum();
+    AtomicInteger doneStrips = new AtomicInteger();
+
+    Path previous = source;
+    for (int level = 1; level <= levelSizes.size(); level++) {
+      Path output = levelFile(level);
+      Path partial = output.resolveSibling(output.getFileName() + ".part");
+      Files.deleteIfExists(output);
+      int[] levelSize = levelSizes.get(level - 1);
+      buildLevel(previous, partial, levelSize[0], levelSize[1], noData, () ->
+          progressListener.accept((double) doneStrips.incrementAndGet() / totalStrips));
+
+      // georeference the level with a world file and a projection file
+      // odd sizes round up, so the level's pixels cover a little less than twice the previous level's pixels
+      double levelPixelWidth = (xMax - xMin) / levelSize[0];
+      double levelPixelHeight = (yMax - yMin) / levelSize[1];
+      String worldFile = String.join(System.lineSeparator(), String.valueOf(levelPixelWidth), "0", "0",
+          String.valueOf(-levelPixelHeight), String.valueOf(xMin + levelPixelWidth / 2),
+          String.valueOf(yMax - levelPixelHeight / 2));
+      Files.write(sidecar(output, ".tfw"), worldFile.getBytes(StandardCharsets.US_ASCII));
+      Files.write(sidecar(output, ".prj"), wkt.getBytes(StandardCharsets.US_ASCII));
+
+      // move the level into place last, so an interrupted build never leaves a level that looks complete
+      Files.move(partial, output, StandardCopyOption.ATOMIC_MOVE);
+      levels.add(output);
+      previous = output;
+    }
+    return levels;
+  }
+
+  /**
+   * Builds one level by averaging the previous level in parallel strips.
+   *
+   * @param input previous level
+   * @param output file to write the level to
+   * @param width level width in pixels
+   * @param height level height in pixels
+   * @param noData NoData value of the raster, or null if it has none
+   * @param stripDone called after each strip is written
+   * @throws IOException if the level can't be read or written
+   */
+  private void buildLevel(Path input, Path output, int width, int height, Double noData, Runnable stripDone)
+      throws IOException {
+
+    ImageTypeSpecifier imageType;
+    try (ImageInputStream inputStream = ImageIO.createImageInputStream(input.toFile())) {
+      ImageReader reader = readerFor(inputStream);
+      imageType = reader.getRawImageType(0) != null ? reader.getRawImageType(0) : reader.getImageTypes(0).next();
+      reader.dispose();
+    }
+
+    ImageWriter writer = ImageIO.getImageWritersByFormatName("tiff").next();
+    Files.deleteIfExists(output);
+    try (ImageOutputStream outputStream = ImageIO.createImageOutputStream(output.toFile())) {
+      writer.setOutput(outputStream);
+      writer.prepareWriteEmpty(null, imageType, width, height, levelMetadata(noData), null,
+          writer.getDefaultWriteParam());
+      writer.prepareReplacePixels(0, new Rectangle(0, 0, width, height));
+
+      int strips = (height + STRIP_HEIGHT - 1) / STRIP_HEIGHT;
+      IOException[] failure = new IOException[1];
+      IntStream.range(0, strips).parallel().forEach(strip -> {
+        // each strip opens its own reader, as readers can't be shared between threads
+        int y = strip * STRIP_HEIGHT;
+        int stripHeight = Math.min(STRIP_HEIGHT, height - y);
+        try (ImageInputStream inputStream = ImageIO.createImageInputStream(input.toFile())) {
+          ImageReader reader = readerFor(inputStream);
+          int sourceWidth = reader.getWidth(0);
+          int sourceHeight = reader.getHeight(0);
+          ImageReadParam readParam = reader.getDefaultReadParam();
+          readParam.setSourceRegion(new Rectangle(0, y * 2, sourceWidth, Math.min(stripHeight * 2,
+              sourceHeight - y * 2)));
+          Raster sourceStrip = reader.read(0, readParam).getRaster();
+          reader.dispose();
+
+          BufferedImage averaged = imageType.createBufferedImage(width, stripHeight);
+          average(sourceStrip, averaged.getRaster(), noData);
+
+          ImageWriteParam writeParam = writer.getDefaultWriteParam();
+          writeParam.setDestinationOffset(new Point(0, y));
+          synchronized (writer) {
+            writer.replacePixels(averaged, writeParam);
+          }
+          stripDone.run();
+        } catch (IOException e) {
+          synchronized (failure) {
+            failure[0] = e;
+          }
+        }
+      });
+      if (failure[0] != null) {
+        throw failure[0];
+      }
+
+      writer.endReplacePixels();
+      writer.endWriteEmpty();
+    } finally {
+      writer.dispose();
+    }
+  }
+
+  /**
+   * Averages blocks of 2 by 2 source pixels into each destination pixel, band by band. NoData and NaN samples are left
+   * out of the average, and a block with no valid samples stays NoData. Averages are rounded for integer rasters.
+   *
+   * @param source full resolution strip
+   * @param destination half resolution strip
+   * @param noData NoData value of the raster, or null if it has none
+   */
+  private static void average(Raster source, WritableRaster destination, Double noData) {
+    int sourceWidth = source.getWidth();
+    int sourceHeight = source.getHeight();
+    int dataType = destination.getDataBuffer().getDataType();
+    boolean integer = dataType != DataBuffer.TYPE_FLOAT && dataType != DataBuffer.TYPE_DOUBLE;
+    double empty = noData != null ? noData : Double.NaN;
+    double[] top = new double[sourceWidth];
+    double[] bottom = new double[sourceWidth];
+    double[] row = new double[destination.getWidth()];
+    for (int band = 0; band < destination.getNumBands(); band++) {
+      for (int y = 0; y < destination.getHeight(); y++) {
+        int topY = Math.min(y * 2, sourceHeight - 1);
+        int bottomY = Math.min(y * 2 + 1, sourceHeight - 1);
+        source.getSamples(source.getMinX(), source.getMinY() + topY, sourceWidth, 1, band, top);
+        source.getSamples(source.getMinX(), source.getMinY() + bottomY, sourceWidth, 1, band, bottom);
+        for (int x = 0; x < row.length; x++) {
+          int left = Math.min(x * 2, sourceWidth - 1);
+          int right = Math.min(x * 2 + 1, sourceWidth - 1);
+          double sum = 0;
+          int count = 0;
+          for (double sample : new double[] {top[left], top[right], bottom[left], bottom[right]}) {
+            if (!Double.isNaN(sample) && (noData == null || sample != noData)) {
+              sum += sample;
+              count++;
+            }
+          }
+          if (count == 0) {
+            row[x] = empty;
+          } else {
+            // integer rasters would otherwise truncate the average when it's stored
+            row[x] = integer ? Math.floor(sum / count + 0.5) : sum / count;
+          }
+        }
+        destination.setSamples(0, y, row.length, 1, band, row);
+      }
+    }
+  }
+
+  /**
+   * Reads a raster's NoData value from its GDAL_NODATA tag.
+   *
+   * @param file TIFF raster file
+   * @return the NoData value, or null if the raster has none
+   * @throws IOException if the file can't be read
+   */
+  private static Double readNoData(Path file) throws IOException {
+    try (ImageInputStream inputStream = ImageIO.createImageInputStream(file.toFile())) {
+      ImageReader reader = readerFor(inputStream);
+      // readers are set up to skip metadata, and only keep tags outside the baseline TIFF tag set when a read asks for
+      // them, so read one pixel with the metadata
+      reader.setInput(inputStream, true, false);
+      TIFFImageReadParam readParam = new TIFFImageReadParam();
+      readParam.setReadUnknownTags(true);
+      readParam.setSourceRegion(new Rectangle(0, 0, 1, 1));
+      reader.read(0, readParam);
+      IIOMetadata metadata = reader.getImageMetadata(0);
+      reader.dispose();
+      TIFFField field = TIFFDirectory.createFromMetadata(metadata).getTIFFField(NO_DATA_TAG.getNumber());
+      if (field == null) {
+        return null;
+      }
+      try {
+        return Double.valueOf(field.getAsString(0).trim());
+      } catch (NumberFormatException e) {
+        // "nan" is written for rasters whose NoData is NaN, which is skipped anyway
+        return null;
+      }
+    } catch (IIOInvalidTreeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Creates the TIFF metadata for a level, carrying the raster's NoData value over.
+   *
+   * @param noData NoData value of the raster, or null if it has none
+   * @return the level's image metadata, or null for the writer's defaults
+   */
+  private static IIOMetadata levelMetadata(Double noData) {
+    if (noData == null) {
+      return null;
+    }
+    TIFFDirectory tiffDirectory = new TIFFDirectory(new TIFFTagSet[] {BaselineTIFFTagSet.getInstance()}, null);
+    tiffDirectory.addTIFFField(new TIFFField(NO_DATA_TAG, TIFFTag.TIFF_ASCII, 1,
+        new String[] {noData % 1 == 0 ? String.valueOf(noData.longValue()) : String.valueOf(noData)}));
+    return tiffDirectory.getAsMetadata();
+  }
+
+  /**
+   * Works out the size of each overview level, halving the size until the level fits in a single tile.
+   *
+   * @param size width and height of the full resolution raster
+   * @return the width and height of each level from the most to the least detailed
+   */
+  private static List<int[]> levelSizes(int[] size) {
+    List<int[]> levelSizes = new ArrayList<>();
+    int width = size[0];
+    int height = size[1];
+    while (Math.max(width, height) > MIN_LEVEL_SIZE) {
+      width = (width + 1) / 2;
+      height = (height + 1) / 2;
+      levelSizes.add(new int[] {width, height});
+    }
+    return levelSizes;
+  }
+
+  /**
+   * Reads a raster's size in pixels.
+   *
+   * @param file raster file
+   * @return the width and height
+   * @throws IOException if the file can't be read
+   */
+  private static int[] readSize(Path file) throws IOException {
+    try (ImageInputStream inputStream = ImageIO.createImageInputStream(file.toFile())) {
+      ImageReader reader = readerFor(inputStream);
+      int[] size = {reader.getWidth(0), reader.getHeight(0)};
+      reader.dispose();
+      return size;
+    }
+  }
+
+  /**
+   * Gets an image reader for a stream.
+   *
+   * @param inputStream stream of a TIFF file
+   * @return a reader with its input set
+   * @throws IOException if no reader can decode the stream
+   */
+  private static ImageReader readerFor(ImageInputStream inputStream) throws IOException {
+    Iterator<ImageReader> readers = ImageIO.getImageReaders(inputStream);
+    if (!readers.hasNext()) {
+      throw new IOException("No image reader can decode the raster");
+    }
+    ImageReader reader = readers.next();
+    reader.setInput(inputStream, true, true);
+    return reader;
+  }
+
+  private Path levelFile(int level) {
+    return directory.resolve("level" + level + ".tif");
+  }
+
+  private static Path sidecar(Path file, String extension) {
+    String name = file.getFileName().toString();
+    return file.resolveSibling(name.substring(0, name.lastIndexOf('.')) + extension);
+  }
+}
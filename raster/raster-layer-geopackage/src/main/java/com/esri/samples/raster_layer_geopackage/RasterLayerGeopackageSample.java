@@ -19,9 +19,17 @@ package com.esri.samples.raster_layer_geopackage;
 import java.io.File;
 
 import javafx.application.Application;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Label;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
 import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Paint;
 import javafx.stage.Stage;
 
 import com.esri.arcgisruntime.data.GeoPackage;
@@ -29,6 +37,7 @@ import com.esri.arcgisruntime.layers.RasterLayer;
 import com.esri.arcgisruntime.loadable.LoadStatus;
 import com.esri.arcgisruntime.mapping.ArcGISMap;
 import com.esri.arcgisruntime.mapping.Basemap;
+import com.esri.arcgisruntime.mapping.view.DrawStatus;
 import com.esri.arcgisruntime.mapping.view.MapView;
 import com.esri.arcgisruntime.raster.GeoPackageRaster;
 
@@ -36,6 +45,7 @@ public class RasterLayerGeopackageSample extends Application {
 
   private MapView mapView;
   private GeoPackage geoPackage; // keep loadable in scope to avoid garbage collection
+  private long drawStartTime;
 
   @Override
   public void start(Stage stage) {
@@ -57,6 +67,25 @@ public class RasterLayerGeopackageSample extends Application {
       mapView = new MapView();
       mapView.setMap(map);
 
+      // show the draw time in a panel
+      Label statusLabel = new Label("Loading raster");
+      statusLabel.setStyle("-fx-text-fill: white;");
+      VBox controlsVBox = new VBox(6, statusLabel);
+      controlsVBox.setBackground(new Background(new BackgroundFill(Paint.valueOf("rgba(0,0,0,0.3)"),
+          CornerRadii.EMPTY, Insets.EMPTY)));
+      controlsVBox.setPadding(new Insets(10.0));
+      controlsVBox.setMaxSize(220, 40);
+
+      // report how long the map takes to draw completely after zooming to the raster. GeoPackage rasters are stored
+      // as a tile matrix with a level per zoom, so they're already drawn from the level matching the scale
+      mapView.addDrawStatusChangedListener(drawStatusChangedEvent -> {
+        if (drawStartTime > 0 && drawStatusChangedEvent.getDrawStatus() == DrawStatus.COMPLETED) {
+          long drawMillis = (System.nanoTime() - drawStartTime) / 1000000;
+          statusLabel.setText(String.format("Zoomed out draw: %d ms", drawMillis));
+          drawStartTime = 0;
+        }
+      });
+
       // create a geopackage from a local gpkg file
       geoPackage = new GeoPackage(new File(System.getProperty("data.dir"), "./samples-data/auroraCO/AuroraCO.gpkg").getAbsolutePath());
 
@@ -75,6 +104,7 @@ public class RasterLayerGeopackageSample extends Application {
           // set viewpoint on the raster layer
           rasterLayer.addDoneLoadingListener(() -> {
             if (rasterLayer.getLoadStatus() == LoadStatus.LOADED) {
+              drawStartTime = System.nanoTime();
               mapView.setViewpointGeometryAsync(rasterLayer.getFullExtent(), 150);
             } else {
               Alert alert = new Alert(Alert.AlertType.ERROR, "Failed to load raster layer");
@@ -88,8 +118,10 @@ public class RasterLayerGeopackageSample extends Application {
         }
       });
 
-      // add the map view to stack pane
-      stackPane.getChildren().addAll(mapView);
+      // add the map view and controls to stack pane
+      stackPane.getChildren().addAll(mapView, controlsVBox);
+      StackPane.setAlignment(controlsVBox, Pos.TOP_LEFT);
+      StackPane.setMargin(controlsVBox, new Insets(10, 0, 0, 10));
     } catch (Exception e) {
       // on any error, display the stack trace.
       e.printStackTrace();
@@ -0,0 +1,473 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.stretch_renderer;
+
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.metadata.IIOInvalidTreeException;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.plugins.tiff.TIFFDirectory;
+import javax.imageio.plugins.tiff.TIFFField;
+import javax.imageio.plugins.tiff.TIFFImageReadParam;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * Per band statistics of a local raster file: min, max, mean, standard deviation and a histogram. Statistics are
+ * computed once, first from a subsample of the pixels so they're available quickly, then from every pixel by reading
+ * strips of the raster in parallel. Pixels matching the raster's NoData value, read from its GDAL_NODATA tag, and NaN
+ * pixels are left out. The full statistics are saved to a sidecar file next to the raster and read back on later runs.
+ * <p>
+ * Percent clip and standard deviation stretches can be worked out from the statistics as min max stretches, so the
+ * renderer never needs to scan the raster itself.
+ */
+public class RasterStatisticsCache {
+
+  private static final int STRIP_HEIGHT = 256;
+  private static final long SAMPLED_PIXELS = 1 << 20;
+  private static final int BYTE_BINS = 256;
+  private static final int BINS = 1024;
+  // the TIFF tag GDAL and ArcGIS use to store a raster's NoData value as text
+  private static final int NO_DATA_TAG = 42113;
+
+  private final Path raster;
+  private final Path sidecar;
+
+  /**
+   * Statistics of one band.
+   */
+  public static class BandStatistics {
+
+    private final double min;
+    private final double max;
+    private final double mean;
+    private final double standardDeviation;
+    private final double histogramMin;
+    private final double histogramMax;
+    private final long[] histogram;
+
+    BandStatistics(double min, double max, double mean, double standardDeviation, double histogramMin,
+        double histogramMax, long[] histogram) {
+      this.min = min;
+      this.max = max;
+      this.mean = mean;
+      this.standardDeviation = standardDeviation;
+      this.histogramMin = histogramMin;
+      this.histogramMax = histogramMax;
+      this.histogram = histogram;
+    }
+
+    public double getMin() {
+      return min;
+    }
+
+    public double getMax() {
+      return max;
+    }
+
+    public double getMean() {
+      return mean;
+    }
+
+    public double getStandardDeviation() {
+      return standardDeviation;
+    }
+
+    /**
+     * Finds the value below which a fraction of the band's pixels fall, interpolating within a histogram bin.
+     *
+     * @param fraction fraction of pixels between 0 and 1
+     * @return the pixel value
+     */
+    public double getValueAtFraction(double fraction) {
+      long total = Arrays.stream(histogram).sum();
+      double target = fraction * total;
+      double binWidth = (histogramMax - histogramMin) / histogram.length;
+      long cumulative = 0;
+      for (int bin = 0; bin < histogram.length; bin++) {
+        if (histogram[bin] > 0 && cumulative + histogram[bin] >= target) {
+          double value = histogramMin + (bin + (target - cumulative) / histogram[bin]) * binWidth;
+          return Math.max(min, Math.min(max, value));
+        }
+        cumulative += histogram[bin];
+      }
+      return max;
+    }
+  }
+
+  /**
+   * Creates a cache for a raster.
+   *
+   * @param raster path to a raster file readable by ImageIO, such as a TIFF
+   */
+  public RasterStatisticsCache(Path raster) {
+    this.raster = raster;
+    this.sidecar = raster.resolveSibling(raster.getFileName() + ".stats");
+  }
+
+  /**
+   * Reads the statistics saved by an earlier run, if they're newer than the raster.
+   *
+   * @return the statistics of each band, or null if they need computing
+   * @throws IOException if the sidecar file can't be read
+   */
+  public List<BandStatistics> load() throws IOException {
+    if (!Files.exists(sidecar)
+        || Files.getLastModifiedTime(sidecar).compareTo(Files.getLastModifiedTime(raster)) < 0) {
+      return null;
+    }
+    Properties properties = new Properties();
+    try (InputStream inputStream = Files.newInputStream(sidecar)) {
+      properties.load(inputStream);
+    }
+    List<BandStatistics> statistics = new ArrayList<>();
+    int bands = Integer.parseInt(properties.getProperty("bands"));
+    for (int band = 0; band < bands; band++) {
+      String prefix = "band." + band + ".";
+      long[] histogram = Arrays.stream(properties.getProperty(prefix + "histogram").split(","))
+          .mapToLong(Long::parseLong).toArray();
+      statistics.add(new BandStatistics(Double.parseDouble(properties.getProperty(prefix + "min")),
+          Double.parseDouble(properties.getProperty(prefix + "max")),
+          Double.parseDouble(properties.getProperty(prefix + "mean")),
+          Double.parseDouble(properties.getProperty(prefix + "stdDev")),
+          Double.parseDouble(properties.getProperty(prefix + "histogramMin")),
+          Double.parseDouble(properties.getProperty(prefix + "histogramMax")), histogram));
+    }
+    return statistics;
+  }
+
+  /**
+   * Saves statistics to the sidecar file.
+   *
+   * @param statistics the statistics of each band
+   * @throws IOException if the sidecar file can't be written
+   */
+  public void save(List<BandStatistics> statistics) throws IOException {
+    Properties properties = new Properties();
+    properties.setProperty("bands", String.valueOf(statistics.size()));
+    for (int band = 0; band < statistics.size(); band++) {
+      String prefix = "band." + band + ".";
+      BandStatistics bandStatistics = statistics.get(band);
+      properties.setProperty(prefix + "min", String.valueOf(bandStatistics.min));
+      properties.setProperty(prefix + "max", String.valueOf(bandStatistics.max));
+      properties.setProperty(prefix + "mean", String.valueOf(bandStatistics.mean));
+      properties.setProperty(prefix + "stdDev", String.valueOf(bandStatistics.standardDeviation));
+      properties.setProperty(prefix + "histogramMin", String.valueOf(bandStatistics.histogramMin));
+      properties.setProperty(prefix + "histogramMax", String.valueOf(bandStatistics.histogramMax));
+      properties.setProperty(prefix + "histogram", Arrays.stream(bandStatistics.histogram).mapToObj(String::valueOf)
+          .collect(Collectors.joining(",")));
+    }
+    // write to a temporary file first so a half written sidecar is never read
+    Path temporary = sidecar.resolveSibling(sidecar.getFileName() + ".tmp");
+    try (OutputStream outputStream = Files.newOutputStream(temporary)) {
+      properties.store(outputStream, "statistics of " + raster.getFileName());
+    }
+    Files.move(temporary, sidecar, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Computes statistics from an evenly spaced subsample of about a million pixels.
+   *
+   * @return the approximate statistics of each band
+   * @throws IOException if the raster can't be read
+   */
+  public List<BandStatistics> computeSampled() throws IOException {
+    Double noData = readNoData();
+    try (ImageInputStream inputStream = ImageIO.createImageInputStream(raster.toFile())) {
+      ImageReader reader = readerFor(inputStream);
+      long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+      int step = (int) Math.max(1, Math.ceil(Math.sqrt((double) pixels / SAMPLED_PIXELS)));
+      int bins = binsFor(reader);
+      ImageReadParam readParam = reader.getDefaultReadParam();
+      readParam.setSourceSubsampling(step, step, 0, 0);
+      Raster sample = reader.read(0, readParam).getRaster();
+      reader.dispose();
+
+      // find the range first so the histogram covers it
+      Accumulator range = new Accumulator(sample.getNumBands(), null, null, 1, noData);
+      range.add(sample);
+      Accumulator accumulator = new Accumulator(sample.getNumBands(), range.min, range.max, bins, noData);
+      accumulator.add(sample);
+      return accumulator.toStatistics();
+    }
+  }
+
+  /**
+   * Computes statistics from every pixel, reading strips of the raster in parallel. The histogram covers the range
+   * of the sampled statistics, with values outside it counted in the first or last bin.
+   *
+   * @param sampled statistics from {@link #computeSampled()}
+   * @return the statistics of each band
+   * @throws IOException if the raster can't be read
+   */
+  public List<BandStatistics> computeFull(List<BandStatistics> sampled) throws IOException {
+    Double noData = readNoData();
+    int width;
+    int height;
+    int bins;
+    try (ImageInputStream inputStream = ImageIO.createImageInputStream(raster.toFile())) {
+      ImageReader reader = readerFor(inputStream);
+      width = reader.getWidth(0);
+      height = reader.getHeight(0);
+      bins = binsFor(reader);
+      reader.dispose();
+    }
+    double[] histogramMin = sampled.stream().mapToDouble(band -> band.histogramMin).toArray();
+    double[] histogramMax = sampled.stream().mapToDouble(band -> band.histogramMax).toArray();
+    int bands = sampled.size();
+
+    // each strip is read into its own accumulator, then the strips' accumulators are merged into one another, so no
+    // accumulator is shared between threads
+    int strips = (height + STRIP_HEIGHT - 1) / STRIP_HEIGHT;
+    IOException[] failure = new IOException[1];
+    Accumulator total = IntStream.range(0, strips).parallel().mapToObj(strip -> {
+      Accumulator accumulator = new Accumulator(bands, histogramMin, histogramMax, bins, noData);
+      // each strip opens its own reader, as readers can't be shared between threads
+      try (ImageInputStream inputStream = ImageIO.createImageInputStream(raster.toFile())) {
+        ImageReader reader = readerFor(inputStream);
+        ImageReadParam readParam = reader.getDefaultReadParam();
+        int y = strip * STRIP_HEIGHT;
+        readParam.setSourceRegion(new Rectangle(0, y, width, Math.min(STRIP_HEIGHT, height - y)));
+        accumulator.add(reader.read(0, readParam).getRaster());
+        reader.dispose();
+      } catch (IOException e) {
+        synchronized (failure) {
+          failure[0] = e;
+        }
+      }
+      return accumulator;
+    }).reduce(Accumulator::merge).orElseGet(() -> new Accumulator(bands, histogramMin, histogramMax, bins,
+        noData));
+    if (failure[0] != null) {
+      throw failure[0];
+    }
+    return total.toStatistics();
+  }
+
+  /**
+   * Works out the band values for a percent clip stretch.
+   *
+   * @param statistics the statistics of each band
+   * @param minPercent percent of pixels to clip from the low end
+   * @param maxPercent percent of pixels to clip from the high end
+   * @return the min values of each band, then the max values of each band
+   */
+  public static double[][] percentClip(List<BandStatistics> statistics, double minPercent, double maxPercent) {
+    double[][] values = new double[2][statistics.size()];
+    for (int band = 0; band < statistics.size(); band++) {
+      values[0][band] = statistics.get(band).getValueAtFraction(minPercent / 100);
+      values[1][band] = statistics.get(band).getValueAtFraction(1 - maxPercent / 100);
+    }
+    return values;
+  }
+
+  /**
+   * Works out the band values for a standard deviation stretch, clamped to the band's range.
+   *
+   * @param statistics the statistics of each band
+   * @param factor number of standard deviations either side of the mean
+   * @return the min values of each band, then the max values of each band
+   */
+  public static double[][] standardDeviation(List<BandStatistics> statistics, double factor) {
+    double[][] values = new double[2][statistics.size()];
+    for (int band = 0; band < statistics.size(); band++) {
+      BandStatistics bandStatistics = statistics.get(band);
+      double spread = factor * bandStatistics.standardDeviation;
+      values[0][band] = Math.max(bandStatistics.min, bandStatistics.mean - spread);
+      values[1][band] = Math.min(bandStatistics.max, bandStatistics.mean + spread);
+    }
+    return values;
+  }
+
+  /**
+   * Gets the number of histogram bins for a raster's stored data type: one per value for 8 bit data. Sampled and full
+   * statistics both use this, so their histograms line up.
+   *
+   * @param reader reader with the raster as its input
+   * @return number of bins
+   * @throws IOException if the raster's data type can't be read
+   */
+  private static int binsFor(ImageReader reader) throws IOException {
+    ImageTypeSpecifier rawType = reader.getRawImageType(0);
+    return rawType != null && rawType.getSampleModel().getDataType() == DataBuffer.TYPE_BYTE ? BYTE_BINS : BINS;
+  }
+
+  /**
+   * Reads the raster's NoData value from its GDAL_NODATA tag.
+   *
+   * @return the NoData value, or null if the raster has none
+   * @throws IOException if the raster can't be read
+   */
+  private Double readNoData() throws IOException {
+    try (ImageInputStream inputStream = ImageIO.createImageInputStream(raster.toFile())) {
+      ImageReader reader = readerFor(inputStream);
+      // readers are set up to skip metadata, and only keep tags outside the baseline TIFF tag set when a read asks for
+      // them, so read one pixel with the metadata
+      reader.setInput(inputStream, true, false);
+      ImageReadParam readParam = reader.getDefaultReadParam();
+      if (!(readParam instanceof TIFFImageReadParam)) {
+        reader.dispose();
+        return null;
+      }
+      ((TIFFImageReadParam) readParam).setReadUnknownTags(true);
+      readParam.setSourceRegion(new Rectangle(0, 0, 1, 1));
+      reader.read(0, readParam);
+      IIOMetadata metadata = reader.getImageMetadata(0);
+      reader.dispose();
+      TIFFField field = TIFFDirectory.createFromMetadata(metadata).getTIFFField(NO_DATA_TAG);
+      return field != null ? Double.valueOf(field.getAsString(0).trim()) : null;
+    } catch (IIOInvalidTreeException | NumberFormatException e) {
+      // "nan" is written for rasters whose NoData is NaN, which is skipped anyway
+      return null;
+    }
+  }
+
+  /**
+   * Gets an image reader for a stream.
+   *
+   * @param inputStream stream of a raster file
+   * @return a reader with its input set
+   * @throws IOException if no reader can decode the stream
+   */
+  private static ImageReader readerFor(ImageInputStream inputStream) throws IOException {
+    Iterator<ImageReader> readers = ImageIO.getImageReaders(inputStream);
+    if (!readers.hasNext()) {
+      throw new IOException("No image reader can decode the raster");
+    }
+    ImageReader reader = readers.next();
+    reader.setInput(inputStream, true, true);
+    return reader;
+  }
+
+  /**
+   * Running totals of each band, which can be merged with the totals of other parts of the raster.
+   */
+  private static class Accumulator {
+
+    private final int bands;
+    private final long[] count;
+    private final double[] sum;
+    private final double[] sumOfSquares;
+    private final double[] min;
+    private final double[] max;
+    private final double[] histogramMin;
+    private final double[] histogramMax;
+    private final long[][] histogram;
+    private final Double noData;
+
+    Accumulator(int bands, double[] histogramMin, double[] histogramMax, int bins, Double noData) {
+      this.bands = bands;
+      this.noData = noData;
+      count = new long[bands];
+      sum = new double[bands];
+      sumOfSquares = new double[bands];
+      min = new double[bands];
+      max = new double[bands];
+      Arrays.fill(min, Double.POSITIVE_INFINITY);
+      Arrays.fill(max, Double.NEGATIVE_INFINITY);
+      this.histogramMin = histogramMin != null ? histogramMin : new double[bands];
+      this.histogramMax = histogramMax != null ? histogramMax : new double[bands];
+      histogram = new long[bands][bins];
+    }
+
+    /**
+     * Adds every pixel of some raster data, except NoData and NaN pixels.
+     *
+     * @param data raster data
+     */
+    void add(Raster data) {
+      double[] row = new double[data.getWidth()];
+      for (int band = 0; band < bands; band++) {
+        long[] bandHistogram = histogram[band];
+        // byte bins hold one value each, so they're offset to be centered on the value
+        double binMin = bandHistogram.length == BYTE_BINS ? 0 : histogramMin[band];
+        double binScale = bandHistogram.length == BYTE_BINS ? 1 : bandHistogram.length
+            / Math.max(Double.MIN_NORMAL, histogramMax[band] - histogramMin[band]);
+        for (int y = 0; y < data.getHeight(); y++) {
+          data.getSamples(data.getMinX(), data.getMinY() + y, row.length, 1, band, row);
+          for (double value : row) {
+            if (Double.isNaN(value) || noData != null && value == noData) {
+              continue;
+            }
+            count[band]++;
+            sum[band] += value;
+            sumOfSquares[band] += value * value;
+            min[band] = Math.min(min[band], value);
+            max[band] = Math.max(max[band], value);
+            int bin = (int) ((value - binMin) * binScale);
+            bandHistogram[Math.max(0, Math.min(bandHistogram.length - 1, bin))]++;
+          }
+        }
+      }
+    }
+
+    /**
+     * Adds another accumulator's totals to this one's.
+     *
+     * @param other totals for another part of the raster
+     * @return this accumulator
+     */
+    Accumulator merge(Accumulator other) {
+      for (int band = 0; band < bands; band++) {
+        count[band] += other.count[band];
+        sum[band] += other.sum[band];
+        sumOfSquares[band] += other.sumOfSquares[band];
+        min[band] = Math.min(min[band], other.min[band]);
+        max[band] = Math.max(max[band], other.max[band]);
+        for (int bin = 0; bin < histogram[band].length; bin++) {
+          histogram[band][bin] += other.histogram[band][bin];
+        }
+      }
+      return this;
+    }
+
+    /**
+     * Converts the totals to statistics.
+     *
+     * @return the statistics of each band
+     */
+    List<BandStatistics> toStatistics() {
+      List<BandStatistics> statistics = new ArrayList<>();
+      for (int band = 0; band < bands; band++) {
+        double mean = count[band] == 0 ? 0 : sum[band] / count[band];
+        double variance = count[band] == 0 ? 0 : Math.max(0, sumOfSquares[band] / count[band] - mean * mean);
+        boolean byteBins = histogram[band].length == BYTE_BINS;
+        statistics.add(new BandStatistics(min[band], max[band], mean, Math.sqrt(variance),
+            byteBins ? 0 : histogramMin[band], byteBins ? BYTE_BINS : histogramMax[band], histogram[band]));
+      }
+      return statistics;
+    }
+  }
+}
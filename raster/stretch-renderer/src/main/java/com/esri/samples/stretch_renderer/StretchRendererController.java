@@ -17,10 +17,14 @@
 package com.esri.samples.stretch_renderer;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
 import javafx.scene.control.Spinner;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
@@ -49,13 +53,16 @@ public class StretchRendererController {
   @FXML private Spinner<Integer> maxPercentSpinner;
   @FXML private Spinner<Integer> minSpinner;
   @FXML private Spinner<Integer> maxSpinner;
+  @FXML private Label statisticsLabel;
 
   private RasterLayer rasterLayer;
+  private List<RasterStatisticsCache.BandStatistics> statistics;
 
   public void initialize() {
 
     // create raster
-    Raster raster = new Raster(new File(System.getProperty("data.dir"), "./samples-data/raster/ShastaBW.tif").getAbsolutePath());
+    File rasterFile = new File(System.getProperty("data.dir"), "./samples-data/raster/ShastaBW.tif");
+    Raster raster = new Raster(rasterFile.getAbsolutePath());
 
     // create a raster layer
     rasterLayer = new RasterLayer(raster);
@@ -92,6 +99,57 @@ public class StretchRendererController {
 
     stretchTypeComboBox.getSelectionModel().select(0);
 
+    // re-render as soon as a value changes, as the stretches are worked out from cached statistics
+    stretchTypeComboBox.getSelectionModel().selectedItemProperty().addListener(e -> updateRenderer());
+    for (Spinner<Integer> spinner : Arrays.asList(factorSpinner, minPercentSpinner, maxPercentSpinner, minSpinner,
+        maxSpinner)) {
+      spinner.valueProperty().addListener(e -> updateRenderer());
+    }
+
+    updateRenderer();
+
+    loadStatistics(new RasterStatisticsCache(rasterFile.toPath()));
+  }
+
+  /**
+   * Gets the raster's statistics on a background thread: from the sidecar file if there is one, otherwise from a
+   * quick sampled pass followed by a full pass, which is then saved to the sidecar file.
+   *
+   * @param statisticsCache statistics cache for the raster
+   */
+  private void loadStatistics(RasterStatisticsCache statisticsCache) {
+    statisticsLabel.setText("Statistics: computing");
+    Thread statisticsThread = new Thread(() -> {
+      try {
+        List<RasterStatisticsCache.BandStatistics> cached = statisticsCache.load();
+        if (cached != null) {
+          Platform.runLater(() -> setStatistics(cached, "cached"));
+          return;
+        }
+        List<RasterStatisticsCache.BandStatistics> sampled = statisticsCache.computeSampled();
+        Platform.runLater(() -> setStatistics(sampled, "sampled"));
+        List<RasterStatisticsCache.BandStatistics> full = statisticsCache.computeFull(sampled);
+        statisticsCache.save(full);
+        Platform.runLater(() -> setStatistics(full, "full"));
+      } catch (Exception e) {
+        // keep letting the renderer compute the stretches
+        e.printStackTrace();
+        Platform.runLater(() -> statisticsLabel.setText("Statistics: unavailable"));
+      }
+    });
+    statisticsThread.setDaemon(true);
+    statisticsThread.start();
+  }
+
+  /**
+   * Uses new statistics for the stretches and re-renders.
+   *
+   * @param bandStatistics the statistics of each band
+   * @param source where the statistics came from
+   */
+  private void setStatistics(List<RasterStatisticsCache.BandStatistics> bandStatistics, String source) {
+    statistics = bandStatistics;
+    statisticsLabel.setText("Statistics: " + source);
     updateRenderer();
   }
 
@@ -107,10 +165,21 @@ public class StretchRendererController {
             Collections.singletonList(maxSpinner.getValue().doubleValue()));
         break;
       case "Percent Clip":
-        stretchParameters = new PercentClipStretchParameters(minPercentSpinner.getValue(), maxPercentSpinner.getValue());
+        if (statistics != null) {
+          stretchParameters = minMaxStretchParameters(RasterStatisticsCache.percentClip(statistics,
+              minPercentSpinner.getValue(), maxPercentSpinner.getValue()));
+        } else {
+          stretchParameters = new PercentClipStretchParameters(minPercentSpinner.getValue(),
+              maxPercentSpinner.getValue());
+        }
         break;
       default:
-        stretchParameters = new StandardDeviationStretchParameters(factorSpinner.getValue());
+        if (statistics != null) {
+          stretchParameters = minMaxStretchParameters(RasterStatisticsCache.standardDeviation(statistics,
+              factorSpinner.getValue()));
+        } else {
+          stretchParameters = new StandardDeviationStretchParameters(factorSpinner.getValue());
+        }
     }
 
     // create blend renderer
@@ -118,6 +187,17 @@ public class StretchRendererController {
     rasterLayer.setRasterRenderer(stretchRenderer);
   }
 
+  /**
+   * Creates min max stretch parameters from the values worked out for a stretch.
+   *
+   * @param values min value then max value of the band
+   * @return the stretch parameters
+   */
+  private static MinMaxStretchParameters minMaxStretchParameters(double[][] values) {
+    return new MinMaxStretchParameters(Collections.singletonList(values[0][0]),
+        Collections.singletonList(values[1][0]));
+  }
+
   /**
    * Stops and releases all resources used in application.
    */
@@ -16,21 +16,38 @@
 
 package com.esri.samples.display_scene;
 
+import java.io.IOException;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
 import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Paint;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 import com.esri.arcgisruntime.mapping.ArcGISScene;
 import com.esri.arcgisruntime.mapping.ArcGISTiledElevationSource;
 import com.esri.arcgisruntime.mapping.Basemap;
 import com.esri.arcgisruntime.mapping.Surface;
 import com.esri.arcgisruntime.mapping.view.Camera;
+import com.esri.arcgisruntime.mapping.view.DrawStatus;
+import com.esri.arcgisruntime.mapping.view.DrawStatusChangedEvent;
+import com.esri.arcgisruntime.mapping.view.DrawStatusChangedListener;
 import com.esri.arcgisruntime.mapping.view.SceneView;
 
 public class DisplaySceneSample extends Application {
 
   private SceneView sceneView;
+  private Timeline statisticsTimeline;
   private static final String ELEVATION_IMAGE_SERVICE =
       "https://elevation3d.arcgis.com/arcgis/rest/services/WorldElevation3D/Terrain3D/ImageServer";
 
@@ -39,6 +56,8 @@ public class DisplaySceneSample extends Application {
 
     try {
 
+      long startNanos = System.nanoTime();
+
       // create stack pane and JavaFX app scene
       StackPane stackPane = new StackPane();
       Scene fxScene = new Scene(stackPane);
@@ -59,11 +78,51 @@ public class DisplaySceneSample extends Application {
       sceneView.setArcGISScene(scene);
       stackPane.getChildren().addAll(sceneView);
 
-      // add base surface for elevation data
+      // add base surface for elevation data, getting its tiles through the elevation cache
       Surface surface = new Surface();
-      surface.getElevationSources().add(new ArcGISTiledElevationSource(ELEVATION_IMAGE_SERVICE));
+      surface.getElevationSources().add(new ArcGISTiledElevationSource(
+          ElevationTileCache.getSharedUrl(ELEVATION_IMAGE_SERVICE)));
       scene.setBaseSurface(surface);
 
+      // show how long the scene takes to draw completely for the first time, which the cache shortens after the
+      // first launch, and how the cache is serving the elevation tiles
+      Label drawLabel = new Label("Drawing");
+      drawLabel.setStyle("-fx-text-fill: white;");
+      Label cacheLabel = new Label("Elevation cache off");
+      cacheLabel.setStyle("-fx-text-fill: white;");
+      cacheLabel.setWrapText(true);
+      VBox statisticsVBox = new VBox(6, drawLabel, cacheLabel);
+      statisticsVBox.setBackground(new Background(new BackgroundFill(Paint.valueOf("rgba(0,0,0,0.3)"),
+          CornerRadii.EMPTY, Insets.EMPTY)));
+      statisticsVBox.setPadding(new Insets(10.0));
+      statisticsVBox.setMaxSize(300, 100);
+      stackPane.getChildren().add(statisticsVBox);
+      StackPane.setAlignment(statisticsVBox, Pos.TOP_LEFT);
+      StackPane.setMargin(statisticsVBox, new Insets(10, 0, 0, 10));
+
+      sceneView.addDrawStatusChangedListener(new DrawStatusChangedListener() {
+        @Override
+        public void drawStatusChanged(DrawStatusChangedEvent drawStatusChangedEvent) {
+          if (drawStatusChangedEvent.getDrawStatus() == DrawStatus.COMPLETED) {
+            sceneView.removeDrawStatusChangedListener(this);
+            double drawMillis = (System.nanoTime() - startNanos) / 1e6;
+            drawLabel.setText(String.format("First complete draw after %.0f ms", drawMillis));
+          }
+        }
+      });
+      if (!"false".equals(System.getProperty("elevation.cache"))) {
+        statisticsTimeline = new Timeline(new KeyFrame(Duration.seconds(1), e -> {
+          try {
+            cacheLabel.setText("Elevation cache: " + ElevationTileCache.getShared().getStatistics());
+          } catch (IOException ex) {
+            // the cache couldn't be started, so the service is used directly
+            cacheLabel.setText("Elevation cache unavailable");
+          }
+        }));
+        statisticsTimeline.setCycleCount(Timeline.INDEFINITE);
+        statisticsTimeline.play();
+      }
+
       // add a camera and initial camera position
       Camera camera = new Camera(28.4, 83.9, 10010.0, 10.0, 80.0, 0.0);
       sceneView.setViewpointCamera(camera);
@@ -80,9 +139,13 @@ public class DisplaySceneSample extends Application {
   @Override
   public void stop() {
 
+    if (statisticsTimeline != null) {
+      statisticsTimeline.stop();
+    }
     if (sceneView != null) {
       sceneView.dispose();
     }
+    ElevationTileCache.stopShared();
   }
 
   /**
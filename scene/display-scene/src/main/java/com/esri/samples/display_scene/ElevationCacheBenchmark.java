@@ -0,0 +1,163 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.display_scene;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Command line harness timing how long it takes to get the elevation tiles of a scene's first complete draw, straight
+ * from a {@link StandInElevationServer}, through an {@link ElevationTileCache} with an empty store (the first launch)
+ * and through a new cache over the same store (every launch after). The tiles are those a scene view of the sample's
+ * camera asks for: the tiles around the camera at each level down to the finest, each asked for twice, as a scene
+ * does when a tile is needed both to draw the surface and to place content on it.
+ */
+public class ElevationCacheBenchmark {
+
+  private static final double LONGITUDE = 83.9;
+  private static final double LATITUDE = 28.4;
+  private static final int FINEST_LEVEL = 14;
+  private static final int TILES_ACROSS = 6;
+  private static final int CONCURRENT_REQUESTS = 16;
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optional latency of the stand-in server in milliseconds (default 80)
+   * @throws Exception if the servers can't be started or a request fails
+   */
+  public static void main(String[] args) throws Exception {
+
+    long latencyMillis = args.length > 0 ? Long.parseLong(args[0]) : 80;
+    // set up the local servers to answer without delay, as the cache does for itself
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+    StandInElevationServer standInServer = new StandInElevationServer(latencyMillis);
+    standInServer.start();
+    File storeDirectory = Files.createTempDirectory("elevation-cache").toFile();
+    List<String> resources = createFirstDrawRequests();
+    System.out.printf(Locale.ROOT, "%d requests for the first draw, %d ms latency%n%n", resources.size(),
+        latencyMillis);
+    System.out.printf(Locale.ROOT, "%-20s %12s %18s%n", "run", "first draw ms", "server requests");
+
+    // straight from the server, as the samples have been
+    run("no cache", standInServer.getServiceUrl(), resources, standInServer);
+
+    // through the cache, first with an empty store and then as the next launch would find it
+    ElevationTileCache coldCache = new ElevationTileCache(new ElevationTileStore(storeDirectory, Long.MAX_VALUE));
+    run("cold cache", coldCache.getCachedUrl(standInServer.getServiceUrl()), resources, standInServer);
+    System.out.println("  " + coldCache.getStatistics());
+    coldCache.stop();
+
+    ElevationTileCache warmCache = new ElevationTileCache(new ElevationTileStore(storeDirectory, Long.MAX_VALUE));
+    run("warm cache", warmCache.getCachedUrl(standInServer.getServiceUrl()), resources, standInServer);
+    System.out.println("  " + warmCache.getStatistics());
+    warmCache.getStore().clear();
+    warmCache.stop();
+
+    standInServer.stop();
+    new File(storeDirectory, "store.lock").delete();
+    storeDirectory.delete();
+  }
+
+  /**
+   * Makes the first draw's requests to a service, a few at a time as the runtime does, and prints how long they
+   * took.
+   *
+   * @param name name of the run
+   * @param serviceUrl URL of the service
+   * @param resources the requests, relative to the service
+   * @param standInServer the server behind the service, to count its requests
+   * @throws Exception if a request fails
+   */
+  private static void run(String name, String serviceUrl, List<String> resources,
+      StandInElevationServer standInServer) throws Exception {
+
+    ExecutorService executor = Executors.newFixedThreadPool(CONCURRENT_REQUESTS);
+    long serverRequestsBefore = standInServer.getRequestCount();
+    long start = System.nanoTime();
+    try {
+      // the service metadata comes first, since the tiles can't be asked for until it's known
+      get(serviceUrl + "?f=json");
+      List<Future<?>> requests = new ArrayList<>(resources.size());
+      for (String resource : resources) {
+        requests.add(executor.submit(() -> {
+          get(serviceUrl + resource);
+          return null;
+        }));
+      }
+      for (Future<?> request : requests) {
+        request.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    System.out.printf(Locale.ROOT, "%-20s %12.0f %18d%n", name, (System.nanoTime() - start) / 1e6,
+        standInServer.getRequestCount() - serverRequestsBefore);
+  }
+
+  /**
+   * Works out the tile requests of a scene's first draw.
+   *
+   * @return tile paths, relative to the service
+   */
+  private static List<String> createFirstDrawRequests() {
+    List<String> resources = new ArrayList<>();
+    double x = (LONGITUDE + 180) / 360;
+    double sinLatitude = Math.sin(Math.toRadians(LATITUDE));
+    double y = 0.5 - Math.log((1 + sinLatitude) / (1 - sinLatitude)) / (4 * Math.PI);
+    for (int level = 0; level <= FINEST_LEVEL; level++) {
+      int tiles = 1 << level;
+      int across = Math.min(tiles, TILES_ACROSS);
+      int firstColumn = Math.max(0, Math.min(tiles - across, (int) (x * tiles) - across / 2));
+      int firstRow = Math.max(0, Math.min(tiles - across, (int) (y * tiles) - across / 2));
+      for (int row = firstRow; row < firstRow + across; row++) {
+        for (int column = firstColumn; column < firstColumn + across; column++) {
+          String tile = "/tile/" + level + "/" + row + "/" + column;
+          resources.add(tile);
+          resources.add(tile);
+        }
+      }
+    }
+    return resources;
+  }
+
+  /**
+   * Gets a URL, reading and discarding the response.
+   *
+   * @param url the URL
+   * @throws IOException if the request fails
+   */
+  private static void get(String url) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    try (InputStream inputStream = connection.getInputStream()) {
+      inputStream.transferTo(OutputStream.nullOutputStream());
+    } finally {
+      connection.disconnect();
+    }
+  }
+}
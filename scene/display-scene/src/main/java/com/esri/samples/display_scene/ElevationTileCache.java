@@ -0,0 +1,396 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.display_scene;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local caching proxy for tiled elevation services, which lets scenes reuse elevation tiles between runs. Point an
+ * {@code ArcGISTiledElevationSource} at {@link #getCachedUrl(String)} instead of the service. The service's responses
+ * are kept in an {@link ElevationTileStore}, and requests for a tile already being fetched wait for that fetch rather
+ * than making another. The sample keeps its store in the user's {@code .arcgis} directory, so a tile fetched in one
+ * run is on disk for the runs after it. Only one process can use the store at a time; while another has it open, the
+ * sample gets its tiles straight from the service.
+ * <p>
+ * Tiles the service has no data for are remembered too, so they aren't asked for again. The service's metadata is
+ * served from the store straight away, but is fetched again in the background the first time it's served in each
+ * run, so a change to the service is picked up by the next run. A {@code token} parameter is passed on to the
+ * service but left out of the keys responses are stored under, so tokens aren't written to disk.
+ */
+public class ElevationTileCache {
+
+  private static final String CONTEXT = "/elevation/";
+  private static final int TIMEOUT_MILLIS = 30000;
+  private static final long DEFAULT_BUDGET_MB = 512;
+  private static final String MISSING_PREFIX = "missing:";
+  private static final byte[] MISSING_MARKER = {0};
+
+  private static ElevationTileCache shared;
+  private static IOException sharedFailure;
+
+  static {
+    // without this the local server's small responses wait on delayed acknowledgements, adding ~40 ms to each tile
+    if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+  }
+
+  private final ElevationTileStore store;
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+    Thread thread = new Thread(runnable, "elevation-cache");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final Map<String, String> serviceUrls = new ConcurrentHashMap<>();
+  private final Map<String, CompletableFuture<Response>> inFlight = new ConcurrentHashMap<>();
+  private final Set<String> revalidated = ConcurrentHashMap.newKeySet();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong missingHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+
+  /**
+   * Gets the cache used by everything in this process, starting it if needed. Its store is in the user's
+   * {@code .arcgis} directory, with a budget of 512 MB unless the {@code elevation.cache.mb} system property gives
+   * another. If the cache can't be started, later calls fail the same way without trying again.
+   *
+   * @return the shared cache
+   * @throws IOException if the store can't be opened, such as when another process has it open, or the proxy can't
+   *                     be started
+   */
+  public static synchronized ElevationTileCache getShared() throws IOException {
+    if (sharedFailure != null) {
+      throw sharedFailure;
+    }
+    if (shared == null) {
+      File directory = new File(System.getProperty("user.home"), ".arcgis/elevation-cache");
+      long budgetMb = Long.getLong("elevation.cache.mb", DEFAULT_BUDGET_MB);
+      ElevationTileStore store;
+      try {
+        store = new ElevationTileStore(directory, budgetMb * 1024 * 1024);
+      } catch (IOException e) {
+        sharedFailure = e;
+        throw e;
+      }
+      try {
+        shared = new ElevationTileCache(store);
+      } catch (IOException e) {
+        store.close();
+        sharedFailure = e;
+        throw e;
+      }
+    }
+    return shared;
+  }
+
+  /**
+   * Stops the shared cache if it was started, unlocking its store for other processes.
+   */
+  public static synchronized void stopShared() {
+    if (shared != null) {
+      shared.stop();
+      shared = null;
+    }
+  }
+
+  /**
+   * Gets the URL a sample should use for an elevation service. This is the one call a sample needs to share the
+   * elevation cache. The service's own URL is returned if the {@code elevation.cache} system property is false, or
+   * the cache can't be started.
+   *
+   * @param serviceUrl URL of the elevation service
+   * @return URL of the service through the shared cache, or the service's URL
+   */
+  public static String getSharedUrl(String serviceUrl) {
+    if ("false".equals(System.getProperty("elevation.cache"))) {
+      return serviceUrl;
+    }
+    try {
+      return getShared().getCachedUrl(serviceUrl);
+    } catch (IOException e) {
+      e.printStackTrace();
+      return serviceUrl;
+    }
+  }
+
+  /**
+   * Starts a caching proxy on a local port.
+   *
+   * @param store the store to cache responses in
+   * @throws IOException if the proxy can't be started
+   */
+  public ElevationTileCache(ElevationTileStore store) throws IOException {
+    this.store = store;
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext(CONTEXT, this::handle);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  /**
+   * Gets the URL to use for an elevation service so that its responses are cached.
+   *
+   * @param serviceUrl URL of the elevation service
+   * @return URL of the service through the cache
+   */
+  public String getCachedUrl(String serviceUrl) {
+    // name the service by its URL so its responses are found again by later runs
+    String id = Integer.toHexString(serviceUrl.hashCode());
+    serviceUrls.put(id, serviceUrl);
+    return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + CONTEXT + id;
+  }
+
+  public ElevationTileStore getStore() {
+    return store;
+  }
+
+  /**
+   * Summarizes how requests to the cache were served.
+   *
+   * @return human readable statistics
+   */
+  public String getStatistics() {
+    return String.format("%d from disk (%d known to have no data), %d from the service, %d waited on another "
+        + "request, %.1f MB on disk", hits.get(), missingHits.get(), misses.get(), coalesced.get(),
+        store.getTotalBytes() / 1048576.0);
+  }
+
+  /**
+   * Stops the proxy and closes its store.
+   */
+  public void stop() {
+    server.stop(0);
+    executor.shutdown();
+    try {
+      store.close();
+    } catch (IOException e) {
+      // the lock goes with the process anyway
+    }
+  }
+
+  /**
+   * Serves a request from the store, or from the service if it isn't in the store yet.
+   *
+   * @param exchange the request
+   * @throws IOException if the response can't be sent
+   */
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      String path = exchange.getRequestURI().getRawPath().substring(CONTEXT.length());
+      String query = exchange.getRequestURI().getRawQuery();
+      int slash = path.indexOf('/');
+      String id = slash < 0 ? path : path.substring(0, slash);
+      String serviceUrl = serviceUrls.get(id);
+      if (serviceUrl == null) {
+        exchange.sendResponseHeaders(404, -1);
+        return;
+      }
+      String resourcePath = slash < 0 ? "" : path.substring(slash);
+      String keyQuery = withoutToken(query);
+      boolean tile = resourcePath.contains("/tile/");
+      Response response = get(id + resourcePath + (keyQuery != null ? "?" + keyQuery : ""),
+          serviceUrl + resourcePath + (query != null ? "?" + query : ""), tile);
+
+      exchange.getResponseHeaders().set("Content-Type", tile ? "application/octet-stream"
+          : "application/json; charset=utf-8");
+      exchange.sendResponseHeaders(response.status, response.body.remaining() > 0 ? response.body.remaining() : -1);
+      try (OutputStream outputStream = exchange.getResponseBody()) {
+        WritableByteChannel channel = Channels.newChannel(outputStream);
+        while (response.body.hasRemaining()) {
+          channel.write(response.body);
+        }
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * Removes the {@code token} parameter from a query, so that the response's key doesn't depend on the token.
+   *
+   * @param query the raw query, or null
+   * @return the query without its token, or null if nothing is left
+   */
+  private static String withoutToken(String query) {
+    if (query == null) {
+      return null;
+    }
+    StringBuilder kept = new StringBuilder(query.length());
+    for (String parameter : query.split("&")) {
+      int equals = parameter.indexOf('=');
+      String name = equals < 0 ? parameter : parameter.substring(0, equals);
+      if (!parameter.isEmpty() && !name.equalsIgnoreCase("token")) {
+        kept.append(kept.length() > 0 ? "&" : "").append(parameter);
+      }
+    }
+    return kept.length() > 0 ? kept.toString() : null;
+  }
+
+  /**
+   * Gets a response from the store, or fetches it from the service and stores it. Concurrent requests for the same
+   * response share one fetch.
+   *
+   * @param key the response's key in the store
+   * @param url the response's URL at the service
+   * @param tile whether the response is a tile rather than the service's metadata
+   * @return the response
+   * @throws IOException if the response isn't stored and can't be fetched
+   */
+  private Response get(String key, String url, boolean tile) throws IOException {
+    Response stored = lookUp(key, url, tile);
+    if (stored != null) {
+      return stored;
+    }
+
+    CompletableFuture<Response> fetch = new CompletableFuture<>();
+    CompletableFuture<Response> existingFetch = inFlight.putIfAbsent(key, fetch);
+    if (existingFetch != null) {
+      coalesced.incrementAndGet();
+      try {
+        // each waiting request reads the response from its own position
+        return existingFetch.get().duplicate();
+      } catch (InterruptedException | ExecutionException e) {
+        throw new IOException("Shared fetch failed", e);
+      }
+    }
+
+    try {
+      // another request may have stored the response since it was looked up
+      Response response = lookUp(key, url, tile);
+      if (response == null) {
+        misses.incrementAndGet();
+        response = fetch(url);
+        if (response.status == 200) {
+          store.write(key, response.body.array());
+          revalidated.add(key);
+        } else if (tile && response.status == 404) {
+          store.write(MISSING_PREFIX + key, MISSING_MARKER);
+        }
+      }
+      fetch.complete(response);
+      return response.duplicate();
+    } catch (IOException e) {
+      fetch.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key);
+    }
+  }
+
+  /**
+   * Looks up a response in the store. The first time the service's metadata is served in a run, it's fetched again
+   * in the background to replace the stored copy.
+   *
+   * @param key the response's key in the store
+   * @param url the response's URL at the service
+   * @param tile whether the response is a tile rather than the service's metadata
+   * @return the response, or null if it isn't in the store
+   * @throws IOException if the response can't be read
+   */
+  private Response lookUp(String key, String url, boolean tile) throws IOException {
+    ByteBuffer stored = store.read(key);
+    if (stored != null) {
+      hits.incrementAndGet();
+      if (!tile && revalidated.add(key)) {
+        executor.execute(() -> {
+          try {
+            Response response = fetch(url);
+            if (response.status == 200) {
+              store.write(key, response.body.array());
+            }
+          } catch (IOException e) {
+            // keep serving the stored copy
+          }
+        });
+      }
+      return new Response(200, stored);
+    }
+    if (tile && store.read(MISSING_PREFIX + key) != null) {
+      hits.incrementAndGet();
+      missingHits.incrementAndGet();
+      return new Response(404, ByteBuffer.allocate(0));
+    }
+    return null;
+  }
+
+  /**
+   * Fetches a response from the service.
+   *
+   * @param url URL of the response
+   * @return the response's status and body
+   * @throws IOException if the service can't be reached
+   */
+  private static Response fetch(String url) throws IOException {
+    HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+    connection.setConnectTimeout(TIMEOUT_MILLIS);
+    connection.setReadTimeout(TIMEOUT_MILLIS);
+    try {
+      int status = connection.getResponseCode();
+      InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      if (body != null) {
+        try (InputStream inputStream = body) {
+          inputStream.transferTo(bytes);
+        }
+      }
+      return new Response(status, ByteBuffer.wrap(bytes.toByteArray()));
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  /**
+   * A response's status and body.
+   */
+  private static class Response {
+
+    private final int status;
+    private final ByteBuffer body;
+
+    Response(int status, ByteBuffer body) {
+      this.status = status;
+      this.body = body;
+    }
+
+    Response duplicate() {
+      return new Response(status, body.duplicate());
+    }
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.display_scene;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An on-disk store of elevation service responses, such as LERC encoded tiles, which persists between runs. Each
+ * response is a file named by a hash of its key, and is read back memory-mapped rather than copied onto the heap.
+ * When the store grows past its byte budget, the least recently used responses are deleted. Use order is kept in
+ * the files' modification times, so it carries over to the next run.
+ * <p>
+ * The store keeps its index and byte total in memory, so only one store may have a directory open at a time: opening
+ * it locks the directory, and opening a directory that another process or store has open fails.
+ */
+public class ElevationTileStore {
+
+  private final Path directory;
+  private final long budgetBytes;
+  private final FileChannel lockChannel;
+  private final FileLock lock;
+  private final Map<String, Long> fileSizes = new LinkedHashMap<>(1024, 0.75f, true);
+  private long totalBytes;
+
+  /**
+   * Opens a store, creating its directory if needed, and locks the directory until the store is closed.
+   *
+   * @param directory directory to keep the responses in
+   * @param budgetBytes most bytes to keep
+   * @throws IOException if the directory can't be created or listed, or another store has it open
+   */
+  public ElevationTileStore(File directory, long budgetBytes) throws IOException {
+    this.directory = directory.toPath();
+    this.budgetBytes = budgetBytes;
+    Files.createDirectories(this.directory);
+    lockChannel = FileChannel.open(this.directory.resolve("store.lock"), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE);
+    FileLock directoryLock;
+    try {
+      directoryLock = lockChannel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      directoryLock = null;
+    }
+    if (directoryLock == null) {
+      lockChannel.close();
+      throw new IOException("Elevation tile store " + directory + " is already open");
+    }
+    lock = directoryLock;
+
+    // pick up the responses of earlier runs, least recently used first
+    File[] files = directory.listFiles((dir, name) -> name.endsWith(".bin"));
+    if (files != null) {
+      Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+      for (File file : files) {
+        fileSizes.put(file.getName(), file.length());
+        totalBytes += file.length();
+      }
+    }
+    synchronized (this) {
+      evict();
+    }
+  }
+
+  /**
+   * Reads a response.
+   *
+   * @param key the response's key
+   * @return the response, memory-mapped, or null if it isn't in the store
+   * @throws IOException if the response can't be read
+   */
+  public ByteBuffer read(String key) throws IOException {
+    String fileName = fileName(key);
+    synchronized (this) {
+      if (fileSizes.get(fileName) == null) {
+        return null;
+      }
+    }
+    Path file = directory.resolve(fileName);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer response = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+      return response;
+    } catch (NoSuchFileException e) {
+      // evicted after it was looked up
+      return null;
+    }
+  }
+
+  /**
+   * Writes a response, evicting the least recently used responses if the store is over its budget.
+   *
+   * @param key the response's key
+   * @param response the response
+   * @throws IOException if the response can't be written
+   */
+  public void write(String key, byte[] response) throws IOException {
+    String fileName = fileName(key);
+    Path temporaryFile = Files.createTempFile(directory, "tile", ".tmp");
+    try {
+      Files.write(temporaryFile, response);
+      Files.move(temporaryFile, directory.resolve(fileName), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporaryFile);
+    }
+    synchronized (this) {
+      Long previousSize = fileSizes.put(fileName, (long) response.length);
+      totalBytes += response.length - (previousSize != null ? previousSize : 0);
+      evict();
+    }
+  }
+
+  /**
+   * Deletes every response in the store.
+   *
+   * @throws IOException if a response can't be deleted
+   */
+  public synchronized void clear() throws IOException {
+    for (String fileName : fileSizes.keySet()) {
+      Files.deleteIfExists(directory.resolve(fileName));
+    }
+    fileSizes.clear();
+    totalBytes = 0;
+  }
+
+  /**
+   * Unlocks the store's directory, so another store can open it. The store can't be used afterwards.
+   *
+   * @throws IOException if the lock can't be released
+   */
+  public synchronized void close() throws IOException {
+    if (lockChannel.isOpen()) {
+      lock.release();
+      lockChannel.close();
+    }
+  }
+
+  /**
+   * Gets how many bytes of responses are in the store.
+   *
+   * @return size of the store in bytes
+   */
+  public synchronized long getTotalBytes() {
+    return totalBytes;
+  }
+
+  /**
+   * Deletes the least recently used responses until the store is within its budget.
+   */
+  private void evict() {
+    Iterator<Map.Entry<String, Long>> entries = fileSizes.entrySet().iterator();
+    while (totalBytes > budgetBytes && entries.hasNext()) {
+      Map.Entry<String, Long> eldest = entries.next();
+      try {
+        Files.deleteIfExists(directory.resolve(eldest.getKey()));
+        totalBytes -= eldest.getValue();
+        entries.remove();
+      } catch (IOException e) {
+        // a file which is still mapped can't be deleted on some platforms, so leave it for next time
+      }
+    }
+  }
+
+  /**
+   * Works out the file name of a response from its key.
+   *
+   * @param key the response's key
+   * @return the file name
+   */
+  private static String fileName(String key) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+      StringBuilder fileName = new StringBuilder(44);
+      for (int i = 0; i < 20; i++) {
+        fileName.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+      }
+      return fileName.append(".bin").toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
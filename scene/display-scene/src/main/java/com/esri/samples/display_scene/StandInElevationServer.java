@@ -0,0 +1,131 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.display_scene;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local tiled elevation server standing in for a real one, for timing the elevation tile cache without network
+ * access. It serves service metadata at {@code /ImageServer} and tiles at {@code /ImageServer/tile/{level}/{row}/{col}}
+ * after a fixed latency, like a distant server would. Tiles are filler bytes the size of a typical LERC tile rather
+ * than real elevation, since the cache doesn't look inside them.
+ */
+public class StandInElevationServer {
+
+  private static final int TILE_BYTES = 24 * 1024;
+
+  private final HttpServer server;
+  private final long latencyMillis;
+  private final AtomicLong requests = new AtomicLong();
+
+  /**
+   * Creates a server listening on an ephemeral port of the loopback interface. Call {@link #start()} to begin
+   * serving.
+   *
+   * @param latencyMillis how long to wait before answering each request
+   * @throws IOException if the server socket can't be opened
+   */
+  public StandInElevationServer(long latencyMillis) throws IOException {
+    this.latencyMillis = latencyMillis;
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/ImageServer", this::handle);
+    server.setExecutor(Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "stand-in-elevation-server");
+      thread.setDaemon(true);
+      return thread;
+    }));
+  }
+
+  /**
+   * Starts serving tiles.
+   */
+  public void start() {
+    server.start();
+  }
+
+  /**
+   * Stops serving tiles.
+   */
+  public void stop() {
+    server.stop(0);
+  }
+
+  /**
+   * Gets the URL of the elevation service.
+   *
+   * @return service URL
+   */
+  public String getServiceUrl() {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + "/ImageServer";
+  }
+
+  /**
+   * Gets how many requests the server has answered.
+   *
+   * @return number of requests
+   */
+  public long getRequestCount() {
+    return requests.get();
+  }
+
+  /**
+   * Serves the service metadata or a tile.
+   *
+   * @param exchange the HTTP exchange
+   * @throws IOException if the response can't be written
+   */
+  private void handle(HttpExchange exchange) throws IOException {
+    requests.incrementAndGet();
+    try {
+      Thread.sleep(latencyMillis);
+      String path = exchange.getRequestURI().getPath();
+      byte[] body;
+      if (path.startsWith("/ImageServer/tile/")) {
+        // the same tile always has the same bytes
+        body = new byte[TILE_BYTES];
+        new Random(path.hashCode()).nextBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+      } else if (path.equals("/ImageServer")) {
+        body = ("{\"name\":\"Stand-in elevation\",\"tileInfo\":{\"rows\":256,\"cols\":256,\"format\":\"LERC\","
+            + "\"spatialReference\":{\"wkid\":102100}}}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+      } else {
+        exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_FOUND, -1);
+        return;
+      }
+      exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, body.length);
+      try (OutputStream responseBody = exchange.getResponseBody()) {
+        responseBody.write(body);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      exchange.close();
+    }
+  }
+}
@@ -16,20 +16,33 @@
 
 package com.esri.samples.extrude_graphics;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
 import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
 import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
 import javafx.stage.Stage;
 
 import com.esri.arcgisruntime.geometry.Point;
 import com.esri.arcgisruntime.geometry.PointCollection;
 import com.esri.arcgisruntime.geometry.Polygon;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
 import com.esri.arcgisruntime.mapping.ArcGISScene;
 import com.esri.arcgisruntime.mapping.ArcGISTiledElevationSource;
 import com.esri.arcgisruntime.mapping.Basemap;
@@ -47,8 +60,11 @@ import com.esri.arcgisruntime.symbology.SimpleRenderer;
 public class ExtrudeGraphicsSample extends Application {
 
   private SceneView sceneView;
+  private GraphicsOverlay massGraphicsOverlay;
   private static final String ELEVATION_IMAGE_SERVICE =
       "https://elevation3d.arcgis.com/arcgis/rest/services/WorldElevation3D/Terrain3D/ImageServer";
+  private static final double BLOCK_SIZE = 0.0005;
+  private static final double MAX_BLOCK_HEIGHT = 300;
 
   @Override
   public void start(Stage stage) {
@@ -116,12 +132,102 @@ public class ExtrudeGraphicsSample extends Application {
       });
 
       sceneView.getGraphicsOverlays().add(graphicsOverlay);
+
+      // create controls to load many prisms sharing the symbols of one renderer, like the blocks of a city
+      ComboBox<Integer> countComboBox = new ComboBox<>();
+      countComboBox.getItems().addAll(10_000, 100_000, 1_000_000);
+      countComboBox.getSelectionModel().select(0);
+      countComboBox.setMaxWidth(Double.MAX_VALUE);
+      ComboBox<GraphicsOverlay.RenderingMode> renderingModeComboBox = new ComboBox<>();
+      renderingModeComboBox.getItems().addAll(GraphicsOverlay.RenderingMode.DYNAMIC,
+          GraphicsOverlay.RenderingMode.STATIC);
+      renderingModeComboBox.getSelectionModel().select(0);
+      renderingModeComboBox.setMaxWidth(Double.MAX_VALUE);
+      Button loadButton = new Button("Load city blocks");
+      loadButton.setMaxWidth(Double.MAX_VALUE);
+      Label statusLabel = new Label();
+      statusLabel.setWrapText(true);
+      statusLabel.setStyle("-fx-text-fill: white;");
+
+      VBox controlsVBox = new VBox(6);
+      controlsVBox.setBackground(new Background(new BackgroundFill(Paint.valueOf("rgba(0,0,0,0.3)"),
+          CornerRadii.EMPTY, Insets.EMPTY)));
+      controlsVBox.setPadding(new Insets(10.0));
+      controlsVBox.setMaxSize(200, 150);
+      controlsVBox.getChildren().addAll(countComboBox, renderingModeComboBox, loadButton, statusLabel);
+      stackPane.getChildren().add(controlsVBox);
+      StackPane.setAlignment(controlsVBox, Pos.TOP_LEFT);
+      StackPane.setMargin(controlsVBox, new Insets(10, 0, 0, 10));
+
+      ExtrudedPrismLoader prismLoader = new ExtrudedPrismLoader(5000);
+      double blocksX = x + 0.15;
+      double blocksY = y;
+      loadButton.setOnAction(e -> {
+        int count = countComboBox.getValue();
+        loadButton.setDisable(true);
+        statusLabel.setText("Creating prisms...");
+        sceneView.getGraphicsOverlays().remove(massGraphicsOverlay);
+
+        // the rendering mode can only be set when an overlay is created
+        massGraphicsOverlay = new GraphicsOverlay(renderingModeComboBox.getValue());
+        massGraphicsOverlay.getSceneProperties().setSurfacePlacement(
+            LayerSceneProperties.SurfacePlacement.DRAPED_BILLBOARDED);
+        massGraphicsOverlay.setRenderer(ExtrudedPrismLoader.createRenderer(MAX_BLOCK_HEIGHT));
+        sceneView.getGraphicsOverlays().add(massGraphicsOverlay);
+        GraphicsOverlay loadingGraphicsOverlay = massGraphicsOverlay;
+
+        // create the prisms in the background, then add them a chunk at a time
+        long start = System.nanoTime();
+        Thread loadThread = new Thread(() -> {
+          Graphic[] prisms = prismLoader.createPrisms(count, blocksX, blocksY, BLOCK_SIZE, MAX_BLOCK_HEIGHT,
+              System.nanoTime());
+          double createSeconds = (System.nanoTime() - start) / 1e9;
+          Platform.runLater(() -> statusLabel.setText(String.format("Adding %,d prisms...", count)));
+          prismLoader.addInChunks(loadingGraphicsOverlay, prisms).thenRun(() -> {
+            statusLabel.setText(String.format("%,d prisms created in %.1f s, added in %.1f s", count, createSeconds,
+                (System.nanoTime() - start) / 1e9));
+            loadButton.setDisable(false);
+            double gridSize = Math.ceil(Math.sqrt(count)) * BLOCK_SIZE;
+            sceneView.setViewpointCameraAsync(new Camera(new Point(blocksX + gridSize / 2, blocksY + gridSize / 2, 0,
+                SpatialReferences.getWgs84()), Math.max(2000, gridSize * 111_000), 0, 60, 0));
+          });
+        });
+        loadThread.setDaemon(true);
+        loadThread.start();
+      });
+
+      // run the stress benchmark unattended and exit, with --benchmark or -Dbenchmark=true
+      if (getParameters().getRaw().contains("--benchmark") || Boolean.getBoolean("benchmark")) {
+        controlsVBox.setDisable(true);
+        runBenchmark(blocksX, blocksY, statusLabel);
+      }
     } catch (Exception e) {
       // on any error, display the stack trace
       e.printStackTrace();
     }
   }
 
+  /**
+   * Runs the extrusion stress benchmark in the background once the scene has first drawn, writes the results to the
+   * benchmark-results directory and exits.
+   *
+   * @param x longitude of the prisms' south west corner
+   * @param y latitude of the prisms' south west corner
+   * @param statusLabel label to show the progress in
+   */
+  private void runBenchmark(double x, double y, Label statusLabel) {
+
+    // the counts can be given with -Dbenchmark.counts=10000,100000
+    List<Integer> counts = new ArrayList<>();
+    for (String count : System.getProperty("benchmark.counts", "10000,100000,1000000").split(",")) {
+      counts.add(Integer.parseInt(count.trim()));
+    }
+
+    ExtrusionBenchmark benchmark = new ExtrusionBenchmark(sceneView, x, y);
+    BenchmarkRunner.runWhenDrawn(sceneView, outputDirectory -> benchmark.run(counts, outputDirectory,
+        message -> Platform.runLater(() -> statusLabel.setText(message))));
+  }
+
   /**
    * Stops and releases all resources used in application.
    */
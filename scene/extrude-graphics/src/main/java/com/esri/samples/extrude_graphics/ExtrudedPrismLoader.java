@@ -0,0 +1,143 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.extrude_graphics;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+import javafx.application.Platform;
+import javafx.scene.paint.Color;
+
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.PointCollection;
+import com.esri.arcgisruntime.geometry.Polygon;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
+import com.esri.arcgisruntime.mapping.view.Graphic;
+import com.esri.arcgisruntime.mapping.view.GraphicsOverlay;
+import com.esri.arcgisruntime.symbology.ClassBreaksRenderer;
+import com.esri.arcgisruntime.symbology.ColorUtil;
+import com.esri.arcgisruntime.symbology.Renderer.SceneProperties;
+import com.esri.arcgisruntime.symbology.SimpleFillSymbol;
+
+/**
+ * Loads large numbers of extruded square prisms into a graphics overlay, laid out in a grid like city blocks. Unlike
+ * creating a symbol for each graphic, the prisms share the few symbols of a class breaks renderer, which colors them by
+ * their height attribute. The graphics are created in parallel off the JavaFX application thread, then added to the
+ * overlay in chunks so the application stays responsive while they're added.
+ */
+public class ExtrudedPrismLoader {
+
+  static final String HEIGHT = "HEIGHT";
+
+  private static final int CLASS_COUNT = 16;
+
+  private final int chunkSize;
+
+  /**
+   * Creates a loader.
+   *
+   * @param chunkSize number of graphics to add to the overlay at a time
+   */
+  public ExtrudedPrismLoader(int chunkSize) {
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Creates a renderer which extrudes graphics by their height attribute up from the surface, and colors them by it
+   * in the same colors as the sample's individually symbolized graphics.
+   *
+   * @param maxHeight greatest height of the graphics
+   * @return the renderer
+   */
+  public static ClassBreaksRenderer createRenderer(double maxHeight) {
+    ClassBreaksRenderer renderer = new ClassBreaksRenderer();
+    renderer.setFieldName(HEIGHT);
+    for (int i = 0; i < CLASS_COUNT; i++) {
+      double min = maxHeight * i / CLASS_COUNT;
+      double max = maxHeight * (i + 1) / CLASS_COUNT;
+      int color = ColorUtil.colorToArgb(Color.color((i + 0.5) / CLASS_COUNT, 0, 0.5, 1));
+      SimpleFillSymbol symbol = new SimpleFillSymbol(SimpleFillSymbol.Style.SOLID, color, null);
+      renderer.getClassBreaks().add(new ClassBreaksRenderer.ClassBreak("", "", min, max, symbol));
+    }
+    SceneProperties sceneProperties = renderer.getSceneProperties();
+    sceneProperties.setExtrusionMode(SceneProperties.ExtrusionMode.BASE_HEIGHT);
+    sceneProperties.setExtrusionExpression("[" + HEIGHT + "]");
+    return renderer;
+  }
+
+  /**
+   * Creates the prisms. The work is spread over all processors, so call it from a background thread.
+   *
+   * @param count number of prisms
+   * @param x longitude of the grid's south west corner
+   * @param y latitude of the grid's south west corner
+   * @param blockSize width of a grid cell in degrees; each prism fills most of its cell
+   * @param maxHeight greatest height of a prism in meters
+   * @param seed seed of the prisms' heights
+   * @return the prisms, without symbols
+   */
+  public Graphic[] createPrisms(int count, double x, double y, double blockSize, double maxHeight, long seed) {
+    int columns = (int) Math.ceil(Math.sqrt(count));
+    double size = blockSize * 0.8;
+    return IntStream.range(0, count).parallel().mapToObj(i -> {
+      double z = maxHeight * random(seed, i);
+      double west = x + i % columns * blockSize;
+      double south = y + i / columns * blockSize;
+      PointCollection points = new PointCollection(SpatialReferences.getWgs84());
+      points.add(new Point(west, south, z));
+      points.add(new Point(west + size, south, z));
+      points.add(new Point(west + size, south + size, z));
+      points.add(new Point(west, south + size, z));
+      Graphic graphic = new Graphic(new Polygon(points));
+      graphic.getAttributes().put(HEIGHT, z);
+      return graphic;
+    }).toArray(Graphic[]::new);
+  }
+
+  /**
+   * Adds graphics to an overlay a chunk at a time, each chunk in its own JavaFX pulse.
+   *
+   * @param graphicsOverlay the overlay
+   * @param graphics the graphics
+   * @return completes on the JavaFX application thread once every graphic has been added
+   */
+  public CompletableFuture<Void> addInChunks(GraphicsOverlay graphicsOverlay, Graphic[] graphics) {
+    CompletableFuture<Void> added = CompletableFuture.completedFuture(null);
+    for (int from = 0; from < graphics.length; from += chunkSize) {
+      int to = Math.min(graphics.length, from + chunkSize);
+      int chunkStart = from;
+      added = added.thenRunAsync(() -> graphicsOverlay.getGraphics().addAll(Arrays.asList(graphics).subList(
+          chunkStart, to)), Platform::runLater);
+    }
+    return added;
+  }
+
+  /**
+   * Gets a repeatable random number for a prism, without sharing a random number generator between threads.
+   *
+   * @param seed seed of the prisms
+   * @param index index of the prism
+   * @return a number from 0 (inclusive) to 1 (exclusive)
+   */
+  private static double random(long seed, int index) {
+    long z = seed + index * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return ((z ^ (z >>> 31)) >>> 11) * 0x1.0p-53;
+  }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.extrude_graphics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
+import com.esri.arcgisruntime.mapping.view.Camera;
+import com.esri.arcgisruntime.mapping.view.DrawStatus;
+import com.esri.arcgisruntime.mapping.view.DrawStatusChangedListener;
+import com.esri.arcgisruntime.mapping.view.Graphic;
+import com.esri.arcgisruntime.mapping.view.GraphicsOverlay;
+import com.esri.arcgisruntime.mapping.view.LayerSceneProperties;
+import com.esri.arcgisruntime.mapping.view.SceneView;
+import com.esri.arcgisruntime.mapping.view.ViewpointChangedListener;
+
+/**
+ * Stress tests extruded graphics in a scene view. For each number of prisms and rendering mode, it measures how long
+ * the prisms take to create, to add to an overlay and to draw completely, how much heap they use, and the frame rate
+ * while the camera orbits them. The results are written as a CSV file.
+ * <p>
+ * The benchmark needs no interaction, so it can run unattended, for example on a virtual display.
+ */
+public class ExtrusionBenchmark {
+
+  private static final double BLOCK_SIZE = 0.0005;
+  private static final double MAX_HEIGHT = 300;
+  private static final int CHUNK_SIZE = 5000;
+  private static final float ORBIT_SECONDS = 10;
+  private static final int ORBIT_STEPS = 4;
+  private static final long DRAW_TIMEOUT_SECONDS = 600;
+  private static final long SETTLE_SECONDS = 2;
+
+  private final SceneView sceneView;
+  private final double x;
+  private final double y;
+
+  /**
+   * Creates a benchmark.
+   *
+   * @param sceneView the scene view to draw the prisms in
+   * @param x longitude of the prisms' south west corner
+   * @param y latitude of the prisms' south west corner
+   */
+  public ExtrusionBenchmark(SceneView sceneView, double x, double y) {
+    this.sceneView = sceneView;
+    this.x = x;
+    this.y = y;
+  }
+
+  /**
+   * Measures every number of prisms in each rendering mode and writes the results. Blocks until done, so call it from
+   * a background thread.
+   *
+   * @param counts numbers of prisms
+   * @param outputDirectory directory for the CSV file
+   * @param progressListener receives a message as each run starts
+   * @return the CSV file
+   * @throws IOException if the results can't be written
+   * @throws InterruptedException if the thread is interrupted
+   */
+  public Path run(List<Integer> counts, Path outputDirectory, Consumer<String> progressListener) throws IOException,
+      InterruptedException {
+
+    ExtrudedPrismLoader loader = new ExtrudedPrismLoader(CHUNK_SIZE);
+    List<String> rows = new ArrayList<>();
+    for (int count : counts) {
+      for (GraphicsOverlay.RenderingMode renderingMode : Arrays.asList(GraphicsOverlay.RenderingMode.DYNAMIC,
+          GraphicsOverlay.RenderingMode.STATIC)) {
+        progressListener.accept(String.format("Measuring %,d prisms in %s mode", count, renderingMode));
+
+        // start each run from an empty view
+        onFxThread(() -> sceneView.getGraphicsOverlays().clear());
+        long heapBefore = usedHeap();
+
+        long start = System.nanoTime();
+        Graphic[] prisms = loader.createPrisms(count, x, y, BLOCK_SIZE, MAX_HEIGHT, 42);
+        double createMillis = (System.nanoTime() - start) / 1e6;
+
+        // the first draw is complete when the view finishes drawing after the last chunk is added
+        CompletableFuture<Void> added = new CompletableFuture<>();
+        CompletableFuture<Void> drawn = new CompletableFuture<>();
+        AtomicLong completedTime = new AtomicLong();
+        DrawStatusChangedListener drawListener = drawStatusChangedEvent -> {
+          if (drawStatusChangedEvent.getDrawStatus() == DrawStatus.COMPLETED) {
+            completedTime.set(System.nanoTime());
+            if (added.isDone()) {
+              drawn.complete(null);
+            }
+          }
+        };
+        onFxThread(() -> sceneView.addDrawStatusChangedListener(drawListener));
+        start = System.nanoTime();
+        GraphicsOverlay graphicsOverlay = new GraphicsOverlay(renderingMode);
+        graphicsOverlay.getSceneProperties().setSurfacePlacement(LayerSceneProperties.SurfacePlacement
+            .DRAPED_BILLBOARDED);
+        graphicsOverlay.setRenderer(ExtrudedPrismLoader.createRenderer(MAX_HEIGHT));
+        onFxThread(() -> sceneView.getGraphicsOverlays().add(graphicsOverlay));
+        loader.addInChunks(graphicsOverlay, prisms).thenRun(() -> added.complete(null));
+        waitFor(added);
+        double addMillis = (System.nanoTime() - start) / 1e6;
+        // the view may have finished drawing the last chunk before it was reported added, and then no other draw
+        // follows, so only wait for the full timeout if the view is still drawing after a short while
+        waitFor(drawn, SETTLE_SECONDS);
+        if (!drawn.isDone()) {
+          CompletableFuture<Boolean> drawing = CompletableFuture.supplyAsync(() -> sceneView.getDrawStatus()
+              != DrawStatus.COMPLETED, Platform::runLater);
+          if (!Boolean.FALSE.equals(waitFor(drawing))) {
+            waitFor(drawn);
+          }
+        }
+        double drawMillis = completedTime.get() > start ? (completedTime.get() - start) / 1e6 : -1;
+        onFxThread(() -> sceneView.removeDrawStatusChangedListener(drawListener));
+
+        long heap = usedHeap() - heapBefore;
+        // the orbit takes longer than its nominal time when the view can't keep up, so rate it by the time it took
+        long orbitStart = System.nanoTime();
+        double[] frameMillis = orbit(count);
+        double fps = frameMillis.length / ((System.nanoTime() - orbitStart) / 1e9);
+        rows.add(String.format(Locale.ROOT, "%d,%s,%.0f,%.0f,%.0f,%.1f,%.1f,%.1f", count, renderingMode, createMillis,
+            addMillis, drawMillis, heap / 1048576.0, fps, percentile(frameMillis, 95)));
+      }
+    }
+    onFxThread(() -> sceneView.getGraphicsOverlays().clear());
+
+    Files.createDirectories(outputDirectory);
+    Path csvFile = outputDirectory.resolve("extrude-graphics-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(
+        new Date()) + ".csv");
+    try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8))) {
+      writer.println("prisms,rendering_mode,create_ms,add_ms,first_draw_ms,heap_mb,fps,p95_frame_ms");
+      rows.forEach(writer::println);
+    }
+    return csvFile;
+  }
+
+  /**
+   * Orbits the camera once around the middle of the prisms, timing each frame drawn on the way. The orbit is flown
+   * in quarter turns, as the view animates to a camera by the shortest way round.
+   *
+   * @param count number of prisms, for the size of the grid
+   * @return time of each frame in milliseconds
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private double[] orbit(int count) throws InterruptedException {
+    double gridSize = Math.ceil(Math.sqrt(count)) * BLOCK_SIZE;
+    Point center = new Point(x + gridSize / 2, y + gridSize / 2, 0, SpatialReferences.getWgs84());
+    Camera camera = new Camera(center, Math.max(2000, gridSize * 111_000), 0, 60, 0);
+
+    List<Double> frames = new ArrayList<>();
+    long[] lastFrame = {0};
+    ViewpointChangedListener frameListener = viewpointChangedEvent -> {
+      long now = System.nanoTime();
+      if (lastFrame[0] != 0) {
+        frames.add((now - lastFrame[0]) / 1e6);
+      }
+      lastFrame[0] = now;
+    };
+    onFxThread(() -> sceneView.setViewpointCamera(camera));
+    onFxThread(() -> sceneView.addViewpointChangedListener(frameListener));
+    // the view animates to each rotated camera, changing its viewpoint on each frame
+    for (int step = 1; step <= ORBIT_STEPS; step++) {
+      Camera rotated = camera.rotateAround(center, 360.0 * step / ORBIT_STEPS, 0, 0);
+      CompletableFuture<Void> turned = new CompletableFuture<>();
+      onFxThread(() -> sceneView.setViewpointCameraAsync(rotated, ORBIT_SECONDS / ORBIT_STEPS)
+          .addDoneListener(() -> turned.complete(null)));
+      waitFor(turned);
+    }
+    onFxThread(() -> sceneView.removeViewpointChangedListener(frameListener));
+
+    CompletableFuture<double[]> frameMillis = new CompletableFuture<>();
+    onFxThread(() -> frameMillis.complete(frames.stream().mapToDouble(Double::doubleValue).toArray()));
+    double[] result = waitFor(frameMillis);
+    return result != null ? result : new double[0];
+  }
+
+  /**
+   * Runs a task on the JavaFX application thread and waits for it.
+   *
+   * @param task the task
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private static void onFxThread(Runnable task) throws InterruptedException {
+    waitFor(CompletableFuture.runAsync(task, Platform::runLater));
+  }
+
+  /**
+   * Waits for a future, giving up after the draw timeout.
+   *
+   * @param future the future
+   * @param <T> type of the future's result
+   * @return the future's result, or null if it timed out or failed
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private static <T> T waitFor(CompletableFuture<T> future) throws InterruptedException {
+    return waitFor(future, DRAW_TIMEOUT_SECONDS);
+  }
+
+  /**
+   * Waits for a future, giving up after a timeout.
+   *
+   * @param future the future
+   * @param timeoutSeconds how long to wait
+   * @param <T> type of the future's result
+   * @return the future's result, or null if it timed out or failed
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private static <T> T waitFor(CompletableFuture<T> future, long timeoutSeconds) throws InterruptedException {
+    try {
+      return future.get(timeoutSeconds, TimeUnit.SECONDS);
+    } catch (ExecutionException | TimeoutException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Gets the heap in use after a garbage collection.
+   *
+   * @return used heap in bytes
+   */
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static double percentile(double[] values, double percentile) {
+    if (values.length == 0) {
+      return 0;
+    }
+    double[] sorted = values.clone();
+    Arrays.sort(sorted);
+    return sorted[Math.max(0, (int) Math.ceil(sorted.length * percentile / 100) - 1)];
+  }
+}
@@ -16,19 +16,25 @@
 
 package com.esri.samples.feature_layer_rendering_mode_scene;
 
+import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import javafx.animation.Animation;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.geometry.Orientation;
 import javafx.scene.Scene;
 import javafx.scene.control.SplitPane;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 
+import com.esri.arcgisruntime.data.FeatureTable;
 import com.esri.arcgisruntime.data.ServiceFeatureTable;
+import com.esri.arcgisruntime.data.ShapefileFeatureTable;
 import com.esri.arcgisruntime.geometry.Point;
 import com.esri.arcgisruntime.geometry.SpatialReferences;
 import com.esri.arcgisruntime.layers.FeatureLayer;
@@ -59,6 +65,21 @@ public class FeatureLayerRenderingModeSceneSample extends Application {
       stage.setScene(fxScene);
       stage.show();
 
+      // camera locations for camera to zoom in and out to, or those given with -Dbenchmark.cameras=<longitude>,
+      // <latitude>,<altitude>,<heading>,<pitch>;<longitude>,<latitude>,<altitude>,<heading>,<pitch>
+      String[] customCameras = System.getProperty("benchmark.cameras", "").split(";");
+      Camera zoomOutCamera = customCameras.length == 2 ? parseCamera(customCameras[0]) :
+          new Camera(new Point(-118.37, 34.46, SpatialReferences.getWgs84()), 42000, 0, 0, 0);
+      Camera zoomInCamera = customCameras.length == 2 ? parseCamera(customCameras[1]) :
+          new Camera(new Point(-118.45, 34.395, SpatialReferences.getWgs84()), 2500, 90, 75, 0);
+
+      // measure the rendering mode given by main unattended and exit
+      String benchmarkMode = System.getProperty("benchmark.mode");
+      if (benchmarkMode != null) {
+        runBenchmark(FeatureLayer.RenderingMode.valueOf(benchmarkMode), splitPane, zoomOutCamera, zoomInCamera, stage);
+        return;
+      }
+
       // create a scene (top) and set it to render all features in static rendering mode
       ArcGISScene sceneTop = new ArcGISScene();
       sceneTop.getLoadSettings().setPreferredPointFeatureRenderingMode(FeatureLayer.RenderingMode.STATIC);
@@ -80,23 +101,13 @@ public class FeatureLayerRenderingModeSceneSample extends Application {
       sceneViewBottom.setArcGISScene(sceneBottom);
       splitPane.getItems().add(sceneViewBottom);
 
-      // create service feature table using a point, polyline, and polygon service
-      ServiceFeatureTable pointServiceFeatureTable = new ServiceFeatureTable("https://sampleserver6.arcgisonline.com/arcgis/rest/services/Energy/Geology/FeatureServer/0");
-      ServiceFeatureTable polylineServiceFeatureTable = new ServiceFeatureTable("https://sampleserver6.arcgisonline.com/arcgis/rest/services/Energy/Geology/FeatureServer/8");
-      ServiceFeatureTable polygonServiceFeatureTable = new ServiceFeatureTable("https://sampleserver6.arcgisonline.com/arcgis/rest/services/Energy/Geology/FeatureServer/9");
-
-      // create feature layer from service feature tables
-      FeatureLayer pointFeatureLayer = new FeatureLayer(pointServiceFeatureTable);
-      FeatureLayer polylineFeatureLayer = new FeatureLayer(polylineServiceFeatureTable);
-      FeatureLayer polygonFeatureLayer = new FeatureLayer(polygonServiceFeatureTable);
-
       // add each layer to top and bottom scene
-      sceneTop.getOperationalLayers().addAll(Arrays.asList(pointFeatureLayer, polylineFeatureLayer, polygonFeatureLayer));
-      sceneBottom.getOperationalLayers().addAll(Arrays.asList(pointFeatureLayer.copy(), polylineFeatureLayer.copy(), polygonFeatureLayer.copy()));
+      List<FeatureLayer> topLayers = createLayers();
+      List<FeatureLayer> bottomLayers = new ArrayList<>();
+      topLayers.forEach(layer -> bottomLayers.add(layer.copy()));
+      sceneTop.getOperationalLayers().addAll(topLayers);
+      sceneBottom.getOperationalLayers().addAll(bottomLayers);
 
-      // camera locations for camera to zoom in and out to
-      Camera zoomOutCamera = new Camera(new Point(-118.37, 34.46, SpatialReferences.getWgs84()), 42000, 0, 0, 0);
-      Camera zoomInCamera = new Camera(new Point(-118.45, 34.395, SpatialReferences.getWgs84()), 2500, 90, 75, 0);
       sceneViewTop.setViewpointCamera(zoomOutCamera);
       sceneViewBottom.setViewpointCamera(zoomOutCamera);
 
@@ -113,6 +124,76 @@ public class FeatureLayerRenderingModeSceneSample extends Application {
     }
   }
 
+  /**
+   * Creates feature layers from a point, polyline, and polygon service, or from the datasets given with
+   * -Dbenchmark.layers=&lt;feature service layer URL or shapefile path&gt;,...
+   *
+   * @return the layers
+   */
+  private static List<FeatureLayer> createLayers() {
+    List<FeatureLayer> layers = new ArrayList<>();
+    String customLayers = System.getProperty("benchmark.layers");
+    List<String> sources = customLayers != null ? Arrays.asList(customLayers.split(",")) : Arrays.asList(
+        "https://sampleserver6.arcgisonline.com/arcgis/rest/services/Energy/Geology/FeatureServer/0",
+        "https://sampleserver6.arcgisonline.com/arcgis/rest/services/Energy/Geology/FeatureServer/8",
+        "https://sampleserver6.arcgisonline.com/arcgis/rest/services/Energy/Geology/FeatureServer/9");
+    for (String source : sources) {
+      String path = source.trim();
+      FeatureTable featureTable = path.endsWith(".shp") ? new ShapefileFeatureTable(new File(path).getAbsolutePath())
+          : new ServiceFeatureTable(path);
+      layers.add(new FeatureLayer(featureTable));
+    }
+    return layers;
+  }
+
+  /**
+   * Measures one rendering mode with the rendering mode harness, writes the results to the benchmark-results
+   * directory and exits. The scene view is shown without layers until it first draws, so the harness can record the
+   * memory before the layers are added. The zoom animation is played five seconds each way like the sample's own
+   * animation, three times unless set with -Dbenchmark.repeats.
+   *
+   * @param renderingMode rendering mode to measure
+   * @param splitPane pane to show the scene view in
+   * @param zoomOutCamera camera to zoom out to
+   * @param zoomInCamera camera to zoom in to
+   * @param stage stage to show the progress in
+   */
+  private void runBenchmark(FeatureLayer.RenderingMode renderingMode, SplitPane splitPane, Camera zoomOutCamera,
+      Camera zoomInCamera, Stage stage) {
+
+    ArcGISScene scene = new ArcGISScene();
+    scene.getLoadSettings().setPreferredPointFeatureRenderingMode(renderingMode);
+    scene.getLoadSettings().setPreferredPolylineFeatureRenderingMode(renderingMode);
+    scene.getLoadSettings().setPreferredPolygonFeatureRenderingMode(renderingMode);
+    sceneViewTop = new SceneView();
+    sceneViewTop.setArcGISScene(scene);
+    sceneViewTop.setViewpointCamera(zoomOutCamera);
+    splitPane.getItems().add(sceneViewTop);
+    List<FeatureLayer> layers = createLayers();
+
+    RenderingModeHarness harness = new RenderingModeHarness(Integer.getInteger("benchmark.repeats", 3), 120_000);
+    harness.addStep("zoom_in", view -> ((SceneView) view).setViewpointCameraAsync(zoomInCamera, 5));
+    harness.addStep("zoom_out", view -> ((SceneView) view).setViewpointCameraAsync(zoomOutCamera, 5));
+
+    BenchmarkRunner.runWhenDrawn(sceneViewTop, outputDirectory -> harness.run(sceneViewTop, renderingMode.name(),
+        layers, () -> scene.getOperationalLayers().addAll(layers), outputDirectory,
+        "feature-layer-rendering-mode-scene", message -> Platform.runLater(
+            () -> stage.setTitle("Feature Layer Rendering Mode Scene Sample - " + message))));
+  }
+
+  /**
+   * Parses a camera given as longitude, latitude, altitude, heading and pitch.
+   *
+   * @param text the camera, separated by commas
+   * @return the camera
+   */
+  private static Camera parseCamera(String text) {
+    String[] values = text.split(",");
+    return new Camera(new Point(Double.parseDouble(values[0].trim()), Double.parseDouble(values[1].trim()),
+        SpatialReferences.getWgs84()), Double.parseDouble(values[2].trim()), Double.parseDouble(values[3].trim()),
+        Double.parseDouble(values[4].trim()), 0);
+  }
+
   /**
     * Sets both SceneViews to a ViewpointCamera over a number of seconds.
     *  @param camera to which both SceneViews should be set.
@@ -130,7 +211,9 @@ public class FeatureLayerRenderingModeSceneSample extends Application {
   public void stop() {
 
     // stop the timer
-    timeline.stop();
+    if (timeline != null) {
+      timeline.stop();
+    }
 
     if (sceneViewTop != null) {
       sceneViewTop.dispose();
@@ -147,6 +230,16 @@ public class FeatureLayerRenderingModeSceneSample extends Application {
    */
   public static void main(String[] args) {
 
+    // with --benchmark or -Dbenchmark=true, measure each rendering mode in a process of its own and exit
+    if ((Arrays.asList(args).contains("--benchmark") || Boolean.getBoolean("benchmark"))
+        && System.getProperty("benchmark.mode") == null) {
+      try {
+        RenderingModeHarness.runEachMode(FeatureLayerRenderingModeSceneLauncher.class, args);
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+      return;
+    }
     Application.launch(args);
   }
 
@@ -0,0 +1,473 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.feature_layer_rendering_mode_scene;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javafx.application.Platform;
+
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.geometry.GeometryType;
+import com.esri.arcgisruntime.layers.FeatureLayer;
+import com.esri.arcgisruntime.mapping.view.DrawStatus;
+import com.esri.arcgisruntime.mapping.view.DrawStatusChangedListener;
+import com.esri.arcgisruntime.mapping.view.GeoView;
+import com.esri.arcgisruntime.mapping.view.ViewpointChangedListener;
+
+/**
+ * Measures a feature layer rendering mode, so that runs of each mode can be compared. It's given a view without
+ * layers, layers in the rendering mode being measured, and a script of animated viewpoint changes. It records the heap
+ * and the process's resident memory, adds the layers to the view and loads them, then for each geometry type of the
+ * layers, and for all of them together, shows only those layers and plays the script. For every step it records the
+ * frames the view drew while animating, and how long after the animation the view took to finish drawing. The memory
+ * is recorded again after each geometry type, and reported against what it was before the layers were added. Results
+ * are written as CSV and JSON files for comparing runs.
+ * <p>
+ * Measure each mode in a process of its own, as {@link #runEachMode(Class, String[])} does, so that neither mode's
+ * memory or caches are counted against the other. The harness needs no interaction, so it can run unattended, for
+ * example on a virtual display.
+ */
+public class RenderingModeHarness {
+
+  private static final long START_TIMEOUT_MILLIS = 1000;
+  private static final List<String> MODES = Arrays.asList("STATIC", "DYNAMIC");
+
+  private final List<String> stepNames = new ArrayList<>();
+  private final List<Function<GeoView, ListenableFuture<Boolean>>> steps = new ArrayList<>();
+  private final int repeats;
+  private final long drawTimeoutMillis;
+
+  /**
+   * Creates a harness.
+   *
+   * @param repeats number of times the script is played for each geometry type and mode, at least 1
+   * @param drawTimeoutMillis longest time to wait for an animation or a draw to complete
+   * @throws IllegalArgumentException if repeats is less than 1
+   */
+  public RenderingModeHarness(int repeats, long drawTimeoutMillis) {
+    if (repeats < 1) {
+      throw new IllegalArgumentException("The script must be played at least once");
+    }
+    this.repeats = repeats;
+    this.drawTimeoutMillis = drawTimeoutMillis;
+  }
+
+  /**
+   * Adds a step to the script. The last step is also used to put the view in place before the script is played, so
+   * the script should end where it starts.
+   *
+   * @param name name of the step
+   * @param animation starts the step's animation on a view, called on the JavaFX application thread
+   */
+  public void addStep(String name, Function<GeoView, ListenableFuture<Boolean>> animation) {
+    stepNames.add(name);
+    steps.add(animation);
+  }
+
+  /**
+   * Runs a launcher again for each rendering mode, in a process of its own with the same JVM options and class path
+   * and the {@code benchmark.mode} system property set to the mode, and waits for each to finish.
+   *
+   * @param launcher class whose main method starts the sample
+   * @param args arguments to pass to the launcher
+   * @throws IOException if a process can't be started
+   * @throws InterruptedException if the thread is interrupted
+   */
+  public static void runEachMode(Class<?> launcher, String[] args) throws IOException, InterruptedException {
+    for (String mode : MODES) {
+      List<String> command = new ArrayList<>();
+      command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+      command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+      command.add("-Dbenchmark.mode=" + mode);
+      command.add("-cp");
+      command.add(System.getProperty("java.class.path"));
+      command.add(launcher.getName());
+      command.addAll(Arrays.asList(args));
+      int exitCode = new ProcessBuilder(command).inheritIO().start().waitFor();
+      if (exitCode != 0) {
+        throw new IllegalStateException("Measuring " + mode + " mode failed with exit code " + exitCode);
+      }
+    }
+  }
+
+  /**
+   * Adds the layers to the view and plays the script with each geometry type of them, then writes the results. Blocks
+   * until done, so call it from a background thread once the view has drawn without the layers.
+   *
+   * @param view the view, without the layers
+   * @param mode the layers' rendering mode
+   * @param layers the layers
+   * @param addLayers adds the layers to the view's map or scene, called on the JavaFX application thread
+   * @param outputDirectory directory for the CSV and JSON files
+   * @param sampleName name of the sample, used in the file names
+   * @param progressListener receives a message as each geometry type is measured
+   * @return the CSV file; the JSON file has the same name with a .json extension
+   * @throws IOException if the results can't be written
+   * @throws InterruptedException if the thread is interrupted
+   */
+  public Path run(GeoView view, String mode, List<FeatureLayer> layers, Runnable addLayers, Path outputDirectory,
+      String sampleName, Consumer<String> progressListener) throws IOException, InterruptedException {
+
+    // the memory before there are any layers, so that loading and drawing them is counted
+    long heapBefore = usedHeap();
+    long residentBefore = residentMemory();
+
+    // the geometry types are only known once the layers have loaded
+    progressListener.accept("Loading layers");
+    onFxThread(addLayers);
+    for (FeatureLayer layer : layers) {
+      load(layer);
+    }
+    Set<String> geometryTypes = new LinkedHashSet<>();
+    for (FeatureLayer layer : layers) {
+      geometryTypes.add(geometryType(layer));
+    }
+    geometryTypes.add("ALL");
+
+    List<Measurement> measurements = new ArrayList<>();
+    for (String geometryType : geometryTypes) {
+      progressListener.accept(String.format("Measuring %s layers in %s mode", geometryType.toLowerCase(Locale.ROOT),
+          mode.toLowerCase(Locale.ROOT)));
+      onFxThread(() -> {
+        // only draw the layers being measured
+        for (FeatureLayer layer : layers) {
+          layer.setVisible(geometryType.equals("ALL") || geometryType.equals(geometryType(layer)));
+        }
+      });
+      Measurement measurement = measure(view, geometryType, mode);
+      measurement.heapBefore = heapBefore;
+      measurement.residentBefore = residentBefore;
+      measurements.add(measurement);
+    }
+
+    Files.createDirectories(outputDirectory);
+    String version = GeoView.class.getPackage().getImplementationVersion();
+    String baseName = String.format("%s-%s-%s-%s", sampleName, mode.toLowerCase(Locale.ROOT),
+        version != null ? version : "unknown", new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()));
+    Path csvFile = outputDirectory.resolve(baseName + ".csv");
+    writeCsv(csvFile, measurements);
+    writeJson(outputDirectory.resolve(baseName + ".json"), sampleName, version, measurements);
+    return csvFile;
+  }
+
+  /**
+   * Plays the script in a view.
+   *
+   * @param view the view
+   * @param geometryType geometry type of the visible layers
+   * @param mode rendering mode of the view
+   * @return the measurement
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private Measurement measure(GeoView view, String geometryType, String mode) throws InterruptedException {
+    // put the view in place and let it settle, so loading the layers isn't measured
+    animate(view, steps.get(steps.size() - 1), new AtomicInteger());
+    waitForDraw(view);
+
+    Measurement measurement = new Measurement(geometryType, mode, steps.size(), repeats);
+    for (int repeat = 0; repeat < repeats; repeat++) {
+      for (int step = 0; step < steps.size(); step++) {
+        AtomicInteger frames = new AtomicInteger();
+        long start = System.nanoTime();
+        animate(view, steps.get(step), frames);
+        double animationMillis = (System.nanoTime() - start) / 1e6;
+        measurement.animationMillis[step][repeat] = animationMillis;
+        measurement.frames[step][repeat] = frames.get();
+        measurement.drawMillis[step][repeat] = waitForDraw(view);
+      }
+    }
+    measurement.heapAfter = usedHeap();
+    measurement.residentAfter = residentMemory();
+    return measurement;
+  }
+
+  /**
+   * Plays an animation on a view and waits for it to finish, counting the frames the view draws on the way.
+   *
+   * @param view the view
+   * @param animation the animation
+   * @param frames counts the view's viewpoint changes, one for each frame it draws while animating
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private void animate(GeoView view, Function<GeoView, ListenableFuture<Boolean>> animation, AtomicInteger frames)
+      throws InterruptedException {
+
+    CountDownLatch animated = new CountDownLatch(1);
+    ViewpointChangedListener frameListener = viewpointChangedEvent -> frames.incrementAndGet();
+    onFxThread(() -> {
+      view.addViewpointChangedListener(frameListener);
+      animation.apply(view).addDoneListener(animated::countDown);
+    });
+    animated.await(drawTimeoutMillis, TimeUnit.MILLISECONDS);
+    onFxThread(() -> view.removeViewpointChangedListener(frameListener));
+  }
+
+  /**
+   * Waits for a view to finish drawing what an animation ended on. The view can still report a draw that completed
+   * during the animation, so this waits for a draw to start and then complete. If none starts within a second, there
+   * was nothing more to draw.
+   *
+   * @param view the view
+   * @return milliseconds until the draw completed, 0 if no draw started, or -1 if it timed out
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private double waitForDraw(GeoView view) throws InterruptedException {
+    long start = System.nanoTime();
+    CompletableFuture<Void> started = new CompletableFuture<>();
+    CompletableFuture<Long> drawn = new CompletableFuture<>();
+    DrawStatusChangedListener drawListener = drawStatusChangedEvent -> {
+      if (drawStatusChangedEvent.getDrawStatus() == DrawStatus.IN_PROGRESS) {
+        started.complete(null);
+      } else if (started.isDone()) {
+        drawn.complete(System.nanoTime());
+      }
+    };
+    onFxThread(() -> {
+      // a view still drawing when the animation ends has already started the draw
+      if (view.getDrawStatus() == DrawStatus.IN_PROGRESS) {
+        started.complete(null);
+      }
+      view.addDrawStatusChangedListener(drawListener);
+    });
+    try {
+      started.get(START_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    } catch (ExecutionException | TimeoutException e) {
+      onFxThread(() -> view.removeDrawStatusChangedListener(drawListener));
+      return 0;
+    }
+    try {
+      return (drawn.get(drawTimeoutMillis, TimeUnit.MILLISECONDS) - start) / 1e6;
+    } catch (ExecutionException | TimeoutException e) {
+      return -1;
+    } finally {
+      onFxThread(() -> view.removeDrawStatusChangedListener(drawListener));
+    }
+  }
+
+  /**
+   * Loads a layer and waits for it.
+   *
+   * @param layer the layer
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private void load(FeatureLayer layer) throws InterruptedException {
+    CountDownLatch loaded = new CountDownLatch(1);
+    layer.addDoneLoadingListener(loaded::countDown);
+    layer.loadAsync();
+    loaded.await(drawTimeoutMillis, TimeUnit.MILLISECONDS);
+  }
+
+  private static String geometryType(FeatureLayer layer) {
+    GeometryType geometryType = layer.getFeatureTable() != null ? layer.getFeatureTable().getGeometryType() : null;
+    return geometryType != null ? geometryType.name() : "UNKNOWN";
+  }
+
+  /**
+   * Runs a task on the JavaFX application thread and waits for it.
+   *
+   * @param task the task
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private static void onFxThread(Runnable task) throws InterruptedException {
+    try {
+      CompletableFuture.runAsync(task, Platform::runLater).get();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Gets the heap in use after a garbage collection.
+   *
+   * @return used heap in bytes
+   */
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  /**
+   * Gets the process's resident memory, which includes the runtime's native memory as well as the Java heap. Where
+   * that isn't available, the committed virtual memory is used instead.
+   *
+   * @return memory in bytes, or -1 if unknown
+   */
+  private static long residentMemory() {
+    try {
+      for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+        if (line.startsWith("VmRSS:")) {
+          return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+        }
+      }
+    } catch (IOException | NumberFormatException e) {
+      // not Linux
+    }
+    if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean) {
+      return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+          .getCommittedVirtualMemorySize();
+    }
+    return -1;
+  }
+
+  /**
+   * Writes a row for each geometry type, mode, step and repeat.
+   *
+   * @param file CSV file
+   * @param measurements the measurements
+   * @throws IOException if the file can't be written
+   */
+  private void writeCsv(Path file, List<Measurement> measurements) throws IOException {
+    try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+      writer.println("geometry_type,mode,step,repeat,animation_ms,frames,fps,draw_after_animation_ms,heap_delta_mb,"
+          + "resident_delta_mb");
+      for (Measurement measurement : measurements) {
+        for (int step = 0; step < steps.size(); step++) {
+          for (int repeat = 0; repeat < repeats; repeat++) {
+            double animationMillis = measurement.animationMillis[step][repeat];
+            writer.printf(Locale.ROOT, "%s,%s,%s,%d,%.1f,%.0f,%.1f,%.1f,%.1f,%.1f%n", measurement.geometryType,
+                measurement.mode, stepNames.get(step), repeat, animationMillis, measurement.frames[step][repeat],
+                measurement.frames[step][repeat] * 1000 / Math.max(1, animationMillis),
+                measurement.drawMillis[step][repeat], measurement.getHeapDeltaMb(),
+                measurement.getResidentDeltaMb());
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Writes the environment and a summary of each geometry type and mode, with median values over the repeats.
+   *
+   * @param file JSON file
+   * @param sampleName name of the sample
+   * @param version ArcGIS Runtime version, or null if unknown
+   * @param measurements the measurements
+   * @throws IOException if the file can't be written
+   */
+  private void writeJson(Path file, String sampleName, String version, List<Measurement> measurements)
+      throws IOException {
+    try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+      writer.println("{");
+      writer.printf(Locale.ROOT, "  \"sample\": %s,%n", json(sampleName));
+      writer.printf(Locale.ROOT, "  \"arcgisVersion\": %s,%n", json(version != null ? version : "unknown"));
+      writer.printf(Locale.ROOT, "  \"javaVersion\": %s,%n", json(System.getProperty("java.version")));
+      writer.printf(Locale.ROOT, "  \"os\": %s,%n", json(System.getProperty("os.name") + " "
+          + System.getProperty("os.arch")));
+      writer.printf(Locale.ROOT, "  \"repeats\": %d,%n", repeats);
+      writer.println("  \"measurements\": [");
+      for (int i = 0; i < measurements.size(); i++) {
+        Measurement measurement = measurements.get(i);
+        writer.println("    {");
+        writer.printf(Locale.ROOT, "      \"geometryType\": %s,%n", json(measurement.geometryType));
+        writer.printf(Locale.ROOT, "      \"mode\": %s,%n", json(measurement.mode));
+        List<String> stepSummaries = new ArrayList<>();
+        for (int step = 0; step < steps.size(); step++) {
+          stepSummaries.add(String.format(Locale.ROOT, "%s: {\"animationMillis\": %.1f, \"frames\": %.0f, "
+                  + "\"drawAfterAnimationMillis\": %.1f}", json(stepNames.get(step)),
+              median(measurement.animationMillis[step]), median(measurement.frames[step]),
+              median(measurement.drawMillis[step])));
+        }
+        writer.printf(Locale.ROOT, "      \"medianSteps\": {%s},%n", String.join(", ", stepSummaries));
+        writer.printf(Locale.ROOT, "      \"heapDeltaMb\": %.1f,%n", measurement.getHeapDeltaMb());
+        writer.printf(Locale.ROOT, "      \"residentDeltaMb\": %.1f,%n", measurement.getResidentDeltaMb());
+        writer.printf(Locale.ROOT, "      \"residentAfterMb\": %.1f%n", measurement.residentAfter / 1048576.0);
+        writer.println(i + 1 < measurements.size() ? "    }," : "    }");
+      }
+      writer.println("  ]");
+      writer.println("}");
+    }
+  }
+
+  private static String json(String value) {
+    StringBuilder quoted = new StringBuilder("\"");
+    for (char c : value.toCharArray()) {
+      if (c == '"' || c == '\\') {
+        quoted.append('\\').append(c);
+      } else if (c < 0x20) {
+        quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+      } else {
+        quoted.append(c);
+      }
+    }
+    return quoted.append('"').toString();
+  }
+
+  private static double median(double[] values) {
+    double[] sorted = values.clone();
+    Arrays.sort(sorted);
+    return sorted.length % 2 == 1 ? sorted[sorted.length / 2]
+        : (sorted[sorted.length / 2 - 1] + sorted[sorted.length / 2]) / 2;
+  }
+
+  /**
+   * What was recorded while the view played the script with the layers of a geometry type. The memory before is from
+   * before the layers were added.
+   */
+  private static class Measurement {
+
+    private final String geometryType;
+    private final String mode;
+    private final double[][] animationMillis;
+    private final double[][] frames;
+    private final double[][] drawMillis;
+    private long heapBefore;
+    private long heapAfter;
+    private long residentBefore;
+    private long residentAfter;
+
+    Measurement(String geometryType, String mode, int steps, int repeats) {
+      this.geometryType = geometryType;
+      this.mode = mode;
+      animationMillis = new double[steps][repeats];
+      frames = new double[steps][repeats];
+      drawMillis = new double[steps][repeats];
+    }
+
+    double getHeapDeltaMb() {
+      return (heapAfter - heapBefore) / 1048576.0;
+    }
+
+    double getResidentDeltaMb() {
+      return residentBefore < 0 ? Double.NaN : (residentAfter - residentBefore) / 1048576.0;
+    }
+  }
+}
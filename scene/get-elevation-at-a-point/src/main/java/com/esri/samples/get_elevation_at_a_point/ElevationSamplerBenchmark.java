@@ -0,0 +1,156 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.get_elevation_at_a_point;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+
+import javafx.application.Platform;
+
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.PointCollection;
+import com.esri.arcgisruntime.geometry.Polyline;
+import com.esri.arcgisruntime.geometry.SpatialReferences;
+import com.esri.arcgisruntime.loadable.LoadStatus;
+import com.esri.arcgisruntime.mapping.RasterElevationSource;
+import com.esri.arcgisruntime.mapping.Surface;
+
+/**
+ * Command line harness comparing the points per second of {@link BatchElevationSampler} with asking the surface for
+ * the elevation of each point, on a surface of the Monterey DTED raster so that it runs offline. It samples a profile
+ * along a route at a finer interval than the raster's posts, and a dense set of drape points over a few kilometers, so
+ * that most tiles have more points than corner posts and are interpolated. It reports how many tiles were
+ * interpolated, and how far the interpolated elevations are from the surface's own.
+ */
+public class ElevationSamplerBenchmark {
+
+  private static final double WEST = -121.95;
+  private static final double SOUTH = 36.50;
+  private static final double EAST = -121.75;
+  private static final double NORTH = 36.65;
+  private static final double POST_SPACING_METERS = 30;
+  private static final double PROFILE_INTERVAL_METERS = 5;
+  private static final double DRAPE_SPAN = 0.03;
+
+  /**
+   * Runs the benchmark.
+   *
+   * @param args optional number of drape points (default 200000) and number of them to also get one at a time
+   *             (default 20000)
+   * @throws Exception if the elevation source fails to load
+   */
+  public static void main(String[] args) throws Exception {
+
+    int pointCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+    int perPointCount = Math.min(pointCount, args.length > 1 ? Integer.parseInt(args[1]) : 20_000);
+
+    // the surface's listeners are called on the JavaFX application thread, so the toolkit has to be running
+    Platform.startup(() -> {
+    });
+
+    RasterElevationSource elevationSource = new RasterElevationSource(Collections.singletonList(new File(
+        System.getProperty("data.dir"), "./samples-data/monterey_elevation/MontereyElevation.dt2").getAbsolutePath()));
+    CountDownLatch loaded = new CountDownLatch(1);
+    elevationSource.addDoneLoadingListener(loaded::countDown);
+    elevationSource.loadAsync();
+    loaded.await();
+    if (elevationSource.getLoadStatus() != LoadStatus.LOADED) {
+      throw new IllegalStateException("Elevation source failed to load", elevationSource.getLoadError());
+    }
+    Surface surface = new Surface();
+    surface.getElevationSources().add(elevationSource);
+
+    BatchElevationSampler sampler = new BatchElevationSampler(surface, POST_SPACING_METERS);
+    System.out.printf(Locale.ROOT, "%-28s %10s %16s %18s %12s%n", "approach", "points", "surface requests",
+        "interpolated tiles", "points/s");
+
+    // a profile along a route across the raster
+    PointCollection route = new PointCollection(SpatialReferences.getWgs84());
+    route.add(new Point(WEST, SOUTH));
+    route.add(new Point((WEST + EAST) / 2, NORTH));
+    route.add(new Point(EAST, SOUTH));
+    long start = System.nanoTime();
+    double[] profile = sampler.sampleProfile(new Polyline(route), PROFILE_INTERVAL_METERS);
+    report("batch profile", profile.length, sampler, start);
+
+    // dense drape points over the middle of the raster
+    Random random = new Random(42);
+    double[] longitudes = new double[pointCount];
+    double[] latitudes = new double[pointCount];
+    double drapeWest = (WEST + EAST - DRAPE_SPAN) / 2;
+    double drapeSouth = (SOUTH + NORTH - DRAPE_SPAN) / 2;
+    for (int i = 0; i < pointCount; i++) {
+      longitudes[i] = drapeWest + random.nextDouble() * DRAPE_SPAN;
+      latitudes[i] = drapeSouth + random.nextDouble() * DRAPE_SPAN;
+    }
+    sampler.dispose();
+    sampler = new BatchElevationSampler(surface, POST_SPACING_METERS);
+    start = System.nanoTime();
+    double[] batchElevations = sampler.sample(longitudes, latitudes);
+    report("batch drape", pointCount, sampler, start);
+
+    // the same points one at a time, as the sample gets the elevation of a click
+    double[] perPointElevations = new double[perPointCount];
+    start = System.nanoTime();
+    for (int i = 0; i < perPointCount; i++) {
+      try {
+        perPointElevations[i] = surface.getElevationAsync(new Point(longitudes[i], latitudes[i],
+            SpatialReferences.getWgs84())).get();
+      } catch (ExecutionException e) {
+        perPointElevations[i] = Double.NaN;
+      }
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf(Locale.ROOT, "%-28s %10d %16d %18s %12.0f%n", "getElevationAsync per point", perPointCount,
+        perPointCount, "-", perPointCount / seconds);
+
+    double[] errors = new double[perPointCount];
+    int compared = 0;
+    for (int i = 0; i < perPointCount; i++) {
+      if (!Double.isNaN(batchElevations[i]) && !Double.isNaN(perPointElevations[i])) {
+        errors[compared++] = Math.abs(batchElevations[i] - perPointElevations[i]);
+      }
+    }
+    Arrays.sort(errors, 0, compared);
+    if (compared > 0) {
+      System.out.printf(Locale.ROOT, "%nInterpolation error against the surface: median %.2f m, p95 %.2f m, "
+          + "max %.2f m%n", errors[compared / 2], errors[(int) Math.ceil(compared * 0.95) - 1], errors[compared - 1]);
+    }
+
+    sampler.dispose();
+    Platform.exit();
+  }
+
+  /**
+   * Prints a row of results for a sampler that has sampled one set of points.
+   *
+   * @param approach name of the approach
+   * @param points number of points sampled
+   * @param sampler the sampler
+   * @param startNanos when sampling started
+   */
+  private static void report(String approach, int points, BatchElevationSampler sampler, long startNanos) {
+    double seconds = (System.nanoTime() - startNanos) / 1e9;
+    System.out.printf(Locale.ROOT, "%-28s %10d %16d %18s %12.0f%n", approach, points, sampler.getSurfaceRequestCount(),
+        sampler.getGridTileCount() + " of " + sampler.getTileCount(), points / seconds);
+  }
+}
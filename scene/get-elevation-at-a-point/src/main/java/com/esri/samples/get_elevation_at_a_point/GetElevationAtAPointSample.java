@@ -16,18 +16,29 @@
 
 package com.esri.samples.get_elevation_at_a_point;
 
+import java.util.Locale;
 import java.util.concurrent.ExecutionException;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
 import javafx.geometry.Point2D;
+import javafx.geometry.Pos;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Label;
 import javafx.scene.input.MouseButton;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
+import javafx.scene.layout.Region;
 import javafx.scene.layout.StackPane;
 import javafx.scene.Scene;
+import javafx.scene.paint.Paint;
 import javafx.stage.Stage;
 
 import com.esri.arcgisruntime.concurrent.ListenableFuture;
 import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.PointCollection;
 import com.esri.arcgisruntime.geometry.Polyline;
 import com.esri.arcgisruntime.geometry.PolylineBuilder;
 import com.esri.arcgisruntime.mapping.ArcGISScene;
@@ -46,6 +57,10 @@ public class GetElevationAtAPointSample extends Application {
 
   private SceneView sceneView;
   private GraphicsOverlay graphicsOverlay;
+  private BatchElevationSampler elevationSampler;
+  private Point lastSurfacePoint;
+
+  private static final double PROFILE_INTERVAL_METERS = 30;
 
   @Override
   public void start(Stage stage) {
@@ -77,6 +92,21 @@ public class GetElevationAtAPointSample extends Application {
       surface.getElevationSources().add(new ArcGISTiledElevationSource("https://elevation3d.arcgis.com/arcgis/rest/services/WorldElevation3D/Terrain3D/ImageServer"));
       scene.setBaseSurface(surface);
 
+      // create a sampler for the elevation profile between clicks, interpolating between posts as far apart as the
+      // finest elevation data
+      elevationSampler = new BatchElevationSampler(surface, PROFILE_INTERVAL_METERS);
+
+      // create a label to show the elevation profile
+      Label profileLabel = new Label("Shift + click to get the elevation profile from the last point");
+      profileLabel.setStyle("-fx-text-fill: white;");
+      profileLabel.setPadding(new Insets(10));
+      profileLabel.setBackground(new Background(new BackgroundFill(Paint.valueOf("rgba(0,0,0,0.3)"),
+          CornerRadii.EMPTY, Insets.EMPTY)));
+      profileLabel.setMaxSize(Region.USE_PREF_SIZE, Region.USE_PREF_SIZE);
+      stackPane.getChildren().add(profileLabel);
+      StackPane.setAlignment(profileLabel, Pos.TOP_LEFT);
+      StackPane.setMargin(profileLabel, new Insets(10));
+
       // create a point symbol and graphic to mark where elevation is being measured
       SimpleLineSymbol elevationLineSymbol = new SimpleLineSymbol(SimpleLineSymbol.Style.SOLID, 0xFFFF0000, 3.0f);
       Graphic polylineGraphic = new Graphic();
@@ -107,6 +137,12 @@ public class GetElevationAtAPointSample extends Application {
           // check that the point is on the surface
           if (relativeSurfacePoint != null) {
 
+            // get the elevation profile from the last point to this one
+            if (event.isShiftDown() && lastSurfacePoint != null) {
+              getElevationProfile(lastSurfacePoint, relativeSurfacePoint, profileLabel);
+            }
+            lastSurfacePoint = relativeSurfacePoint;
+
             // clear any existing graphics from the graphics overlay
             graphicsOverlay.getGraphics().clear();
 
@@ -145,12 +181,61 @@ public class GetElevationAtAPointSample extends Application {
     }
   }
 
+  /**
+   * Samples the surface elevation along the line between two points in the background, and shows a summary of the
+   * profile.
+   *
+   * @param from start of the line
+   * @param to end of the line
+   * @param profileLabel label to show the summary in
+   */
+  private void getElevationProfile(Point from, Point to, Label profileLabel) {
+
+    PointCollection linePoints = new PointCollection(from.getSpatialReference());
+    linePoints.add(from);
+    linePoints.add(to);
+    Polyline line = new Polyline(linePoints);
+    profileLabel.setText("Getting elevation profile...");
+
+    Thread profileThread = new Thread(() -> {
+      try {
+        long start = System.nanoTime();
+        double[] profile = elevationSampler.sampleProfile(line, PROFILE_INTERVAL_METERS);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        double minimum = Double.POSITIVE_INFINITY;
+        double maximum = Double.NEGATIVE_INFINITY;
+        double ascent = 0;
+        double previous = Double.NaN;
+        for (double elevation : profile) {
+          if (!Double.isNaN(elevation)) {
+            minimum = Math.min(minimum, elevation);
+            maximum = Math.max(maximum, elevation);
+            ascent += Double.isNaN(previous) ? 0 : Math.max(0, elevation - previous);
+            previous = elevation;
+          }
+        }
+        String summary = String.format(Locale.ROOT, "%d samples every %.0f m in %.2f s%n"
+            + "Lowest %.0f m, highest %.0f m, total ascent %.0f m", profile.length, PROFILE_INTERVAL_METERS, seconds,
+            minimum, maximum, ascent);
+        Platform.runLater(() -> profileLabel.setText(summary));
+      } catch (InterruptedException e) {
+        Platform.runLater(() -> profileLabel.setText("Elevation profile interrupted"));
+      }
+    });
+    profileThread.setDaemon(true);
+    profileThread.start();
+  }
+
   /**
    * Stops and releases all resources used in application.
    */
   @Override
   public void stop() {
 
+    if (elevationSampler != null) {
+      elevationSampler.dispose();
+    }
     if (sceneView != null) {
       sceneView.dispose();
     }
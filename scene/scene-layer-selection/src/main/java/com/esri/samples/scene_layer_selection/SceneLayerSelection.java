@@ -0,0 +1,540 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.scene_layer_selection;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.geometry.Point2D;
+
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.data.Feature;
+import com.esri.arcgisruntime.data.FeatureQueryResult;
+import com.esri.arcgisruntime.data.FeatureTable;
+import com.esri.arcgisruntime.data.Field;
+import com.esri.arcgisruntime.data.QueryParameters;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.geometry.PointCollection;
+import com.esri.arcgisruntime.geometry.Polygon;
+import com.esri.arcgisruntime.layers.ArcGISSceneLayer;
+import com.esri.arcgisruntime.loadable.LoadStatus;
+import com.esri.arcgisruntime.mapping.GeoElement;
+import com.esri.arcgisruntime.mapping.view.IdentifyLayerResult;
+import com.esri.arcgisruntime.mapping.view.SceneView;
+
+/**
+ * Selects the features of a scene layer inside an area drawn on the screen, such as a rubber band rectangle or a lasso.
+ * The area is projected onto the ground and the features in it are found with one spatial query of the layer's
+ * feature table, rather than an identify for each feature. Layers without a queryable table fall back to identifying
+ * a grid of points across the area in one batch.
+ * <p>
+ * The selection is kept as a bit set of object IDs, so thousands of selected buildings take a few kilobytes, and only
+ * the features whose selection changes are passed to the layer, in batches from an animation timer, one each pulse,
+ * so the view stays responsive.
+ * <p>
+ * Only use the selection on the JavaFX application thread.
+ */
+public class SceneLayerSelection {
+
+  private static final int MAX_IDENTIFY_POINTS = 400;
+  private static final int MAX_IDENTIFY_RESULTS = 1000;
+  private static final double MAX_IDENTIFY_TOLERANCE = 100;
+
+  /**
+   * How a new area changes the selection.
+   */
+  public enum Mode {
+    /** The features in the area become the selection. */
+    NEW,
+    /** The features in the area are added to the selection. */
+    ADD,
+    /** The features in the area are removed from the selection. */
+    REMOVE
+  }
+
+  private final SceneView sceneView;
+  private final ArcGISSceneLayer sceneLayer;
+  private final int batchSize;
+  private final BitSet selectedIds = new BitSet();
+  // the object ID field of each table the features come from
+  private final Map<FeatureTable, String> objectIdFields = new HashMap<>();
+  private final CompletableFuture<Void> tableLoaded = new CompletableFuture<>();
+  private FeatureTable queryTable;
+  private CompletableFuture<Void> applied = CompletableFuture.completedFuture(null);
+
+  /**
+   * Creates a selection for a scene layer.
+   *
+   * @param sceneView the view the areas are drawn on
+   * @param sceneLayer a loaded scene layer
+   * @param batchSize most features to select or unselect at once
+   */
+  public SceneLayerSelection(SceneView sceneView, ArcGISSceneLayer sceneLayer, int batchSize) {
+    this.sceneView = sceneView;
+    this.sceneLayer = sceneLayer;
+    this.batchSize = batchSize;
+
+    // query the layer's own table if it has one that can be queried
+    FeatureTable featureTable = sceneLayer.getFeatureTable();
+    if (featureTable != null) {
+      featureTable.loadAsync();
+      featureTable.addDoneLoadingListener(() -> {
+        if (featureTable.getLoadStatus() == LoadStatus.LOADED && findObjectIdField(featureTable) != null) {
+          queryTable = featureTable;
+        }
+        tableLoaded.complete(null);
+      });
+    } else {
+      tableLoaded.complete(null);
+    }
+  }
+
+  /**
+   * Gets when the layer's feature table is done loading, after which {@link #isQueryingTable()} tells whether areas
+   * are resolved with a spatial query. Until then, they're resolved by identifying a grid of points.
+   *
+   * @return completes once the table has loaded or failed to load, or straight away if the layer has none
+   */
+  public CompletableFuture<Void> getTableLoaded() {
+    return tableLoaded;
+  }
+
+  /**
+   * Changes the selection by the features in an area of the screen.
+   *
+   * @param screenPoints the outline of the area, in the scene view's coordinates
+   * @param mode how the area changes the selection
+   * @return completes with the change once the layer shows it, or exceptionally if the features can't be found
+   */
+  public CompletableFuture<Change> selectArea(List<Point2D> screenPoints, Mode mode) {
+    long start = System.nanoTime();
+    boolean[] truncated = {false};
+    CompletableFuture<List<Feature>> features = queryTable != null ? queryArea(screenPoints) :
+        identifyArea(screenPoints, truncated);
+    return features.thenCompose(areaFeatures -> apply(areaFeatures, mode, start, truncated[0]));
+  }
+
+  /**
+   * Changes the selection by the feature at a point on the screen, clearing a new selection if there's none there.
+   *
+   * @param screenPoint the point, in the scene view's coordinates
+   * @param mode how the feature changes the selection
+   * @return completes with the change once the layer shows it, or exceptionally if the feature can't be identified
+   */
+  public CompletableFuture<Change> selectAt(Point2D screenPoint, Mode mode) {
+    long start = System.nanoTime();
+    return identify(screenPoint, 10, 1).thenCompose(features -> apply(features, mode, start, false));
+  }
+
+  /**
+   * Unselects every feature.
+   */
+  public void clear() {
+    selectedIds.clear();
+    sceneLayer.clearSelection();
+  }
+
+  /**
+   * Gets the number of features selected.
+   *
+   * @return number of features
+   */
+  public int getSelectedCount() {
+    return selectedIds.cardinality();
+  }
+
+  /**
+   * Gets whether a feature is selected.
+   *
+   * @param objectId the feature's object ID
+   * @return true if it's selected
+   */
+  public boolean isSelected(long objectId) {
+    return objectId >= 0 && objectId <= Integer.MAX_VALUE && selectedIds.get((int) objectId);
+  }
+
+  /**
+   * Gets whether areas are resolved with a spatial query, rather than by identifying a grid of points.
+   *
+   * @return true if the layer's feature table is queried
+   */
+  public boolean isQueryingTable() {
+    return queryTable != null;
+  }
+
+  /**
+   * Works out which features change, then passes them to the layer in batches, one per pulse. A change made while the
+   * previous one is still being passed to the layer waits for it.
+   *
+   * @param areaFeatures the features in the area
+   * @param mode how they change the selection
+   * @param start when the change was asked for, from {@link System#nanoTime()}
+   * @param truncated whether features in the area may have been missed
+   * @return completes with the change once the layer shows it
+   */
+  private CompletableFuture<Change> apply(List<Feature> areaFeatures, Mode mode, long start, boolean truncated) {
+    long resolved = System.nanoTime();
+    CompletableFuture<Void> previous = applied;
+    CompletableFuture<Change> change = previous.thenApplyAsync(ignored -> {
+      BitSet areaIds = new BitSet();
+      List<Feature> toSelect = new ArrayList<>();
+      List<Feature> toUnselect = new ArrayList<>();
+      if (mode == Mode.NEW) {
+        // cheaper to start again than to work out which of the old selection to unselect
+        selectedIds.clear();
+        sceneLayer.clearSelection();
+      }
+      for (Feature feature : areaFeatures) {
+        int id = objectIdOf(feature);
+        if (id < 0 || areaIds.get(id)) {
+          continue;
+        }
+        areaIds.set(id);
+        if (mode == Mode.REMOVE) {
+          if (selectedIds.get(id)) {
+            toUnselect.add(feature);
+          }
+        } else if (!selectedIds.get(id)) {
+          toSelect.add(feature);
+        }
+      }
+      if (mode == Mode.REMOVE) {
+        selectedIds.andNot(areaIds);
+      } else {
+        selectedIds.or(areaIds);
+      }
+      return new Change(areaIds.cardinality(), toSelect, toUnselect, selectedIds.cardinality(),
+          (resolved - start) / 1e6, truncated);
+    }, Platform::runLater);
+
+    CompletableFuture<Void> done = change.thenCompose(this::passToLayer);
+    applied = done.exceptionally(e -> null);
+    return done.thenApply(ignored -> change.join().finish(System.nanoTime() - resolved));
+  }
+
+  /**
+   * Passes the changed features to the layer a batch at a time, one batch each pulse. Call it on the JavaFX
+   * application thread.
+   *
+   * @param change the change
+   * @return completes once every batch has been passed to the layer
+   */
+  private CompletableFuture<Void> passToLayer(Change change) {
+    List<Runnable> batches = new ArrayList<>();
+    for (int from = 0; from < change.toSelect.size(); from += batchSize) {
+      List<Feature> features = change.toSelect.subList(from, Math.min(change.toSelect.size(), from + batchSize));
+      batches.add(() -> sceneLayer.selectFeatures(features));
+    }
+    for (int from = 0; from < change.toUnselect.size(); from += batchSize) {
+      List<Feature> features = change.toUnselect.subList(from, Math.min(change.toUnselect.size(), from + batchSize));
+      batches.add(() -> sceneLayer.unselectFeatures(features));
+    }
+    CompletableFuture<Void> passed = new CompletableFuture<>();
+    if (batches.isEmpty()) {
+      passed.complete(null);
+      return passed;
+    }
+    new AnimationTimer() {
+
+      private int next;
+
+      @Override
+      public void handle(long now) {
+        try {
+          batches.get(next++).run();
+        } catch (RuntimeException e) {
+          stop();
+          passed.completeExceptionally(e);
+          return;
+        }
+        if (next == batches.size()) {
+          stop();
+          passed.complete(null);
+        }
+      }
+    }.start();
+    return passed;
+  }
+
+  /**
+   * Finds the features in an area with one spatial query, paging through the results if the service limits them.
+   *
+   * @param screenPoints the outline of the area
+   * @return completes with the features
+   */
+  private CompletableFuture<List<Feature>> queryArea(List<Point2D> screenPoints) {
+    Polygon area = toGroundPolygon(screenPoints);
+    if (area == null) {
+      return CompletableFuture.completedFuture(new ArrayList<>());
+    }
+    QueryParameters queryParameters = new QueryParameters();
+    queryParameters.setGeometry(area);
+    queryParameters.setSpatialRelationship(QueryParameters.SpatialRelationship.INTERSECTS);
+    queryParameters.setReturnGeometry(false);
+    // pages are only stable when the results come back in the same order for each offset
+    queryParameters.getOrderByFields().add(new QueryParameters.OrderBy(findObjectIdField(queryTable),
+        QueryParameters.SortOrder.ASCENDING));
+    List<Feature> features = new ArrayList<>();
+    CompletableFuture<List<Feature>> queried = new CompletableFuture<>();
+    queryPage(queryParameters, features, queried);
+    return queried;
+  }
+
+  /**
+   * Queries a page of features, then the next page if there may be more.
+   *
+   * @param queryParameters the query, with the offset of the page
+   * @param features the features found so far
+   * @param queried completed with the features once there are no more pages
+   */
+  private void queryPage(QueryParameters queryParameters, List<Feature> features,
+      CompletableFuture<List<Feature>> queried) {
+    ListenableFuture<FeatureQueryResult> query = queryTable.queryFeaturesAsync(queryParameters);
+    query.addDoneListener(() -> {
+      try {
+        FeatureQueryResult result = query.get();
+        int count = 0;
+        for (Feature feature : result) {
+          features.add(feature);
+          count++;
+        }
+        if (result.isTransferLimitExceeded() && count > 0) {
+          queryParameters.setResultOffset(queryParameters.getResultOffset() + count);
+          queryPage(queryParameters, features, queried);
+        } else {
+          queried.complete(features);
+        }
+      } catch (Exception e) {
+        queried.completeExceptionally(e);
+      }
+    });
+  }
+
+  /**
+   * Finds the features in an area by identifying a grid of points across it at once, each with a tolerance that
+   * covers the space between them.
+   *
+   * @param screenPoints the outline of the area
+   * @param truncated set to true if any point found as many features as an identify returns, so some may be missing
+   * @return completes with the features
+   */
+  private CompletableFuture<List<Feature>> identifyArea(List<Point2D> screenPoints, boolean[] truncated) {
+    javafx.scene.shape.Polygon outline = new javafx.scene.shape.Polygon();
+    double minX = Double.MAX_VALUE;
+    double minY = Double.MAX_VALUE;
+    double maxX = -Double.MAX_VALUE;
+    double maxY = -Double.MAX_VALUE;
+    for (Point2D screenPoint : screenPoints) {
+      outline.getPoints().addAll(screenPoint.getX(), screenPoint.getY());
+      minX = Math.min(minX, screenPoint.getX());
+      minY = Math.min(minY, screenPoint.getY());
+      maxX = Math.max(maxX, screenPoint.getX());
+      maxY = Math.max(maxY, screenPoint.getY());
+    }
+    // space the points so there are no more than the limit, and each covers its square of the grid
+    double spacing = Math.max(20, Math.sqrt((maxX - minX) * (maxY - minY) / MAX_IDENTIFY_POINTS));
+    double tolerance = Math.min(MAX_IDENTIFY_TOLERANCE, spacing / Math.sqrt(2));
+
+    List<CompletableFuture<List<Feature>>> identifies = new ArrayList<>();
+    for (double y = minY + spacing / 2; y < maxY; y += spacing) {
+      for (double x = minX + spacing / 2; x < maxX; x += spacing) {
+        if (outline.contains(x, y)) {
+          identifies.add(identify(new Point2D(x, y), tolerance, MAX_IDENTIFY_RESULTS));
+        }
+      }
+    }
+    return CompletableFuture.allOf(identifies.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+      List<Feature> features = new ArrayList<>();
+      for (CompletableFuture<List<Feature>> identify : identifies) {
+        List<Feature> identified = identify.join();
+        truncated[0] |= identified.size() >= MAX_IDENTIFY_RESULTS;
+        features.addAll(identified);
+      }
+      return features;
+    });
+  }
+
+  /**
+   * Identifies the features of the layer around a point on the screen.
+   *
+   * @param screenPoint the point
+   * @param tolerance distance around the point to look in, in device independent pixels
+   * @param maxResults most features to find
+   * @return completes with the features, or exceptionally if the identify fails
+   */
+  private CompletableFuture<List<Feature>> identify(Point2D screenPoint, double tolerance, int maxResults) {
+    CompletableFuture<List<Feature>> identified = new CompletableFuture<>();
+    ListenableFuture<IdentifyLayerResult> identify = sceneView.identifyLayerAsync(sceneLayer, screenPoint, tolerance,
+        false, maxResults);
+    identify.addDoneListener(() -> {
+      try {
+        List<Feature> features = new ArrayList<>();
+        for (GeoElement geoElement : identify.get().getElements()) {
+          if (geoElement instanceof Feature) {
+            features.add((Feature) geoElement);
+          }
+        }
+        identified.complete(features);
+      } catch (Exception e) {
+        identified.completeExceptionally(e);
+      }
+    });
+    return identified;
+  }
+
+  /**
+   * Projects an outline on the screen onto the ground, leaving out the points above the horizon.
+   *
+   * @param screenPoints the outline
+   * @return the area on the ground, or null if too little of it is on the ground
+   */
+  private Polygon toGroundPolygon(List<Point2D> screenPoints) {
+    PointCollection points = new PointCollection(sceneView.getSpatialReference());
+    for (Point2D screenPoint : screenPoints) {
+      Point location = sceneView.screenToBaseSurface(screenPoint);
+      if (location != null) {
+        points.add(location.getX(), location.getY());
+      }
+    }
+    return points.size() >= 3 ? new Polygon(points) : null;
+  }
+
+  /**
+   * Gets a feature's object ID.
+   *
+   * @param feature the feature
+   * @return the object ID, or -1 if it has none that fits in the bit set
+   */
+  private int objectIdOf(Feature feature) {
+    String objectIdField = objectIdFields.computeIfAbsent(feature.getFeatureTable(),
+        SceneLayerSelection::findObjectIdField);
+    Object objectId = objectIdField != null ? feature.getAttributes().get(objectIdField) : null;
+    if (objectId instanceof Number) {
+      long id = ((Number) objectId).longValue();
+      return id >= 0 && id <= Integer.MAX_VALUE ? (int) id : -1;
+    }
+    return -1;
+  }
+
+  /**
+   * Finds the object ID field of a table.
+   *
+   * @param featureTable the table
+   * @return the field's name, or null if it has none
+   */
+  private static String findObjectIdField(FeatureTable featureTable) {
+    if (featureTable == null) {
+      return null;
+    }
+    for (Field field : featureTable.getFields()) {
+      if (field.getFieldType() == Field.Type.OID) {
+        return field.getName();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * How one area changed the selection, and how long it took.
+   */
+  public static class Change {
+
+    private final int areaCount;
+    private final List<Feature> toSelect;
+    private final List<Feature> toUnselect;
+    private final int selectedCount;
+    private final double resolveMillis;
+    private final boolean truncated;
+    private double applyMillis;
+
+    private Change(int areaCount, List<Feature> toSelect, List<Feature> toUnselect, int selectedCount,
+        double resolveMillis, boolean truncated) {
+      this.areaCount = areaCount;
+      this.toSelect = toSelect;
+      this.toUnselect = toUnselect;
+      this.selectedCount = selectedCount;
+      this.resolveMillis = resolveMillis;
+      this.truncated = truncated;
+    }
+
+    private Change finish(long applyNanos) {
+      applyMillis = applyNanos / 1e6;
+      return this;
+    }
+
+    /**
+     * Gets the number of features found in the area.
+     *
+     * @return number of features
+     */
+    public int getAreaCount() {
+      return areaCount;
+    }
+
+    /**
+     * Gets the number of features whose selection changed.
+     *
+     * @return number of features
+     */
+    public int getChangedCount() {
+      return toSelect.size() + toUnselect.size();
+    }
+
+    /**
+     * Gets the number of features selected after the change.
+     *
+     * @return number of features
+     */
+    public int getSelectedCount() {
+      return selectedCount;
+    }
+
+    /**
+     * Gets how long it took to find the features in the area.
+     *
+     * @return time in milliseconds
+     */
+    public double getResolveMillis() {
+      return resolveMillis;
+    }
+
+    /**
+     * Gets whether some features in the area may have been missed, because identifying a point found as many
+     * features as an identify returns.
+     *
+     * @return true if features may be missing
+     */
+    public boolean isTruncated() {
+      return truncated;
+    }
+
+    /**
+     * Gets how long it took to pass the changed features to the layer.
+     *
+     * @return time in milliseconds
+     */
+    public double getApplyMillis() {
+      return applyMillis;
+    }
+  }
+}
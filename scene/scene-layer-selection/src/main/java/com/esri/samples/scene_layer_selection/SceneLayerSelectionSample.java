@@ -16,33 +16,50 @@
 
 package com.esri.samples.scene_layer_selection;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
 import javafx.geometry.Point2D;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Button;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Label;
 import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Pane;
 import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.Polygon;
 import javafx.stage.Stage;
 
-import com.esri.arcgisruntime.concurrent.ListenableFuture;
-import com.esri.arcgisruntime.data.Feature;
 import com.esri.arcgisruntime.layers.ArcGISSceneLayer;
 import com.esri.arcgisruntime.loadable.LoadStatus;
 import com.esri.arcgisruntime.mapping.ArcGISScene;
 import com.esri.arcgisruntime.mapping.ArcGISTiledElevationSource;
 import com.esri.arcgisruntime.mapping.Basemap;
-import com.esri.arcgisruntime.mapping.GeoElement;
 import com.esri.arcgisruntime.mapping.Surface;
 import com.esri.arcgisruntime.mapping.view.Camera;
-import com.esri.arcgisruntime.mapping.view.IdentifyLayerResult;
 import com.esri.arcgisruntime.mapping.view.SceneView;
 
 public class SceneLayerSelectionSample extends Application {
 
   private SceneView sceneView;
+  private SceneLayerSelection selection;
+  private final List<Point2D> outlinePoints = new ArrayList<>();
 
   @Override
   public void start(Stage stage) {
@@ -72,8 +89,33 @@ public class SceneLayerSelectionSample extends Application {
       Camera camera = new Camera(48.378, -4.494, 200, 345, 65, 0);
       sceneView.setViewpointCamera(camera);
 
-      // add the scene view to the stack pane
-      stackPane.getChildren().add(sceneView);
+      // add the scene view to the stack pane, with a pane on top to draw the selection outline in
+      Polygon outline = new Polygon();
+      outline.setFill(Color.rgb(0, 255, 255, 0.2));
+      outline.setStroke(Color.CYAN);
+      Pane outlinePane = new Pane(outline);
+      outlinePane.setMouseTransparent(true);
+      stackPane.getChildren().addAll(sceneView, outlinePane);
+
+      // choose how to select, and show what's selected
+      ComboBox<String> shapeComboBox = new ComboBox<>();
+      shapeComboBox.getItems().addAll("Click", "Rectangle", "Lasso");
+      shapeComboBox.getSelectionModel().select(0);
+      ComboBox<SceneLayerSelection.Mode> modeComboBox = new ComboBox<>();
+      modeComboBox.getItems().addAll(SceneLayerSelection.Mode.values());
+      modeComboBox.getSelectionModel().select(SceneLayerSelection.Mode.NEW);
+      Button clearButton = new Button("Clear");
+      Label selectionLabel = new Label("Click a building to select it");
+      selectionLabel.setStyle("-fx-text-fill: white;");
+      VBox controlsVBox = new VBox(6, new HBox(6, shapeComboBox, modeComboBox, clearButton), selectionLabel);
+      controlsVBox.setBackground(new Background(new BackgroundFill(Paint.valueOf("rgba(0,0,0,0.3)"), CornerRadii.EMPTY,
+          Insets.EMPTY)));
+      controlsVBox.setPadding(new Insets(10.0));
+      controlsVBox.setMaxSize(340, 80);
+      controlsVBox.setDisable(true);
+      stackPane.getChildren().add(controlsVBox);
+      StackPane.setAlignment(controlsVBox, Pos.TOP_LEFT);
+      StackPane.setMargin(controlsVBox, new Insets(10, 0, 0, 10));
 
       // add base surface with elevation data
       Surface surface = new Surface();
@@ -90,32 +132,59 @@ public class SceneLayerSelectionSample extends Application {
       sceneLayer.addDoneLoadingListener(() -> {
         if (sceneLayer.getLoadStatus() == LoadStatus.LOADED) {
 
+          // select in batches of up to 1000 features
+          selection = new SceneLayerSelection(sceneView, sceneLayer, 1000);
+          controlsVBox.setDisable(false);
+          clearButton.setOnAction(e -> {
+            selection.clear();
+            selectionLabel.setText("Click a building to select it");
+          });
+
           // when the scene is clicked, identify the clicked feature and select it
           sceneView.setOnMouseClicked(e -> {
-            if (e.isStillSincePress() && e.getButton() == MouseButton.PRIMARY) {
-              // clear any previous selection
-              sceneLayer.clearSelection();
-              // identify clicked feature
-              Point2D point2D = new Point2D(e.getX(), e.getY());
-              ListenableFuture<IdentifyLayerResult> identify = sceneView.identifyLayerAsync(sceneLayer, point2D, 10, false, 1);
-              identify.addDoneListener(() -> {
-                try {
-                  // get the identified result and check that it is a feature
-                  IdentifyLayerResult result = identify.get();
-                  List<GeoElement> geoElements = result.getElements();
-                  if (geoElements.size() > 0) {
-                    GeoElement geoElement = geoElements.get(0);
-                    if (geoElement instanceof Feature) {
-                      // select the feature
-                      sceneLayer.selectFeature((Feature) geoElement);
-                    }
-                  }
-                } catch (InterruptedException | ExecutionException ex) {
-                  new Alert(Alert.AlertType.ERROR, "Error identifying features").show();
-                }
-              });
+            if (e.isStillSincePress() && e.getButton() == MouseButton.PRIMARY &&
+                shapeComboBox.getSelectionModel().getSelectedIndex() == 0) {
+              showChange(selection.selectAt(new Point2D(e.getX(), e.getY()), modeComboBox.getValue()),
+                  selectionLabel);
             }
           });
+
+          // drag out a rectangle or lasso instead of navigating, then select the buildings inside it
+          sceneView.addEventFilter(MouseEvent.ANY, e -> {
+            String shape = shapeComboBox.getValue();
+            if (shape.equals("Click") || e.getButton() != MouseButton.PRIMARY) {
+              return;
+            }
+            if (e.getEventType() == MouseEvent.MOUSE_PRESSED) {
+              outlinePoints.clear();
+              outlinePoints.add(new Point2D(e.getX(), e.getY()));
+            } else if (e.getEventType() == MouseEvent.MOUSE_DRAGGED && !outlinePoints.isEmpty()) {
+              Point2D point = new Point2D(e.getX(), e.getY());
+              if (shape.equals("Rectangle")) {
+                Point2D corner = outlinePoints.get(0);
+                outlinePoints.clear();
+                outlinePoints.addAll(Arrays.asList(corner, new Point2D(point.getX(), corner.getY()), point,
+                    new Point2D(corner.getX(), point.getY())));
+              } else if (point.distance(outlinePoints.get(outlinePoints.size() - 1)) > 5) {
+                outlinePoints.add(point);
+              }
+              outline.getPoints().clear();
+              outlinePoints.forEach(outlinePoint -> outline.getPoints().addAll(outlinePoint.getX(),
+                  outlinePoint.getY()));
+            } else if (e.getEventType() == MouseEvent.MOUSE_RELEASED && outlinePoints.size() >= 3) {
+              selectionLabel.setText("Selecting...");
+              showChange(selection.selectArea(new ArrayList<>(outlinePoints), modeComboBox.getValue()),
+                  selectionLabel);
+              outlinePoints.clear();
+              outline.getPoints().clear();
+            }
+            e.consume();
+          });
+
+          // run the selection benchmark unattended and exit, with --benchmark or -Dbenchmark=true
+          if (getParameters().getRaw().contains("--benchmark") || Boolean.getBoolean("benchmark")) {
+            runBenchmark(sceneLayer);
+          }
         } else {
           new Alert(Alert.AlertType.ERROR, "Error loading scene layer").show();
         }
@@ -127,6 +196,39 @@ public class SceneLayerSelectionSample extends Application {
     }
   }
 
+  /**
+   * Shows how a selection change went once it's done, or an error if it failed.
+   *
+   * @param change the change
+   * @param selectionLabel label to show it in
+   */
+  private void showChange(CompletableFuture<SceneLayerSelection.Change> change, Label selectionLabel) {
+    change.whenComplete((result, error) -> Platform.runLater(() -> {
+      if (error != null) {
+        selectionLabel.setText(String.format(Locale.ROOT, "%,d selected", selection.getSelectedCount()));
+        new Alert(Alert.AlertType.ERROR, "Error selecting features").show();
+        return;
+      }
+      selectionLabel.setText(String.format(Locale.ROOT,
+          "%,d selected, %,d changed%nFound in %.0f ms by %s, shown in %.0f ms%s", result.getSelectedCount(),
+          result.getChangedCount(), result.getResolveMillis(), selection.isQueryingTable() ? "query" : "identify",
+          result.getApplyMillis(), result.isTruncated() ? "\nSome features may be missed, select a smaller area" :
+              ""));
+    }));
+  }
+
+  /**
+   * Runs the selection benchmark in the background once the scene has first drawn, writes the results to the
+   * benchmark-results directory and exits.
+   *
+   * @param sceneLayer the loaded scene layer
+   */
+  private void runBenchmark(ArcGISSceneLayer sceneLayer) {
+
+    SelectionBenchmark benchmark = new SelectionBenchmark(sceneView, sceneLayer);
+    BenchmarkRunner.runWhenDrawn(sceneView, outputDirectory -> benchmark.run(outputDirectory, System.out::println));
+  }
+
   /**
    * Stops and releases all resources used in application.
    */
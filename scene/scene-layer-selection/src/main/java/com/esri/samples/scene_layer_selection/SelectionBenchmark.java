@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.scene_layer_selection;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+import javafx.geometry.Point2D;
+
+import com.esri.arcgisruntime.layers.ArcGISSceneLayer;
+import com.esri.arcgisruntime.mapping.view.Camera;
+import com.esri.arcgisruntime.mapping.view.DrawStatus;
+import com.esri.arcgisruntime.mapping.view.DrawStatusChangedListener;
+import com.esri.arcgisruntime.mapping.view.SceneView;
+
+/**
+ * Measures how selection latency grows with the number of buildings selected. Looking down on the buildings, it
+ * selects rectangles in the middle of the view of growing size, passing the changes to the layer one feature at a
+ * time and in batches, and records how long the features take to find and to show as selected. The results are
+ * written as a CSV file.
+ */
+public class SelectionBenchmark {
+
+  private static final double[] RECTANGLE_FRACTIONS = {0.05, 0.1, 0.25, 0.5, 0.75, 1.0};
+  private static final int[] BATCH_SIZES = {1, 1000};
+  private static final int REPEATS = 3;
+  private static final long TIMEOUT_SECONDS = 300;
+
+  private final SceneView sceneView;
+  private final ArcGISSceneLayer sceneLayer;
+
+  /**
+   * Creates a benchmark.
+   *
+   * @param sceneView the scene view showing the layer
+   * @param sceneLayer the loaded scene layer to select in
+   */
+  public SelectionBenchmark(SceneView sceneView, ArcGISSceneLayer sceneLayer) {
+    this.sceneView = sceneView;
+    this.sceneLayer = sceneLayer;
+  }
+
+  /**
+   * Selects every size of rectangle with each batch size and writes the results. Blocks until done, so call it from a
+   * background thread.
+   *
+   * @param outputDirectory directory for the CSV file
+   * @param progressListener receives a message as each run starts
+   * @return the CSV file
+   * @throws IOException if the results can't be written
+   * @throws InterruptedException if the thread is interrupted
+   */
+  public Path run(Path outputDirectory, Consumer<String> progressListener) throws IOException, InterruptedException {
+
+    // look down on the middle of Brest, and wait for the buildings to draw
+    CompletableFuture<Void> drawn = new CompletableFuture<>();
+    DrawStatusChangedListener drawListener = drawStatusChangedEvent -> {
+      if (drawStatusChangedEvent.getDrawStatus() == DrawStatus.COMPLETED) {
+        drawn.complete(null);
+      }
+    };
+    onFxThread(() -> {
+      sceneView.addDrawStatusChangedListener(drawListener);
+      sceneView.setViewpointCamera(new Camera(48.383, -4.492, 1500, 0, 20, 0));
+    });
+    waitFor(drawn);
+    onFxThread(() -> sceneView.removeDrawStatusChangedListener(drawListener));
+
+    List<String> rows = new ArrayList<>();
+    for (int batchSize : BATCH_SIZES) {
+      CompletableFuture<SceneLayerSelection> created = CompletableFuture.supplyAsync(() -> new SceneLayerSelection(
+          sceneView, sceneLayer, batchSize), Platform::runLater);
+      SceneLayerSelection selection = waitFor(created);
+      // wait for the layer's feature table to load, so the areas are queried if the layer allows it
+      waitFor(selection.getTableLoaded());
+
+      for (double fraction : RECTANGLE_FRACTIONS) {
+        for (int repeat = 0; repeat < REPEATS; repeat++) {
+          progressListener.accept(String.format(Locale.ROOT, "Selecting %.0f%% of the view in batches of %d",
+              fraction * 100, batchSize));
+          onFxThread(selection::clear);
+          CompletableFuture<SceneLayerSelection.Change> change = CompletableFuture.supplyAsync(() -> rectangle(
+              fraction), Platform::runLater).thenCompose(rectangle -> selection.selectArea(rectangle,
+              SceneLayerSelection.Mode.NEW));
+          SceneLayerSelection.Change result = waitFor(change);
+          if (result != null) {
+            rows.add(String.format(Locale.ROOT, "%.2f,%d,%d,%s,%d,%b,%.0f,%.0f,%.0f", fraction, batchSize, repeat,
+                selection.isQueryingTable() ? "query" : "identify", result.getSelectedCount(), result.isTruncated(),
+                result.getResolveMillis(), result.getApplyMillis(), result.getResolveMillis() +
+                    result.getApplyMillis()));
+          }
+        }
+      }
+      onFxThread(selection::clear);
+    }
+
+    Files.createDirectories(outputDirectory);
+    Path csvFile = outputDirectory.resolve("scene-layer-selection-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(
+        new Date()) + ".csv");
+    try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8))) {
+      writer.println("view_fraction,batch_size,repeat,resolved_by,selected,truncated,resolve_ms,apply_ms,total_ms");
+      rows.forEach(writer::println);
+    }
+    return csvFile;
+  }
+
+  /**
+   * Creates a rectangle in the middle of the view.
+   *
+   * @param fraction the share of the view's width and height the rectangle covers
+   * @return the rectangle's corners, in the view's coordinates
+   */
+  private List<Point2D> rectangle(double fraction) {
+    double width = sceneView.getWidth() * fraction;
+    double height = sceneView.getHeight() * fraction;
+    double left = (sceneView.getWidth() - width) / 2;
+    double top = (sceneView.getHeight() - height) / 2;
+    return Arrays.asList(new Point2D(left, top), new Point2D(left + width, top), new Point2D(left + width,
+        top + height), new Point2D(left, top + height));
+  }
+
+  /**
+   * Runs a task on the JavaFX application thread and waits for it.
+   *
+   * @param task the task
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private static void onFxThread(Runnable task) throws InterruptedException {
+    waitFor(CompletableFuture.runAsync(task, Platform::runLater));
+  }
+
+  /**
+   * Waits for a future, giving up after the timeout.
+   *
+   * @param future the future
+   * @param <T> type of the future's result
+   * @return the future's result, or null if it timed out or failed
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private static <T> T waitFor(CompletableFuture<T> future) throws InterruptedException {
+    try {
+      return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (ExecutionException | TimeoutException e) {
+      return null;
+    }
+  }
+}
@@ -18,17 +18,29 @@
 package com.esri.samples.sync_map_and_scene_viewpoints;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.geometry.Insets;
 import javafx.geometry.Orientation;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Label;
 import javafx.scene.control.SplitPane;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
+import javafx.scene.layout.StackPane;
+import javafx.scene.paint.Paint;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 import com.esri.arcgisruntime.mapping.ArcGISMap;
 import com.esri.arcgisruntime.mapping.ArcGISScene;
 import com.esri.arcgisruntime.mapping.Basemap;
-import com.esri.arcgisruntime.mapping.Viewpoint;
 import com.esri.arcgisruntime.mapping.view.GeoView;
 import com.esri.arcgisruntime.mapping.view.MapView;
 import com.esri.arcgisruntime.mapping.view.SceneView;
@@ -37,7 +49,9 @@ public class SyncMapAndSceneViewpointsSample extends Application {
 
   private MapView mapView;
   private SceneView sceneView;
-  private ArrayList<GeoView> geoViewList;
+  private ViewpointSyncBus viewpointSyncBus;
+  private Timeline statisticsTimeline;
+  private final List<GeoView> extraGeoViews = new ArrayList<>();
 
   @Override
   public void start(Stage stage) {
@@ -47,7 +61,8 @@ public class SyncMapAndSceneViewpointsSample extends Application {
       // create split pane and JavaFX app scene
       SplitPane splitPane = new SplitPane();
       splitPane.setOrientation(Orientation.HORIZONTAL);
-      Scene fxScene = new Scene(splitPane);
+      StackPane stackPane = new StackPane(splitPane);
+      Scene fxScene = new Scene(stackPane);
 
       // set title, size, and add JavaFX scene to stage
       stage.setTitle("Sync Map and Scene Viewpoints");
@@ -75,16 +90,54 @@ public class SyncMapAndSceneViewpointsSample extends Application {
       // add the map view and scene view to the split plane
       splitPane.getItems().addAll(mapView, sceneView);
 
-      // add a viewpoint changed listener to the map view. Access the GeoView class using the event's getSource method
-      mapView.addViewpointChangedListener(viewpointChangedEvent -> synchronizeViewpoints(viewpointChangedEvent.getSource()));
-
-      // add a viewpoint changed listener to the scene view. Access the GeoView class using the event's getSource method
-      sceneView.addViewpointChangedListener(viewpointChangedEvent -> synchronizeViewpoints(viewpointChangedEvent.getSource()));
+      // link the views on a bus, which syncs the viewpoint of the view being navigated to the others once a frame
+      viewpointSyncBus = new ViewpointSyncBus();
+      viewpointSyncBus.add(mapView);
+      viewpointSyncBus.add(sceneView);
+
+      // link more views in windows of their own, alternately maps and scenes, with -Dsync.windows=4
+      for (int i = 0; i < Integer.getInteger("sync.windows", 0); i++) {
+        GeoView geoView;
+        if (i % 2 == 0) {
+          MapView extraMapView = new MapView();
+          extraMapView.setMap(new ArcGISMap(Basemap.createImagery()));
+          geoView = extraMapView;
+        } else {
+          SceneView extraSceneView = new SceneView();
+          extraSceneView.setArcGISScene(new ArcGISScene(Basemap.createImagery()));
+          geoView = extraSceneView;
+        }
+        extraGeoViews.add(geoView);
+        viewpointSyncBus.add(geoView);
+        Stage extraStage = new Stage();
+        extraStage.initOwner(stage);
+        extraStage.setTitle("Linked View " + (i + 1));
+        extraStage.setScene(new Scene(new StackPane(geoView), 500, 400));
+        extraStage.show();
+      }
 
-      // create a list of GeoViews being navigated
-      geoViewList = new ArrayList<>();
-      geoViewList.add(mapView);
-      geoViewList.add(sceneView);
+      // show how many viewpoints have been synced and how long they took, updated every second
+      Label statisticsLabel = new Label();
+      statisticsLabel.setStyle("-fx-text-fill: white;");
+      StackPane statisticsPane = new StackPane(statisticsLabel);
+      statisticsPane.setBackground(new Background(new BackgroundFill(Paint.valueOf("rgba(0,0,0,0.3)"),
+          CornerRadii.EMPTY, Insets.EMPTY)));
+      statisticsPane.setPadding(new Insets(10.0));
+      statisticsPane.setMaxSize(300, 80);
+      stackPane.getChildren().add(statisticsPane);
+      StackPane.setAlignment(statisticsPane, Pos.TOP_LEFT);
+      StackPane.setMargin(statisticsPane, new Insets(10, 0, 0, 10));
+      statisticsTimeline = new Timeline(new KeyFrame(Duration.seconds(1), e -> statisticsLabel.setText(String.format(
+          Locale.ROOT, "Viewpoints published: %d, dropped: %d%nViewpoints set: %d%nSync latency: %.1f ms (p95 %.1f ms)",
+          viewpointSyncBus.getPublishedCount(), viewpointSyncBus.getDroppedCount(), viewpointSyncBus.getAppliedCount(),
+          viewpointSyncBus.getLatencyMillis(50), viewpointSyncBus.getLatencyMillis(95)))));
+      statisticsTimeline.setCycleCount(Timeline.INDEFINITE);
+      statisticsTimeline.play();
+
+      // run the sync benchmark unattended and exit, with --benchmark or -Dbenchmark=true
+      if (getParameters().getRaw().contains("--benchmark") || Boolean.getBoolean("benchmark")) {
+        runBenchmark();
+      }
 
     } catch (Exception e) {
       // on any error, display the stack trace
@@ -93,21 +146,18 @@ public class SyncMapAndSceneViewpointsSample extends Application {
   }
 
   /**
-   * Synchronizes the viewpoint across Geoviews when the user is navigating.
+   * Runs the viewpoint sync benchmark in the background, writes the results to the benchmark-results directory and
+   * exits. The numbers of views can be given with -Dbenchmark.views=2,4,8.
    */
-  private void synchronizeViewpoints(GeoView geoView) {
-
-    if (geoView.isNavigating()) {
-
-      Viewpoint geoViewPoint = geoView.getCurrentViewpoint(Viewpoint.Type.CENTER_AND_SCALE);
+  private void runBenchmark() {
 
-      // loop through the available GeoViews. If it doesn't match the given GeoView, then set the GeoView to the other's viewpoint
-      for (GeoView anyGeoView : geoViewList) {
-        if (anyGeoView != geoView) {
-          anyGeoView.setViewpoint(geoViewPoint);
-        }
-      }
+    List<Integer> viewCounts = new ArrayList<>();
+    for (String viewCount : System.getProperty("benchmark.views", "2,4,8").split(",")) {
+      viewCounts.add(Integer.parseInt(viewCount.trim()));
     }
+
+    BenchmarkRunner.run(outputDirectory -> new ViewpointSyncBenchmark().run(viewCounts, outputDirectory,
+        System.out::println));
   }
 
   /**
@@ -116,6 +166,14 @@ public class SyncMapAndSceneViewpointsSample extends Application {
   @Override
   public void stop() {
 
+    if (statisticsTimeline != null) {
+      statisticsTimeline.stop();
+    }
+    if (viewpointSyncBus != null) {
+      viewpointSyncBus.dispose();
+    }
+    extraGeoViews.forEach(GeoView::dispose);
+
     if (mapView != null && sceneView != null) {
       mapView.dispose();
       sceneView.dispose();
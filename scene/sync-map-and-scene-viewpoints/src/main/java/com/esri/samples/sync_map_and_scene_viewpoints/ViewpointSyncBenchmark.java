@@ -0,0 +1,228 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.sync_map_and_scene_viewpoints;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.layout.TilePane;
+import javafx.stage.Stage;
+
+import com.esri.arcgisruntime.mapping.ArcGISMap;
+import com.esri.arcgisruntime.mapping.ArcGISScene;
+import com.esri.arcgisruntime.mapping.Basemap;
+import com.esri.arcgisruntime.mapping.Viewpoint;
+import com.esri.arcgisruntime.mapping.view.DrawStatus;
+import com.esri.arcgisruntime.mapping.view.GeoView;
+import com.esri.arcgisruntime.mapping.view.MapView;
+import com.esri.arcgisruntime.mapping.view.SceneView;
+
+/**
+ * Measures syncing the viewpoints of linked views, with the {@link ViewpointSyncBus} throttled to the display refresh
+ * and with every change synced as it happens, as the sample used to. For each number of views, a window of that many
+ * map and scene views is opened, and the first map view is panned several times each pulse, as a fast mouse would. The
+ * number of viewpoints set, the latency of synced frames and the time between pulses are written as a CSV file.
+ */
+public class ViewpointSyncBenchmark {
+
+  private static final int VIEW_SIZE = 320;
+  private static final int CHANGES_PER_PULSE = 4;
+  private static final double RUN_SECONDS = 10;
+  private static final long DRAW_TIMEOUT_SECONDS = 30;
+
+  /**
+   * Pans with every number of views each way and writes the results. Blocks until done, so call it from a background
+   * thread.
+   *
+   * @param viewCounts numbers of linked views
+   * @param outputDirectory directory for the CSV file
+   * @param progressListener receives a message as each run starts
+   * @return the CSV file
+   * @throws IOException if the results can't be written
+   * @throws InterruptedException if the thread is interrupted
+   */
+  public Path run(List<Integer> viewCounts, Path outputDirectory, Consumer<String> progressListener) throws
+      IOException, InterruptedException {
+
+    List<String> rows = new ArrayList<>();
+    for (int viewCount : viewCounts) {
+      for (boolean throttled : new boolean[] {false, true}) {
+        String mode = throttled ? "bus" : "every_change";
+        progressListener.accept(String.format("Syncing %d views with %s", viewCount, mode));
+
+        // a window of views, the first of them a map view that's panned
+        List<GeoView> geoViews = new ArrayList<>();
+        Stage[] stage = new Stage[1];
+        onFxThread(() -> {
+          TilePane tilePane = new TilePane();
+          tilePane.setPrefColumns((int) Math.ceil(Math.sqrt(viewCount)));
+          for (int i = 0; i < viewCount; i++) {
+            GeoView geoView;
+            if (i % 2 == 0) {
+              MapView mapView = new MapView();
+              mapView.setMap(new ArcGISMap(Basemap.createImagery()));
+              geoView = mapView;
+            } else {
+              SceneView sceneView = new SceneView();
+              sceneView.setArcGISScene(new ArcGISScene(Basemap.createImagery()));
+              geoView = sceneView;
+            }
+            geoView.setPrefSize(VIEW_SIZE, VIEW_SIZE);
+            geoViews.add(geoView);
+            tilePane.getChildren().add(geoView);
+          }
+          stage[0] = new Stage();
+          stage[0].setTitle(String.format("Syncing %d views with %s", viewCount, mode));
+          stage[0].setScene(new Scene(tilePane));
+          stage[0].show();
+        });
+        GeoView driver = geoViews.get(0);
+        ViewpointSyncBus bus = new ViewpointSyncBus(geoView -> geoView == driver, throttled);
+        onFxThread(() -> geoViews.forEach(bus::add));
+        waitForDraw(driver);
+
+        double[] frameMillis = pan(driver);
+        CompletableFuture<String> row = CompletableFuture.supplyAsync(() -> String.format(Locale.ROOT,
+            "%d,%s,%d,%d,%d,%.1f,%.1f,%.2f,%.2f", viewCount, mode, bus.getPublishedCount(), bus.getDroppedCount(),
+            bus.getAppliedCount(), bus.getLatencyMillis(50), bus.getLatencyMillis(95), Arrays.stream(frameMillis)
+                .average().orElse(0), percentile(frameMillis, 95)), Platform::runLater);
+        rows.add(waitFor(row));
+
+        onFxThread(() -> {
+          bus.dispose();
+          stage[0].close();
+          geoViews.forEach(GeoView::dispose);
+        });
+      }
+    }
+
+    Files.createDirectories(outputDirectory);
+    Path csvFile = outputDirectory.resolve("viewpoint-sync-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(
+        new Date()) + ".csv");
+    try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8))) {
+      writer.println("views,mode,published,dropped,viewpoints_set,p50_latency_ms,p95_latency_ms,mean_frame_ms," +
+          "p95_frame_ms");
+      rows.forEach(writer::println);
+    }
+    return csvFile;
+  }
+
+  /**
+   * Pans a view east along the equator a few times each pulse for a while, timing each pulse.
+   *
+   * @param driver the view to pan
+   * @return milliseconds between pulses
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private double[] pan(GeoView driver) throws InterruptedException {
+    CompletableFuture<double[]> panned = new CompletableFuture<>();
+    Platform.runLater(() -> new AnimationTimer() {
+
+      private final List<Double> frames = new ArrayList<>();
+      private long start = -1;
+      private long lastPulse;
+      private int change;
+
+      @Override
+      public void handle(long now) {
+        if (start < 0) {
+          start = now;
+        } else {
+          frames.add((now - lastPulse) / 1e6);
+        }
+        lastPulse = now;
+        for (int i = 0; i < CHANGES_PER_PULSE; i++) {
+          driver.setViewpoint(new Viewpoint(0, -180 + 0.05 * (change++ % 7200), 5e6));
+        }
+        if (now - start > RUN_SECONDS * 1e9) {
+          stop();
+          panned.complete(frames.stream().mapToDouble(Double::doubleValue).toArray());
+        }
+      }
+    }.start());
+    double[] frames = waitFor(panned);
+    return frames != null ? frames : new double[0];
+  }
+
+  /**
+   * Waits for a view to finish drawing, giving up after the draw timeout.
+   *
+   * @param geoView the view
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private static void waitForDraw(GeoView geoView) throws InterruptedException {
+    CompletableFuture<Void> drawn = new CompletableFuture<>();
+    onFxThread(() -> geoView.addDrawStatusChangedListener(drawStatusChangedEvent -> {
+      if (drawStatusChangedEvent.getDrawStatus() == DrawStatus.COMPLETED) {
+        drawn.complete(null);
+      }
+    }));
+    waitFor(drawn);
+  }
+
+  /**
+   * Runs a task on the JavaFX application thread and waits for it.
+   *
+   * @param task the task
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private static void onFxThread(Runnable task) throws InterruptedException {
+    waitFor(CompletableFuture.runAsync(task, Platform::runLater));
+  }
+
+  /**
+   * Waits for a future, giving up after the draw timeout.
+   *
+   * @param future the future
+   * @param <T> type of the future's result
+   * @return the future's result, or null if it timed out or failed
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private static <T> T waitFor(CompletableFuture<T> future) throws InterruptedException {
+    try {
+      return future.get(DRAW_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (ExecutionException | TimeoutException e) {
+      return null;
+    }
+  }
+
+  private static double percentile(double[] values, double percentile) {
+    if (values.length == 0) {
+      return 0;
+    }
+    double[] sorted = values.clone();
+    Arrays.sort(sorted);
+    return sorted[Math.max(0, (int) Math.ceil(sorted.length * percentile / 100) - 1)];
+  }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.sync_map_and_scene_viewpoints;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import javafx.animation.AnimationTimer;
+
+import com.esri.arcgisruntime.mapping.Viewpoint;
+import com.esri.arcgisruntime.mapping.view.GeoView;
+import com.esri.arcgisruntime.mapping.view.SceneView;
+import com.esri.arcgisruntime.mapping.view.ViewpointChangedListener;
+
+/**
+ * Keeps the viewpoints of any number of map and scene views in step. A view the user is navigating publishes its
+ * viewpoint changes to the bus, and once each JavaFX pulse, so no more often than the display refreshes, the bus sets
+ * the latest viewpoint on every other view. Changes published in between are dropped, since only the latest matters.
+ * Each update is tagged with the view it came from, so the views it's set on don't publish it back.
+ * <p>
+ * The bus also measures the latency of synced frames: the time from a view's first unsynced change to the other views'
+ * viewpoints changing to match. A view's change only counts if it answers the latest sync, and a sync set on a view
+ * still waiting to report an earlier one isn't measured, since the change that follows could answer either.
+ * <p>
+ * Only use the bus on the JavaFX application thread.
+ */
+public class ViewpointSyncBus {
+
+  private static final int LATENCY_SAMPLES = 1024;
+
+  private final Predicate<GeoView> publishing;
+  private final boolean throttled;
+  private final Map<GeoView, ViewpointChangedListener> views = new IdentityHashMap<>();
+  // the sync the bus last set on each view, until the view reports the change
+  private final Map<GeoView, Sync> syncing = new IdentityHashMap<>();
+  private final double[] latencies = new double[LATENCY_SAMPLES];
+  private final AnimationTimer timer = new AnimationTimer() {
+    @Override
+    public void handle(long now) {
+      flush();
+    }
+  };
+  private GeoView source;
+  private GeoView applyingTo;
+  private long pendingSince = -1;
+  private long publishedCount;
+  private long droppedCount;
+  private long appliedCount;
+  private long latencyCount;
+  private long flushCount;
+
+  /**
+   * Creates a bus that publishes from the views the user is navigating, throttled to the display refresh.
+   */
+  public ViewpointSyncBus() {
+    this(GeoView::isNavigating, true);
+  }
+
+  /**
+   * Creates a bus.
+   *
+   * @param publishing decides whether a change to a view's viewpoint is published, such as while it's navigating
+   * @param throttled true to sync the latest viewpoint once each pulse, false to sync every change as it happens
+   */
+  public ViewpointSyncBus(Predicate<GeoView> publishing, boolean throttled) {
+    this.publishing = publishing;
+    this.throttled = throttled;
+  }
+
+  /**
+   * Links a view to the others on the bus.
+   *
+   * @param geoView the view
+   */
+  public void add(GeoView geoView) {
+    if (views.containsKey(geoView)) {
+      return;
+    }
+    ViewpointChangedListener listener = viewpointChangedEvent -> viewpointChanged(geoView);
+    geoView.addViewpointChangedListener(listener);
+    views.put(geoView, listener);
+    if (views.size() == 1 && throttled) {
+      timer.start();
+    }
+  }
+
+  /**
+   * Unlinks a view from the others.
+   *
+   * @param geoView the view
+   */
+  public void remove(GeoView geoView) {
+    ViewpointChangedListener listener = views.remove(geoView);
+    if (listener != null) {
+      geoView.removeViewpointChangedListener(listener);
+    }
+    syncing.remove(geoView);
+    if (source == geoView) {
+      source = null;
+      pendingSince = -1;
+    }
+    if (views.isEmpty()) {
+      timer.stop();
+    }
+  }
+
+  /**
+   * Unlinks every view.
+   */
+  public void dispose() {
+    new ArrayList<>(views.keySet()).forEach(this::remove);
+  }
+
+  /**
+   * Gets the number of viewpoint changes published to the bus.
+   *
+   * @return number of changes
+   */
+  public long getPublishedCount() {
+    return publishedCount;
+  }
+
+  /**
+   * Gets the number of published changes that were dropped because a later change replaced them before they were
+   * synced.
+   *
+   * @return number of changes
+   */
+  public long getDroppedCount() {
+    return droppedCount;
+  }
+
+  /**
+   * Gets the number of times a viewpoint was set on a view.
+   *
+   * @return number of viewpoints set
+   */
+  public long getAppliedCount() {
+    return appliedCount;
+  }
+
+  /**
+   * Gets a percentile of the latency of the most recent synced frames.
+   *
+   * @param percentile the percentile, such as 50 or 95
+   * @return latency in milliseconds, or 0 if nothing has been synced
+   */
+  public double getLatencyMillis(double percentile) {
+    int count = (int) Math.min(latencyCount, LATENCY_SAMPLES);
+    if (count == 0) {
+      return 0;
+    }
+    double[] sorted = Arrays.copyOf(latencies, count);
+    Arrays.sort(sorted);
+    return sorted[Math.max(0, (int) Math.ceil(count * percentile / 100) - 1)];
+  }
+
+  /**
+   * Publishes a view's change, or records the latency of a change the bus set on it.
+   *
+   * @param geoView the view whose viewpoint changed
+   */
+  private void viewpointChanged(GeoView geoView) {
+    long now = System.nanoTime();
+    Sync sync = syncing.remove(geoView);
+    // the change is an echo of the bus setting the view's viewpoint, not the user's
+    if (geoView == applyingTo || !publishing.test(geoView)) {
+      if (sync != null && sync.flush == flushCount && sync.changedAt >= 0) {
+        latencies[(int) (latencyCount++ % LATENCY_SAMPLES)] = (now - sync.changedAt) / 1e6;
+      }
+      return;
+    }
+
+    // a change not yet synced is replaced by this one, but the latency counts from the first
+    publishedCount++;
+    if (pendingSince >= 0) {
+      droppedCount++;
+    } else {
+      pendingSince = now;
+    }
+    source = geoView;
+    if (!throttled) {
+      flush();
+    }
+  }
+
+  /**
+   * Sets the source's latest viewpoint on every other view.
+   */
+  private void flush() {
+    if (source == null || pendingSince < 0) {
+      return;
+    }
+    long changedAt = pendingSince;
+    pendingSince = -1;
+    flushCount++;
+
+    // scenes can match each other's camera exactly, whereas maps only share a center and scale
+    Viewpoint viewpoint = source.getCurrentViewpoint(Viewpoint.Type.CENTER_AND_SCALE);
+    for (GeoView target : views.keySet()) {
+      if (target == source) {
+        continue;
+      }
+      applyingTo = target;
+      try {
+        // a target that hasn't reported the last measured sync may never do so, if it didn't change its viewpoint, or
+        // may do so after this one, so its next change can't be timed from either
+        Sync unanswered = syncing.get(target);
+        boolean ambiguous = unanswered != null && unanswered.changedAt >= 0;
+        syncing.put(target, new Sync(flushCount, ambiguous ? -1 : changedAt));
+        if (source instanceof SceneView && target instanceof SceneView) {
+          ((SceneView) target).setViewpointCamera(((SceneView) source).getCurrentViewpointCamera());
+        } else {
+          target.setViewpoint(viewpoint);
+        }
+        appliedCount++;
+      } finally {
+        applyingTo = null;
+      }
+    }
+  }
+
+  /**
+   * A viewpoint the bus set on a view.
+   */
+  private static class Sync {
+
+    // the flush that set it, and when the change it came from was published, or -1 if it isn't measured
+    private final long flush;
+    private final long changedAt;
+
+    Sync(long flush, long changedAt) {
+      this.flush = flush;
+      this.changedAt = changedAt;
+    }
+  }
+}
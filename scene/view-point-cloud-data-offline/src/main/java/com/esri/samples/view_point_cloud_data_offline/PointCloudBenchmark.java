@@ -0,0 +1,224 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.view_point_cloud_data_offline;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+
+import com.esri.arcgisruntime.concurrent.ListenableFuture;
+import com.esri.arcgisruntime.geometry.Point;
+import com.esri.arcgisruntime.mapping.view.Camera;
+import com.esri.arcgisruntime.mapping.view.DrawStatus;
+import com.esri.arcgisruntime.mapping.view.DrawStatusChangedListener;
+import com.esri.arcgisruntime.mapping.view.SceneView;
+
+/**
+ * Measures the draw and frame times of flying a scripted camera path over the point cloud, with the layer drawn at
+ * the renderer's own density and with its density adapted to a draw budget by a {@link PointCloudBudgetController}.
+ * The path circles the middle of the point cloud, dives in close and pulls back out over it. Each mode flies the path
+ * twice. Only the first pass of the run is cold, flown while the nodes are still loading from the package; every later
+ * pass, including the first pass of the second mode, finds them already loaded. Passes are labeled cold or warm
+ * accordingly, and the CSV records which mode flew first. To compare the modes cold, run the benchmark once with each
+ * mode first, each in a new process. The percentiles of the frame and draw times and the memory used are written as a
+ * CSV file.
+ */
+public class PointCloudBenchmark {
+
+  private static final int ORBIT_STEPS = 8;
+  private static final int PASSES = 2;
+  private static final double ORBIT_SECONDS = 3;
+  private static final double MOVE_SECONDS = 4;
+  private static final long TIMEOUT_SECONDS = 60;
+  private static final long DRAW_TIMEOUT_SECONDS = 10;
+
+  private final SceneView sceneView;
+  private final Point center;
+  private final PointCloudTelemetry telemetry;
+  private final PointCloudBudgetController controller;
+
+  /**
+   * Creates a benchmark.
+   *
+   * @param sceneView the scene view showing the point cloud
+   * @param center middle of the point cloud
+   * @param telemetry telemetry measuring the scene view's frames
+   * @param controller controller for the point cloud layer
+   */
+  public PointCloudBenchmark(SceneView sceneView, Point center, PointCloudTelemetry telemetry,
+      PointCloudBudgetController controller) {
+    this.sceneView = sceneView;
+    this.center = center;
+    this.telemetry = telemetry;
+    this.controller = controller;
+  }
+
+  /**
+   * Flies the path in each mode and writes the results. Blocks until done, so call it from a background thread.
+   *
+   * @param drawBudgetMillis how long the controller lets a draw take when adapting the layer
+   * @param adaptiveFirst true to fly the adaptive mode before the full detail mode, so it's the one flown cold
+   * @param outputDirectory directory for the CSV file
+   * @param progressListener receives a message as each run starts
+   * @return the CSV file
+   * @throws IOException if the results can't be written
+   * @throws InterruptedException if the thread is interrupted
+   */
+  public Path run(double drawBudgetMillis, boolean adaptiveFirst, Path outputDirectory,
+      Consumer<String> progressListener) throws IOException, InterruptedException {
+
+    // circle the middle, dive in, pull back out and return to where the sample starts
+    List<Camera> cameras = new ArrayList<>();
+    List<Double> durations = new ArrayList<>();
+    for (int i = 0; i <= ORBIT_STEPS; i++) {
+      cameras.add(new Camera(center, 1000, 360.0 * i / ORBIT_STEPS, 60, 0));
+      durations.add(ORBIT_SECONDS);
+    }
+    cameras.add(new Camera(center, 300, 0, 70, 0));
+    durations.add(MOVE_SECONDS);
+    cameras.add(new Camera(center, 6000, 0, 30, 0));
+    durations.add(MOVE_SECONDS);
+    cameras.add(new Camera(center, 2000, 30, 60, 0));
+    durations.add(MOVE_SECONDS);
+
+    List<String> rows = new ArrayList<>();
+    String order = adaptiveFirst ? "adaptive_first" : "full_detail_first";
+    boolean cold = true;
+    for (boolean adaptive : new boolean[] {adaptiveFirst, !adaptiveFirst}) {
+      String mode = adaptive ? "adaptive" : "full_detail";
+      onFxThread(() -> {
+        controller.setDrawBudgetMillis(drawBudgetMillis);
+        controller.setEnabled(adaptive);
+      });
+      for (int passNumber = 0; passNumber < PASSES; passNumber++) {
+        String pass = cold ? "cold" : "warm";
+        cold = false;
+        progressListener.accept(String.format("Flying a %s pass with %s", pass, mode));
+        onFxThread(() -> sceneView.setViewpointCamera(cameras.get(cameras.size() - 1)));
+        waitForDraw();
+        Long adjustments = waitFor(CompletableFuture.supplyAsync(() -> {
+          telemetry.reset();
+          return controller.getAdjustmentCount();
+        }, Platform::runLater), TIMEOUT_SECONDS);
+        long adjustmentsBefore = adjustments != null ? adjustments : 0;
+
+        for (int i = 0; i < cameras.size(); i++) {
+          fly(cameras.get(i), durations.get(i));
+        }
+        waitForDraw();
+
+        CompletableFuture<String> row = CompletableFuture.supplyAsync(() -> String.format(Locale.ROOT,
+            "%s,%s,%s,%.0f,%d,%.2f,%.2f,%.2f,%d,%.0f,%.0f,%.1f,%.1f,%d,%.0f", order, mode, pass,
+            adaptive ? drawBudgetMillis : 0, telemetry.getFrameCount(), telemetry.getFrameMillis(50),
+            telemetry.getFrameMillis(95),
+            telemetry.getFrameMillis(99), telemetry.getDrawCount(), telemetry.getDrawMillis(50),
+            telemetry.getDrawMillis(95), telemetry.getPeakResidentBytes() / 1048576.0,
+            telemetry.getHeapBytes() / 1048576.0, controller.getAdjustmentCount() - adjustmentsBefore,
+            controller.getPointsPerInch()), Platform::runLater);
+        String result = waitFor(row, TIMEOUT_SECONDS);
+        if (result != null) {
+          rows.add(result);
+        }
+      }
+    }
+    onFxThread(() -> controller.setEnabled(false));
+
+    Files.createDirectories(outputDirectory);
+    Path csvFile = outputDirectory.resolve("point-cloud-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(
+        new Date()) + ".csv");
+    try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(csvFile, StandardCharsets.UTF_8))) {
+      writer.println("mode_order,mode,pass,draw_budget_ms,frames,p50_frame_ms,p95_frame_ms,p99_frame_ms,draws," +
+          "p50_draw_ms,p95_draw_ms,peak_rss_mb,heap_mb,adjustments,final_points_per_inch");
+      rows.forEach(writer::println);
+    }
+    return csvFile;
+  }
+
+  /**
+   * Flies the camera to a new position and waits for it to get there.
+   *
+   * @param camera the new camera
+   * @param seconds how long the flight takes
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private void fly(Camera camera, double seconds) throws InterruptedException {
+    CompletableFuture<Void> arrived = new CompletableFuture<>();
+    onFxThread(() -> {
+      ListenableFuture<Boolean> flight = sceneView.setViewpointCameraAsync(camera, (float) seconds);
+      flight.addDoneListener(() -> arrived.complete(null));
+    });
+    waitFor(arrived, TIMEOUT_SECONDS);
+  }
+
+  /**
+   * Waits for the scene view to finish drawing, giving up after the draw timeout in case it already had.
+   *
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private void waitForDraw() throws InterruptedException {
+    CompletableFuture<Void> drawn = new CompletableFuture<>();
+    DrawStatusChangedListener drawListener = drawStatusChangedEvent -> {
+      if (drawStatusChangedEvent.getDrawStatus() == DrawStatus.COMPLETED) {
+        drawn.complete(null);
+      }
+    };
+    onFxThread(() -> sceneView.addDrawStatusChangedListener(drawListener));
+    waitFor(drawn, DRAW_TIMEOUT_SECONDS);
+    onFxThread(() -> sceneView.removeDrawStatusChangedListener(drawListener));
+  }
+
+  /**
+   * Runs a task on the JavaFX application thread and waits for it.
+   *
+   * @param task the task
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private static void onFxThread(Runnable task) throws InterruptedException {
+    waitFor(CompletableFuture.runAsync(task, Platform::runLater), TIMEOUT_SECONDS);
+  }
+
+  /**
+   * Waits for a future, giving up after a timeout.
+   *
+   * @param future the future
+   * @param timeoutSeconds how long to wait
+   * @param <T> type of the future's result
+   * @return the future's result, or null if it timed out or failed
+   * @throws InterruptedException if the thread is interrupted
+   */
+  private static <T> T waitFor(CompletableFuture<T> future, long timeoutSeconds) throws InterruptedException {
+    try {
+      return future.get(timeoutSeconds, TimeUnit.SECONDS);
+    } catch (ExecutionException | TimeoutException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.view_point_cloud_data_offline;
+
+import javafx.animation.AnimationTimer;
+
+import com.esri.arcgisruntime.layers.PointCloudLayer;
+import com.esri.arcgisruntime.symbology.PointCloudRenderer;
+
+/**
+ * Keeps a point cloud's draws within a time budget by changing how densely it's drawn. The renderer's points per inch
+ * decide which level of detail of the layer's nodes the scene view loads and draws for the current view, so a lower
+ * density draws fewer points wherever the user is looking. The controller is driven by the view's own draws, timed by
+ * {@link PointCloudTelemetry} from the draw status changing to IN_PROGRESS until it is COMPLETED, rather than by the
+ * JavaFX pulses, which the scene view renders independently of.
+ * <p>
+ * After each draw, the controller compares its time with the budget. When a draw is too slow, it lowers the density,
+ * down to a fraction of the renderer's own. When a few draws in a row have been fast enough, it raises the density
+ * again, until the renderer's own is restored. Each time a raised density proves too slow, it waits for twice as many
+ * fast draws before raising it again, so it settles rather than swinging back and forth.
+ * <p>
+ * Only use the controller on the JavaFX application thread.
+ */
+public class PointCloudBudgetController {
+
+  private static final double OVER_BUDGET = 1.15;
+  private static final double UNDER_BUDGET = 0.75;
+  private static final int CALM_DRAWS = 3;
+  private static final int MAX_CALM_DRAWS = 48;
+  private static final double STEP = 1.5;
+  private static final double MIN_DENSITY = 1.0 / 16;
+
+  private final PointCloudTelemetry telemetry;
+  private final PointCloudRenderer renderer;
+  private final double rendererPointsPerInch;
+  private final AnimationTimer timer = new AnimationTimer() {
+    @Override
+    public void handle(long now) {
+      // adjust once for each draw that has completed since the last adjustment, and start again if the telemetry
+      // was reset
+      long drawCount = telemetry.getDrawCount();
+      if (drawCount > drawCountAtAdjustment) {
+        adjust(telemetry.getLastDrawMillis());
+      }
+      drawCountAtAdjustment = drawCount;
+    }
+  };
+  private double budgetMillis = 500;
+  private double pointsPerInch;
+  private long drawCountAtAdjustment;
+  private int calmDraws;
+  private int calmRequired = CALM_DRAWS;
+  private boolean raised;
+  private long adjustmentCount;
+  private boolean enabled;
+
+  /**
+   * Creates a controller for a layer. It does nothing until it's enabled.
+   *
+   * @param pointCloudLayer the loaded point cloud layer
+   * @param telemetry telemetry timing the scene view's draws
+   */
+  public PointCloudBudgetController(PointCloudLayer pointCloudLayer, PointCloudTelemetry telemetry) {
+    this.telemetry = telemetry;
+    renderer = pointCloudLayer.getRenderer() instanceof PointCloudRenderer ?
+        (PointCloudRenderer) pointCloudLayer.getRenderer() : null;
+    rendererPointsPerInch = renderer != null ? renderer.getPointsPerInch() : 0;
+    pointsPerInch = rendererPointsPerInch;
+  }
+
+  /**
+   * Gets whether the layer's density can be changed, which needs it to be drawn with a point cloud renderer.
+   *
+   * @return true if the controller can adapt the layer
+   */
+  public boolean isAdjustable() {
+    return renderer != null && rendererPointsPerInch > 0;
+  }
+
+  /**
+   * Sets how long a draw may take. The default is 500 milliseconds.
+   *
+   * @param budgetMillis milliseconds
+   */
+  public void setDrawBudgetMillis(double budgetMillis) {
+    if (budgetMillis <= 0) {
+      throw new IllegalArgumentException("Draw budget must be positive");
+    }
+    this.budgetMillis = budgetMillis;
+    calmDraws = 0;
+  }
+
+  /**
+   * Gets how long a draw may take.
+   *
+   * @return milliseconds
+   */
+  public double getDrawBudgetMillis() {
+    return budgetMillis;
+  }
+
+  /**
+   * Starts or stops adapting the layer to the draw budget. Stopping restores the renderer's own density.
+   *
+   * @param enabled true to adapt the layer
+   */
+  public void setEnabled(boolean enabled) {
+    if (enabled == this.enabled || !isAdjustable()) {
+      return;
+    }
+    this.enabled = enabled;
+    if (enabled) {
+      drawCountAtAdjustment = telemetry.getDrawCount();
+      calmDraws = 0;
+      calmRequired = CALM_DRAWS;
+      raised = false;
+      timer.start();
+    } else {
+      timer.stop();
+      setPointsPerInch(rendererPointsPerInch);
+    }
+  }
+
+  /**
+   * Gets whether the layer is adapted to the draw budget.
+   *
+   * @return true if it is
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Gets the density the layer is drawn at.
+   *
+   * @return points per inch, or 0 if the layer has no point cloud renderer
+   */
+  public double getPointsPerInch() {
+    return pointsPerInch;
+  }
+
+  /**
+   * Gets the share of the renderer's own density the layer is drawn at.
+   *
+   * @return the density as a fraction, 1 if it isn't reduced
+   */
+  public double getDensity() {
+    return isAdjustable() ? pointsPerInch / rendererPointsPerInch : 1;
+  }
+
+  /**
+   * Gets the number of times the density has been changed.
+   *
+   * @return number of changes
+   */
+  public long getAdjustmentCount() {
+    return adjustmentCount;
+  }
+
+  /**
+   * Compares a draw's time with the budget and changes the density if needed.
+   *
+   * @param drawMillis how long the draw took
+   */
+  private void adjust(double drawMillis) {
+    if (drawMillis > budgetMillis * OVER_BUDGET) {
+      calmDraws = 0;
+      if (raised) {
+        calmRequired = Math.min(calmRequired * 2, MAX_CALM_DRAWS);
+      }
+      raised = false;
+      setPointsPerInch(Math.max(pointsPerInch / STEP, rendererPointsPerInch * MIN_DENSITY));
+    } else if (drawMillis < budgetMillis * UNDER_BUDGET && pointsPerInch < rendererPointsPerInch) {
+      raised = false;
+      if (++calmDraws >= calmRequired) {
+        calmDraws = 0;
+        double raisedPointsPerInch = pointsPerInch * STEP;
+        if (raisedPointsPerInch >= rendererPointsPerInch) {
+          setPointsPerInch(rendererPointsPerInch);
+          calmRequired = CALM_DRAWS;
+        } else {
+          setPointsPerInch(raisedPointsPerInch);
+          raised = true;
+        }
+      }
+    } else {
+      calmDraws = 0;
+      raised = false;
+    }
+  }
+
+  /**
+   * Sets the density the renderer draws the layer at.
+   *
+   * @param pointsPerInch points per inch
+   */
+  private void setPointsPerInch(double pointsPerInch) {
+    if (pointsPerInch == this.pointsPerInch) {
+      return;
+    }
+    this.pointsPerInch = pointsPerInch;
+    adjustmentCount++;
+    renderer.setPointsPerInch(pointsPerInch);
+  }
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.view_point_cloud_data_offline;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+
+import javafx.animation.AnimationTimer;
+
+import com.esri.arcgisruntime.mapping.view.DrawStatus;
+import com.esri.arcgisruntime.mapping.view.DrawStatusChangedListener;
+import com.esri.arcgisruntime.mapping.view.SceneView;
+
+/**
+ * Measures how a scene view is drawing. The time from the view's draw status changing to IN_PROGRESS until it is
+ * COMPLETED again, while it loads and draws the nodes it needs, is recorded as the draw time. The time between JavaFX
+ * pulses is recorded as the frame time; the scene view renders independently of the pulses, so it shows how
+ * responsive the application is rather than how long the view takes to render. The Java heap in use and the
+ * process's resident memory, which includes the runtime's native memory for the loaded nodes, are sampled once a
+ * second. Each draw can also be logged as a line of a CSV file.
+ * <p>
+ * Only use the telemetry on the JavaFX application thread.
+ */
+public class PointCloudTelemetry {
+
+  private static final int SAMPLES = 1024;
+  private static final long MEMORY_INTERVAL_NANOS = 1_000_000_000L;
+
+  private final SceneView sceneView;
+  private final double[] frameMillis = new double[SAMPLES];
+  private final double[] drawMillis = new double[SAMPLES];
+  private final DrawStatusChangedListener drawStatusChangedListener = drawStatusChangedEvent -> drawStatusChanged(
+      drawStatusChangedEvent.getDrawStatus());
+  private final AnimationTimer timer = new AnimationTimer() {
+    @Override
+    public void handle(long now) {
+      pulse(now);
+    }
+  };
+  private final long created = System.nanoTime();
+  private PrintWriter log;
+  private long frameCount;
+  private long drawCount;
+  private long lastPulse = -1;
+  private long drawStart = -1;
+  private long lastMemorySample = -1;
+  private double lastDrawMillis;
+  private long heapBytes;
+  private long residentBytes = -1;
+  private long peakResidentBytes = -1;
+
+  /**
+   * Creates telemetry for a scene view. Call {@link #start()} to begin measuring.
+   *
+   * @param sceneView the scene view
+   */
+  public PointCloudTelemetry(SceneView sceneView) {
+    this.sceneView = sceneView;
+  }
+
+  /**
+   * Starts measuring.
+   */
+  public void start() {
+    sceneView.addDrawStatusChangedListener(drawStatusChangedListener);
+    timer.start();
+  }
+
+  /**
+   * Stops measuring and closes the log, if there is one.
+   */
+  public void stop() {
+    sceneView.removeDrawStatusChangedListener(drawStatusChangedListener);
+    timer.stop();
+    lastPulse = -1;
+    drawStart = -1;
+    if (log != null) {
+      log.close();
+      log = null;
+    }
+  }
+
+  /**
+   * Logs each draw from now on as a line of a CSV file, replacing any earlier log.
+   *
+   * @param file the CSV file
+   * @throws IOException if the file can't be created
+   */
+  public void setLog(Path file) throws IOException {
+    if (log != null) {
+      log.close();
+    }
+    Path directory = file.toAbsolutePath().getParent();
+    if (directory != null) {
+      Files.createDirectories(directory);
+    }
+    log = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+    log.println("elapsed_s,draw_ms,p50_frame_ms,p95_frame_ms,heap_mb,rss_mb");
+    log.flush();
+  }
+
+  /**
+   * Forgets the frames and draws measured so far, such as at the start of a benchmark run.
+   */
+  public void reset() {
+    frameCount = 0;
+    drawCount = 0;
+    lastPulse = -1;
+    lastDrawMillis = 0;
+    peakResidentBytes = residentBytes;
+  }
+
+  /**
+   * Gets a percentile of the most recent frame times.
+   *
+   * @param percentile the percentile, such as 50 or 95
+   * @return milliseconds, or 0 if no frames have been measured
+   */
+  public double getFrameMillis(double percentile) {
+    return percentile(frameMillis, frameCount, SAMPLES, percentile);
+  }
+
+  /**
+   * Gets a percentile of the times of only the latest few frames, to react to how the view is drawing now.
+   *
+   * @param frames the number of frames
+   * @param percentile the percentile, such as 50 or 95
+   * @return milliseconds, or 0 if no frames have been measured
+   */
+  public double getRecentFrameMillis(int frames, double percentile) {
+    return percentile(frameMillis, frameCount, Math.min(frames, SAMPLES), percentile);
+  }
+
+  /**
+   * Gets a percentile of the most recent draw times.
+   *
+   * @param percentile the percentile, such as 50 or 95
+   * @return milliseconds, or 0 if no draws have completed
+   */
+  public double getDrawMillis(double percentile) {
+    return percentile(drawMillis, drawCount, SAMPLES, percentile);
+  }
+
+  /**
+   * Gets how long the latest draw took.
+   *
+   * @return milliseconds, or 0 if no draws have completed
+   */
+  public double getLastDrawMillis() {
+    return lastDrawMillis;
+  }
+
+  /**
+   * Gets the number of frames measured.
+   *
+   * @return number of frames
+   */
+  public long getFrameCount() {
+    return frameCount;
+  }
+
+  /**
+   * Gets the number of draws that have completed.
+   *
+   * @return number of draws
+   */
+  public long getDrawCount() {
+    return drawCount;
+  }
+
+  /**
+   * Gets the Java heap in use when memory was last sampled.
+   *
+   * @return memory in bytes
+   */
+  public long getHeapBytes() {
+    return heapBytes;
+  }
+
+  /**
+   * Gets the process's resident memory when memory was last sampled.
+   *
+   * @return memory in bytes, or -1 if unknown
+   */
+  public long getResidentBytes() {
+    return residentBytes;
+  }
+
+  /**
+   * Gets the most resident memory the process has used since the telemetry started or was reset.
+   *
+   * @return memory in bytes, or -1 if unknown
+   */
+  public long getPeakResidentBytes() {
+    return peakResidentBytes;
+  }
+
+  /**
+   * Records the time since the last pulse, and samples the memory if it's due.
+   *
+   * @param now time of the pulse in nanoseconds
+   */
+  private void pulse(long now) {
+    if (lastPulse >= 0) {
+      frameMillis[(int) (frameCount++ % SAMPLES)] = (now - lastPulse) / 1e6;
+    }
+    lastPulse = now;
+    if (lastMemorySample < 0 || now - lastMemorySample >= MEMORY_INTERVAL_NANOS) {
+      lastMemorySample = now;
+      sampleMemory();
+    }
+  }
+
+  /**
+   * Times a draw from when it starts until it completes.
+   *
+   * @param drawStatus the view's new draw status
+   */
+  private void drawStatusChanged(DrawStatus drawStatus) {
+    long now = System.nanoTime();
+    if (drawStatus == DrawStatus.IN_PROGRESS) {
+      if (drawStart < 0) {
+        drawStart = now;
+      }
+    } else if (drawStatus == DrawStatus.COMPLETED && drawStart >= 0) {
+      lastDrawMillis = (now - drawStart) / 1e6;
+      drawMillis[(int) (drawCount++ % SAMPLES)] = lastDrawMillis;
+      drawStart = -1;
+      sampleMemory();
+      if (log != null) {
+        log.println(String.format(Locale.ROOT, "%.3f,%.1f,%.2f,%.2f,%.1f,%.1f", (now - created) / 1e9,
+            lastDrawMillis, getFrameMillis(50), getFrameMillis(95), heapBytes / 1048576.0,
+            residentBytes / 1048576.0));
+        log.flush();
+      }
+    }
+  }
+
+  private void sampleMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    heapBytes = runtime.totalMemory() - runtime.freeMemory();
+    residentBytes = residentMemory();
+    peakResidentBytes = Math.max(peakResidentBytes, residentBytes);
+  }
+
+  /**
+   * Gets the process's resident memory, which includes the runtime's native memory as well as the Java heap. Where
+   * that isn't available, the committed virtual memory is used instead.
+   *
+   * @return memory in bytes, or -1 if unknown
+   */
+  private static long residentMemory() {
+    try {
+      for (String line : Files.readAllLines(Paths.get("/proc/self/status"))) {
+        if (line.startsWith("VmRSS:")) {
+          return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+        }
+      }
+    } catch (IOException | NumberFormatException e) {
+      // not Linux
+    }
+    if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean) {
+      return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean())
+          .getCommittedVirtualMemorySize();
+    }
+    return -1;
+  }
+
+  /**
+   * Gets a percentile of the latest values in a ring buffer.
+   *
+   * @param values the ring buffer
+   * @param count the number of values ever added to it
+   * @param latest how many of the latest values to include
+   * @param percentile the percentile
+   * @return the value at the percentile, or 0 if there are none
+   */
+  private static double percentile(double[] values, long count, int latest, double percentile) {
+    int size = (int) Math.min(count, latest);
+    if (size == 0) {
+      return 0;
+    }
+    double[] sorted = new double[size];
+    for (int i = 0; i < size; i++) {
+      sorted[i] = values[(int) ((count - 1 - i) % values.length)];
+    }
+    Arrays.sort(sorted);
+    return sorted[Math.max(0, (int) Math.ceil(size * percentile / 100) - 1)];
+  }
+}
@@ -17,13 +17,29 @@
 package com.esri.samples.view_point_cloud_data_offline;
 
 import java.io.File;
+import java.nio.file.Paths;
+import java.util.Locale;
 
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
 import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Paint;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
+import com.esri.arcgisruntime.geometry.Point;
 import com.esri.arcgisruntime.layers.PointCloudLayer;
 import com.esri.arcgisruntime.loadable.LoadStatus;
 import com.esri.arcgisruntime.mapping.ArcGISScene;
@@ -36,6 +52,9 @@ import com.esri.arcgisruntime.mapping.view.SceneView;
 public class ViewPointCloudDataOfflineSample extends Application {
 
   private SceneView sceneView;
+  private PointCloudTelemetry telemetry;
+  private PointCloudBudgetController budgetController;
+  private Timeline statisticsTimeline;
 
   @Override
   public void start(Stage stage) {
@@ -57,6 +76,45 @@ public class ViewPointCloudDataOfflineSample extends Application {
       sceneView = new SceneView();
       stackPane.getChildren().add(sceneView);
 
+      // measure the frame and draw times and memory, logging each draw if -Dpointcloud.log is a CSV file
+      telemetry = new PointCloudTelemetry(sceneView);
+      String logFile = System.getProperty("pointcloud.log");
+      if (logFile != null) {
+        telemetry.setLog(Paths.get(logFile));
+      }
+      telemetry.start();
+
+      // a panel to show the telemetry and set how long the point cloud's draws may take
+      Label statisticsLabel = new Label("Waiting for the point cloud to draw");
+      statisticsLabel.setStyle("-fx-text-fill: white;");
+      CheckBox adaptCheckBox = new CheckBox("Adapt density to draw time");
+      adaptCheckBox.setStyle("-fx-text-fill: white;");
+      adaptCheckBox.setDisable(true);
+      Label targetLabel = new Label("Draw budget: 500 ms");
+      targetLabel.setStyle("-fx-text-fill: white;");
+      Slider targetSlider = new Slider(100, 2000, 500);
+      targetSlider.setMajorTickUnit(100);
+      targetSlider.setMinorTickCount(0);
+      targetSlider.setSnapToTicks(true);
+      targetSlider.setShowTickMarks(true);
+      targetSlider.setShowTickLabels(true);
+      targetSlider.setDisable(true);
+      VBox controlsVBox = new VBox(6);
+      controlsVBox.setBackground(new Background(new BackgroundFill(Paint.valueOf("rgba(0,0,0,0.3)"), CornerRadii.EMPTY,
+          Insets.EMPTY)));
+      controlsVBox.setPadding(new Insets(10.0));
+      controlsVBox.setMaxSize(300, 190);
+      controlsVBox.getChildren().addAll(statisticsLabel, adaptCheckBox, targetLabel, targetSlider);
+      stackPane.getChildren().add(controlsVBox);
+      StackPane.setAlignment(controlsVBox, Pos.TOP_LEFT);
+      StackPane.setMargin(controlsVBox, new Insets(10, 0, 0, 10));
+
+      // refresh the telemetry once a second
+      statisticsTimeline = new Timeline(new KeyFrame(Duration.seconds(1), e -> statisticsLabel.setText(
+          statistics())));
+      statisticsTimeline.setCycleCount(Timeline.INDEFINITE);
+      statisticsTimeline.play();
+
       // create a scene with a basemap and add it to the scene view
       ArcGISScene scene = new ArcGISScene();
       scene.setBasemap(Basemap.createImagery());
@@ -75,7 +133,23 @@ public class ViewPointCloudDataOfflineSample extends Application {
       // zoom to the layer when it is done loading
       pointCloudLayer.addDoneLoadingListener(() -> {
         if (pointCloudLayer.getLoadStatus() == LoadStatus.LOADED) {
-          sceneView.setViewpointCamera(new Camera(pointCloudLayer.getFullExtent().getCenter(), 2000, 30, 60, 0));
+          Point center = pointCloudLayer.getFullExtent().getCenter();
+          sceneView.setViewpointCamera(new Camera(center, 2000, 30, 60, 0));
+
+          // draw the point cloud less densely when its draws take longer than the budget
+          budgetController = new PointCloudBudgetController(pointCloudLayer, telemetry);
+          adaptCheckBox.setDisable(!budgetController.isAdjustable());
+          targetSlider.setDisable(!budgetController.isAdjustable());
+          adaptCheckBox.selectedProperty().addListener(o -> budgetController.setEnabled(adaptCheckBox.isSelected()));
+          targetSlider.valueProperty().addListener(o -> {
+            targetLabel.setText(String.format("Draw budget: %.0f ms", targetSlider.getValue()));
+            budgetController.setDrawBudgetMillis(targetSlider.getValue());
+          });
+
+          // fly the benchmark's camera path unattended and exit, with --benchmark or -Dbenchmark=true
+          if (getParameters().getRaw().contains("--benchmark") || Boolean.getBoolean("benchmark")) {
+            runBenchmark(center);
+          }
         } else {
           new Alert(Alert.AlertType.ERROR, "Point cloud layer failed to load").show();
         }
@@ -87,12 +161,53 @@ public class ViewPointCloudDataOfflineSample extends Application {
     }
   }
 
+  /**
+   * Describes the latest frame and draw times, memory and density.
+   *
+   * @return the description
+   */
+  private String statistics() {
+    long residentBytes = telemetry.getResidentBytes();
+    double density = budgetController != null ? budgetController.getDensity() : 1;
+    return String.format(Locale.ROOT, "Frames: %.1f ms median, %.1f ms p95%nDraws: %,d, last %.0f ms, p95 %.0f ms%n" +
+        "Memory: %.0f MB heap, %s resident%nPoint cloud drawn at %.0f%% density", telemetry.getFrameMillis(50),
+        telemetry.getFrameMillis(95), telemetry.getDrawCount(), telemetry.getLastDrawMillis(),
+        telemetry.getDrawMillis(95), telemetry.getHeapBytes() / 1048576.0, residentBytes < 0 ? "unknown" :
+            String.format(Locale.ROOT, "%.0f MB", residentBytes / 1048576.0), density * 100);
+  }
+
+  /**
+   * Runs the camera path benchmark in the background once the scene has first drawn, writes the results to the
+   * benchmark-results directory and exits. The draw budget for the adaptive runs can be set in milliseconds with
+   * -Dbenchmark.drawBudget, and -Dbenchmark.adaptiveFirst=true flies the adaptive mode first, so it's the one flown
+   * cold.
+   *
+   * @param center middle of the point cloud
+   */
+  private void runBenchmark(Point center) {
+
+    double drawBudgetMillis = Double.parseDouble(System.getProperty("benchmark.drawBudget", "500"));
+    boolean adaptiveFirst = Boolean.getBoolean("benchmark.adaptiveFirst");
+    PointCloudBenchmark benchmark = new PointCloudBenchmark(sceneView, center, telemetry, budgetController);
+    BenchmarkRunner.runWhenDrawn(sceneView, outputDirectory -> benchmark.run(drawBudgetMillis, adaptiveFirst,
+        outputDirectory, System.out::println));
+  }
+
   /**
    * Stops and releases all resources used in application.
    */
   @Override
   public void stop() {
 
+    if (statisticsTimeline != null) {
+      statisticsTimeline.stop();
+    }
+    if (budgetController != null) {
+      budgetController.setEnabled(false);
+    }
+    if (telemetry != null) {
+      telemetry.stop();
+    }
     if (sceneView != null) {
       sceneView.dispose();
     }
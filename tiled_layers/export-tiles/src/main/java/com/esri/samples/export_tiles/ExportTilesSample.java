@@ -16,9 +16,13 @@
 
 package com.esri.samples.export_tiles;
 
-import java.io.File;
-import java.io.IOException;
-import java.util.concurrent.ExecutionException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 import javafx.application.Application;
 import javafx.application.Platform;
@@ -32,12 +36,14 @@ import javafx.scene.control.ProgressBar;
 import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 
+import com.esri.arcgisruntime.arcgisservices.LevelOfDetail;
+import com.esri.arcgisruntime.arcgisservices.TileInfo;
 import com.esri.arcgisruntime.concurrent.Job;
-import com.esri.arcgisruntime.concurrent.ListenableFuture;
 import com.esri.arcgisruntime.data.TileCache;
 import com.esri.arcgisruntime.geometry.Envelope;
 import com.esri.arcgisruntime.geometry.Point;
 import com.esri.arcgisruntime.layers.ArcGISTiledLayer;
+import com.esri.arcgisruntime.layers.Layer;
 import com.esri.arcgisruntime.loadable.LoadStatus;
 import com.esri.arcgisruntime.mapping.ArcGISMap;
 import com.esri.arcgisruntime.mapping.Basemap;
@@ -53,6 +59,12 @@ public class ExportTilesSample extends Application {
 
   private MapView mapView;
 
+  // areas estimated over this many tiles are split into several jobs
+  private static final long MAX_TILES_PER_JOB = 2000;
+  // the most detailed level exported when the layer has no maximum scale, since exporting to the last level of the
+  // service's tiling scheme would take many thousands of jobs
+  private static final int MAX_EXPORT_LEVEL = 16;
+
   @Override
   public void start(Stage stage) {
 
@@ -113,80 +125,70 @@ public class ExportTilesSample extends Application {
       progressBar.setProgress(0.0);
       progressBar.setVisible(false);
 
-      // when the button is clicked, export the tiles to a temporary file
+      // when the button is clicked, export the tiles to a temporary directory
       exportTilesButton.setOnAction(e -> {
-        try {
-          // disable the button and show the progress bar
-          exportTilesButton.setDisable(true);
-          progressBar.setVisible(true);
-
-          // create a file and define the scale for the job
-          File tempFile = File.createTempFile("tiles", ".tpk");
-          double minScale = mapView.getMapScale();
-          double maxScale = tiledLayer.getMaxScale();
-
-          // minScale must always be larger than maxScale
-          if (minScale <= maxScale) {
-            minScale = maxScale + 1;
-          }
-
-          // create a task
-          ExportTileCacheTask exportTileCacheTask = new ExportTileCacheTask(tiledLayer.getUri());
-
-          // create parameters for the export tiles job
-          ListenableFuture<ExportTileCacheParameters> exportTileCacheParametersListenableFuture =
-                  exportTileCacheTask.createDefaultExportTileCacheParametersAsync(downloadArea.getGeometry(), minScale, maxScale);
-
-          exportTileCacheParametersListenableFuture.addDoneListener(() -> {
-            try {
-              ExportTileCacheParameters exportTileCacheParameters = exportTileCacheParametersListenableFuture.get();
-
-              // create a job with the parameters
-              ExportTileCacheJob exportTileCacheJob = exportTileCacheTask.exportTileCache(exportTileCacheParameters, tempFile.getAbsolutePath());
-
-              // start the job and wait for it to finish
-              exportTileCacheJob.start();
-              exportTileCacheJob.addProgressChangedListener(() -> progressBar.setProgress(exportTileCacheJob.getProgress() / 100.0));
-
-              exportTileCacheJob.addJobDoneListener(() -> {
-                if (exportTileCacheJob.getStatus() == Job.Status.SUCCEEDED) {
-
-                  //show preview of exported tiles in alert
-                  TileCache tileCache = exportTileCacheJob.getResult();
-                  Alert preview = new Alert(Alert.AlertType.INFORMATION);
-                  preview.initOwner(mapView.getScene().getWindow());
-                  preview.setTitle("Preview");
-                  preview.setHeaderText("Exported to " + tileCache.getPath());
-                  MapView mapPreview = new MapView();
-                  mapPreview.setMinSize(400, 400);
-                  ArcGISTiledLayer tiledLayerPreview = new ArcGISTiledLayer(tileCache);
-                  ArcGISMap previewMap = new ArcGISMap(new Basemap(tiledLayerPreview));
-                  mapPreview.setMap(previewMap);
-                  preview.getDialogPane().setContent(mapPreview);
-                  preview.show();
-
-                } else {
-                  Alert alert = new Alert(Alert.AlertType.ERROR, exportTileCacheJob.getError().getAdditionalMessage());
-                  alert.show();
-                }
-
-                Platform.runLater(() -> {
-                  progressBar.setVisible(false);
-                  exportTilesButton.setDisable(false);
-                });
-              });
-
-            } catch (InterruptedException | ExecutionException ex) {
-              Alert alert = new Alert(Alert.AlertType.ERROR, ex.getMessage());
-              alert.show();
-              progressBar.setVisible(false);
-              progressBar.setProgress(0);
+        // disable the button and show the progress bar
+        exportTilesButton.setDisable(true);
+        progressBar.setVisible(true);
+
+        // define the scale for the job
+        TileInfo tileInfo = tiledLayer.getTileInfo();
+        double[] lodScales = tileInfo.getLevelsOfDetail().stream().mapToDouble(LevelOfDetail::getScale).toArray();
+        double maxScale = exportMaxScale(tiledLayer, lodScales);
+        // minScale must always be larger than maxScale
+        double minScale = Math.max(mapView.getMapScale(), maxScale + 1);
+
+        // create a task
+        ExportTileCacheTask exportTileCacheTask = new ExportTileCacheTask(tiledLayer.getUri());
+
+        // export one part of the area, waiting for its job to finish
+        TileExportOrchestrator.RegionExporter exporter = (area, output, progressListener) -> {
+          ExportTileCacheParameters exportTileCacheParameters =
+              exportTileCacheTask.createDefaultExportTileCacheParametersAsync(area, minScale, maxScale).get();
+          ExportTileCacheJob exportTileCacheJob =
+              exportTileCacheTask.exportTileCache(exportTileCacheParameters, output.toString());
+          CompletableFuture<TileCache> jobResult = new CompletableFuture<>();
+          exportTileCacheJob.addProgressChangedListener(() ->
+              progressListener.accept(exportTileCacheJob.getProgress() / 100.0));
+          exportTileCacheJob.addJobDoneListener(() -> {
+            if (exportTileCacheJob.getStatus() == Job.Status.SUCCEEDED) {
+              jobResult.complete(exportTileCacheJob.getResult());
+            } else {
+              jobResult.completeExceptionally(exportTileCacheJob.getError());
             }
           });
-        } catch (IOException ex) {
-          Alert alert = new Alert(Alert.AlertType.ERROR, "Failed to create temporary file");
-          alert.show();
-        }
+          exportTileCacheJob.start();
+          jobResult.get();
+        };
+
+        // name the area by its extent and scales, so exporting the same area again resumes any unfinished parts
+        Envelope area = (Envelope) downloadArea.getGeometry();
+        String areaName = String.format("area-%08x", Objects.hash(area.getXMin(), area.getYMin(), area.getXMax(),
+            area.getYMax(), minScale, maxScale));
+        Path outputDirectory = Paths.get(System.getProperty("java.io.tmpdir"), "export_tiles");
+        TileExportOrchestrator orchestrator = new TileExportOrchestrator(exporter, outputDirectory, ".tpk", 2,
+            MAX_TILES_PER_JOB);
+
+        // run the orchestrator off the JavaFX thread, since it waits for the jobs
+        Thread exportThread = new Thread(() -> {
+          try {
+            List<Path> outputs = orchestrator.export(Collections.singletonMap(areaName, area), lodScales, minScale,
+                maxScale, tileInfo.getTileWidth(), progress ->
+                    Platform.runLater(() -> progressBar.setProgress(progress)));
+            Platform.runLater(() -> showPreview(outputs));
+          } catch (Exception ex) {
+            Platform.runLater(() -> new Alert(Alert.AlertType.ERROR, "Export failed, export the same area again to " +
+                "resume: " + ex.getMessage()).show());
+          } finally {
+            Platform.runLater(() -> {
+              progressBar.setVisible(false);
+              progressBar.setProgress(0);
+              exportTilesButton.setDisable(false);
+            });
+          }
+        });
+        exportThread.setDaemon(true);
+        exportThread.start();
       });
 
       // add the map view, button, and progress bar to stack pane
@@ -202,6 +204,42 @@ public class ExportTilesSample extends Application {
     }
   }
 
+  /**
+   * Gets the most detailed scale to export. A layer's maximum scale of 0 means it has no limit, which would have the
+   * export plan tiles down to the last level of the tiling scheme, so the scale is clamped to a chosen level of detail.
+   *
+   * @param layer the tiled layer
+   * @param lodScales scales of the layer's levels of detail, from the least to the most detailed
+   * @return the maximum scale, never 0
+   */
+  private static double exportMaxScale(Layer layer, double[] lodScales) {
+    double chosenLevelScale = lodScales[Math.min(MAX_EXPORT_LEVEL, lodScales.length - 1)];
+    double layerMaxScale = layer.getMaxScale();
+    return layerMaxScale > 0 ? Math.max(layerMaxScale, chosenLevelScale) : chosenLevelScale;
+  }
+
+  /**
+   * Shows a preview of the exported tile packages together in an alert.
+   *
+   * @param outputs exported tile package files
+   */
+  private void showPreview(List<Path> outputs) {
+
+    List<Layer> layers = new ArrayList<>();
+    outputs.forEach(output -> layers.add(new ArcGISTiledLayer(new TileCache(output.toString()))));
+
+    Alert preview = new Alert(Alert.AlertType.INFORMATION);
+    preview.initOwner(mapView.getScene().getWindow());
+    preview.setTitle("Preview");
+    preview.setHeaderText("Exported " + outputs.size() + " tile package(s) to " + outputs.get(0).getParent());
+    MapView mapPreview = new MapView();
+    mapPreview.setMinSize(400, 400);
+    ArcGISMap previewMap = new ArcGISMap(new Basemap(layers, Collections.emptyList()));
+    mapPreview.setMap(previewMap);
+    preview.getDialogPane().setContent(mapPreview);
+    preview.show();
+  }
+
   /**
    * Stops and releases all resources used in application.
    */
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.export_tiles;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.DoubleConsumer;
+
+import com.esri.arcgisruntime.geometry.Envelope;
+
+/**
+ * Runs tile exports for many regions. Before anything is exported, the number of tiles in each region is estimated
+ * from the levels of detail in the scale range, and regions estimated over a limit are split into quadrants until
+ * each part is small enough for a single job. The parts are exported concurrently under a global limit, and every
+ * finished part is recorded in a checkpoint file, so running the same regions again after a failure only exports
+ * the parts which didn't finish.
+ */
+public class TileExportOrchestrator {
+
+  /**
+   * Exports one area to a file, blocking until the export is done.
+   */
+  public interface RegionExporter {
+
+    /**
+     * Exports the tiles in an area.
+     *
+     * @param area area to export
+     * @param output file to write the tiles to
+     * @param progressListener called with the export's progress between 0 and 1
+     * @throws Exception if the export fails
+     */
+    void export(Envelope area, Path output, DoubleConsumer progressListener) throws Exception;
+  }
+
+  private static final String CHECKPOINT_FILE = "export-checkpoint.properties";
+  private static final double METERS_PER_INCH = 0.0254;
+  private static final double DPI = 96;
+
+  private final RegionExporter exporter;
+  private final Path outputDirectory;
+  private final String fileExtension;
+  private final int concurrencyLimit;
+  private final long maxTilesPerJob;
+  private final Properties checkpoint = new Properties();
+
+  /**
+   * Creates an orchestrator.
+   *
+   * @param exporter exports a single part of a region
+   * @param outputDirectory directory for the exported files and the checkpoint
+   * @param fileExtension extension of the exported files, e.g. ".tpk"
+   * @param concurrencyLimit maximum number of exports running at once
+   * @param maxTilesPerJob regions estimated over this many tiles are split
+   */
+  public TileExportOrchestrator(RegionExporter exporter, Path outputDirectory, String fileExtension,
+      int concurrencyLimit, long maxTilesPerJob) {
+    this.exporter = exporter;
+    this.outputDirectory = outputDirectory;
+    this.fileExtension = fileExtension;
+    this.concurrencyLimit = concurrencyLimit;
+    this.maxTilesPerJob = maxTilesPerJob;
+  }
+
+  /**
+   * Estimates how many tiles cover an area over the levels of detail in a scale range.
+   *
+   * @param area area to cover, in a projected spatial reference measured in meters
+   * @param lodScales scales of the tiling scheme's levels of detail
+   * @param minScale smallest scale (largest scale denominator) to export
+   * @param maxScale largest scale (smallest scale denominator) to export
+   * @param tileSizePixels width and height of a tile in pixels
+   * @return estimated number of tiles
+   * @throws IllegalArgumentException if the maximum scale isn't positive
+   */
+  public static long estimateTileCount(Envelope area, double[] lodScales, double minScale, double maxScale,
+      int tileSizePixels) {
+    if (maxScale <= 0) {
+      throw new IllegalArgumentException("Maximum scale must be positive, clamp it to a level of detail");
+    }
+    long count = 0;
+    for (double scale : lodScales) {
+      if (scale <= minScale && scale >= maxScale) {
+        double tileSizeMeters = scale * METERS_PER_INCH / DPI * tileSizePixels;
+        // one extra tile in each direction as the area rarely lines up with tile boundaries
+        long columns = (long) Math.ceil(area.getWidth() / tileSizeMeters) + 1;
+        long rows = (long) Math.ceil(area.getHeight() / tileSizeMeters) + 1;
+        count += columns * rows;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Exports the regions, skipping any parts recorded as finished by an earlier run.
+   *
+   * @param regions areas to export, by a name unique within the output directory
+   * @param lodScales scales of the tiling scheme's levels of detail
+   * @param minScale smallest scale (largest scale denominator) to export
+   * @param maxScale largest scale (smallest scale denominator) to export
+   * @param tileSizePixels width and height of a tile in pixels
+   * @param progressListener called with the overall progress between 0 and 1, weighted by estimated tile count
+   * @return the exported files, including ones exported by earlier runs
+   * @throws IOException if the checkpoint can't be read or written
+   * @throws ExecutionException if any part fails to export; the finished parts remain checkpointed
+   * @throws InterruptedException if the thread is interrupted while waiting for the exports
+   * @throws IllegalArgumentException if the maximum scale isn't positive, as a layer's "no limit" of 0 would split the
+   * regions down to the last level of detail
+   */
+  public List<Path> export(Map<String, Envelope> regions, double[] lodScales, double minScale, double maxScale,
+      int tileSizePixels, DoubleConsumer progressListener) throws IOException, ExecutionException,
+      InterruptedException {
+
+    if (maxScale <= 0) {
+      throw new IllegalArgumentException("Maximum scale must be positive, clamp it to a level of detail");
+    }
+
+    Files.createDirectories(outputDirectory);
+    loadCheckpoint();
+
+    // plan the parts of every region up front, so the overall progress can be weighted by tile count
+    Map<String, Envelope> parts = new LinkedHashMap<>();
+    regions.forEach((name, area) -> split(name, area, lodScales, minScale, maxScale, tileSizePixels, parts));
+    Map<String, Long> estimates = new LinkedHashMap<>();
+    parts.forEach((id, area) -> estimates.put(id, estimateTileCount(area, lodScales, minScale, maxScale,
+        tileSizePixels)));
+    long totalTiles = Math.max(1, estimates.values().stream().mapToLong(Long::longValue).sum());
+    double[] partProgress = new double[parts.size()];
+
+    List<Path> outputs = Collections.synchronizedList(new ArrayList<>());
+    List<Future<?>> futures = new ArrayList<>();
+    ExecutorService executor = Executors.newFixedThreadPool(concurrencyLimit);
+    try {
+      int index = 0;
+      for (Map.Entry<String, Envelope> part : parts.entrySet()) {
+        String id = part.getKey();
+        Path output = outputDirectory.resolve(id + fileExtension);
+        double weight = (double) estimates.get(id) / totalTiles;
+        int partIndex = index++;
+
+        if (isCheckpointed(id, output)) {
+          outputs.add(output);
+          partProgress[partIndex] = weight;
+          continue;
+        }
+        futures.add(executor.submit(() -> {
+          // remove anything left by a failed attempt at this part
+          Files.deleteIfExists(output);
+          exporter.export(part.getValue(), output, progress -> {
+            synchronized (partProgress) {
+              partProgress[partIndex] = progress * weight;
+              double overall = 0;
+              for (double value : partProgress) {
+                overall += value;
+              }
+              progressListener.accept(overall);
+            }
+          });
+          markCheckpointed(id, output);
+          outputs.add(output);
+          return null;
+        }));
+      }
+
+      // wait for every part, so one failure doesn't stop the others from being checkpointed
+      ExecutionException failure = null;
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          failure = failure == null ? e : failure;
+        }
+      }
+      if (failure != null) {
+        throw failure;
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    progressListener.accept(1.0);
+    return outputs;
+  }
+
+  /**
+   * Splits an area into quadrants until each part is estimated under the per-job tile limit.
+   *
+   * @param id identifier of the area, extended with the quadrant number for each split
+   * @param area area to split
+   * @param lodScales scales of the tiling scheme's levels of detail
+   * @param minScale smallest scale to export
+   * @param maxScale largest scale to export
+   * @param tileSizePixels width and height of a tile in pixels
+   * @param parts receives the parts by identifier
+   */
+  private void split(String id, Envelope area, double[] lodScales, double minScale, double maxScale,
+      int tileSizePixels, Map<String, Envelope> parts) {
+    long estimate = estimateTileCount(area, lodScales, minScale, maxScale, tileSizePixels);
+    // stop splitting once the parts are smaller than a tile at the most detailed level
+    double smallestTile = maxScale * METERS_PER_INCH / DPI * tileSizePixels;
+    if (estimate <= maxTilesPerJob || Math.max(area.getWidth(), area.getHeight()) < 2 * smallestTile) {
+      parts.put(id, area);
+      return;
+    }
+    double midX = (area.getXMin() + area.getXMax()) / 2;
+    double midY = (area.getYMin() + area.getYMax()) / 2;
+    split(id + "-0", new Envelope(area.getXMin(), midY, midX, area.getYMax(), area.getSpatialReference()), lodScales,
+        minScale, maxScale, tileSizePixels, parts);
+    split(id + "-1", new Envelope(midX, midY, area.getXMax(), area.getYMax(), area.getSpatialReference()), lodScales,
+        minScale, maxScale, tileSizePixels, parts);
+    split(id + "-2", new Envelope(area.getXMin(), area.getYMin(), midX, midY, area.getSpatialReference()), lodScales,
+        minScale, maxScale, tileSizePixels, parts);
+    split(id + "-3", new Envelope(midX, area.getYMin(), area.getXMax(), midY, area.getSpatialReference()), lodScales,
+        minScale, maxScale, tileSizePixels, parts);
+  }
+
+  /**
+   * Reads the checkpoint left by an earlier run, if any.
+   *
+   * @throws IOException if the checkpoint can't be read
+   */
+  private void loadCheckpoint() throws IOException {
+    Path file = outputDirectory.resolve(CHECKPOINT_FILE);
+    if (Files.exists(file)) {
+      try (InputStream inputStream = Files.newInputStream(file)) {
+        synchronized (checkpoint) {
+          checkpoint.load(inputStream);
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks whether a part was finished by an earlier run and its output is still there.
+   *
+   * @param id part identifier
+   * @param output expected output file
+   * @return true if the part can be skipped
+   */
+  private boolean isCheckpointed(String id, Path output) {
+    synchronized (checkpoint) {
+      return output.toString().equals(checkpoint.getProperty(id)) && Files.exists(output);
+    }
+  }
+
+  /**
+   * Records a finished part and writes the checkpoint to disk.
+   *
+   * @param id part identifier
+   * @param output exported file
+   * @throws IOException if the checkpoint can't be written
+   */
+  private void markCheckpointed(String id, Path output) throws IOException {
+    synchronized (checkpoint) {
+      checkpoint.setProperty(id, output.toString());
+      Path temporary = outputDirectory.resolve(CHECKPOINT_FILE + ".tmp");
+      try (OutputStream outputStream = Files.newOutputStream(temporary)) {
+        checkpoint.store(outputStream, "finished export parts");
+      }
+      Files.move(temporary, outputDirectory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
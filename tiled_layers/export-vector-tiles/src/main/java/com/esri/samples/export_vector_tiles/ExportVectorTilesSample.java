@@ -16,10 +16,17 @@
 
 package com.esri.samples.export_vector_tiles;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.util.concurrent.ExecutionException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 import javafx.application.Application;
 import javafx.application.Platform;
@@ -34,7 +41,6 @@ import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 
 import com.esri.arcgisruntime.concurrent.Job;
-import com.esri.arcgisruntime.concurrent.ListenableFuture;
 import com.esri.arcgisruntime.data.VectorTileCache;
 import com.esri.arcgisruntime.geometry.Envelope;
 import com.esri.arcgisruntime.geometry.Point;
@@ -62,6 +68,16 @@ public class ExportVectorTilesSample extends Application {
   private MapView mapView;
   private PortalItem portalItem; // keep loadable in scope to avoid garbage collection
 
+  // areas estimated over this many tiles are split into several jobs
+  private static final long MAX_TILES_PER_JOB = 2000;
+  // the standard Web Mercator vector tiling scheme
+  private static final int VECTOR_TILE_SIZE = 512;
+  private static final int VECTOR_TILE_LEVELS = 24;
+  private static final double VECTOR_TILE_LEVEL_ZERO_SCALE = 295828763.795778;
+  // the most detailed level exported when the layer has no maximum scale; the basemap's data ends around this level,
+  // and more detailed views are drawn by overzooming its tiles
+  private static final int MAX_EXPORT_LEVEL = 16;
+
   @Override
   public void start(Stage stage) {
 
@@ -135,80 +151,70 @@ public class ExportVectorTilesSample extends Application {
       progressBar.setProgress(0.0);
       progressBar.setVisible(false);
 
-      // when the button is clicked, export the tiles to a temporary file
+      // when the button is clicked, export the tiles to a temporary directory
       exportTilesButton.setOnAction(e -> {
-        try {
-          // disable the button and show the progress bar
-          exportTilesButton.setDisable(true);
-          progressBar.setVisible(true);
-
-          // create a file and define the scale for the job
-          File vtpkFile = File.createTempFile("tiles", ".vtpk");
-          File resDir = Files.createTempDirectory("StyleItemResources").toFile();
-
-          Layer layer = mapView.getMap().getBasemap().getBaseLayers().get(0);
-          double maxScale = layer.getMaxScale();
-
-          // create a task
-          ExportVectorTilesTask exportVectorTilesTask = new ExportVectorTilesTask((PortalItem) layer.getItem());
-
-          // create parameters for the export vector tiles job
-          ListenableFuture<ExportVectorTilesParameters> exportVectorTilesParametersFuture = exportVectorTilesTask
-              .createDefaultExportVectorTilesParametersAsync(downloadArea.getGeometry(), maxScale);
-          exportVectorTilesParametersFuture.addDoneListener(() -> {
-            try {
-              ExportVectorTilesParameters exportVectorTilesParameters = exportVectorTilesParametersFuture.get();
-
-              // create a job with the parameters
-              ExportVectorTilesJob exportVectorTilesJob =
-                      exportVectorTilesTask.exportVectorTiles(exportVectorTilesParameters, vtpkFile.getAbsolutePath(), resDir.getAbsolutePath());
-
-              // start the job and wait for it to finish
-              exportVectorTilesJob.start();
-              exportVectorTilesJob.addProgressChangedListener(() -> progressBar.setProgress(exportVectorTilesJob.getProgress() / 100.0));
-              exportVectorTilesJob.addJobDoneListener(() -> {
-
-                if (exportVectorTilesJob.getStatus() == Job.Status.SUCCEEDED) {
-                  // show preview of exported tiles in alert
-                  ExportVectorTilesResult tilesResult = exportVectorTilesJob.getResult();
-                  VectorTileCache tileCache = tilesResult.getVectorTileCache();
-                  ItemResourceCache resourceCache = tilesResult.getItemResourceCache();
-                  Alert preview = new Alert(Alert.AlertType.INFORMATION);
-                  preview.initOwner(mapView.getScene().getWindow());
-                  preview.setTitle("Preview");
-                  preview.setHeaderText("Exported tiles to " + tileCache.getPath() + "\nExported resources to " +
-                      resourceCache.getPath());
-                  MapView mapPreview = new MapView();
-                  mapPreview.setMinSize(400, 400);
-                  ArcGISVectorTiledLayer tiledLayerPreview = new ArcGISVectorTiledLayer(tileCache, resourceCache);
-                  ArcGISMap previewMap = new ArcGISMap(new Basemap(tiledLayerPreview));
-                  mapPreview.setMap(previewMap);
-                  preview.getDialogPane().setContent(mapPreview);
-                  preview.show();
-
-                } else {
-                  Alert alert = new Alert(Alert.AlertType.ERROR, exportVectorTilesJob.getError().getAdditionalMessage());
-                  alert.show();
-                }
-
-                Platform.runLater(() -> {
-                  progressBar.setVisible(false);
-                  exportTilesButton.setDisable(false);
-                });
-              });
-
-            } catch (InterruptedException | ExecutionException ex) {
-              Alert alert = new Alert(Alert.AlertType.ERROR, ex.getMessage());
-              alert.show();
-              progressBar.setVisible(false);
-              progressBar.setProgress(0);
+        // disable the button and show the progress bar
+        exportTilesButton.setDisable(true);
+        progressBar.setVisible(true);
+
+        Layer layer = mapView.getMap().getBasemap().getBaseLayers().get(0);
+        double maxScale = exportMaxScale(layer);
+
+        // create a task
+        ExportVectorTilesTask exportVectorTilesTask = new ExportVectorTilesTask((PortalItem) layer.getItem());
+
+        // export one part of the area, waiting for its job to finish
+        Path outputDirectory = Paths.get(System.getProperty("java.io.tmpdir"), "export_vector_tiles");
+        TileExportOrchestrator.RegionExporter exporter = (area, output, progressListener) -> {
+          ExportVectorTilesParameters exportVectorTilesParameters =
+              exportVectorTilesTask.createDefaultExportVectorTilesParametersAsync(area, maxScale).get();
+          // each part gets its own style resources next to its tiles, cleared of anything left by a failed attempt
+          Path resourceDirectory = outputDirectory.resolve(output.getFileName() + "_resources");
+          deleteRecursively(resourceDirectory);
+          ExportVectorTilesJob exportVectorTilesJob = exportVectorTilesTask.exportVectorTiles(
+              exportVectorTilesParameters, output.toString(), resourceDirectory.toString());
+          CompletableFuture<ExportVectorTilesResult> jobResult = new CompletableFuture<>();
+          exportVectorTilesJob.addProgressChangedListener(() ->
+              progressListener.accept(exportVectorTilesJob.getProgress() / 100.0));
+          exportVectorTilesJob.addJobDoneListener(() -> {
+            if (exportVectorTilesJob.getStatus() == Job.Status.SUCCEEDED) {
+              jobResult.complete(exportVectorTilesJob.getResult());
+            } else {
+              jobResult.completeExceptionally(exportVectorTilesJob.getError());
             }
           });
-
-        } catch (IOException ex) {
-          Alert alert = new Alert(Alert.AlertType.ERROR, "Failed to create temporary file");
-          alert.show();
-        }
+          exportVectorTilesJob.start();
+          jobResult.get();
+        };
+
+        // name the area by its extent and scale, so exporting the same area again resumes any unfinished parts
+        Envelope area = (Envelope) downloadArea.getGeometry();
+        String areaName = String.format("area-%08x", Objects.hash(area.getXMin(), area.getYMin(), area.getXMax(),
+            area.getYMax(), maxScale));
+        TileExportOrchestrator orchestrator = new TileExportOrchestrator(exporter, outputDirectory, ".vtpk", 2,
+            MAX_TILES_PER_JOB);
+
+        // run the orchestrator off the JavaFX thread, since it waits for the jobs
+        Thread exportThread = new Thread(() -> {
+          try {
+            double[] lodScales = vectorTileScales();
+            List<Path> outputs = orchestrator.export(Collections.singletonMap(areaName, area), lodScales,
+                lodScales[0], maxScale, VECTOR_TILE_SIZE, progress ->
+                    Platform.runLater(() -> progressBar.setProgress(progress)));
+            Platform.runLater(() -> showPreview(outputs));
+          } catch (Exception ex) {
+            Platform.runLater(() -> new Alert(Alert.AlertType.ERROR, "Export failed, export the same area again to " +
+                "resume: " + ex.getMessage()).show());
+          } finally {
+            Platform.runLater(() -> {
+              progressBar.setVisible(false);
+              progressBar.setProgress(0);
+              exportTilesButton.setDisable(false);
+            });
+          }
+        });
+        exportThread.setDaemon(true);
+        exportThread.start();
       });
 
       // add the map view, button, and progress bar to stack pane
@@ -224,6 +230,76 @@ public class ExportVectorTilesSample extends Application {
     }
   }
 
+  /**
+   * Gets the most detailed scale to export. A layer's maximum scale of 0 means it has no limit, which would have the
+   * export plan tiles down to the last level of the tiling scheme, so the scale is clamped to a chosen level of detail.
+   *
+   * @param layer the vector tiled layer
+   * @return the maximum scale, never 0
+   */
+  private static double exportMaxScale(Layer layer) {
+    double chosenLevelScale = vectorTileScales()[MAX_EXPORT_LEVEL];
+    double layerMaxScale = layer.getMaxScale();
+    return layerMaxScale > 0 ? Math.max(layerMaxScale, chosenLevelScale) : chosenLevelScale;
+  }
+
+  /**
+   * Gets the scales of the levels of detail in the standard Web Mercator vector tiling scheme.
+   *
+   * @return scales from the least to the most detailed level
+   */
+  private static double[] vectorTileScales() {
+    double[] scales = new double[VECTOR_TILE_LEVELS];
+    for (int level = 0; level < VECTOR_TILE_LEVELS; level++) {
+      scales[level] = VECTOR_TILE_LEVEL_ZERO_SCALE / Math.pow(2, level);
+    }
+    return scales;
+  }
+
+  /**
+   * Deletes a directory and everything in it, if it exists.
+   *
+   * @param directory directory to delete
+   * @throws IOException if a file can't be deleted
+   */
+  private static void deleteRecursively(Path directory) throws IOException {
+    if (!Files.exists(directory)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  /**
+   * Shows a preview of the exported vector tile packages together in an alert.
+   *
+   * @param outputs exported vector tile package files
+   */
+  private void showPreview(List<Path> outputs) {
+
+    List<Layer> layers = new ArrayList<>();
+    outputs.forEach(output -> {
+      VectorTileCache tileCache = new VectorTileCache(output.toString());
+      ItemResourceCache resourceCache = new ItemResourceCache(output.getParent().resolve(output.getFileName() +
+          "_resources").toString());
+      layers.add(new ArcGISVectorTiledLayer(tileCache, resourceCache));
+    });
+
+    Alert preview = new Alert(Alert.AlertType.INFORMATION);
+    preview.initOwner(mapView.getScene().getWindow());
+    preview.setTitle("Preview");
+    preview.setHeaderText("Exported " + outputs.size() + " vector tile package(s) to " + outputs.get(0).getParent());
+    MapView mapPreview = new MapView();
+    mapPreview.setMinSize(400, 400);
+    ArcGISMap previewMap = new ArcGISMap(new Basemap(layers, Collections.emptyList()));
+    mapPreview.setMap(previewMap);
+    preview.getDialogPane().setContent(mapPreview);
+    preview.show();
+  }
+
   /**
    * Stops and releases all resources used in application.
    */
@@ -16,22 +16,51 @@
 
 package com.esri.samples.tile_cache;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Label;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
 import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Paint;
 import javafx.stage.Stage;
 
+import com.esri.arcgisruntime.arcgisservices.LevelOfDetail;
+import com.esri.arcgisruntime.arcgisservices.TileInfo;
 import com.esri.arcgisruntime.data.TileCache;
+import com.esri.arcgisruntime.geometry.Envelope;
+import com.esri.arcgisruntime.geometry.Point;
 import com.esri.arcgisruntime.layers.ArcGISTiledLayer;
+import com.esri.arcgisruntime.loadable.LoadStatus;
 import com.esri.arcgisruntime.mapping.ArcGISMap;
 import com.esri.arcgisruntime.mapping.Basemap;
+import com.esri.arcgisruntime.mapping.view.DrawStatus;
 import com.esri.arcgisruntime.mapping.view.MapView;
 
-import java.io.File;
-
 public class TileCacheSample extends Application {
 
+  private static final int MAX_WARM_TILES_PER_LEVEL = 256;
+
   private MapView mapView;
+  private volatile boolean mapSet;
+  private volatile boolean drawTimed;
+  private volatile long warmNanos;
+
+  // warm the package alongside the first draw by default; run with -Dtile.cache.warm=before to warm it before the map
+  // is shown, or with -Dtile.cache.warm=false to not warm it, and compare the first full draw of fresh processes
+  private final String warmMode = System.getProperty("tile.cache.warm", "background");
+  private final boolean warmCache = !"false".equals(warmMode);
+  private final boolean warmBeforeDraw = "before".equals(warmMode);
 
   @Override
   public void start(Stage stage) {
@@ -48,6 +77,9 @@ public class TileCacheSample extends Application {
       stage.setScene(scene);
       stage.show();
 
+      // time everything from before the tile package is opened, so each mode is measured from the same point
+      long startTime = System.nanoTime();
+
       // create a tile cache from a local tile package
       File tpkFile = new File(System.getProperty("data.dir"), "./samples-data/sanfrancisco/SanFrancisco.tpk");
       TileCache tileCache = new TileCache(tpkFile.getAbsolutePath());
@@ -61,12 +93,82 @@ public class TileCacheSample extends Application {
       // create ArcGISMap with the tiled layer basemap
       ArcGISMap map = new ArcGISMap(basemap);
 
-      // create a map view and set its map
+      // labels to show how long warming the package and the first full draw took
+      Label warmLabel = new Label(warmCache ? "Warming tile package..." : "Tile package not warmed");
+      warmLabel.setStyle("-fx-text-fill: white;");
+      Label drawLabel = new Label("Drawing...");
+      drawLabel.setStyle("-fx-text-fill: white;");
+      VBox controlsVBox = new VBox(6);
+      controlsVBox.setBackground(new Background(new BackgroundFill(Paint.valueOf("rgba(0,0,0,0.3)"), CornerRadii.EMPTY,
+          Insets.EMPTY)));
+      controlsVBox.setPadding(new Insets(10.0));
+      controlsVBox.setMaxSize(340, 60);
+      controlsVBox.getChildren().addAll(warmLabel, drawLabel);
+
+      // create a map view, and time how long it takes from the start to first draw every tile of the initial view
       mapView = new MapView();
-      mapView.setMap(map);
-
-      // add map view to stack pane
-      stackPane.getChildren().add(mapView);
+      mapView.addDrawStatusChangedListener(drawStatusChangedEvent -> {
+        if (drawStatusChangedEvent.getDrawStatus() == DrawStatus.COMPLETED && mapSet && !drawTimed) {
+          drawTimed = true;
+          double drawMillis = (System.nanoTime() - startTime) / 1e6;
+          String drawText;
+          if (warmBeforeDraw) {
+            drawText = String.format(Locale.ROOT, "First full draw after %.0f ms, including %.0f ms warming",
+                drawMillis, warmNanos / 1e6);
+          } else {
+            drawText = String.format(Locale.ROOT, "First full draw after %.0f ms (%s)", drawMillis, warmCache ?
+                "warming alongside" : "not warmed");
+          }
+          Platform.runLater(() -> drawLabel.setText(drawText));
+        }
+      });
+
+      // once the layer's tiling scheme is known, warm the package's tiles for the initial view
+      tiledLayer.addDoneLoadingListener(() -> {
+        if (tiledLayer.getLoadStatus() != LoadStatus.LOADED) {
+          new Alert(Alert.AlertType.ERROR, "Tile cache failed to load").show();
+          return;
+        }
+        if (!warmCache) {
+          return;
+        }
+        TileInfo tileInfo = tiledLayer.getTileInfo();
+        Envelope initialExtent = tiledLayer.getFullExtent();
+        Thread warmThread = new Thread(() -> {
+          long start = System.nanoTime();
+          try (TilePackageIndex index = new TilePackageIndex(tpkFile.toPath())) {
+            long bytes = warmExtent(index, tileInfo, initialExtent);
+            warmNanos = System.nanoTime() - start;
+            String warmText = String.format(Locale.ROOT, "Warmed %d KB from %d bundles in %.0f ms", bytes / 1024,
+                index.getBundleCount(), warmNanos / 1e6);
+            Platform.runLater(() -> warmLabel.setText(warmText));
+          } catch (IOException ex) {
+            // warming is only an optimization, so the map carries on with a cold cache
+            Platform.runLater(() -> {
+              warmLabel.setText("Tile package not warmed");
+              new Alert(Alert.AlertType.ERROR, "Could not warm tile package: " + ex.getMessage()).show();
+            });
+          }
+          if (warmBeforeDraw) {
+            Platform.runLater(() -> showMap(map));
+          }
+        });
+        warmThread.setDaemon(true);
+        warmThread.start();
+      });
+
+      if (warmBeforeDraw) {
+        // load the layer for its tiling scheme, and show the map once the package is warm
+        tiledLayer.loadAsync();
+      } else {
+        // show the map straight away
+        showMap(map);
+      }
+
+      // add map view and labels to stack pane
+      stackPane.getChildren().addAll(mapView, controlsVBox);
+      StackPane.setAlignment(controlsVBox, Pos.TOP_LEFT);
+      StackPane.setMargin(controlsVBox, new Insets(10, 0, 0, 10));
 
     } catch (Exception e) {
       // on any error, print the stack trace
@@ -74,6 +176,44 @@ public class TileCacheSample extends Application {
     }
   }
 
+  /**
+   * Sets the map on the map view. The first full draw after this is the one that is timed.
+   *
+   * @param map the map to show
+   */
+  private void showMap(ArcGISMap map) {
+    mapSet = true;
+    mapView.setMap(map);
+  }
+
+  /**
+   * Warms the tiles covering an extent, and a ring of neighboring tiles, on every level where the extent spans only a
+   * screen's worth of tiles. These are the levels the initial view and the first zooms draw from.
+   *
+   * @param index index of the tile package
+   * @param tileInfo tiling scheme of the package
+   * @param extent extent to warm
+   * @return number of bytes warmed
+   */
+  private long warmExtent(TilePackageIndex index, TileInfo tileInfo, Envelope extent) {
+
+    Point origin = tileInfo.getOrigin();
+    long bytes = 0;
+    for (LevelOfDetail levelOfDetail : tileInfo.getLevelsOfDetail()) {
+      double tileWidth = levelOfDetail.getResolution() * tileInfo.getTileWidth();
+      double tileHeight = levelOfDetail.getResolution() * tileInfo.getTileHeight();
+      int minCol = (int) Math.floor((extent.getXMin() - origin.getX()) / tileWidth) - 1;
+      int maxCol = (int) Math.floor((extent.getXMax() - origin.getX()) / tileWidth) + 1;
+      int minRow = (int) Math.floor((origin.getY() - extent.getYMax()) / tileHeight) - 1;
+      int maxRow = (int) Math.floor((origin.getY() - extent.getYMin()) / tileHeight) + 1;
+      if ((long) (maxCol - minCol + 1) * (maxRow - minRow + 1) > MAX_WARM_TILES_PER_LEVEL) {
+        break;
+      }
+      bytes += index.warm(levelOfDetail.getLevel(), minRow, maxRow, minCol, maxCol);
+    }
+    return bytes;
+  }
+
   /**
    * Stops and releases all resources used in application.
    */
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.tile_cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An index of the tiles in a .tpk or .tpkx tile package. The package's zip directory is read once to find the
+ * compact cache bundles, each bundle is memory mapped straight out of the package, and its tile index is read so a
+ * tile's bytes can be found from its level, row and column without searching.
+ * <p>
+ * Both compact cache formats are supported: version 2 bundles with the tile index in the bundle header, and version 1
+ * bundles with a separate .bundlx index. Bundles must be stored uncompressed in the package, as they are in packages
+ * created by ArcGIS.
+ */
+public class TilePackageIndex implements Closeable {
+
+  private static final int BUNDLE_DIMENSION = 128;
+  private static final int V2_HEADER_SIZE = 64;
+  private static final int V1_INDEX_HEADER_SIZE = 16;
+  private static final int PAGE_SIZE = 4096;
+  private static final Pattern BUNDLE_PATH =
+      Pattern.compile(".*/L(\\d+)/R([0-9a-fA-F]+)C([0-9a-fA-F]+)\\.(bundle|bundlx)$", Pattern.CASE_INSENSITIVE);
+
+  private final FileChannel channel;
+  private final Map<Long, Bundle> bundles = new HashMap<>();
+
+  /**
+   * Opens a tile package and indexes its bundles.
+   *
+   * @param tilePackage path to a .tpk or .tpkx file
+   * @throws IOException if the package can't be read or isn't a zip archive
+   */
+  public TilePackageIndex(Path tilePackage) throws IOException {
+    channel = FileChannel.open(tilePackage, StandardOpenOption.READ);
+    Map<Long, long[]> indexEntries = new HashMap<>();
+    readZipDirectory((name, dataOffset, size) -> {
+      Matcher matcher = BUNDLE_PATH.matcher(name);
+      if (matcher.matches()) {
+        int level = Integer.parseInt(matcher.group(1));
+        int row = Integer.parseInt(matcher.group(2), 16);
+        int col = Integer.parseInt(matcher.group(3), 16);
+        long key = key(level, row, col);
+        if (matcher.group(4).equalsIgnoreCase("bundle")) {
+          bundles.put(key, new Bundle(row, col, channel.map(FileChannel.MapMode.READ_ONLY, dataOffset, size)));
+        } else {
+          indexEntries.put(key, new long[] {dataOffset, size});
+        }
+      }
+    });
+
+    // version 1 bundles keep their tile offsets in a separate .bundlx file
+    for (Map.Entry<Long, Bundle> entry : bundles.entrySet()) {
+      long[] indexEntry = indexEntries.get(entry.getKey());
+      if (indexEntry != null) {
+        entry.getValue().readV1Index(channel.map(FileChannel.MapMode.READ_ONLY, indexEntry[0], indexEntry[1]));
+      } else {
+        entry.getValue().readV2Index();
+      }
+    }
+  }
+
+  /**
+   * Gets a tile's encoded bytes.
+   *
+   * @param level level of detail
+   * @param row tile row
+   * @param col tile column
+   * @return a read only view of the tile's bytes in the mapped package, or null if there is no tile
+   */
+  public ByteBuffer getTile(int level, int row, int col) {
+    Bundle bundle = bundleFor(level, row, col);
+    return bundle == null ? null : bundle.tile(row, col);
+  }
+
+  /**
+   * Touches every page of the tiles in a range so the operating system reads them into its page cache. Later reads
+   * of these tiles, including the runtime's own reads of the package, then come from memory.
+   *
+   * @param level level of detail
+   * @param minRow first row
+   * @param maxRow last row, inclusive
+   * @param minCol first column
+   * @param maxCol last column, inclusive
+   * @return number of bytes touched
+   */
+  public long warm(int level, int minRow, int maxRow, int minCol, int maxCol) {
+    long bytes = 0;
+    int checksum = 0;
+    for (int row = Math.max(0, minRow); row <= maxRow; row++) {
+      for (int col = Math.max(0, minCol); col <= maxCol; col++) {
+        ByteBuffer tile = getTile(level, row, col);
+        if (tile != null) {
+          for (int position = 0; position < tile.limit(); position += PAGE_SIZE) {
+            checksum += tile.get(position);
+          }
+          bytes += tile.limit();
+        }
+      }
+    }
+    // use the checksum so the reads can't be optimized away
+    return checksum == Integer.MIN_VALUE ? bytes + 1 : bytes;
+  }
+
+  /**
+   * Gets the number of bundles in the package.
+   *
+   * @return bundle count
+   */
+  public int getBundleCount() {
+    return bundles.size();
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Finds the bundle containing a tile.
+   *
+   * @param level level of detail
+   * @param row tile row
+   * @param col tile column
+   * @return the bundle, or null if there isn't one
+   */
+  private Bundle bundleFor(int level, int row, int col) {
+    int bundleRow = row - Math.floorMod(row, BUNDLE_DIMENSION);
+    int bundleCol = col - Math.floorMod(col, BUNDLE_DIMENSION);
+    return bundles.get(key(level, bundleRow, bundleCol));
+  }
+
+  private static long key(int level, int row, int col) {
+    return ((long) level << 56) | ((long) (row & 0xFFFFFFF) << 28) | (col & 0xFFFFFFF);
+  }
+
+  /**
+   * Reads the zip central directory, reporting where each entry's data starts in the archive.
+   *
+   * @param visitor receives each stored entry
+   * @throws IOException if the archive can't be read
+   */
+  private void readZipDirectory(EntryVisitor visitor) throws IOException {
+    long fileSize = channel.size();
+    // the end of central directory record is in the last 64KB + 22 bytes
+    int tailSize = (int) Math.min(fileSize, 0xFFFF + 22);
+    ByteBuffer tail = read(fileSize - tailSize, tailSize);
+    int end = -1;
+    for (int i = tailSize - 22; i >= 0; i--) {
+      if (tail.getInt(i) == 0x06054b50) {
+        end = i;
+        break;
+      }
+    }
+    if (end < 0) {
+      throw new IOException("Tile package isn't a zip archive");
+    }
+    long entryCount = tail.getShort(end + 10) & 0xFFFF;
+    long directoryOffset = tail.getInt(end + 16) & 0xFFFFFFFFL;
+
+    // large packages use the zip64 end of central directory record
+    if (end >= 20 && tail.getInt(end - 20) == 0x07064b50) {
+      ByteBuffer zip64End = read(tail.getLong(end - 20 + 8), 56);
+      entryCount = zip64End.getLong(32);
+      directoryOffset = zip64End.getLong(48);
+    }
+
+    long position = directoryOffset;
+    for (long i = 0; i < entryCount; i++) {
+      ByteBuffer header = read(position, 46);
+      if (header.getInt(0) != 0x02014b50) {
+        throw new IOException("Corrupt zip central directory");
+      }
+      int method = header.getShort(10) & 0xFFFF;
+      long compressedSize = header.getInt(20) & 0xFFFFFFFFL;
+      int nameLength = header.getShort(28) & 0xFFFF;
+      int extraLength = header.getShort(30) & 0xFFFF;
+      int commentLength = header.getShort(32) & 0xFFFF;
+      long localHeaderOffset = header.getInt(42) & 0xFFFFFFFFL;
+
+      ByteBuffer variable = read(position + 46, nameLength + extraLength);
+      byte[] nameBytes = new byte[nameLength];
+      variable.get(nameBytes);
+      String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+      // zip64 entries keep their large sizes and offsets in an extra field
+      int extra = nameLength;
+      while (extra + 4 <= nameLength + extraLength) {
+        int id = variable.getShort(extra) & 0xFFFF;
+        int size = variable.getShort(extra + 2) & 0xFFFF;
+        if (id == 0x0001) {
+          int field = extra + 4;
+          if ((header.getInt(24) & 0xFFFFFFFFL) == 0xFFFFFFFFL) {
+            field += 8;
+          }
+          if (compressedSize == 0xFFFFFFFFL) {
+            compressedSize = variable.getLong(field);
+            field += 8;
+          }
+          if (localHeaderOffset == 0xFFFFFFFFL) {
+            localHeaderOffset = variable.getLong(field);
+          }
+        }
+        extra += 4 + size;
+      }
+
+      if (method == 0) {
+        ByteBuffer localHeader = read(localHeaderOffset, 30);
+        long dataOffset = localHeaderOffset + 30 + (localHeader.getShort(26) & 0xFFFF)
+            + (localHeader.getShort(28) & 0xFFFF);
+        visitor.visit(name, dataOffset, compressedSize);
+      }
+      position += 46 + nameLength + extraLength + commentLength;
+    }
+  }
+
+  /**
+   * Reads a little endian block of the archive.
+   *
+   * @param position offset in the archive
+   * @param length number of bytes
+   * @return the bytes, positioned at the start
+   * @throws IOException if the bytes can't be read
+   */
+  private ByteBuffer read(long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of tile package");
+      }
+    }
+    buffer.flip();
+    return buffer;
+  }
+
+  /**
+   * Receives the stored entries of a zip archive.
+   */
+  private interface EntryVisitor {
+
+    void visit(String name, long dataOffset, long size) throws IOException;
+  }
+
+  /**
+   * A mapped compact cache bundle of 128 by 128 tiles and its tile index.
+   */
+  private static class Bundle {
+
+    private final int row;
+    private final int col;
+    private final MappedByteBuffer data;
+    private final long[] offsets = new long[BUNDLE_DIMENSION * BUNDLE_DIMENSION];
+    private final int[] sizes = new int[BUNDLE_DIMENSION * BUNDLE_DIMENSION];
+
+    Bundle(int row, int col, MappedByteBuffer data) {
+      this.row = row;
+      this.col = col;
+      this.data = data;
+      data.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Reads a version 2 index: row major 8 byte entries after the header, each a 40 bit offset and 24 bit size.
+     */
+    void readV2Index() {
+      for (int i = 0; i < offsets.length; i++) {
+        long entry = data.getLong(V2_HEADER_SIZE + i * 8);
+        offsets[i] = entry & 0xFFFFFFFFFFL;
+        sizes[i] = (int) (entry >>> 40);
+      }
+    }
+
+    /**
+     * Reads a version 1 index: column major 5 byte offsets into the bundle, each pointing at a 4 byte tile size.
+     *
+     * @param index the mapped .bundlx file
+     */
+    void readV1Index(MappedByteBuffer index) {
+      for (int c = 0; c < BUNDLE_DIMENSION; c++) {
+        for (int r = 0; r < BUNDLE_DIMENSION; r++) {
+          int position = V1_INDEX_HEADER_SIZE + (c * BUNDLE_DIMENSION + r) * 5;
+          long offset = 0;
+          for (int b = 4; b >= 0; b--) {
+            offset = (offset << 8) | (index.get(position + b) & 0xFF);
+          }
+          int i = r * BUNDLE_DIMENSION + c;
+          int size = offset + 4 <= data.limit() ? data.getInt((int) offset) : 0;
+          offsets[i] = offset + 4;
+          sizes[i] = size;
+        }
+      }
+    }
+
+    ByteBuffer tile(int tileRow, int tileCol) {
+      int i = (tileRow - row) * BUNDLE_DIMENSION + (tileCol - col);
+      if (sizes[i] <= 0) {
+        return null;
+      }
+      ByteBuffer tile = data.duplicate();
+      tile.position((int) offsets[i]).limit((int) offsets[i] + sizes[i]);
+      return tile.slice().asReadOnlyBuffer();
+    }
+  }
+}
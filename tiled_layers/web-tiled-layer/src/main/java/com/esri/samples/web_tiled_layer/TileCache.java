@@ -0,0 +1,281 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.web_tiled_layer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * A two tier cache of encoded tiles. The memory tier is split into shards, each an LRU bounded by bytes and guarded
+ * by its own lock, so concurrent tile requests rarely contend. Tiles evicted from memory stay in the disk tier, which
+ * stores one file per tile. The disk tier is bounded by bytes too, deleting the
+ * least recently used tile files once it's over budget, including those left by earlier runs.
+ */
+public class TileCache {
+
+  private final Shard[] shards;
+  private final Path directory;
+  private final long diskBudgetBytes;
+  // tile files on disk and their sizes, in least recently used order
+  private final LinkedHashMap<Long, Long> diskTiles = new LinkedHashMap<>(256, 0.75f, true);
+  private long diskSizeBytes;
+
+  /**
+   * Creates a cache. Tiles already in the directory from an earlier run are kept, oldest first in line for eviction.
+   *
+   * @param shardCount number of independently locked memory shards
+   * @param memoryBudgetBytes total bytes of encoded tiles held in memory across all shards
+   * @param directory directory for the disk tier, or null to cache in memory only
+   * @param diskBudgetBytes total bytes of tile files kept in the directory
+   * @throws IOException if the directory can't be created or read
+   */
+  public TileCache(int shardCount, long memoryBudgetBytes, Path directory, long diskBudgetBytes) throws IOException {
+    shards = new Shard[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      shards[i] = new Shard(memoryBudgetBytes / shardCount);
+    }
+    this.directory = directory;
+    this.diskBudgetBytes = diskBudgetBytes;
+    if (directory != null) {
+      Files.createDirectories(directory);
+      indexDisk();
+    }
+  }
+
+  /**
+   * Gets a tile from memory.
+   *
+   * @param key packed tile key from {@link #key}
+   * @return the encoded tile, or null if it isn't in memory
+   */
+  public byte[] getFromMemory(long key) {
+    return shardFor(key).get(key);
+  }
+
+  /**
+   * Gets a tile from disk, promoting it into memory when found.
+   *
+   * @param key packed tile key from {@link #key}
+   * @return the encoded tile, or null if it isn't on disk
+   * @throws IOException if the tile file can't be read
+   */
+  public byte[] getFromDisk(long key) throws IOException {
+    if (directory == null) {
+      return null;
+    }
+    Path file = fileFor(key);
+    if (!Files.exists(file)) {
+      return null;
+    }
+    try {
+      byte[] tile = Files.readAllBytes(file);
+      shardFor(key).put(key, tile);
+      synchronized (diskTiles) {
+        diskTiles.get(key);
+      }
+      return tile;
+    } catch (NoSuchFileException e) {
+      // evicted since it was checked
+      return null;
+    }
+  }
+
+  /**
+   * Adds a tile to memory and disk.
+   *
+   * @param key packed tile key from {@link #key}
+   * @param tile encoded tile
+   * @throws IOException if the tile file can't be written
+   */
+  public void put(long key, byte[] tile) throws IOException {
+    shardFor(key).put(key, tile);
+    if (directory != null) {
+      // write to a temporary file first so readers never see a partially written tile
+      Path file = fileFor(key);
+      Files.createDirectories(file.getParent());
+      Path temporary = Files.createTempFile(file.getParent(), "tile", ".tmp");
+      Files.write(temporary, tile);
+      Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      addToDisk(key, tile.length);
+    }
+  }
+
+  /**
+   * Gets the bytes of tile files in the disk tier.
+   *
+   * @return size in bytes, 0 if there's no disk tier
+   */
+  public long getDiskSizeBytes() {
+    synchronized (diskTiles) {
+      return diskSizeBytes;
+    }
+  }
+
+  /**
+   * Records a tile file written to disk, and deletes the least recently used files while the tier is over budget.
+   *
+   * @param key packed tile key
+   * @param size size of the tile file in bytes
+   */
+  private void addToDisk(long key, long size) {
+    List<Long> evicted = new ArrayList<>();
+    synchronized (diskTiles) {
+      Long previous = diskTiles.put(key, size);
+      diskSizeBytes += size - (previous != null ? previous : 0);
+      Iterator<Map.Entry<Long, Long>> eldest = diskTiles.entrySet().iterator();
+      while (diskSizeBytes > diskBudgetBytes && eldest.hasNext()) {
+        Map.Entry<Long, Long> entry = eldest.next();
+        if (entry.getKey() == key) {
+          continue;
+        }
+        diskSizeBytes -= entry.getValue();
+        evicted.add(entry.getKey());
+        eldest.remove();
+      }
+    }
+    for (long evictedKey : evicted) {
+      try {
+        Files.deleteIfExists(fileFor(evictedKey));
+      } catch (IOException e) {
+        // still open elsewhere, so it's left for the next run to evict
+      }
+    }
+  }
+
+  /**
+   * Indexes the tile files already in the directory, oldest first, deleting temporary files from interrupted writes
+   * and evicting tiles if the directory is over budget.
+   *
+   * @throws IOException if the directory can't be read
+   */
+  private void indexDisk() throws IOException {
+    Map<Path, BasicFileAttributes> tileFiles = new LinkedHashMap<>();
+    try (Stream<Path> paths = Files.walk(directory, 3)) {
+      for (Path file : (Iterable<Path>) paths::iterator) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(".tmp")) {
+          Files.deleteIfExists(file);
+        } else if (name.endsWith(".tile") && file.getNameCount() - directory.getNameCount() == 3) {
+          tileFiles.put(file, Files.readAttributes(file, BasicFileAttributes.class));
+        }
+      }
+    }
+    List<Path> oldestFirst = new ArrayList<>(tileFiles.keySet());
+    oldestFirst.sort(Comparator.comparing(file -> tileFiles.get(file).lastModifiedTime()));
+    for (Path file : oldestFirst) {
+      String name = file.getFileName().toString();
+      try {
+        int level = Integer.parseInt(file.getParent().getParent().getFileName().toString());
+        int col = Integer.parseInt(file.getParent().getFileName().toString());
+        int row = Integer.parseInt(name.substring(0, name.length() - ".tile".length()));
+        addToDisk(key(level, col, row), tileFiles.get(file).size());
+      } catch (NumberFormatException e) {
+        // not one of the cache's files
+      }
+    }
+  }
+
+  /**
+   * Packs a tile position into a single key.
+   *
+   * @param level zoom level (0 - 63)
+   * @param col tile column
+   * @param row tile row
+   * @return the packed key
+   */
+  public static long key(int level, int col, int row) {
+    return ((long) level << 58) | ((long) (col & 0x1FFFFFFF) << 29) | (row & 0x1FFFFFFF);
+  }
+
+  /**
+   * Gets the zoom level from a packed key.
+   *
+   * @param key packed tile key
+   * @return zoom level
+   */
+  public static int level(long key) {
+    return (int) (key >>> 58);
+  }
+
+  /**
+   * Gets the tile column from a packed key.
+   *
+   * @param key packed tile key
+   * @return tile column
+   */
+  public static int col(long key) {
+    return (int) ((key >>> 29) & 0x1FFFFFFF);
+  }
+
+  /**
+   * Gets the tile row from a packed key.
+   *
+   * @param key packed tile key
+   * @return tile row
+   */
+  public static int row(long key) {
+    return (int) (key & 0x1FFFFFFF);
+  }
+
+  private Shard shardFor(long key) {
+    return shards[(int) Math.floorMod(Long.hashCode(key * 0x9E3779B97F4A7C15L), (long) shards.length)];
+  }
+
+  private Path fileFor(long key) {
+    return directory.resolve(String.valueOf(level(key))).resolve(String.valueOf(col(key)))
+        .resolve(row(key) + ".tile");
+  }
+
+  /**
+   * One lock's worth of the memory tier: an access ordered map evicting the least recently used tiles over budget.
+   */
+  private static class Shard {
+
+    private final long budgetBytes;
+    private final LinkedHashMap<Long, byte[]> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    private long sizeBytes;
+
+    Shard(long budgetBytes) {
+      this.budgetBytes = budgetBytes;
+    }
+
+    synchronized byte[] get(long key) {
+      return tiles.get(key);
+    }
+
+    synchronized void put(long key, byte[] tile) {
+      byte[] previous = tiles.put(key, tile);
+      sizeBytes += tile.length - (previous != null ? previous.length : 0);
+      Iterator<Map.Entry<Long, byte[]>> eldest = tiles.entrySet().iterator();
+      while (sizeBytes > budgetBytes && eldest.hasNext()) {
+        sizeBytes -= eldest.next().getValue().length;
+        eldest.remove();
+      }
+    }
+  }
+}
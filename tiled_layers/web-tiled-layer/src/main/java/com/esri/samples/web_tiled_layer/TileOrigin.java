@@ -0,0 +1,82 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.web_tiled_layer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+
+/**
+ * The source of encoded tiles behind a {@link TileProxyServer}. Implement this with canned tiles to run the proxy
+ * offline.
+ */
+public interface TileOrigin {
+
+  /**
+   * Fetches an encoded tile.
+   *
+   * @param level zoom level
+   * @param col tile column
+   * @param row tile row
+   * @return the encoded tile bytes, or null if the origin has no tile at this position
+   * @throws IOException if the tile can't be fetched
+   */
+  byte[] fetch(int level, int col, int row) throws IOException;
+
+  /**
+   * Creates an origin which fetches tiles over HTTP from a web tiled layer template, such as
+   * {@code http://{subDomain}.tile.stamen.com/terrain/{level}/{col}/{row}.png}. Requests are spread over the
+   * subdomains by tile position.
+   *
+   * @param template URL template with {level}, {col}, {row} and optionally {subDomain} placeholders
+   * @param subDomains subdomains substituted for {subDomain}
+   * @return the HTTP origin
+   */
+  static TileOrigin fromTemplate(String template, List<String> subDomains) {
+    return (level, col, row) -> {
+      String subDomain = subDomains.isEmpty() ? "" : subDomains.get(Math.floorMod(col + row, subDomains.size()));
+      String url = template.replace("{subDomain}", subDomain)
+          .replace("{level}", String.valueOf(level))
+          .replace("{col}", String.valueOf(col))
+          .replace("{row}", String.valueOf(row));
+
+      HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+      try {
+        int status = connection.getResponseCode();
+        if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+          return null;
+        } else if (status != HttpURLConnection.HTTP_OK) {
+          throw new IOException("Tile request to " + url + " failed with status " + status);
+        }
+        try (InputStream inputStream = connection.getInputStream()) {
+          ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+          byte[] buffer = new byte[8192];
+          int read;
+          while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+          }
+          return outputStream.toByteArray();
+        }
+      } finally {
+        connection.disconnect();
+      }
+    };
+  }
+}
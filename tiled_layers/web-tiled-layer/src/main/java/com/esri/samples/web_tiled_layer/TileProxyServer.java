@@ -0,0 +1,360 @@
+/*
+ * Copyright 2020 Esri.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.esri.samples.web_tiled_layer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An embedded HTTP server which serves tiles at {@code /tiles/{level}/{col}/{row}} from a {@link TileCache}, falling
+ * back to a {@link TileOrigin} on a miss. A {@code WebTiledLayer} is pointed at it through {@link #getTemplateUri()}.
+ * <p>
+ * Concurrent misses for the same tile share one origin request. After each request, the tiles next in the direction
+ * the user is panning, and the children of the requested tile on the next zoom level, are fetched in the background.
+ */
+public class TileProxyServer {
+
+  private static final int LATENCY_SAMPLES = 4096;
+  // deepest level whose columns and rows fit in a packed tile key
+  private static final int MAX_LEVEL = 29;
+
+  private final TileOrigin origin;
+  private final TileCache cache;
+  private final HttpServer server;
+  private final ExecutorService prefetchExecutor;
+  private final ConcurrentHashMap<Long, CompletableFuture<byte[]>> pendingFetches = new ConcurrentHashMap<>();
+
+  // last requested tile on each level, to work out the pan direction
+  private final long[] lastRequested = new long[MAX_LEVEL + 1];
+
+  private final AtomicLong memoryHits = new AtomicLong();
+  private final AtomicLong diskHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final long[] latencies = new long[LATENCY_SAMPLES];
+  private long latencyCount;
+
+  /**
+   * Creates a proxy listening on an ephemeral port of the loopback interface. Call {@link #start()} to begin serving.
+   *
+   * @param origin source of tiles missing from the cache
+   * @param cache cache of encoded tiles
+   * @throws IOException if the server socket can't be opened
+   */
+  public TileProxyServer(TileOrigin origin, TileCache cache) throws IOException {
+    this.origin = origin;
+    this.cache = cache;
+    Arrays.fill(lastRequested, -1);
+
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/tiles/", this::handle);
+    server.setExecutor(Executors.newFixedThreadPool(8, daemonThreads("tile-proxy")));
+
+    // drop prefetches rather than queue them behind the user once the origin falls behind
+    prefetchExecutor = new ThreadPoolExecutor(2, 2, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(64),
+        daemonThreads("tile-prefetch"), new ThreadPoolExecutor.DiscardOldestPolicy());
+  }
+
+  /**
+   * Starts serving tiles.
+   */
+  public void start() {
+    server.start();
+  }
+
+  /**
+   * Stops serving tiles and cancels outstanding prefetches.
+   */
+  public void stop() {
+    server.stop(0);
+    prefetchExecutor.shutdownNow();
+  }
+
+  /**
+   * Gets the URL template to give a {@code WebTiledLayer}.
+   *
+   * @return template URI pointing at this proxy
+   */
+  public String getTemplateUri() {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + "/tiles/{level}/{col}/{row}";
+  }
+
+  /**
+   * Gets a tile through the cache tiers, fetching it from the origin on a miss.
+   *
+   * @param level zoom level
+   * @param col tile column
+   * @param row tile row
+   * @return the encoded tile, or null if the origin has none
+   * @throws IOException if the tile can't be read or fetched
+   */
+  public byte[] getTile(int level, int col, int row) throws IOException {
+    long key = TileCache.key(level, col, row);
+    byte[] tile = cache.getFromMemory(key);
+    if (tile != null) {
+      memoryHits.incrementAndGet();
+      return tile;
+    }
+    tile = cache.getFromDisk(key);
+    if (tile != null) {
+      diskHits.incrementAndGet();
+      return tile;
+    }
+    misses.incrementAndGet();
+    return fetchCoalesced(key);
+  }
+
+  /**
+   * Gets the fraction of requests answered by the memory or disk tier.
+   *
+   * @return hit ratio between 0 and 1
+   */
+  public double getHitRatio() {
+    long hits = memoryHits.get() + diskHits.get();
+    long total = hits + misses.get();
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
+  /**
+   * Gets the 99th percentile latency of recent tile requests.
+   *
+   * @return p99 latency in milliseconds
+   */
+  public double getP99LatencyMillis() {
+    long[] samples;
+    synchronized (latencies) {
+      samples = Arrays.copyOf(latencies, (int) Math.min(latencyCount, LATENCY_SAMPLES));
+    }
+    if (samples.length == 0) {
+      return 0;
+    }
+    Arrays.sort(samples);
+    return samples[(int) Math.ceil(samples.length * 0.99) - 1] / 1e6;
+  }
+
+  /**
+   * Summarizes the proxy's statistics.
+   *
+   * @return human readable statistics
+   */
+  public String getStatistics() {
+    return String.format("memory hits %d, disk hits %d, misses %d, hit ratio %.1f%%, p99 %.1f ms", memoryHits.get(),
+        diskHits.get(), misses.get(), getHitRatio() * 100, getP99LatencyMillis());
+  }
+
+  /**
+   * Serves a tile request.
+   *
+   * @param exchange the HTTP exchange
+   * @throws IOException if the response can't be written
+   */
+  private void handle(HttpExchange exchange) throws IOException {
+    long start = System.nanoTime();
+    int[] tilePosition = null;
+    boolean responded = false;
+    try {
+      tilePosition = parseTilePosition(exchange.getRequestURI().getPath());
+      if (tilePosition == null) {
+        responded = true;
+        exchange.sendResponseHeaders(400, -1);
+        return;
+      }
+      int level = tilePosition[0];
+      int col = tilePosition[1];
+      int row = tilePosition[2];
+
+      byte[] tile = getTile(level, col, row);
+      if (tile == null) {
+        responded = true;
+        exchange.sendResponseHeaders(404, -1);
+      } else {
+        responded = true;
+        exchange.sendResponseHeaders(200, tile.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+          body.write(tile);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      // once the headers are out the status can't change, so the client just sees the connection close
+      if (!responded) {
+        exchange.sendResponseHeaders(502, -1);
+      }
+    } finally {
+      exchange.close();
+      recordLatency(System.nanoTime() - start);
+    }
+
+    // prefetch after the response is complete, so it neither delays nor fails the request
+    if (tilePosition != null) {
+      prefetchAround(tilePosition[0], tilePosition[1], tilePosition[2]);
+    }
+  }
+
+  /**
+   * Reads the tile position from a request path of the form {@code /tiles/{level}/{col}/{row}}.
+   *
+   * @param path request path
+   * @return the level, column and row, or null if the path isn't a valid tile position
+   */
+  private static int[] parseTilePosition(String path) {
+    String[] segments = path.split("/");
+    if (segments.length != 5) {
+      return null;
+    }
+    try {
+      int level = Integer.parseInt(segments[2]);
+      int col = Integer.parseInt(segments[3]);
+      int row = Integer.parseInt(segments[4]);
+      if (level < 0 || level > MAX_LEVEL || col < 0 || row < 0 || col >= 1 << level || row >= 1 << level) {
+        return null;
+      }
+      return new int[] {level, col, row};
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Fetches a tile from the origin, sharing the request with any concurrent fetch of the same tile.
+   *
+   * @param key packed tile key
+   * @return the encoded tile, or null if the origin has none
+   * @throws IOException if the fetch fails
+   */
+  private byte[] fetchCoalesced(long key) throws IOException {
+    CompletableFuture<byte[]> fetch = new CompletableFuture<>();
+    CompletableFuture<byte[]> pending = pendingFetches.putIfAbsent(key, fetch);
+    if (pending != null) {
+      try {
+        return pending.join();
+      } catch (CompletionException e) {
+        throw new IOException(e.getCause());
+      }
+    }
+    try {
+      byte[] tile = origin.fetch(TileCache.level(key), TileCache.col(key), TileCache.row(key));
+      if (tile != null) {
+        cache.put(key, tile);
+      }
+      fetch.complete(tile);
+      return tile;
+    } catch (IOException | RuntimeException e) {
+      fetch.completeExceptionally(e);
+      throw e;
+    } finally {
+      pendingFetches.remove(key);
+    }
+  }
+
+  /**
+   * Queues background fetches for the tiles ahead of the pan direction and the next zoom level.
+   *
+   * @param level requested zoom level
+   * @param col requested column
+   * @param row requested row
+   */
+  private void prefetchAround(int level, int col, int row) {
+    if (level < 0 || level >= lastRequested.length) {
+      return;
+    }
+    long previous;
+    synchronized (lastRequested) {
+      previous = lastRequested[level];
+      lastRequested[level] = TileCache.key(level, col, row);
+    }
+    if (previous >= 0) {
+      int colDirection = Integer.signum(col - TileCache.col(previous));
+      int rowDirection = Integer.signum(row - TileCache.row(previous));
+      if (colDirection != 0 || rowDirection != 0) {
+        prefetch(level, col + colDirection, row + rowDirection);
+        prefetch(level, col + 2 * colDirection, row + 2 * rowDirection);
+      }
+    }
+    // the four children of the tile, for when the user zooms in
+    prefetch(level + 1, col * 2, row * 2);
+    prefetch(level + 1, col * 2 + 1, row * 2);
+    prefetch(level + 1, col * 2, row * 2 + 1);
+    prefetch(level + 1, col * 2 + 1, row * 2 + 1);
+  }
+
+  /**
+   * Fetches a tile in the background if it isn't already cached.
+   *
+   * @param level zoom level
+   * @param col tile column
+   * @param row tile row
+   */
+  private void prefetch(int level, int col, int row) {
+    int tilesPerSide = 1 << Math.min(level, MAX_LEVEL);
+    if (level > MAX_LEVEL || col < 0 || row < 0 || col >= tilesPerSide || row >= tilesPerSide) {
+      return;
+    }
+    long key = TileCache.key(level, col, row);
+    if (cache.getFromMemory(key) != null || pendingFetches.containsKey(key)) {
+      return;
+    }
+    prefetchExecutor.execute(() -> {
+      try {
+        if (cache.getFromDisk(key) == null) {
+          fetchCoalesced(key);
+        }
+      } catch (IOException e) {
+        // prefetching is best effort, the tile is fetched again if it's actually requested
+      }
+    });
+  }
+
+  /**
+   * Records a request latency in the ring of recent samples.
+   *
+   * @param nanos latency in nanoseconds
+   */
+  private void recordLatency(long nanos) {
+    synchronized (latencies) {
+      latencies[(int) (latencyCount++ % LATENCY_SAMPLES)] = nanos;
+    }
+  }
+
+  /**
+   * Creates a thread factory for daemon threads, so the proxy never keeps the application alive.
+   *
+   * @param name thread name
+   * @return the thread factory
+   */
+  private static ThreadFactory daemonThreads(String name) {
+    return runnable -> {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+}
@@ -16,14 +16,28 @@
 
 package com.esri.samples.web_tiled_layer;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
+import javafx.scene.control.Label;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
 import javafx.scene.layout.StackPane;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Paint;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 import com.esri.arcgisruntime.layers.WebTiledLayer;
 import com.esri.arcgisruntime.loadable.LoadStatus;
@@ -35,6 +49,10 @@ public class WebTiledLayerSample extends Application {
 
   private MapView mapView;
   private WebTiledLayer webTiledLayer;
+  private TileProxyServer tileProxyServer;
+  private Timeline statisticsTimeline;
+
+  private static final long DISK_CACHE_BYTES = 256L * 1024 * 1024;
 
   @Override
   public void start(Stage stage) {
@@ -60,8 +78,14 @@ public class WebTiledLayerSample extends Application {
       List<String> subDomains = Arrays.asList("a", "b", "c", "d");
       String templateURI = "http://{subDomain}.tile.stamen.com/terrain/{level}/{col}/{row}.png";
 
-      // create a web tiled layer
-      webTiledLayer = new WebTiledLayer(templateURI, subDomains);
+      // serve the tiles through a local caching proxy, which keeps them in memory and on disk between runs
+      Path cacheDirectory = Paths.get(System.getProperty("java.io.tmpdir"), "web_tiled_layer_cache");
+      TileCache tileCache = new TileCache(16, 64 * 1024 * 1024, cacheDirectory, DISK_CACHE_BYTES);
+      tileProxyServer = new TileProxyServer(TileOrigin.fromTemplate(templateURI, subDomains), tileCache);
+      tileProxyServer.start();
+
+      // create a web tiled layer pointed at the proxy
+      webTiledLayer = new WebTiledLayer(tileProxyServer.getTemplateUri());
       webTiledLayer.loadAsync();
       webTiledLayer.addDoneLoadingListener(() -> {
         if(webTiledLayer.getLoadStatus() == LoadStatus.LOADED){
@@ -77,8 +101,26 @@ public class WebTiledLayerSample extends Application {
         }
       });
 
+      // show the proxy's statistics, refreshed once a second
+      Label statisticsLabel = new Label();
+      statisticsLabel.setWrapText(true);
+      statisticsLabel.setStyle("-fx-text-fill: white;");
+      VBox controlsVBox = new VBox(6);
+      controlsVBox.setBackground(new Background(new BackgroundFill(Paint.valueOf("rgba(0,0,0,0.3)"), CornerRadii.EMPTY,
+          Insets.EMPTY)));
+      controlsVBox.setPadding(new Insets(10.0));
+      controlsVBox.setMaxSize(320, 90);
+      controlsVBox.getChildren().add(statisticsLabel);
+      statisticsTimeline = new Timeline(new KeyFrame(Duration.seconds(1), e -> statisticsLabel.setText(String.format(
+          Locale.ROOT, "Tile proxy: %s%nDisk cache: %.0f of %d MB", tileProxyServer.getStatistics(),
+          tileCache.getDiskSizeBytes() / 1048576.0, DISK_CACHE_BYTES / (1024 * 1024)))));
+      statisticsTimeline.setCycleCount(Timeline.INDEFINITE);
+      statisticsTimeline.play();
+
       // add the map view and control panel to stack pane
-      stackPane.getChildren().addAll(mapView);
+      stackPane.getChildren().addAll(mapView, controlsVBox);
+      StackPane.setAlignment(controlsVBox, Pos.TOP_LEFT);
+      StackPane.setMargin(controlsVBox, new Insets(10, 0, 0, 10));
     } catch (Exception e) {
       // on any error, display stack trace
       e.printStackTrace();
@@ -91,9 +133,15 @@ public class WebTiledLayerSample extends Application {
   @Override
   public void stop() {
 
+    if (statisticsTimeline != null) {
+      statisticsTimeline.stop();
+    }
     if (mapView != null) {
       mapView.dispose();
     }
+    if (tileProxyServer != null) {
+      tileProxyServer.stop();
+    }
   }
 
   /**